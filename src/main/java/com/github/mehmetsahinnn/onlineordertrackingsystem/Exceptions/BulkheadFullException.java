@@ -0,0 +1,7 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions;
+
+public class BulkheadFullException extends RuntimeException {
+    public BulkheadFullException(String message) {
+        super(message);
+    }
+}
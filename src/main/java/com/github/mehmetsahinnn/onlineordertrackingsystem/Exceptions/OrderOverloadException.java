@@ -0,0 +1,14 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions;
+
+public class OrderOverloadException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public OrderOverloadException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,11 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions;
+
+public class OrderPublishException extends RuntimeException {
+    public OrderPublishException(String message) {
+        super(message);
+    }
+
+    public OrderPublishException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,292 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.config.OrderPartitionManager;
+import com.rabbitmq.client.Channel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The AdaptiveListenerTuner adjusts how the order partition consumers of this node take work,
+ * based on the depth of their queues, the time spent per message and the commit latency of the database.
+ * <p>
+ * It controls three settings, each kept between a configured floor and ceiling:
+ * <ul>
+ *     <li>the listener batch size, applied to the partition containers;</li>
+ *     <li>the prefetch, applied as a channel-wide limit on each consumer channel, so it takes effect
+ *     without restarting the consumers; the containers themselves prefetch up to the ceiling;</li>
+ *     <li>the number of consumers that may write to the database at the same time. Partition queues
+ *     have a single active consumer, so the consumer count is governed by admitting writers rather than
+ *     by adding consumers. Express orders have writers of their own on top, see {@link OrderLaneGate}.</li>
+ * </ul>
+ * When commit latency exceeds {@code sr.rabbit.tuner.commit-latency-target-ms} the database is the
+ * bottleneck, so fewer consumers write smaller batches. Otherwise, when the backlog would take longer
+ * than {@code sr.rabbit.tuner.drain-target-ms} to drain at the observed cost per message, more consumers
+ * may write; batches only grow while the backlog keeps growing and commit latency is at most half its
+ * target, since a larger batch holds its transaction longer. When the queues are nearly empty, batches
+ * shrink again to keep latency low.
+ */
+@Slf4j
+@Component
+public class AdaptiveListenerTuner {
+
+    private final ObjectProvider<OrderPartitionManager> orderPartitionManager;
+    private final AmqpAdmin amqpAdmin;
+    private final boolean enabled;
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final int minPrefetch;
+    private final int maxPrefetch;
+    private final int minConsumers;
+    private final int maxConsumers;
+    private final int consumerStep;
+    private final long commitLatencyTargetNanos;
+    private final long drainTargetNanos;
+
+    private final OrderLaneGate writers;
+    private final LatencyWindow commitLatencies = new LatencyWindow(1024);
+    private final LongAdder processedMessages = new LongAdder();
+    private final LongAdder processingNanos = new LongAdder();
+    private final Map<Channel, Integer> appliedPrefetch = Collections.synchronizedMap(new WeakHashMap<>());
+    private volatile int batchSize;
+    private volatile int prefetch;
+    private volatile int consumers;
+    private long previousQueueDepth;
+
+    @Autowired
+    public AdaptiveListenerTuner(ObjectProvider<OrderPartitionManager> orderPartitionManager, AmqpAdmin amqpAdmin,
+                                 @Value("${sr.rabbit.tuner.enabled:true}") boolean enabled,
+                                 @Value("${sr.rabbit.listener.batch-size:50}") int batchSize,
+                                 @Value("${sr.rabbit.tuner.batch-size.min:10}") int minBatchSize,
+                                 @Value("${sr.rabbit.tuner.batch-size.max:500}") int maxBatchSize,
+                                 @Value("${sr.rabbit.tuner.prefetch.min:20}") int minPrefetch,
+                                 @Value("${sr.rabbit.tuner.prefetch.max:1000}") int maxPrefetch,
+                                 @Value("${sr.rabbit.tuner.consumers.min:1}") int minConsumers,
+                                 @Value("${sr.rabbit.tuner.consumers.max:${sr.rabbit.partitions:4}}") int maxConsumers,
+                                 @Value("${sr.rabbit.tuner.consumers.step:1}") int consumerStep,
+                                 @Value("${sr.rabbit.tuner.commit-latency-target-ms:50}") long commitLatencyTargetMs,
+                                 @Value("${sr.rabbit.tuner.drain-target-ms:5000}") long drainTargetMs,
+                                 @Value("${sr.rabbit.express.reserved-writers:1}") int reservedExpressWriters,
+                                 @Value("${sr.rabbit.express.max-consecutive:4}") int maxExpressStreak) {
+        this.orderPartitionManager = orderPartitionManager;
+        this.amqpAdmin = amqpAdmin;
+        this.enabled = enabled;
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.minPrefetch = minPrefetch;
+        this.maxPrefetch = maxPrefetch;
+        this.minConsumers = minConsumers;
+        this.maxConsumers = maxConsumers;
+        this.consumerStep = consumerStep;
+        this.commitLatencyTargetNanos = TimeUnit.MILLISECONDS.toNanos(commitLatencyTargetMs);
+        this.drainTargetNanos = TimeUnit.MILLISECONDS.toNanos(drainTargetMs);
+        this.batchSize = clamp(batchSize, minBatchSize, maxBatchSize);
+        this.prefetch = clamp(2 * this.batchSize, minPrefetch, maxPrefetch);
+        this.consumers = maxConsumers;
+        this.writers = new OrderLaneGate(maxConsumers, reservedExpressWriters, maxExpressStreak);
+    }
+
+    /**
+     * Creates a tuner that keeps the given settings, for listeners used outside the partition containers.
+     *
+     * @param batchSize the batch size to report
+     * @param consumers the number of consumers that may write at the same time
+     * @return a tuner that never changes its settings
+     */
+    public static AdaptiveListenerTuner fixed(int batchSize, int consumers) {
+        return new AdaptiveListenerTuner(null, null, false, batchSize, batchSize, batchSize,
+                2 * batchSize, 2 * batchSize, consumers, consumers, 0, Long.MAX_VALUE / 1_000_000, Long.MAX_VALUE / 1_000_000, 0, 1);
+    }
+
+    /**
+     * Runs a database write for bulk orders once a writer is available, and records its commit latency.
+     *
+     * @param write the transaction to run
+     */
+    public void write(Runnable write) {
+        write(false, write);
+    }
+
+    /**
+     * Runs a database write once a writer of its lane is available, and records its commit latency.
+     *
+     * @param express whether the write is for express orders
+     * @param write   the transaction to run
+     */
+    public void write(boolean express, Runnable write) {
+        boolean reservedSlot = writers.acquire(express);
+        long start = System.nanoTime();
+        try {
+            write.run();
+        } finally {
+            recordCommit(System.nanoTime() - start);
+            writers.release(reservedSlot);
+        }
+    }
+
+    /**
+     * Records how long a database write took, from the start of its transaction to its commit.
+     *
+     * @param nanos the commit latency
+     */
+    public void recordCommit(long nanos) {
+        commitLatencies.record(nanos);
+    }
+
+    /**
+     * Records the time a listener spent on a group of messages, from decoding to acknowledgement.
+     *
+     * @param messages the number of messages handled
+     * @param nanos    the time spent handling them
+     */
+    public void recordProcessing(int messages, long nanos) {
+        processedMessages.add(messages);
+        processingNanos.add(nanos);
+    }
+
+    /**
+     * Limits the unacknowledged messages on a consumer channel to the current prefetch, if it has changed
+     * since it was last applied to that channel.
+     *
+     * @param channel the consumer channel
+     */
+    public void applyPrefetch(Channel channel) {
+        int current = prefetch;
+        Integer applied = appliedPrefetch.get(channel);
+        if (applied != null && applied == current) {
+            return;
+        }
+        try {
+            channel.basicQos(current, true);
+            appliedPrefetch.put(channel, current);
+        } catch (IOException e) {
+            log.warn("Could not apply prefetch {}: {}", current, e.getMessage());
+        }
+    }
+
+    /**
+     * Measures the backlog of the partitions this node consumes, tunes the settings and applies
+     * the batch size to the partition containers.
+     */
+    @Scheduled(fixedDelayString = "${sr.rabbit.tuner.interval-ms:1000}")
+    public void tick() {
+        OrderPartitionManager manager = orderPartitionManager != null ? orderPartitionManager.getIfAvailable() : null;
+        if (!enabled || manager == null) {
+            return;
+        }
+        long[] depth = new long[1];
+        manager.forEachContainer((partition, container) -> {
+            for (String queueName : container.getQueueNames()) {
+                QueueInformation info = amqpAdmin.getQueueInfo(queueName);
+                depth[0] += info != null ? info.getMessageCount() : 0;
+            }
+        });
+        tune(depth[0]);
+        manager.forEachContainer((partition, container) -> container.setBatchSize(batchSize));
+    }
+
+    /**
+     * Adjusts the settings to the given backlog and the latencies observed since the previous call.
+     *
+     * @param queueDepth the number of messages waiting in the queues of this node
+     */
+    public synchronized void tune(long queueDepth) {
+        long commitP99 = commitLatencies.percentileAndReset(0.99);
+        long messages = processedMessages.sumThenReset();
+        long nanos = processingNanos.sumThenReset();
+        if (!enabled) {
+            return;
+        }
+        long perMessageNanos = messages > 0 ? nanos / messages : 0;
+        long drainNanos = queueDepth * perMessageNanos / Math.max(1, consumers);
+        boolean backlogGrowing = queueDepth > previousQueueDepth;
+        previousQueueDepth = queueDepth;
+
+        int newConsumers = consumers;
+        int newBatchSize = batchSize;
+        if (commitP99 > commitLatencyTargetNanos) {
+            newConsumers = consumers - consumerStep;
+            newBatchSize = batchSize / 2;
+        } else if (drainNanos > drainTargetNanos) {
+            newConsumers = consumers + consumerStep;
+            if (backlogGrowing && commitP99 <= commitLatencyTargetNanos / 2) {
+                newBatchSize = batchSize * 2;
+            }
+        } else if (drainNanos < drainTargetNanos / 4) {
+            newBatchSize = batchSize / 2;
+        }
+        newConsumers = clamp(newConsumers, minConsumers, maxConsumers);
+        newBatchSize = clamp(newBatchSize, minBatchSize, maxBatchSize);
+
+        if (newConsumers != consumers || newBatchSize != batchSize) {
+            log.info("Listener tuning: depth {}, commit p99 {} ms, {} us per message -> consumers {} -> {}, batch {} -> {}",
+                    queueDepth, TimeUnit.NANOSECONDS.toMillis(commitP99), TimeUnit.NANOSECONDS.toMicros(perMessageNanos),
+                    consumers, newConsumers, batchSize, newBatchSize);
+        }
+        writers.resize(newConsumers);
+        consumers = newConsumers;
+        batchSize = newBatchSize;
+        prefetch = clamp(2 * newBatchSize, minPrefetch, maxPrefetch);
+    }
+
+    public int batchSize() {
+        return batchSize;
+    }
+
+    public int prefetch() {
+        return prefetch;
+    }
+
+    public int consumers() {
+        return consumers;
+    }
+
+    public int maxPrefetch() {
+        return maxPrefetch;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * Keeps the most recent latencies in a ring buffer.
+     */
+    private static final class LatencyWindow {
+
+        private final long[] samples;
+        private final AtomicLong count = new AtomicLong();
+
+        LatencyWindow(int size) {
+            samples = new long[size];
+        }
+
+        void record(long nanos) {
+            samples[(int) (count.getAndIncrement() % samples.length)] = nanos;
+        }
+
+        long percentileAndReset(double p) {
+            int n = (int) Math.min(count.getAndSet(0), samples.length);
+            if (n == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(samples, n);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.min(n - 1, Math.ceil(p * n) - 1)];
+        }
+    }
+}
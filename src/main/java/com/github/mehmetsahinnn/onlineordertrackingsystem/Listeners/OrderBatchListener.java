@@ -0,0 +1,277 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions.InsufficientStockException;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticservices.OrderIndexer;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.enums.OrderStatus;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.events.OrderPlacedEvent;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.producers.OrderPartitioner;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.OrderBatchWriter;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.StockHoldService;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.StockReservationEngine;
+import com.rabbitmq.client.Channel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.AmqpIOException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.listener.api.ChannelAwareBatchMessageListener;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The OrderBatchListener consumes orders in batches when {@code sr.rabbit.listener.batch-enabled} is set.
+ * <p>
+ * Each message is decoded into an {@link OrderPlacedEvent} and its stock reserved on its own; a message that cannot be decoded, is
+ * invalid, or has no stock left is handed to the {@link OrderRetryHandler} and does not affect the others.
+ * The remaining orders, their items and the aggregated stock deltas of their products are then written
+ * in one transaction and acknowledged together. If that transaction fails, the orders are retried one
+ * per transaction so a single bad row only rejects its own message.
+ * <p>
+ * Orders the {@link ProcessedOrderCache} knows to be stored, and repeats of an order within a batch, are
+ * acknowledged without being written. Orders the cache does not know are looked up in the database
+ * once per batch before any stock is reserved, so a stored order is acknowledged, and a hold still taken
+ * for it released, even when its stock has since run out. Orders stored in between are still skipped by the insert and their stock given back
+ * before the deltas are written, so a redelivered order changes stock only once.
+ * The {@link AdaptiveListenerTuner} is told how long each batch took and its commit latency, and sets
+ * the prefetch of the consumer channel. Batches from the express lane are written with its reserved writers.
+ * Once a batch is committed, its newly stored orders are handed to the {@link OrderIndexer}.
+ */
+@Slf4j
+@Service
+public class OrderBatchListener implements ChannelAwareBatchMessageListener {
+
+    private final MessageConverter messageConverter;
+    private final OrderBatchWriter orderBatchWriter;
+    private final StockReservationEngine stockReservationEngine;
+    private final StockHoldService stockHoldService;
+    private final OrderRetryHandler orderRetryHandler;
+    private final AdaptiveListenerTuner listenerTuner;
+    private final ProcessedOrderCache processedOrderCache;
+    private final OrderIndexer orderIndexer;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public OrderBatchListener(MessageConverter orderEventMessageConverter, OrderBatchWriter orderBatchWriter,
+                              StockReservationEngine stockReservationEngine, StockHoldService stockHoldService,
+                              OrderRetryHandler orderRetryHandler, AdaptiveListenerTuner listenerTuner,
+                              ProcessedOrderCache processedOrderCache, OrderIndexer orderIndexer,
+                              PlatformTransactionManager transactionManager) {
+        this.messageConverter = orderEventMessageConverter;
+        this.orderBatchWriter = orderBatchWriter;
+        this.stockReservationEngine = stockReservationEngine;
+        this.stockHoldService = stockHoldService;
+        this.orderRetryHandler = orderRetryHandler;
+        this.listenerTuner = listenerTuner;
+        this.processedOrderCache = processedOrderCache;
+        this.orderIndexer = orderIndexer;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void onMessageBatch(List<Message> messages, Channel channel) {
+        long start = System.nanoTime();
+        try {
+            process(messages, channel);
+        } finally {
+            listenerTuner.recordProcessing(messages.size(), System.nanoTime() - start);
+            listenerTuner.applyPrefetch(channel);
+        }
+    }
+
+    private void process(List<Message> messages, Channel channel) {
+        boolean express = isExpress(messages.get(0));
+        List<ReceivedOrder> received = new ArrayList<>(messages.size());
+        Set<UUID> batchOrderIds = new HashSet<>();
+        for (Message message : messages) {
+            OrderPlacedEvent event;
+            try {
+                event = decode(message);
+            } catch (RuntimeException e) {
+                log.error("Order message {} failed: {}", message.getMessageProperties().getDeliveryTag(), e.getMessage());
+                retryLater(channel, message, e);
+                continue;
+            }
+            if (alreadyReceived(event.getOrderTrackId(), batchOrderIds)) {
+                acknowledgeReceived(channel, message, event);
+            } else {
+                received.add(new ReceivedOrder(message, event));
+            }
+        }
+
+        Set<UUID> stored = findStored(batchOrderIds);
+        List<PendingOrder> accepted = new ArrayList<>(received.size());
+        for (ReceivedOrder order : received) {
+            if (stored.contains(order.event().getOrderTrackId())) {
+                processedOrderCache.add(order.event().getOrderTrackId());
+                stockHoldService.release(order.event().getOrderTrackId());
+                acknowledgeReceived(channel, order.message(), order.event());
+                continue;
+            }
+            try {
+                accepted.add(reserve(order.message(), order.event()));
+            } catch (RuntimeException e) {
+                log.error("Order message {} failed: {}", order.message().getMessageProperties().getDeliveryTag(), e.getMessage());
+                retryLater(channel, order.message(), e);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        try {
+            persist(accepted, express);
+        } catch (RuntimeException e) {
+            log.warn("Batch of {} orders failed, retrying them one by one: {}", accepted.size(), e.getMessage());
+            accepted.forEach(pending -> persistAlone(pending, express, channel));
+            return;
+        }
+        ack(channel, accepted.get(accepted.size() - 1).deliveryTag(), true);
+    }
+
+    private void persistAlone(PendingOrder pending, boolean express, Channel channel) {
+        try {
+            persist(List.of(pending), express);
+        } catch (RuntimeException e) {
+            log.error("Error processing order {}: {}", pending.event().getOrderTrackId(), e.getMessage());
+            pending.release(stockReservationEngine);
+            retryLater(channel, pending.message(), e);
+            return;
+        }
+        ack(channel, pending.deliveryTag(), false);
+    }
+
+    /**
+     * Tells whether an order is known to be stored or already appeared earlier in the batch.
+     */
+    private boolean alreadyReceived(UUID orderTrackId, Set<UUID> batchOrderIds) {
+        return orderTrackId != null && (processedOrderCache.contains(orderTrackId) || !batchOrderIds.add(orderTrackId));
+    }
+
+    /**
+     * Looks up which orders of the batch are stored already, for example by a consumer that ran before a restart.
+     * If the lookup fails, none is taken as stored and the insert still skips those that are.
+     */
+    private Set<UUID> findStored(Set<UUID> orderTrackIds) {
+        try {
+            return orderBatchWriter.findStored(orderTrackIds);
+        } catch (RuntimeException e) {
+            log.warn("Could not look up stored orders, relying on the insert to skip them: {}", e.getMessage());
+            return Set.of();
+        }
+    }
+
+    private static void acknowledgeReceived(Channel channel, Message message, OrderPlacedEvent event) {
+        log.info("Order {} was already received, acknowledging it", event.getOrderTrackId());
+        ack(channel, message.getMessageProperties().getDeliveryTag(), false);
+    }
+
+    private OrderPlacedEvent decode(Message message) {
+        Object payload = messageConverter.fromMessage(message);
+        if (!(payload instanceof OrderPlacedEvent event)) {
+            throw new IllegalArgumentException("Order or Order Items cannot be null or empty.");
+        }
+        return event;
+    }
+
+    private PendingOrder reserve(Message message, OrderPlacedEvent event) {
+        Map<Long, Integer> quantities = event.quantitiesByProduct();
+        if (!stockHoldService.confirm(event.getOrderTrackId()) && !stockReservationEngine.reserveAll(quantities)) {
+            throw new InsufficientStockException("Insufficient stock for order items: " + quantities.keySet());
+        }
+        return new PendingOrder(message, event, quantities, new AtomicBoolean());
+    }
+
+    private void persist(List<PendingOrder> batch, boolean express) {
+        List<OrderPlacedEvent> events = new ArrayList<>(batch.size());
+        Set<Long> productIds = new HashSet<>();
+        for (PendingOrder pending : batch) {
+            events.add(pending.event());
+            productIds.addAll(pending.quantities().keySet());
+        }
+        LocalDate estimatedDeliveryDate = LocalDate.now().plusDays(5);
+        listenerTuner.write(express, () -> transactionTemplate.executeWithoutResult(status -> {
+            Set<UUID> duplicates = orderBatchWriter.insertAll(events, OrderStatus.CONFIRMED, estimatedDeliveryDate);
+            for (PendingOrder pending : batch) {
+                if (duplicates.contains(pending.event().getOrderTrackId())) {
+                    log.info("Order {} is already stored, giving back its stock", pending.event().getOrderTrackId());
+                    pending.release(stockReservationEngine);
+                }
+            }
+            stockReservationEngine.flush(productIds);
+        }));
+        for (PendingOrder pending : batch) {
+            if (pending.event().getOrderTrackId() != null) {
+                processedOrderCache.add(pending.event().getOrderTrackId());
+            }
+            if (!pending.released().get()) {
+                orderIndexer.indexConfirmed(pending.event(), estimatedDeliveryDate);
+            }
+        }
+    }
+
+    /**
+     * A container consumes either the express lane or order partitions, so a batch is all one or the other.
+     */
+    private static boolean isExpress(Message message) {
+        String queue = message.getMessageProperties().getConsumerQueue();
+        return queue != null && queue.endsWith("." + OrderPartitioner.EXPRESS_LANE);
+    }
+
+    private static void ack(Channel channel, long deliveryTag, boolean multiple) {
+        try {
+            channel.basicAck(deliveryTag, multiple);
+        } catch (IOException e) {
+            throw new AmqpIOException(e);
+        }
+    }
+
+    /**
+     * Moves a failed message to the retry queues and acknowledges it. If the retry exchange cannot be
+     * reached the message is requeued instead, so it is redelivered rather than lost.
+     */
+    private void retryLater(Channel channel, Message message, RuntimeException cause) {
+        long deliveryTag = message.getMessageProperties().getDeliveryTag();
+        try {
+            orderRetryHandler.handleFailure(message, cause);
+        } catch (AmqpException e) {
+            log.error("Could not schedule a retry for order message {}, requeueing it: {}", deliveryTag, e.getMessage());
+            nack(channel, deliveryTag);
+            return;
+        }
+        ack(channel, deliveryTag, false);
+    }
+
+    private static void nack(Channel channel, long deliveryTag) {
+        try {
+            channel.basicNack(deliveryTag, false, true);
+        } catch (IOException e) {
+            throw new AmqpIOException(e);
+        }
+    }
+
+    private record ReceivedOrder(Message message, OrderPlacedEvent event) {
+    }
+
+    private record PendingOrder(Message message, OrderPlacedEvent event, Map<Long, Integer> quantities, AtomicBoolean released) {
+
+        long deliveryTag() {
+            return message.getMessageProperties().getDeliveryTag();
+        }
+
+        /**
+         * Gives back the reserved stock, once, whether the order turned out to be stored already or failed.
+         */
+        void release(StockReservationEngine stockReservationEngine) {
+            if (released.compareAndSet(false, true)) {
+                stockReservationEngine.releaseAll(quantities);
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners;
+
+/**
+ * The OrderLaneGate decides which listener may write to the database next when express and bulk
+ * orders compete for the same writers.
+ * <p>
+ * A number of writer slots is shared by both lanes, and a further number is reserved for express orders,
+ * so an express order never waits for a bulk batch to commit while a reserved slot is free. When a shared
+ * slot frees up, waiting express writers go first. To keep bulk orders progressing, after
+ * {@code maxExpressStreak} shared slots in a row have gone to express writers while a bulk writer was
+ * waiting, the next shared slot goes to the bulk writer.
+ */
+public class OrderLaneGate {
+
+    private final int reserved;
+    private final int maxExpressStreak;
+    private int shared;
+    private int sharedInUse;
+    private int reservedInUse;
+    private int waitingExpress;
+    private int waitingBulk;
+    private int expressStreak;
+
+    /**
+     * Constructs a new OrderLaneGate.
+     *
+     * @param shared           the number of writers shared by both lanes
+     * @param reserved         the number of additional writers only express orders may use
+     * @param maxExpressStreak how many shared slots in a row express writers may take while a bulk writer waits
+     */
+    public OrderLaneGate(int shared, int reserved, int maxExpressStreak) {
+        this.shared = shared;
+        this.reserved = reserved;
+        this.maxExpressStreak = Math.max(1, maxExpressStreak);
+    }
+
+    /**
+     * Waits for a writer slot.
+     *
+     * @param express whether the writer handles express orders
+     * @return whether the slot taken is a reserved one, to be passed to {@link #release}
+     */
+    public synchronized boolean acquire(boolean express) {
+        boolean interrupted = false;
+        if (express) {
+            waitingExpress++;
+        } else {
+            waitingBulk++;
+        }
+        try {
+            while (true) {
+                if (express && reservedInUse < reserved) {
+                    reservedInUse++;
+                    return true;
+                }
+                if (sharedInUse < shared && mayTakeShared(express)) {
+                    sharedInUse++;
+                    if (!express) {
+                        expressStreak = 0;
+                    } else if (waitingBulk > 0) {
+                        expressStreak++;
+                    }
+                    return false;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (express) {
+                waitingExpress--;
+            } else {
+                waitingBulk--;
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private boolean mayTakeShared(boolean express) {
+        boolean bulkStarving = waitingBulk > 0 && expressStreak >= maxExpressStreak;
+        return express ? !bulkStarving : waitingExpress == 0 || bulkStarving;
+    }
+
+    /**
+     * Gives back a writer slot.
+     *
+     * @param reservedSlot the value returned by {@link #acquire}
+     */
+    public synchronized void release(boolean reservedSlot) {
+        if (reservedSlot) {
+            reservedInUse--;
+        } else {
+            sharedInUse--;
+        }
+        notifyAll();
+    }
+
+    /**
+     * Changes the number of shared writers. Writers above the new number finish their current write.
+     *
+     * @param shared the new number of shared writers
+     */
+    public synchronized void resize(int shared) {
+        this.shared = shared;
+        notifyAll();
+    }
+}
@@ -1,58 +1,157 @@
 package com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners;
 
 import com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions.InsufficientStockException;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticservices.OrderIndexer;
 import com.github.mehmetsahinnn.onlineordertrackingsystem.enums.OrderStatus;
-import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Order;
-import com.github.mehmetsahinnn.onlineordertrackingsystem.models.OrderItem;
-import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Product;
-import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.OrderRepository;
-import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.ProductRepository;
-import com.github.mehmetsahinnn.onlineordertrackingsystem.services.OrderService;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.events.OrderPlacedEvent;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.OrderBatchWriter;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.StockHoldService;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.StockReservationEngine;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Slf4j
 @Service
 public class OrderListener {
 
-    private final OrderRepository orderRepository;
-    private final ProductRepository productRepository;
+    private final OrderBatchWriter orderBatchWriter;
+    private final StockReservationEngine stockReservationEngine;
+    private final StockHoldService stockHoldService;
+    private final AdaptiveListenerTuner listenerTuner;
+    private final ProductLaneExecutor productLaneExecutor;
+    private final ProcessedOrderCache processedOrderCache;
+    private final OrderIndexer orderIndexer;
+    private final TransactionTemplate transactionTemplate;
 
     @Autowired
-    public OrderListener(OrderRepository orderRepository, ProductRepository productRepository) {
-        this.orderRepository = orderRepository;
-        this.productRepository = productRepository;
+    public OrderListener(OrderBatchWriter orderBatchWriter, StockReservationEngine stockReservationEngine,
+                         StockHoldService stockHoldService, AdaptiveListenerTuner listenerTuner,
+                         ProductLaneExecutor productLaneExecutor, ProcessedOrderCache processedOrderCache,
+                         OrderIndexer orderIndexer, PlatformTransactionManager transactionManager) {
+        this.orderBatchWriter = orderBatchWriter;
+        this.stockReservationEngine = stockReservationEngine;
+        this.stockHoldService = stockHoldService;
+        this.listenerTuner = listenerTuner;
+        this.productLaneExecutor = productLaneExecutor;
+        this.processedOrderCache = processedOrderCache;
+        this.orderIndexer = orderIndexer;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
-    @RabbitListener(queues = "order-queue")
-    public void handleMessage(Order order) {
-        log.info("Received message: {}", order);
+    /**
+     * Handles a single order when the listener container is not in batch mode. The order is
+     * written straight from the event, without loading its customer or products, on the lanes
+     * of its products so no other order changes their stock meanwhile. A redelivered order that
+     * is already stored is acknowledged before any stock is reserved for it, and a hold still taken for
+     * it is released. Once committed, a newly stored order is
+     * handed to the {@link OrderIndexer}.
+     *
+     * @param event the placed order received from the order queue
+     */
+    public void handleMessage(OrderPlacedEvent event) {
+        handle(event, false);
+    }
+
+    /**
+     * Handles a single order from the express lane, using the writers reserved for it.
+     *
+     * @param event the placed order received from the express queue
+     */
+    public void handleExpressMessage(OrderPlacedEvent event) {
+        handle(event, true);
+    }
+
+    private void handle(OrderPlacedEvent event, boolean express) {
+        log.info("Received message: {}", event);
+
+        if (event == null) {
+            throw new IllegalArgumentException("Order or Order Items cannot be null or empty.");
+        }
 
+        long start = System.nanoTime();
         try {
-            order.setStatus(OrderStatus.CONFIRMED);
-            order.setEstimatedDeliveryDate(LocalDate.now().plusDays(5));
-            orderRepository.save(order);
-            order.getOrderItems().forEach(this::updateStock);
+            Map<Long, Integer> quantities = event.quantitiesByProduct();
+            productLaneExecutor.run(quantities.keySet(), () -> confirm(event, quantities, express));
         } catch (Exception e) {
             log.error("Error processing order: {}", e.getMessage());
             throw e;
+        } finally {
+            listenerTuner.recordProcessing(1, System.nanoTime() - start);
         }
     }
 
-    private void updateStock(OrderItem orderItem) {
+    private void confirm(OrderPlacedEvent event, Map<Long, Integer> quantities, boolean express) {
+        UUID orderTrackId = event.getOrderTrackId();
+        if (alreadyStored(orderTrackId)) {
+            log.info("Order {} was already received, acknowledging it", orderTrackId);
+            stockHoldService.release(orderTrackId);
+            return;
+        }
+        updateStock(orderTrackId, quantities);
 
-        Product product = productRepository.findById(orderItem.getProduct().getId())
-                .orElseThrow(() -> new RuntimeException("Product not found with id: " + orderItem.getProduct().getId()));
+        AtomicBoolean released = new AtomicBoolean();
+        LocalDate estimatedDeliveryDate = LocalDate.now().plusDays(5);
+        try {
+            listenerTuner.write(express, () -> transactionTemplate.executeWithoutResult(status -> {
+                if (!orderBatchWriter.insertAll(List.of(event), OrderStatus.CONFIRMED, estimatedDeliveryDate).isEmpty()) {
+                    log.info("Order {} is already stored, giving back its stock", orderTrackId);
+                    released.set(true);
+                    stockReservationEngine.releaseAll(quantities);
+                }
+                stockReservationEngine.flush(quantities.keySet());
+            }));
+        } catch (RuntimeException e) {
+            if (released.compareAndSet(false, true)) {
+                stockReservationEngine.releaseAll(quantities);
+            }
+            throw e;
+        }
+        if (orderTrackId != null) {
+            processedOrderCache.add(orderTrackId);
+        }
+        if (!released.get()) {
+            orderIndexer.indexConfirmed(event, estimatedDeliveryDate);
+        }
+    }
 
-        int currentStock = product.getNumberInStock() != null ? product.getNumberInStock() : 0;
-        int updatedStock = currentStock - orderItem.getQuantity();
+    /**
+     * Tells whether an order is known to be stored, asking the database when the {@link ProcessedOrderCache}
+     * does not know it, for example after a restart. Stock is reserved only for orders that are not.
+     */
+    private boolean alreadyStored(UUID orderTrackId) {
+        if (orderTrackId == null) {
+            return false;
+        }
+        if (processedOrderCache.contains(orderTrackId)) {
+            return true;
+        }
+        if (orderBatchWriter.findStored(List.of(orderTrackId)).isEmpty()) {
+            return false;
+        }
+        processedOrderCache.add(orderTrackId);
+        return true;
+    }
 
-        product.setNumberInStock(updatedStock);
-        productRepository.save(product);
+    /**
+     * Confirms the stock hold taken when the order was placed. If the hold is gone,
+     * for example because it expired before the order was consumed, the stock is reserved now.
+     */
+    private void updateStock(UUID orderTrackId, Map<Long, Integer> quantities) {
+        if (stockHoldService.confirm(orderTrackId)) {
+            return;
+        }
+        if (!stockReservationEngine.reserveAll(quantities)) {
+            throw new InsufficientStockException("Insufficient stock for order items: " + quantities.keySet());
+        }
     }
 
 }
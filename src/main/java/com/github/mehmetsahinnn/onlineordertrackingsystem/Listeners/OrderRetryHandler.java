@@ -0,0 +1,178 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions.InsufficientStockException;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions.ProductNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.api.ChannelAwareMessageListener;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The OrderRetryHandler takes order messages that failed processing off the order queues, so a
+ * broken order backs off instead of being redelivered to the same consumer over and over.
+ * <p>
+ * A failed message is republished to the retry exchange with its attempt number in the
+ * {@value #ATTEMPT_HEADER} header. The exchange routes it to the retry queue of that attempt, whose
+ * TTL grows by {@code sr.rabbit.retry.multiplier} per attempt, and on expiry the queue dead-letters it
+ * back to the order exchange under its original routing key, so it returns to its own partition.
+ * Messages that cannot succeed on a retry, or have used up {@code sr.rabbit.retry.max-attempts},
+ * are parked on the dead-letter queue until they are replayed.
+ * <p>
+ * Either way the message is handed over only once the broker has confirmed it within
+ * {@code sr.rabbit.publish.confirm-timeout-ms} and has not returned it as unroutable, so the original
+ * delivery is never acknowledged for a copy the broker dropped.
+ */
+@Slf4j
+@Service
+public class OrderRetryHandler {
+
+    public static final String ATTEMPT_HEADER = "x-retry-attempt";
+    public static final String ORIGINAL_ROUTING_KEY_HEADER = "x-original-routing-key";
+    public static final String EXCEPTION_HEADER = "x-exception-message";
+
+    private final RabbitTemplate rabbitTemplate;
+    private final String queueName;
+    private final String retryExchange;
+    private final int maxAttempts;
+    private final long initialDelayMs;
+    private final double multiplier;
+    private final long confirmTimeoutMs;
+
+    @Autowired
+    public OrderRetryHandler(RabbitTemplate rabbitTemplate,
+                             @Value("${sr.rabbit.queue.name}") String queueName,
+                             @Value("${sr.rabbit.retry.exchange:order-retry}") String retryExchange,
+                             @Value("${sr.rabbit.retry.max-attempts:4}") int maxAttempts,
+                             @Value("${sr.rabbit.retry.initial-delay-ms:1000}") long initialDelayMs,
+                             @Value("${sr.rabbit.retry.multiplier:5}") double multiplier,
+                             @Value("${sr.rabbit.publish.confirm-timeout-ms:5000}") long confirmTimeoutMs) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.queueName = queueName;
+        this.retryExchange = retryExchange;
+        this.maxAttempts = maxAttempts;
+        this.initialDelayMs = initialDelayMs;
+        this.multiplier = multiplier;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+    }
+
+    /**
+     * Sends a failed order message to its next retry queue, or to the dead-letter queue.
+     * The caller acknowledges the original delivery once this returns.
+     *
+     * @param message the message that failed
+     * @param cause   the reason it failed
+     * @throws AmqpException if the broker did not confirm the message or returned it, in which case the
+     *                       caller must requeue the original delivery
+     */
+    public void handleFailure(Message message, Throwable cause) {
+        MessageProperties properties = message.getMessageProperties();
+        int attempt = attempt(properties);
+        String routingKey = originalRoutingKey(properties);
+        properties.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+
+        if (isRetryable(cause) && attempt < maxAttempts) {
+            properties.setHeader(ATTEMPT_HEADER, attempt + 1);
+            sendConfirmed(retryExchange, routingKey, message);
+            log.warn("Order message failed on attempt {}, retrying in {} ms: {}", attempt + 1, retryDelayMs(attempt + 1), cause.getMessage());
+        } else {
+            properties.setHeader(ORIGINAL_ROUTING_KEY_HEADER, routingKey);
+            properties.setHeader(EXCEPTION_HEADER, String.valueOf(cause.getMessage()));
+            sendConfirmed("", deadLetterQueueName(), message);
+            log.error("Order message dead-lettered after {} retries: {}", attempt, cause.getMessage());
+        }
+    }
+
+    private void sendConfirmed(String exchange, String routingKey, Message message) {
+        CorrelationData correlationData = new CorrelationData();
+        rabbitTemplate.send(exchange, routingKey, message, correlationData);
+        CorrelationData.Confirm confirm;
+        try {
+            confirm = correlationData.getFuture().get(confirmTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmqpException("Interrupted while waiting for the broker to confirm the order message", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new AmqpException("Order message to " + routingKey + " was not confirmed in " + confirmTimeoutMs + " ms", e);
+        }
+        if (!confirm.isAck()) {
+            throw new AmqpException("Order message to " + routingKey + " was nacked: " + confirm.getReason());
+        }
+        if (correlationData.getReturned() != null) {
+            throw new AmqpException("Order message to " + routingKey + " could not be routed: " + correlationData.getReturned().getReplyText());
+        }
+    }
+
+    /**
+     * Wraps a listener so that its failures are retried or dead-lettered instead of rejected.
+     * If the failure cannot be handed over, the exception is rethrown and the container requeues the message.
+     *
+     * @param delegate the listener processing order messages
+     * @return the wrapping listener
+     */
+    public ChannelAwareMessageListener withRetries(ChannelAwareMessageListener delegate) {
+        return (message, channel) -> {
+            try {
+                delegate.onMessage(message, channel);
+            } catch (Exception e) {
+                handleFailure(message, e);
+            }
+        };
+    }
+
+    /**
+     * Failures caused by the order itself will fail again on every retry, so they are dead-lettered at once.
+     */
+    static boolean isRetryable(Throwable cause) {
+        for (Throwable t = cause; t != null; t = t.getCause()) {
+            if (t instanceof MessageConversionException
+                    || t instanceof IllegalArgumentException
+                    || t instanceof InsufficientStockException
+                    || t instanceof ProductNotFoundException) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int attempt(MessageProperties properties) {
+        Object attempt = properties.getHeader(ATTEMPT_HEADER);
+        return attempt instanceof Number number ? number.intValue() : 0;
+    }
+
+    private static String originalRoutingKey(MessageProperties properties) {
+        Object routingKey = properties.getHeader(ORIGINAL_ROUTING_KEY_HEADER);
+        return routingKey != null ? routingKey.toString() : properties.getReceivedRoutingKey();
+    }
+
+    public long retryDelayMs(int attempt) {
+        return (long) Math.min(initialDelayMs * Math.pow(multiplier, attempt - 1), Integer.MAX_VALUE);
+    }
+
+    public int maxAttempts() {
+        return maxAttempts;
+    }
+
+    public String retryExchange() {
+        return retryExchange;
+    }
+
+    public String retryQueueName(int attempt) {
+        return queueName + ".retry." + attempt;
+    }
+
+    public String deadLetterQueueName() {
+        return queueName + ".dlq";
+    }
+}
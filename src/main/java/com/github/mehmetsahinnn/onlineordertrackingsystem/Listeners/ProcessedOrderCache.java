@@ -0,0 +1,84 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The ProcessedOrderCache remembers the track IDs of the orders this node recently stored, so a
+ * redelivered order can be acknowledged without touching the database. It holds at most
+ * {@code sr.order.dedup.capacity} IDs and forgets the oldest first; an order it has forgotten is
+ * still caught by the unique constraint on {@code orders.ordertrackid}.
+ * <p>
+ * The IDs are split over segments with a lock each, so consumers of different partitions rarely
+ * wait for each other.
+ */
+@Component
+public class ProcessedOrderCache {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    /**
+     * Constructs a new ProcessedOrderCache.
+     *
+     * @param capacity the number of track IDs to remember; 0 disables the cache
+     */
+    @Autowired
+    public ProcessedOrderCache(@Value("${sr.order.dedup.capacity:100000}") int capacity) {
+        int perSegment = (capacity + SEGMENTS - 1) / SEGMENTS;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    /**
+     * Tells whether an order was recently stored.
+     *
+     * @param orderTrackId the track ID of the order
+     * @return true if the order is known to be stored
+     */
+    public boolean contains(UUID orderTrackId) {
+        Segment segment = segmentFor(orderTrackId);
+        synchronized (segment) {
+            return segment.containsKey(orderTrackId);
+        }
+    }
+
+    /**
+     * Remembers that an order is stored. Callers should only do so once the order is committed.
+     *
+     * @param orderTrackId the track ID of the order
+     */
+    public void add(UUID orderTrackId) {
+        Segment segment = segmentFor(orderTrackId);
+        synchronized (segment) {
+            segment.put(orderTrackId, Boolean.TRUE);
+        }
+    }
+
+    private Segment segmentFor(UUID orderTrackId) {
+        int hash = orderTrackId.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    private static final class Segment extends LinkedHashMap<UUID, Boolean> {
+
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(Math.min(capacity, 1 << 12) * 4 / 3 + 1);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, Boolean> eldest) {
+            return size() > capacity;
+        }
+    }
+}
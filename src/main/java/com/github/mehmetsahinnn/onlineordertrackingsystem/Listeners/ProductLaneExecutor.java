@@ -0,0 +1,176 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * The ProductLaneExecutor serializes the work on each product without locks. Every product is hashed
+ * onto one of {@code sr.order.lanes.count} single-threaded lanes, and work on an order runs on the lane
+ * of its products, so two orders touching the same product never update its stock row at the same time,
+ * while orders of products on different lanes run in parallel.
+ * <p>
+ * An order whose products fall on several lanes takes them in ascending lane order, holding each one
+ * until the order is done, and runs on the highest. Because every order takes its lanes in the same
+ * order, two orders waiting for each other's lanes cannot deadlock.
+ * <p>
+ * Work submitted from a lane thread must not ask for another lane, as that lane may be waiting for it.
+ */
+@Component
+public class ProductLaneExecutor {
+
+    private final ExecutorService[] lanes;
+
+    /**
+     * Constructs a new ProductLaneExecutor.
+     *
+     * @param enabled   whether to run work on lanes; if not, it runs on the calling thread
+     * @param laneCount the number of lanes
+     */
+    @Autowired
+    public ProductLaneExecutor(@Value("${sr.order.lanes.enabled:true}") boolean enabled,
+                               @Value("${sr.order.lanes.count:64}") int laneCount) {
+        if (enabled && laneCount < 1) {
+            throw new IllegalArgumentException("sr.order.lanes.count must be at least 1");
+        }
+        this.lanes = new ExecutorService[enabled ? laneCount : 0];
+        for (int lane = 0; lane < lanes.length; lane++) {
+            String name = "product-lane-" + lane;
+            lanes[lane] = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Creates an executor that runs all work on the calling thread.
+     *
+     * @return the executor
+     */
+    public static ProductLaneExecutor direct() {
+        return new ProductLaneExecutor(false, 0);
+    }
+
+    /**
+     * Returns the lane a product is serialized on.
+     *
+     * @param productId the ID of the product
+     * @return the lane index, or 0 if lanes are disabled
+     */
+    public int laneFor(long productId) {
+        if (lanes.length == 0) {
+            return 0;
+        }
+        return (int) (((productId * 0x9E3779B97F4A7C15L) >>> 32) % lanes.length);
+    }
+
+    /**
+     * Runs work on the lanes of the given products and waits for it to finish.
+     *
+     * @param productIds the IDs of the products the work changes
+     * @param work       the work to run
+     */
+    public void run(Collection<Long> productIds, Runnable work) {
+        execute(productIds, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs work on the lanes of the given products and waits for its result. Exceptions thrown
+     * by the work are rethrown to the caller.
+     *
+     * @param productIds the IDs of the products the work changes
+     * @param work       the work to run
+     * @param <T>        the type of the result
+     * @return the result of the work
+     */
+    public <T> T execute(Collection<Long> productIds, Supplier<T> work) {
+        if (lanes.length == 0 || productIds.isEmpty()) {
+            return work.get();
+        }
+        int[] laneIds = productIds.stream().mapToInt(this::laneFor).distinct().sorted().toArray();
+        int last = laneIds[laneIds.length - 1];
+        if (laneIds.length == 1) {
+            return await(lanes[last].submit(work::get));
+        }
+
+        CountDownLatch done = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < laneIds.length - 1; i++) {
+                CompletableFuture<Void> held = new CompletableFuture<>();
+                lanes[laneIds[i]].execute(() -> {
+                    held.complete(null);
+                    awaitUninterruptibly(done);
+                });
+                await(held);
+            }
+            return await(lanes[last].submit(work::get));
+        } finally {
+            done.countDown();
+        }
+    }
+
+    /**
+     * Waits for lane work without giving up on interrupt, since the work cannot be abandoned halfway.
+     */
+    private static <T> T await(Future<T> future) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException runtimeException) {
+                        throw runtimeException;
+                    }
+                    if (e.getCause() instanceof Error error) {
+                        throw error;
+                    }
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.config;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions.BulkheadFullException;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A Bulkhead limits how many threads use a shared resource at the same time. Callers beyond the
+ * limit wait up to the acquire timeout for a permit and are then rejected with a
+ * {@link BulkheadFullException}, instead of queueing without bound in front of the resource.
+ * <p>
+ * This matters most on virtual threads, where thousands of callers can be blocked at once:
+ * the bulkhead keeps them waiting on a cheap semaphore rather than on the resource itself.
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final long acquireTimeoutMs;
+    private final Semaphore permits;
+
+    /**
+     * Constructs a new Bulkhead.
+     *
+     * @param name             the name of the guarded resource, used in rejections
+     * @param maxConcurrent    how many callers may use the resource at the same time
+     * @param acquireTimeoutMs how long a caller waits for a permit before it is rejected
+     */
+    public Bulkhead(String name, int maxConcurrent, long acquireTimeoutMs) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    /**
+     * Runs the given call once a permit is available.
+     *
+     * @param call the call using the guarded resource
+     * @return the result of the call
+     * @throws BulkheadFullException if no permit became available within the acquire timeout
+     */
+    public <T> T call(Supplier<T> call) {
+        acquire();
+        try {
+            return call.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Runs the given action once a permit is available.
+     *
+     * @param action the action using the guarded resource
+     * @throws BulkheadFullException if no permit became available within the acquire timeout
+     */
+    public void run(Runnable action) {
+        call(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Takes a permit, to be given back with {@link #release()}, for uses that do not fit in one call.
+     *
+     * @throws BulkheadFullException if no permit became available within the acquire timeout
+     */
+    public void acquire() {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new BulkheadFullException(name + " is busy, " + maxConcurrent + " calls already in progress");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BulkheadFullException("Interrupted while waiting for " + name);
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    public int maxConcurrent() {
+        return maxConcurrent;
+    }
+}
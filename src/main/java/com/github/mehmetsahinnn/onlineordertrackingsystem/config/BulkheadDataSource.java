@@ -0,0 +1,73 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The BulkheadDataSource takes a permit from a {@link Bulkhead} for every connection it hands out,
+ * and gives it back when the connection is closed. With the bulkhead sized to the connection pool,
+ * callers beyond the pool wait on the bulkhead and are rejected after its timeout, instead of all
+ * blocking inside the pool and the JDBC driver.
+ */
+public class BulkheadDataSource extends DelegatingDataSource {
+
+    private final Bulkhead bulkhead;
+
+    public BulkheadDataSource(DataSource targetDataSource, Bulkhead bulkhead) {
+        super(targetDataSource);
+        this.bulkhead = bulkhead;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        bulkhead.acquire();
+        try {
+            return releasing(obtainTargetDataSource().getConnection());
+        } catch (SQLException | RuntimeException e) {
+            bulkhead.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        bulkhead.acquire();
+        try {
+            return releasing(obtainTargetDataSource().getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            bulkhead.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Wraps a connection so that closing it, once, releases its permit.
+     */
+    private Connection releasing(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("equals")) {
+                        return proxy == args[0];
+                    }
+                    if (method.getName().equals("hashCode")) {
+                        return System.identityHashCode(proxy);
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    } finally {
+                        if (method.getName().equals("close") && released.compareAndSet(false, true)) {
+                            bulkhead.release();
+                        }
+                    }
+                });
+    }
+}
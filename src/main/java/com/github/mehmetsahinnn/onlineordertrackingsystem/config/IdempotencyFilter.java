@@ -0,0 +1,247 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The IdempotencyFilter makes {@code POST /api/orders} and {@code POST /api/orders/async} safe to retry. A request carrying an
+ * {@value #HEADER} header runs once per key and caller; its response is kept in the
+ * {@link IdempotencyStore} and sent again, marked with {@value #REPLAYED_HEADER}, to every retry
+ * with the same key, without placing the order again. A retry arriving while the first request is
+ * still running waits for its response, for up to {@code sr.idempotency.wait-timeout-ms}, and is
+ * answered with 409 Conflict if it is still not done.
+ * <p>
+ * Keys are only honoured for authenticated callers, as they are scoped to the caller; a request carrying
+ * the header without one is answered with 401 Unauthorized. The filter runs after the Spring Security
+ * filter chain, which authenticates customers with HTTP Basic, so the caller is the signed-in customer. The SHA-256 hash of the request body is kept
+ * with the response, and a request that reuses a key with a different body is answered with
+ * 422 Unprocessable Entity instead of the response to the other body.
+ * <p>
+ * Server errors and 429 Too Many Requests are not kept, so a request that failed with one of them runs
+ * again when retried.
+ * Requests without the header are not affected.
+ */
+@Slf4j
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER + 1)
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final Set<String> PATHS = Set.of("/api/orders", "/api/orders/async");
+
+    private final IdempotencyStore idempotencyStore;
+    private final long waitTimeoutMs;
+
+    /**
+     * Constructs a new IdempotencyFilter.
+     *
+     * @param idempotencyStore the store keeping the responses
+     * @param waitTimeoutMs    how long a retry waits for the request it repeats, in milliseconds
+     */
+    @Autowired
+    public IdempotencyFilter(IdempotencyStore idempotencyStore,
+                             @Value("${sr.idempotency.wait-timeout-ms:30000}") long waitTimeoutMs) {
+        this.idempotencyStore = idempotencyStore;
+        this.waitTimeoutMs = waitTimeoutMs;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+                || !PATHS.contains(request.getRequestURI().substring(request.getContextPath().length()))
+                || request.getHeader(HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String idempotencyKey = request.getHeader(HEADER);
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), HEADER + " must have 1 to " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+        Principal principal = request.getUserPrincipal();
+        if (principal == null) {
+            response.sendError(HttpStatus.UNAUTHORIZED.value(), HEADER + " requires an authenticated caller");
+            return;
+        }
+        CachedBodyRequest cachedRequest = new CachedBodyRequest(request);
+        String requestHash = hash(cachedRequest.body);
+        String key = scopedKey(principal, request, idempotencyKey);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitTimeoutMs);
+        while (true) {
+            CompletableFuture<IdempotencyStore.StoredResponse> earlier = idempotencyStore.claim(key);
+            if (earlier == null) {
+                execute(key, requestHash, cachedRequest, response, filterChain);
+                return;
+            }
+            IdempotencyStore.StoredResponse stored;
+            try {
+                stored = earlier.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                response.sendError(HttpStatus.CONFLICT.value(), "A request with this " + HEADER + " is still being processed");
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServletException(e);
+            } catch (ExecutionException e) {
+                throw new ServletException(e.getCause());
+            }
+            if (stored != null && !stored.requestHash().equals(requestHash)) {
+                response.sendError(HttpStatus.UNPROCESSABLE_ENTITY.value(), HEADER + " was already used for a different request");
+                return;
+            }
+            if (stored != null) {
+                log.info("Replaying the response for {} {}", HEADER, idempotencyKey);
+                replay(stored, response);
+                return;
+            }
+        }
+    }
+
+    private void execute(String key, String requestHash, HttpServletRequest request, HttpServletResponse response,
+                         FilterChain filterChain) throws ServletException, IOException {
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        boolean completed = false;
+        try {
+            filterChain.doFilter(request, wrapper);
+            if (isFinal(wrapper.getStatus())) {
+                idempotencyStore.complete(key, new IdempotencyStore.StoredResponse(requestHash, wrapper.getStatus(),
+                        wrapper.getContentType(), wrapper.getContentAsByteArray()));
+                completed = true;
+            }
+        } finally {
+            if (!completed) {
+                idempotencyStore.abandon(key);
+            }
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    /**
+     * A shed request is not final: its retry should place the order once there is room for it.
+     */
+    private static boolean isFinal(int status) {
+        return status < 500 && status != HttpStatus.TOO_MANY_REQUESTS.value();
+    }
+
+    private static void replay(IdempotencyStore.StoredResponse stored, HttpServletResponse response) throws IOException {
+        response.setStatus(stored.status());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(stored.body().length);
+        response.getOutputStream().write(stored.body());
+    }
+
+    /**
+     * Keys are scoped to the caller, so one user's key never replays another user's response.
+     */
+    private static String scopedKey(Principal principal, HttpServletRequest request, String idempotencyKey) {
+        return principal.getName() + '\n' + request.getRequestURI() + '\n' + idempotencyKey;
+    }
+
+    private static String hash(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads the request body up front, so it can be hashed and still be read by the controller.
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            this.body = request.getInputStream().readAllBytes();
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                /**
+                 * The body is already in memory, so the listener is told at once that all of it can be read.
+                 */
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        if (isFinished()) {
+                            readListener.onAllDataRead();
+                        }
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return input.read(buffer, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            Charset charset = getCharacterEncoding() != null ? Charset.forName(getCharacterEncoding()) : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.config;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An IdempotencyStore remembers the response sent for each Idempotency-Key, so a retried request
+ * gets the same response without running again. The {@link InMemoryIdempotencyStore} serves a
+ * single node; a store shared by several nodes can replace it by declaring another bean of this
+ * type as {@code @Primary}.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Claims a key for a request.
+     *
+     * @param key the idempotency key, scoped to the caller and endpoint
+     * @return null if the caller now owns the key and must {@link #complete} or {@link #abandon} it;
+     * otherwise a future that yields the stored response once the owner completes it, or null if the
+     * owner abandoned it and the caller may claim the key again
+     */
+    CompletableFuture<StoredResponse> claim(String key);
+
+    /**
+     * Stores the response of a claimed key and hands it to the requests waiting for it.
+     *
+     * @param key      the claimed key
+     * @param response the response to replay for the key
+     */
+    void complete(String key, StoredResponse response);
+
+    /**
+     * Releases a claimed key without a response, so the next request with it runs again.
+     *
+     * @param key the claimed key
+     */
+    void abandon(String key);
+
+    /**
+     * A response as it was sent.
+     *
+     * @param requestHash the hash of the request body the response was sent for
+     * @param status      the HTTP status
+     * @param contentType the content type, or null if there was none
+     * @param body        the response body
+     */
+    record StoredResponse(String requestHash, int status, String contentType, byte[] body) {
+    }
+}
@@ -0,0 +1,139 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
+
+/**
+ * The InMemoryIdempotencyStore keeps the responses for idempotency keys on this node. It holds at most
+ * {@code sr.idempotency.max-keys} keys, forgetting the oldest first, and forgets a response
+ * {@code sr.idempotency.ttl-ms} after it was stored. Keys still being processed are never expired.
+ */
+@Component
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private final int maxKeys;
+    private final long ttlMs;
+    private final LongSupplier clock;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+    /**
+     * Constructs a new InMemoryIdempotencyStore.
+     *
+     * @param maxKeys the maximum number of keys kept
+     * @param ttlMs   how long a stored response is replayed, in milliseconds
+     */
+    @Autowired
+    public InMemoryIdempotencyStore(@Value("${sr.idempotency.max-keys:100000}") int maxKeys,
+                                    @Value("${sr.idempotency.ttl-ms:86400000}") long ttlMs) {
+        this(maxKeys, ttlMs, System::currentTimeMillis);
+    }
+
+    InMemoryIdempotencyStore(int maxKeys, long ttlMs, LongSupplier clock) {
+        this.maxKeys = maxKeys;
+        this.ttlMs = ttlMs;
+        this.clock = clock;
+    }
+
+    @Override
+    public synchronized CompletableFuture<StoredResponse> claim(String key) {
+        long now = clock.getAsLong();
+        expire(now);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAt > now) {
+            return entry.response;
+        }
+        entries.remove(key);
+        entries.put(key, new Entry(new CompletableFuture<>()));
+        if (entries.size() > maxKeys) {
+            evictEldest();
+        }
+        return null;
+    }
+
+    @Override
+    public void complete(String key, StoredResponse response) {
+        CompletableFuture<StoredResponse> waiting;
+        synchronized (this) {
+            Entry entry = entries.remove(key);
+            // re-inserted so entries stay ordered by expiry
+            Entry stored = new Entry(entry != null ? entry.response : new CompletableFuture<>());
+            stored.expiresAt = clock.getAsLong() + ttlMs;
+            entries.put(key, stored);
+            waiting = stored.response;
+        }
+        waiting.complete(response);
+    }
+
+    @Override
+    public void abandon(String key) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.remove(key);
+        }
+        if (entry != null) {
+            entry.response.complete(null);
+        }
+    }
+
+    /**
+     * Returns the number of keys held.
+     *
+     * @return the number of keys
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Stored responses are kept in expiry order, behind or between keys still being processed.
+     */
+    private void expire(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.inFlight()) {
+                continue;
+            }
+            if (entry.expiresAt > now) {
+                return;
+            }
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Forgets the oldest stored response, or if every key is still being processed, the oldest of those.
+     */
+    private void evictEldest() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (!iterator.next().inFlight()) {
+                iterator.remove();
+                return;
+            }
+        }
+        iterator = entries.values().iterator();
+        iterator.next().response.complete(null);
+        iterator.remove();
+    }
+
+    private static final class Entry {
+
+        private final CompletableFuture<StoredResponse> response;
+        private long expiresAt = Long.MAX_VALUE;
+
+        Entry(CompletableFuture<StoredResponse> response) {
+            this.response = response;
+        }
+
+        boolean inFlight() {
+            return expiresAt == Long.MAX_VALUE;
+        }
+    }
+}
@@ -15,8 +15,16 @@ import java.util.List;
 public class KeycloakClient {
 
     private final Keycloak keycloak;
+    private final Bulkhead keycloakBulkhead;
 
-    public KeycloakClient() {
+    /**
+     * Constructs a new KeycloakClient. Every call to Keycloak blocks on HTTP, so calls go through
+     * the given bulkhead.
+     *
+     * @param keycloakBulkhead the Bulkhead limiting concurrent calls to Keycloak
+     */
+    public KeycloakClient(Bulkhead keycloakBulkhead) {
+        this.keycloakBulkhead = keycloakBulkhead;
         this.keycloak = KeycloakBuilder.builder()
             .serverUrl("http://localhost:8180")
                 .realm("order-tracking-system")
@@ -41,14 +49,18 @@ public class KeycloakClient {
         credential.setTemporary(false);
         user.setCredentials(List.of(credential));
 
-        Response response = keycloak.realm("order-tracking-system").users().create(user);
-        if (response.getStatus() != 201) {
+        int status = keycloakBulkhead.call(() -> {
+            try (Response response = keycloak.realm("order-tracking-system").users().create(user)) {
+                return response.getStatus();
+            }
+        });
+        if (status != 201) {
             throw new RuntimeException("Failed to create user");
         }
     }
 
     public String getLoginToken(String username, String password) {
-        AccessTokenResponse response = keycloak.tokenManager().getAccessToken();
+        AccessTokenResponse response = keycloakBulkhead.call(() -> keycloak.tokenManager().getAccessToken());
         return response.getToken();
     }
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.context.SmartLifecycle;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.IntFunction;
+
+/**
+ * The OrderPartitionManager runs one single-consumer listener container for every order partition.
+ * <p>
+ * Stock is counted in memory by the one node the application runs on, so that node consumes every
+ * partition; partitions are bound statically and never handed to another node. Partition queues are
+ * declared with single active consumer, so a second node started by mistake only registers standby
+ * consumers and takes no orders while the first one is connected.
+ */
+public class OrderPartitionManager implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderPartitionManager.class);
+
+    private final int partitions;
+    private final IntFunction<SimpleMessageListenerContainer> containerFactory;
+    private final Map<Integer, SimpleMessageListenerContainer> containers = new TreeMap<>();
+    private volatile boolean running;
+
+    /**
+     * Constructs a new OrderPartitionManager.
+     *
+     * @param partitions       the number of order partitions
+     * @param containerFactory creates the listener container of a partition
+     */
+    public OrderPartitionManager(int partitions, IntFunction<SimpleMessageListenerContainer> containerFactory) {
+        this.partitions = partitions;
+        this.containerFactory = containerFactory;
+    }
+
+    /**
+     * Starts the containers of all partitions.
+     */
+    @Override
+    public synchronized void start() {
+        running = true;
+        for (int partition = 0; partition < partitions; partition++) {
+            SimpleMessageListenerContainer container = containerFactory.apply(partition);
+            container.afterPropertiesSet();
+            container.start();
+            containers.put(partition, container);
+        }
+        logger.info("Consuming order partitions {} of {}", containers.keySet(), partitions);
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        containers.values().forEach(SimpleMessageListenerContainer::destroy);
+        containers.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public synchronized Set<Integer> ownedPartitions() {
+        return new TreeSet<>(containers.keySet());
+    }
+
+    /**
+     * Calls the given action with each partition and its listener container.
+     *
+     * @param action the action to call
+     */
+    public synchronized void forEachContainer(BiConsumer<Integer, SimpleMessageListenerContainer> action) {
+        containers.forEach(action);
+    }
+}
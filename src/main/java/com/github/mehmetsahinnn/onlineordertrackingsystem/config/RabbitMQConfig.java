@@ -1,7 +1,13 @@
 package com.github.mehmetsahinnn.onlineordertrackingsystem.config;
 
 
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners.AdaptiveListenerTuner;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners.OrderBatchListener;
 import com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners.OrderListener;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners.OrderRetryHandler;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.events.OrderPlacedEvent;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.events.OrderPlacedEventMessageConverter;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.producers.OrderPartitioner;
 import org.springframework.amqp.core.*;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitAdmin;
@@ -12,10 +18,16 @@ import org.springframework.amqp.rabbit.listener.adapter.MessageListenerAdapter;
 import org.springframework.amqp.support.converter.DefaultJackson2JavaTypeMapper;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.TaskExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
 
 
 @Configuration
@@ -30,12 +42,20 @@ public class RabbitMQConfig {
     @Value("${sr.rabbit.exchange.name}")
     private String exchangeName;
 
-    private final RabbitTemplate rabbitTemplate;
+    @Value("${sr.rabbit.listener.batch-enabled:true}")
+    private boolean batchEnabled;
 
-    public RabbitMQConfig( RabbitTemplate rabbitTemplate) {
+    @Value("${sr.rabbit.listener.receive-timeout-ms:200}")
+    private long receiveTimeout;
 
-        this.rabbitTemplate = rabbitTemplate;
-    }
+    @Value("${sr.rabbit.express.consumers:2}")
+    private int expressConsumers;
+
+    @Value("${sr.rabbit.express.batch-size:10}")
+    private int expressBatchSize;
+
+    @Value("${sr.rabbit.express.receive-timeout-ms:20}")
+    private long expressReceiveTimeout;
 
     @Bean
     public MessageConverter jsonMessageConverter() {
@@ -46,24 +66,163 @@ public class RabbitMQConfig {
         return converter;
     }
 
+    /**
+     * Order messages are published as compact {@link OrderPlacedEvent}s; everything else, and
+     * JSON orders still queued by older producers, goes through the JSON converter.
+     */
+    @Bean
+    public MessageConverter orderEventMessageConverter() {
+        return new OrderPlacedEventMessageConverter(jsonMessageConverter());
+    }
+
     @Bean
     public MessageListenerAdapter listenerAdapter(OrderListener orderListener) {
         MessageListenerAdapter adapter = new MessageListenerAdapter(orderListener, "handleMessage");
-        adapter.setMessageConverter(jsonMessageConverter());
+        adapter.setMessageConverter(orderEventMessageConverter());
         return adapter;
     }
 
+    @Bean
+    public MessageListenerAdapter expressListenerAdapter(OrderListener orderListener) {
+        MessageListenerAdapter adapter = new MessageListenerAdapter(orderListener, "handleExpressMessage");
+        adapter.setMessageConverter(orderEventMessageConverter());
+        return adapter;
+    }
 
+    /**
+     * Runs every order partition, one ordered consumer each. Partition 0 also drains
+     * the unpartitioned {@code sr.rabbit.queue.name} queue used before orders were partitioned.
+     * With virtual threads enabled the consumers run on virtual threads.
+     */
     @Bean
-    public SimpleMessageListenerContainer container(ConnectionFactory connectionFactory,
-                                                    MessageListenerAdapter listenerAdapter) {
+    public OrderPartitionManager orderPartitionManager(ConnectionFactory connectionFactory,
+                                                       @Qualifier("listenerAdapter") MessageListenerAdapter listenerAdapter,
+                                                       OrderBatchListener orderBatchListener,
+                                                       OrderRetryHandler orderRetryHandler,
+                                                       AdaptiveListenerTuner listenerTuner,
+                                                       OrderPartitioner orderPartitioner,
+                                                       Environment environment) {
+        RabbitAdmin rabbitAdmin = rabbitAdmin(connectionFactory);
+        TaskExecutor consumerExecutor = ThreadingConfig.orderConsumerExecutor(environment);
+        return new OrderPartitionManager(orderPartitioner.partitions(), partition -> {
+            SimpleMessageListenerContainer container = orderContainer(connectionFactory, listenerAdapter, orderBatchListener,
+                    orderRetryHandler, listenerTuner);
+            container.setAmqpAdmin(rabbitAdmin);
+            if (consumerExecutor != null) {
+                container.setTaskExecutor(consumerExecutor);
+            }
+            if (partition == 0) {
+                container.setQueueNames(partitionQueueName(0), queueName);
+            } else {
+                container.setQueueNames(partitionQueueName(partition));
+            }
+            return container;
+        });
+    }
+
+    /**
+     * In batch mode the container hands the listener up to {@code sr.rabbit.listener.batch-size}
+     * messages, or fewer if no further message arrives within {@code sr.rabbit.listener.receive-timeout-ms},
+     * and the listener acknowledges them itself once the batch is committed. In either mode failed
+     * orders go to the retry queues rather than being requeued. The batch size starts at the value
+     * currently chosen by the {@link AdaptiveListenerTuner}, and the consumer prefetch is its ceiling;
+     * the listener narrows it with a channel limit as the tuner decides.
+     */
+    private SimpleMessageListenerContainer orderContainer(ConnectionFactory connectionFactory,
+                                                          @Qualifier("listenerAdapter") MessageListenerAdapter listenerAdapter,
+                                                          OrderBatchListener orderBatchListener,
+                                                          OrderRetryHandler orderRetryHandler,
+                                                          AdaptiveListenerTuner listenerTuner) {
         SimpleMessageListenerContainer container = new SimpleMessageListenerContainer();
         container.setConnectionFactory(connectionFactory);
-        container.setQueueNames(queueName);
-        container.setMessageListener(listenerAdapter);
+        container.setConcurrentConsumers(1);
+        container.setExclusive(false);
+        if (batchEnabled) {
+            container.setConsumerBatchEnabled(true);
+            container.setBatchSize(listenerTuner.batchSize());
+            container.setReceiveTimeout(receiveTimeout);
+            container.setPrefetchCount(Math.max(listenerTuner.maxPrefetch(), listenerTuner.batchSize()));
+            container.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+            container.setMessageListener(orderBatchListener);
+        } else {
+            container.setMessageListener(orderRetryHandler.withRetries(listenerAdapter));
+        }
+        return container;
+    }
+
+    /**
+     * Consumes the express lane. Express orders carry no ordering guarantee between each other, so the
+     * lane has several consumers, and small batches with a short receive timeout so an order does not
+     * wait for others to fill its batch. Its writes go through the writers the {@link AdaptiveListenerTuner}
+     * reserves for express orders.
+     */
+    @Bean
+    public SimpleMessageListenerContainer expressOrderContainer(ConnectionFactory connectionFactory,
+                                                                @Qualifier("expressListenerAdapter") MessageListenerAdapter expressListenerAdapter,
+                                                                OrderBatchListener orderBatchListener,
+                                                                OrderRetryHandler orderRetryHandler,
+                                                                AdaptiveListenerTuner listenerTuner,
+                                                                Environment environment) {
+        SimpleMessageListenerContainer container = orderContainer(connectionFactory, expressListenerAdapter, orderBatchListener,
+                orderRetryHandler, listenerTuner);
+        container.setQueueNames(expressQueueName());
+        container.setConcurrentConsumers(expressConsumers);
+        container.setAmqpAdmin(rabbitAdmin(connectionFactory));
+        if (batchEnabled) {
+            container.setBatchSize(expressBatchSize);
+            container.setReceiveTimeout(expressReceiveTimeout);
+        }
+        TaskExecutor consumerExecutor = ThreadingConfig.orderConsumerExecutor(environment);
+        if (consumerExecutor != null) {
+            container.setTaskExecutor(consumerExecutor);
+        }
         return container;
     }
 
+    private String partitionQueueName(int partition) {
+        return queueName + "." + partition;
+    }
+
+    private String expressQueueName() {
+        return queueName + "." + OrderPartitioner.EXPRESS_LANE;
+    }
+
+    @Bean
+    public Declarables orderPartitionQueues(DirectExchange directExchange, OrderPartitioner orderPartitioner) {
+        List<Declarable> declarables = new ArrayList<>();
+        for (int partition = 0; partition < orderPartitioner.partitions(); partition++) {
+            Queue partitionQueue = QueueBuilder.durable(partitionQueueName(partition)).singleActiveConsumer().build();
+            declarables.add(partitionQueue);
+            declarables.add(BindingBuilder.bind(partitionQueue).to(directExchange).with(orderPartitioner.routingKey(partition)));
+        }
+        Queue expressQueue = QueueBuilder.durable(expressQueueName()).build();
+        declarables.add(expressQueue);
+        declarables.add(BindingBuilder.bind(expressQueue).to(directExchange).with(orderPartitioner.expressRoutingKey()));
+        return new Declarables(declarables);
+    }
+
+    /**
+     * Declares one retry queue per attempt, each holding messages for its delay before dead-lettering
+     * them back to the order exchange, and the dead-letter queue for orders that ran out of attempts.
+     * Queue arguments cannot be changed in place, so the retry queues must be deleted before their delays are changed.
+     */
+    @Bean
+    public Declarables orderRetryTopology(OrderRetryHandler orderRetryHandler) {
+        List<Declarable> declarables = new ArrayList<>();
+        HeadersExchange retryExchange = new HeadersExchange(orderRetryHandler.retryExchange());
+        declarables.add(retryExchange);
+        for (int attempt = 1; attempt <= orderRetryHandler.maxAttempts(); attempt++) {
+            Queue retryQueue = QueueBuilder.durable(orderRetryHandler.retryQueueName(attempt))
+                    .ttl((int) orderRetryHandler.retryDelayMs(attempt))
+                    .deadLetterExchange(exchangeName)
+                    .build();
+            declarables.add(retryQueue);
+            declarables.add(BindingBuilder.bind(retryQueue).to(retryExchange).where(OrderRetryHandler.ATTEMPT_HEADER).matches(attempt));
+        }
+        declarables.add(QueueBuilder.durable(orderRetryHandler.deadLetterQueueName()).build());
+        return new Declarables(declarables);
+    }
+
     @Bean
     public Queue queue(){
         return new Queue(queueName,true);
@@ -2,14 +2,24 @@ package com.github.mehmetsahinnn.onlineordertrackingsystem.config;
 
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class RabbitTemplateConfig {
 
+    /**
+     * The shared template is configured once: binary order events and JSON for anything else, and mandatory publishing so
+     * unroutable orders come back as returns instead of being dropped by the exchange.
+     * Confirms and returns themselves are enabled on the connection factory through
+     * {@code spring.rabbitmq.publisher-confirm-type} and {@code spring.rabbitmq.publisher-returns}.
+     */
     @Bean
-    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
-        return new RabbitTemplate(connectionFactory);
+    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory, MessageConverter orderEventMessageConverter) {
+        RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
+        rabbitTemplate.setMessageConverter(orderEventMessageConverter);
+        rabbitTemplate.setMandatory(true);
+        return rabbitTemplate;
     }
-}
\ No newline at end of file
+}
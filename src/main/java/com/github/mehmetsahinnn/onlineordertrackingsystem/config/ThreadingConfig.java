@@ -0,0 +1,65 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import javax.sql.DataSource;
+
+/**
+ * Virtual threads are opt-in through {@code spring.threads.virtual.enabled} and need a Java 21 runtime.
+ * When they are on, Spring Boot serves requests on virtual threads, the order consumers run on the
+ * {@link #orderConsumerExecutor} below, and bulkheads keep the database and Keycloak from being called
+ * by more threads than they can serve.
+ */
+@Configuration
+public class ThreadingConfig {
+
+    /**
+     * Guards the Keycloak admin client, whose HTTP calls block the calling thread.
+     */
+    @Bean
+    public Bulkhead keycloakBulkhead(@Value("${sr.bulkhead.keycloak.max-concurrent:20}") int maxConcurrent,
+                                     @Value("${sr.bulkhead.keycloak.acquire-timeout-ms:2000}") long acquireTimeoutMs) {
+        return new Bulkhead("Keycloak", maxConcurrent, acquireTimeoutMs);
+    }
+
+    /**
+     * Executes the order consumers on virtual threads when they are enabled, and returns null otherwise
+     * so the listener containers keep their own platform threads.
+     */
+    public static SimpleAsyncTaskExecutor orderConsumerExecutor(Environment environment) {
+        if (!Threading.VIRTUAL.isActive(environment)) {
+            return null;
+        }
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("order-consumer-");
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+
+    /**
+     * Puts the database behind a bulkhead sized to the connection pool. It is on by default when
+     * virtual threads are enabled, as that is when callers can outnumber connections by far.
+     */
+    @Bean
+    public static BeanPostProcessor databaseBulkheadPostProcessor(Environment environment) {
+        boolean enabled = environment.getProperty("sr.bulkhead.database.enabled", Boolean.class,
+                Threading.VIRTUAL.isActive(environment));
+        int maxConcurrent = environment.getProperty("sr.bulkhead.database.max-concurrent", Integer.class,
+                environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10));
+        long acquireTimeoutMs = environment.getProperty("sr.bulkhead.database.acquire-timeout-ms", Long.class, 5000L);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (enabled && bean instanceof DataSource dataSource && !(bean instanceof BulkheadDataSource)) {
+                    return new BulkheadDataSource(dataSource, new Bulkhead("Database", maxConcurrent, acquireTimeoutMs));
+                }
+                return bean;
+            }
+        };
+    }
+}
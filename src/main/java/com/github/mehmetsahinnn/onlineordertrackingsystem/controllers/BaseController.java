@@ -1,10 +1,14 @@
 package com.github.mehmetsahinnn.onlineordertrackingsystem.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions.BulkheadFullException;
 import com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions.InsufficientStockException;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions.OrderOverloadException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -13,13 +17,28 @@ import java.util.Map;
 public abstract class BaseController {
 
     protected <T> ResponseEntity<T> handleRequest(RequestHandler<T> handler, String... logMessages) {
+        return handleRequest(handler, HttpStatus.OK, logMessages);
+    }
+
+    protected <T> ResponseEntity<T> handleRequest(RequestHandler<T> handler, HttpStatus successStatus, String... logMessages) {
         try {
             T result = handler.handle();
             logInfo(logMessages);
-            return new ResponseEntity<>(result, HttpStatus.OK);
+            return new ResponseEntity<>(result, successStatus);
         } catch (InsufficientStockException e) {
             log.error("Error occurred while handling request", e);
             return new ResponseEntity<>(null, HttpStatus.CONFLICT);
+        } catch (OrderOverloadException e) {
+            log.warn("Request shed: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .build();
+        } catch (BulkheadFullException e) {
+            log.warn("Request rejected: {}", e.getMessage());
+            return new ResponseEntity<>(null, HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (AccessDeniedException e) {
+            // answered by Spring Security with 401 or 403
+            throw e;
         } catch (RuntimeException e) {
             log.error("Error occurred while handling request", e);
             return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
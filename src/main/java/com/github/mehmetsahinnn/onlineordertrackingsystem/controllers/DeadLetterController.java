@@ -0,0 +1,48 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.controllers;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.DeadLetterService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * The DeadLetterController provides admin endpoints for orders that failed processing
+ * and were moved to the dead-letter queue.
+ */
+@RestController
+@RequestMapping("/api/admin/orders/dead-letters")
+public class DeadLetterController extends BaseController {
+
+    private final DeadLetterService deadLetterService;
+
+    /**
+     * Constructs a new DeadLetterController with the specified DeadLetterService.
+     *
+     * @param deadLetterService the DeadLetterService to be used by the DeadLetterController
+     */
+    @Autowired
+    public DeadLetterController(DeadLetterService deadLetterService) {
+        this.deadLetterService = deadLetterService;
+    }
+
+    /**
+     * Retrieves the number of dead-lettered orders.
+     *
+     * @return a ResponseEntity containing the number of orders on the dead-letter queue
+     */
+    @GetMapping
+    public ResponseEntity<Long> countDeadLetters() {
+        return handleRequest(deadLetterService::countDeadLetters, "Counting dead-lettered orders");
+    }
+
+    /**
+     * Replays dead-lettered orders to the order queues.
+     *
+     * @param max the maximum number of orders to replay
+     * @return a ResponseEntity containing the number of orders replayed
+     */
+    @PostMapping("/replay")
+    public ResponseEntity<Integer> replayDeadLetters(@RequestParam(defaultValue = "1000") int max) {
+        return handleRequest(() -> deadLetterService.replayDeadLetters(max), "Replaying dead-lettered orders");
+    }
+}
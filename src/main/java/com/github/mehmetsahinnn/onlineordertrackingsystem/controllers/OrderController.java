@@ -1,16 +1,24 @@
 package com.github.mehmetsahinnn.onlineordertrackingsystem.controllers;
 
 import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticdocuments.OrderDocument;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticrepos.OrderDocumentSearch;
 import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticservices.ElasticOrderService;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.OrderPlacementTracker;
 import com.github.mehmetsahinnn.onlineordertrackingsystem.services.OrderService;
 import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Order;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.enums.OrderStatus;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 
@@ -48,6 +56,31 @@ public class OrderController extends BaseController{
         return handleRequest(() -> orderService.placeOrder(order), "Order placed successfully");
     }
 
+    /**
+     * Places a new order without waiting for it to be validated and published. The response is sent
+     * as soon as the order has its track ID, and the outcome is fetched with {@link #getPlacement}.
+     *
+     * @param order the order to be placed
+     * @return a ResponseEntity containing the pending placement and the HTTP status 202 Accepted
+     */
+    @PostMapping("/async")
+    public ResponseEntity<OrderPlacementTracker.Placement> placeOrderAsync(@RequestBody Order order) {
+        return handleRequest(() -> orderService.placeOrderAsync(order)
+                .getNow(OrderPlacementTracker.Placement.pending(order.getOrderTrackId())),
+                HttpStatus.ACCEPTED, "Order accepted for placement");
+    }
+
+    /**
+     * Retrieves the outcome of an order placed asynchronously.
+     *
+     * @param orderTrackId the track ID of the order
+     * @return a ResponseEntity containing the placement and the HTTP status
+     */
+    @GetMapping("/placements/{orderTrackId}")
+    public ResponseEntity<OrderPlacementTracker.Placement> getPlacement(@PathVariable UUID orderTrackId) {
+        return handleRequest(() -> orderService.getPlacement(orderTrackId), "Fetching order placement");
+    }
+
     /**
      * Retrieves all orders.
      *
@@ -116,6 +149,59 @@ public class OrderController extends BaseController{
         return elasticOrderService.findByStatus(status);
     }
 
+    /**
+     * Counts the orders placed each day between two dates, inclusive, by status.
+     *
+     * @param startDate the earliest order date
+     * @param endDate   the latest order date
+     * @param cache     whether Elasticsearch may answer from its request cache
+     * @return a ResponseEntity containing the number of orders of each status, by day, and the HTTP status
+     */
+    @GetMapping("/elastic/analytics/status-per-day")
+    public ResponseEntity<Map<LocalDate, Map<OrderStatus, Long>>> getOrdersPerDayAndStatus(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "false") boolean cache) {
+        return handleRequest(() -> elasticOrderService.countOrdersByDayAndStatus(startDate, endDate, cache),
+                "Fetching orders per day and status");
+    }
+
+    /**
+     * Counts the orders of the customers with the most orders placed between two dates, inclusive.
+     *
+     * @param startDate the earliest order date
+     * @param endDate   the latest order date
+     * @param size      the number of customers to count
+     * @param cache     whether Elasticsearch may answer from its request cache
+     * @return a ResponseEntity containing the number of orders of each customer and the HTTP status
+     */
+    @GetMapping("/elastic/analytics/customers")
+    public ResponseEntity<Map<Long, Long>> getOrdersPerCustomer(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "100") int size,
+            @RequestParam(defaultValue = "false") boolean cache) {
+        return handleRequest(() -> elasticOrderService.countOrdersByCustomer(startDate, endDate, size, cache),
+                "Fetching orders per customer");
+    }
+
+    /**
+     * Summarizes the delivery delays of the orders placed between two dates, inclusive.
+     *
+     * @param startDate the earliest order date
+     * @param endDate   the latest order date
+     * @param cache     whether Elasticsearch may answer from its request cache
+     * @return a ResponseEntity containing the histogram and percentiles of the delays and the HTTP status
+     */
+    @GetMapping("/elastic/analytics/delivery-delays")
+    public ResponseEntity<OrderDocumentSearch.DeliveryDelays> getDeliveryDelays(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "false") boolean cache) {
+        return handleRequest(() -> elasticOrderService.getDeliveryDelays(startDate, endDate, cache),
+                "Fetching delivery delays");
+    }
+
     @GetMapping("/{orderTrackId}")
     public Order getOrderByTrackId(@PathVariable UUID orderTrackId) {
         return orderService.getOrderByTrackId(orderTrackId);
@@ -0,0 +1,79 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.controllers;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Order;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.OrderIngestionService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * The OrderIngestionController accepts many orders in one request, for partner integrations.
+ */
+@RestController
+@RequestMapping("/api/orders")
+@Slf4j
+public class OrderIngestionController {
+
+    public static final String NDJSON = "application/x-ndjson";
+
+    private final OrderIngestionService orderIngestionService;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Constructs a new OrderIngestionController.
+     *
+     * @param orderIngestionService the OrderIngestionService placing the orders
+     * @param objectMapper          the ObjectMapper reading orders and writing results
+     */
+    @Autowired
+    public OrderIngestionController(OrderIngestionService orderIngestionService, ObjectMapper objectMapper) {
+        this.orderIngestionService = orderIngestionService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Places the orders of a JSON array or of newline-delimited JSON. Orders are parsed as the body arrives
+     * and the result of each order is streamed back as one line of newline-delimited JSON, in the order
+     * the orders were submitted, so neither the orders nor the results are ever held in memory all at once.
+     *
+     * @param request  the request whose body holds the orders
+     * @param response the response the results are streamed to
+     * @throws IOException if the body cannot be read or the results cannot be written
+     */
+    @PostMapping(path = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, NDJSON}, produces = NDJSON)
+    public void placeOrders(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(NDJSON);
+        OutputStream out = response.getOutputStream();
+        ObjectWriter resultWriter = objectMapper.writerFor(OrderIngestionService.Result.class);
+        try (MappingIterator<Order> orders = objectMapper.readerFor(Order.class).readValues(request.getInputStream())) {
+            long count = orderIngestionService.ingest(orders, results -> {
+                try {
+                    for (OrderIngestionService.Result result : results) {
+                        out.write(resultWriter.writeValueAsBytes(result));
+                        out.write('\n');
+                    }
+                    out.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            log.info("Ingested a batch of {} orders", count);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
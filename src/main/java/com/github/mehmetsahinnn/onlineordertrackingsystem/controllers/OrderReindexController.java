@@ -0,0 +1,47 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.controllers;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticservices.OrderReindexer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * The OrderReindexController provides admin endpoints for rebuilding the order index from the database.
+ */
+@RestController
+@RequestMapping("/api/admin/orders/reindex")
+public class OrderReindexController extends BaseController {
+
+    private final OrderReindexer orderReindexer;
+
+    /**
+     * Constructs a new OrderReindexController with the specified OrderReindexer.
+     *
+     * @param orderReindexer the OrderReindexer to be used by the OrderReindexController
+     */
+    @Autowired
+    public OrderReindexController(OrderReindexer orderReindexer) {
+        this.orderReindexer = orderReindexer;
+    }
+
+    /**
+     * Starts rebuilding the order index in the background, unless a rebuild is running.
+     *
+     * @return a ResponseEntity containing the progress of the started or running rebuild
+     */
+    @PostMapping
+    public ResponseEntity<OrderReindexer.Progress> startReindex() {
+        return handleRequest(orderReindexer::start, HttpStatus.ACCEPTED, "Starting the order reindex");
+    }
+
+    /**
+     * Retrieves the progress of the current or last rebuild of the order index.
+     *
+     * @return a ResponseEntity containing the orders indexed so far, the rate and the estimated time left
+     */
+    @GetMapping
+    public ResponseEntity<OrderReindexer.Progress> getReindexProgress() {
+        return handleRequest(orderReindexer::progress, "Retrieving the order reindex progress");
+    }
+}
@@ -11,7 +11,7 @@ import java.time.LocalDateTime;
 @Getter
 @NoArgsConstructor
 @AllArgsConstructor
-@Document(indexName = "order", createIndex = true)
+@Document(indexName = "order", createIndex = false)
 public class OrderDocument {
 
 
@@ -10,7 +10,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
-public interface OrderDocumentRepository extends ElasticsearchRepository<OrderDocument, String>{
+public interface OrderDocumentRepository extends ElasticsearchRepository<OrderDocument, String>, OrderDocumentSearch {
     OrderDocument save(OrderDocument orderDocument);
 
     @Query("{\"match\": {\"status\": {\"query\": \"?0\", \"fuzziness\": \"AUTO\", \"prefix_length\": 3}}}")
@@ -0,0 +1,79 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.elasticrepos;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticdocuments.OrderDocument;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.enums.OrderStatus;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Searches of the order index that are built by hand rather than derived from method names.
+ */
+public interface OrderDocumentSearch {
+
+    /**
+     * One page of search results.
+     *
+     * @param orders           the orders of the page, by order date and then ID
+     * @param searchAfter      the sort values of the last order, to pass on for the next page, or null if the page is empty
+     * @param ordersByCustomer the number of matching orders of each customer, counted on the first page only
+     */
+    record Page(List<OrderDocument> orders, List<Object> searchAfter, Map<Long, Long> ordersByCustomer) {
+    }
+
+    /**
+     * How long orders take from being placed to their estimated delivery.
+     *
+     * @param orders      the number of orders with both dates
+     * @param ordersByDay the number of orders by their delay in whole days
+     * @param percentiles the delay in days at the 50th, 90th, 95th and 99th percentiles, keyed by percentile
+     */
+    record DeliveryDelays(long orders, Map<Long, Long> ordersByDay, Map<Double, Double> percentiles) {
+    }
+
+    /**
+     * Finds the orders of a user placed between two dates, inclusive, sorted by order date. Filtering,
+     * sorting and paging are done by Elasticsearch, so only the orders of the page are transferred.
+     *
+     * @param username    the username the orders belong to
+     * @param startDate   the earliest order date
+     * @param endDate     the latest order date
+     * @param size        the maximum number of orders on the page
+     * @param searchAfter the {@link Page#searchAfter()} of the previous page, or null for the first page
+     * @return the page of orders
+     */
+    Page searchByUsername(String username, LocalDateTime startDate, LocalDateTime endDate, int size, List<Object> searchAfter);
+
+    /**
+     * Counts the orders placed each day between two dates, inclusive, by status.
+     *
+     * @param startDate the earliest order date
+     * @param endDate   the latest order date
+     * @param cache     whether Elasticsearch may answer from, and store the result in, its request cache
+     * @return the number of orders of each status, by day, for the days with orders
+     */
+    Map<LocalDate, Map<OrderStatus, Long>> countByDayAndStatus(LocalDateTime startDate, LocalDateTime endDate, boolean cache);
+
+    /**
+     * Counts the orders of the customers with the most orders placed between two dates, inclusive.
+     *
+     * @param startDate the earliest order date
+     * @param endDate   the latest order date
+     * @param size      the number of customers to count
+     * @param cache     whether Elasticsearch may answer from, and store the result in, its request cache
+     * @return the number of orders of each customer, most orders first
+     */
+    Map<Long, Long> countByCustomer(LocalDateTime startDate, LocalDateTime endDate, int size, boolean cache);
+
+    /**
+     * Summarizes the delivery delays of the orders placed between two dates, inclusive.
+     *
+     * @param startDate the earliest order date
+     * @param endDate   the latest order date
+     * @param cache     whether Elasticsearch may answer from, and store the result in, its request cache
+     * @return the histogram and percentiles of the delays
+     */
+    DeliveryDelays deliveryDelays(LocalDateTime startDate, LocalDateTime endDate, boolean cache);
+}
@@ -0,0 +1,230 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.elasticrepos;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticdocuments.OrderDocument;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticservices.OrderIndexPartitions;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.enums.OrderStatus;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.script.Script;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.aggregations.Aggregation;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.BucketOrder;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
+import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.metrics.Percentile;
+import org.elasticsearch.search.aggregations.metrics.Percentiles;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
+import org.springframework.data.elasticsearch.core.convert.ElasticsearchConverter;
+import org.springframework.data.elasticsearch.core.document.DocumentAdapters;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the searches of {@link OrderDocumentSearch} with the bulk of the work left to Elasticsearch: a bool
+ * query of filters, so nothing is scored, sorted on the order date with the order ID breaking ties so
+ * {@code search_after} pages never skip or repeat an order, and a terms aggregation that counts the orders
+ * of each customer. The analytics are searches of size 0, answered by aggregations alone, and may be
+ * served from the request cache of Elasticsearch, which only caches such searches. Every search addresses only
+ * the monthly partitions its date range overlaps, see {@link OrderIndexPartitions}; when none of them exist
+ * the response has no aggregations and the counts are empty.
+ * <p>
+ * The username is matched on its {@code keyword} subfield, which dynamic mapping adds to the string fields
+ * that {@link OrderDocument} does not map itself.
+ */
+public class OrderDocumentSearchImpl implements OrderDocumentSearch {
+
+    static final String CUSTOMERS = "customers";
+    static final String DAYS = "days";
+    static final String STATUSES = "statuses";
+    static final String DELAYS = "delays";
+    static final String PERCENTILES = "percentiles";
+    private static final int MAX_CUSTOMERS = 1000;
+    private static final double[] DELAY_PERCENTS = {50, 90, 95, 99};
+    /** The days from the order date to the estimated delivery date. */
+    private static final Script DELAY_DAYS = new Script("(doc['estimatedDeliveryDate'].value.toInstant().toEpochMilli()"
+            + " - doc['orderDate'].value.toInstant().toEpochMilli()) / 86400000.0");
+
+    private final RestHighLevelClient elasticsearchClient;
+    private final ElasticsearchRestTemplate elasticsearchTemplate;
+    private final OrderIndexPartitions partitions;
+
+    @Autowired
+    public OrderDocumentSearchImpl(RestHighLevelClient elasticsearchClient, ElasticsearchRestTemplate elasticsearchTemplate,
+                                   OrderIndexPartitions partitions) {
+        this.elasticsearchClient = elasticsearchClient;
+        this.elasticsearchTemplate = elasticsearchTemplate;
+        this.partitions = partitions;
+    }
+
+    @Override
+    public Page searchByUsername(String username, LocalDateTime startDate, LocalDateTime endDate, int size, List<Object> searchAfter) {
+        SearchResponse response = search(byUsername(username, startDate, endDate, size, searchAfter), startDate, endDate,
+                false, "the orders of " + username);
+
+        ElasticsearchConverter converter = elasticsearchTemplate.getElasticsearchConverter();
+        SearchHit[] hits = response.getHits().getHits();
+        List<OrderDocument> orders = new ArrayList<>(hits.length);
+        for (SearchHit hit : hits) {
+            orders.add(converter.mapDocument(DocumentAdapters.from(hit), OrderDocument.class));
+        }
+        List<Object> last = hits.length > 0 ? List.of(hits[hits.length - 1].getSortValues()) : null;
+
+        Map<Long, Long> ordersByCustomer = new LinkedHashMap<>();
+        Terms customers = aggregation(response, CUSTOMERS);
+        if (customers != null) {
+            for (Terms.Bucket bucket : customers.getBuckets()) {
+                ordersByCustomer.put(bucket.getKeyAsNumber().longValue(), bucket.getDocCount());
+            }
+        }
+        return new Page(orders, last, ordersByCustomer);
+    }
+
+    @Override
+    public Map<LocalDate, Map<OrderStatus, Long>> countByDayAndStatus(LocalDateTime startDate, LocalDateTime endDate, boolean cache) {
+        Histogram days = aggregation(search(byDayAndStatus(startDate, endDate), startDate, endDate, cache, "orders per day"), DAYS);
+        Map<LocalDate, Map<OrderStatus, Long>> ordersByDay = new LinkedHashMap<>();
+        if (days == null) {
+            return ordersByDay;
+        }
+        for (Histogram.Bucket day : days.getBuckets()) {
+            Map<OrderStatus, Long> ordersByStatus = new EnumMap<>(OrderStatus.class);
+            Terms statuses = day.getAggregations().get(STATUSES);
+            for (Terms.Bucket status : statuses.getBuckets()) {
+                ordersByStatus.put(OrderStatus.valueOf(status.getKeyAsString()), status.getDocCount());
+            }
+            ordersByDay.put(((ZonedDateTime) day.getKey()).toLocalDate(), ordersByStatus);
+        }
+        return ordersByDay;
+    }
+
+    @Override
+    public Map<Long, Long> countByCustomer(LocalDateTime startDate, LocalDateTime endDate, int size, boolean cache) {
+        Terms customers = aggregation(search(byCustomer(startDate, endDate, size), startDate, endDate, cache, "orders per customer"), CUSTOMERS);
+        Map<Long, Long> ordersByCustomer = new LinkedHashMap<>();
+        if (customers == null) {
+            return ordersByCustomer;
+        }
+        for (Terms.Bucket customer : customers.getBuckets()) {
+            ordersByCustomer.put(customer.getKeyAsNumber().longValue(), customer.getDocCount());
+        }
+        return ordersByCustomer;
+    }
+
+    @Override
+    public DeliveryDelays deliveryDelays(LocalDateTime startDate, LocalDateTime endDate, boolean cache) {
+        SearchResponse response = search(byDeliveryDelay(startDate, endDate), startDate, endDate, cache, "delivery delays");
+        Histogram delays = aggregation(response, DELAYS);
+        Map<Long, Long> ordersByDay = new LinkedHashMap<>();
+        long orders = 0;
+        Map<Double, Double> percentiles = new LinkedHashMap<>();
+        if (delays == null) {
+            return new DeliveryDelays(orders, ordersByDay, percentiles);
+        }
+        for (Histogram.Bucket delay : delays.getBuckets()) {
+            ordersByDay.put(((Number) delay.getKey()).longValue(), delay.getDocCount());
+            orders += delay.getDocCount();
+        }
+        Percentiles values = aggregation(response, PERCENTILES);
+        for (Percentile percentile : values) {
+            percentiles.put(percentile.getPercent(), Double.isNaN(percentile.getValue()) ? null : percentile.getValue());
+        }
+        return new DeliveryDelays(orders, ordersByDay, percentiles);
+    }
+
+    private SearchResponse search(SearchSourceBuilder source, LocalDateTime startDate, LocalDateTime endDate, boolean cache, String what) {
+        SearchRequest request = new SearchRequest(partitions.partitionsBetween(startDate, endDate))
+                .indicesOptions(OrderIndexPartitions.SEARCH_OPTIONS)
+                .source(source)
+                .requestCache(cache);
+        try {
+            return elasticsearchClient.search(request, RequestOptions.DEFAULT);
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException("Error occurred while searching " + what, e);
+        }
+    }
+
+    private static <A extends Aggregation> A aggregation(SearchResponse response, String name) {
+        return response.getAggregations() != null ? response.getAggregations().get(name) : null;
+    }
+
+    private static BoolQueryBuilder placedBetween(LocalDateTime startDate, LocalDateTime endDate) {
+        return QueryBuilders.boolQuery()
+                .filter(QueryBuilders.rangeQuery("orderDate").gte(startDate.toString()).lte(endDate.toString()));
+    }
+
+    /**
+     * Builds the search counting orders by day and, within each day, by status.
+     */
+    static SearchSourceBuilder byDayAndStatus(LocalDateTime startDate, LocalDateTime endDate) {
+        return new SearchSourceBuilder()
+                .query(placedBetween(startDate, endDate))
+                .size(0)
+                .trackTotalHits(false)
+                .aggregation(AggregationBuilders.dateHistogram(DAYS).field("orderDate")
+                        .calendarInterval(DateHistogramInterval.DAY)
+                        .subAggregation(AggregationBuilders.terms(STATUSES).field("status.okay").size(OrderStatus.values().length)));
+    }
+
+    /**
+     * Builds the search counting the orders of the customers with the most orders.
+     */
+    static SearchSourceBuilder byCustomer(LocalDateTime startDate, LocalDateTime endDate, int size) {
+        return new SearchSourceBuilder()
+                .query(placedBetween(startDate, endDate))
+                .size(0)
+                .trackTotalHits(false)
+                .aggregation(AggregationBuilders.terms(CUSTOMERS).field("customerId").size(size)
+                        .order(BucketOrder.count(false)));
+    }
+
+    /**
+     * Builds the search summarizing delivery delays, over the orders that have both dates.
+     */
+    static SearchSourceBuilder byDeliveryDelay(LocalDateTime startDate, LocalDateTime endDate) {
+        return new SearchSourceBuilder()
+                .query(placedBetween(startDate, endDate).filter(QueryBuilders.existsQuery("estimatedDeliveryDate")))
+                .size(0)
+                .trackTotalHits(false)
+                .aggregation(AggregationBuilders.histogram(DELAYS).script(DELAY_DAYS).interval(1))
+                .aggregation(AggregationBuilders.percentiles(PERCENTILES).script(DELAY_DAYS).percentiles(DELAY_PERCENTS));
+    }
+
+    /**
+     * Builds the search for one page of a user's orders. The orders of each customer are only counted for
+     * the first page.
+     */
+    static SearchSourceBuilder byUsername(String username, LocalDateTime startDate, LocalDateTime endDate, int size, List<Object> searchAfter) {
+        SearchSourceBuilder source = new SearchSourceBuilder()
+                .query(QueryBuilders.boolQuery()
+                        .filter(QueryBuilders.termQuery("username.keyword", username))
+                        .filter(QueryBuilders.rangeQuery("orderDate").gte(startDate.toString()).lte(endDate.toString())))
+                .sort("orderDate", SortOrder.ASC)
+                .sort("id", SortOrder.ASC)
+                .size(size)
+                .trackTotalHits(false);
+        if (searchAfter == null) {
+            source.aggregation(AggregationBuilders.terms(CUSTOMERS).field("customerId").size(MAX_CUSTOMERS));
+        } else {
+            source.searchAfter(searchAfter.toArray());
+        }
+        return source;
+    }
+}
@@ -2,9 +2,18 @@ package com.github.mehmetsahinnn.onlineordertrackingsystem.elasticservices;
 
 import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticdocuments.OrderDocument;
 import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticrepos.OrderDocumentRepository;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticrepos.OrderDocumentSearch;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.enums.OrderStatus;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -12,14 +21,32 @@ import java.util.stream.Collectors;
 @Service
 public class ElasticOrderService {
 
+    static final int PAGE_SIZE = 1000;
+
     private final OrderDocumentRepository orderDocumentRepository;
+    private final ElasticsearchRestTemplate elasticsearchTemplate;
+    private final OrderIndexPartitions partitions;
 
-    public ElasticOrderService(OrderDocumentRepository orderDocumentRepository) {
+    public ElasticOrderService(OrderDocumentRepository orderDocumentRepository, ElasticsearchRestTemplate elasticsearchTemplate,
+                               OrderIndexPartitions partitions) {
         this.orderDocumentRepository = orderDocumentRepository;
+        this.elasticsearchTemplate = elasticsearchTemplate;
+        this.partitions = partitions;
     }
 
+    /**
+     * Writes an order document to the month of its order date.
+     *
+     * @param orderDocument the document to write
+     * @return the written document
+     */
     public OrderDocument saveOrderDocument(OrderDocument orderDocument) {
-        return orderDocumentRepository.save(orderDocument);
+        try {
+            partitions.createPartition(orderDocument.getOrderDate());
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException("Error occurred while creating the partition of " + orderDocument.getId(), e);
+        }
+        return elasticsearchTemplate.save(orderDocument, IndexCoordinates.of(partitions.partitionFor(orderDocument.getOrderDate())));
     }
 
     public List<OrderDocument> findByStatus(String status) {
@@ -33,14 +60,71 @@ public class ElasticOrderService {
                 .collect(Collectors.groupingBy(OrderDocument::getCustomerId));
     }
 
+    /**
+     * Returns the orders of a user placed between two dates, inclusive, grouped by customer and sorted by
+     * order date. Only the matching orders are read from Elasticsearch, a page at a time, and the groups are
+     * sized from the order counts Elasticsearch aggregated.
+     *
+     * @param username  the username the orders belong to
+     * @param startDate the earliest order date
+     * @param endDate   the latest order date
+     * @return the orders of each customer
+     */
     public Map<Long, List<OrderDocument>> filterOrderByUser(String username, LocalDateTime startDate, LocalDateTime endDate) {
-        List<OrderDocument> orders = orderDocumentRepository.findUserByUsername(username);
+        return filterOrderByUser(username, startDate, endDate, PAGE_SIZE);
+    }
 
-        List<OrderDocument> filteredOrders = orders.stream()
-                .filter(order -> !order.getOrderDate().isBefore(startDate) && !order.getOrderDate().isAfter(endDate))
-                .toList();
+    Map<Long, List<OrderDocument>> filterOrderByUser(String username, LocalDateTime startDate, LocalDateTime endDate, int pageSize) {
+        OrderDocumentSearch.Page page = orderDocumentRepository.searchByUsername(username, startDate, endDate, pageSize, null);
+        Map<Long, List<OrderDocument>> ordersByCustomer = new LinkedHashMap<>();
+        page.ordersByCustomer().forEach((customerId, count) -> ordersByCustomer.put(customerId, new ArrayList<>(count.intValue())));
+        while (true) {
+            for (OrderDocument order : page.orders()) {
+                ordersByCustomer.computeIfAbsent(order.getCustomerId(), customerId -> new ArrayList<>()).add(order);
+            }
+            if (page.orders().size() < pageSize) {
+                return ordersByCustomer;
+            }
+            page = orderDocumentRepository.searchByUsername(username, startDate, endDate, pageSize, page.searchAfter());
+        }
+    }
 
-        return filteredOrders.stream()
-                .collect(Collectors.groupingBy(OrderDocument::getCustomerId));
+    /**
+     * Counts the orders placed each day between two dates, inclusive, by status. Elasticsearch does the
+     * counting, so no order is transferred.
+     *
+     * @param startDate the earliest order date
+     * @param endDate   the latest order date
+     * @param cache     whether Elasticsearch may answer from its request cache
+     * @return the number of orders of each status, by day
+     */
+    public Map<LocalDate, Map<OrderStatus, Long>> countOrdersByDayAndStatus(LocalDateTime startDate, LocalDateTime endDate, boolean cache) {
+        return orderDocumentRepository.countByDayAndStatus(startDate, endDate, cache);
+    }
+
+    /**
+     * Counts the orders of the customers with the most orders placed between two dates, inclusive.
+     *
+     * @param startDate the earliest order date
+     * @param endDate   the latest order date
+     * @param size      the number of customers to count
+     * @param cache     whether Elasticsearch may answer from its request cache
+     * @return the number of orders of each customer, most orders first
+     */
+    public Map<Long, Long> countOrdersByCustomer(LocalDateTime startDate, LocalDateTime endDate, int size, boolean cache) {
+        return orderDocumentRepository.countByCustomer(startDate, endDate, size, cache);
+    }
+
+    /**
+     * Summarizes how many days the orders placed between two dates, inclusive, take from being placed to
+     * their estimated delivery.
+     *
+     * @param startDate the earliest order date
+     * @param endDate   the latest order date
+     * @param cache     whether Elasticsearch may answer from its request cache
+     * @return the histogram and percentiles of the delays
+     */
+    public OrderDocumentSearch.DeliveryDelays getDeliveryDelays(LocalDateTime startDate, LocalDateTime endDate, boolean cache) {
+        return orderDocumentRepository.deliveryDelays(startDate, endDate, cache);
     }
 }
@@ -0,0 +1,424 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.elasticservices;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticdocuments.OrderDocument;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.admin.indices.alias.Alias;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
+import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequest;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.CreateIndexRequest;
+import org.elasticsearch.client.indices.GetIndexRequest;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.rest.RestStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The OrderIndexPartitions splits the order index into one index per month of order date.
+ * <p>
+ * Each month is written to {@code order-yyyy.MM-000001} through the alias {@code order-yyyy.MM}, so an order's
+ * status changes always replace it in the month it was placed in, and a month can later be rebuilt into a new
+ * index and swapped in behind its alias. Every month is also behind the read alias {@code order}, the index
+ * name of {@link OrderDocument}, so the repository reads all of them, and the current month is behind the
+ * write alias {@code order-write} and is the write index of both aliases.
+ * <p>
+ * Rollover runs every {@code sr.elastic.partitions.rollover-interval-ms}: it creates the current and the next
+ * month ahead of time, moves the write alias once a month begins, and deletes the months older than
+ * {@code sr.elastic.partitions.retention-months}. Searches over a date range address only the months that
+ * overlap it; months that were never created are skipped. While {@code order} is still the single index it
+ * was before partitioning, every read and write goes to it and rollover does nothing.
+ * <p>
+ * A reindex builds the next generation of every month, {@code order-yyyy.MM-000002} and so on, next to the live
+ * one, with refreshes off. While it runs, {@link #reindexTargetFor} names the new index of each month so live
+ * writes go to both. Finishing it swaps all aliases to the new generation and drops the old one, or the single
+ * index, in one atomic request.
+ */
+@Component
+public class OrderIndexPartitions {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderIndexPartitions.class);
+
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyy.MM");
+    private static final String GENERATION = "-000001";
+
+    /**
+     * Lets a search name months that do not exist.
+     */
+    public static final IndicesOptions SEARCH_OPTIONS = IndicesOptions.lenientExpandOpen();
+
+    private final RestHighLevelClient elasticsearchClient;
+    private final ElasticsearchRestTemplate elasticsearchTemplate;
+    private final String readAlias;
+    private final String writeAlias;
+    private final int retentionMonths;
+    private final Clock clock;
+    private final Set<YearMonth> created = ConcurrentHashMap.newKeySet();
+    private volatile boolean partitioned = true;
+    private volatile boolean checked;
+    private final Set<YearMonth> reindexed = ConcurrentHashMap.newKeySet();
+    private volatile String reindexGeneration;
+
+    @Autowired
+    public OrderIndexPartitions(RestHighLevelClient elasticsearchClient, ElasticsearchRestTemplate elasticsearchTemplate,
+                                @Value("${sr.elastic.partitions.retention-months:24}") int retentionMonths) {
+        this(elasticsearchClient, elasticsearchTemplate, retentionMonths, Clock.systemDefaultZone());
+    }
+
+    OrderIndexPartitions(RestHighLevelClient elasticsearchClient, ElasticsearchRestTemplate elasticsearchTemplate,
+                         int retentionMonths, Clock clock) {
+        this.elasticsearchClient = elasticsearchClient;
+        this.elasticsearchTemplate = elasticsearchTemplate;
+        this.readAlias = elasticsearchTemplate.getIndexCoordinatesFor(OrderDocument.class).getIndexName();
+        this.writeAlias = readAlias + "-write";
+        this.retentionMonths = Math.max(1, retentionMonths);
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the alias covering every month.
+     *
+     * @return the read alias
+     */
+    public String readAlias() {
+        return readAlias;
+    }
+
+    /**
+     * Returns the alias of the current month.
+     *
+     * @return the write alias
+     */
+    public String writeAlias() {
+        return writeAlias;
+    }
+
+    /**
+     * Returns the alias an order placed at the given time is written to.
+     *
+     * @param orderDate the order date, or null for an order without one
+     * @return the alias of the order's month, or the write alias if it has no order date
+     */
+    public String partitionFor(LocalDateTime orderDate) {
+        if (!partitioned) {
+            return readAlias;
+        }
+        return orderDate != null ? monthAlias(YearMonth.from(orderDate)) : writeAlias;
+    }
+
+    /**
+     * Creates the month of an order date unless it exists, so writing to it never lets Elasticsearch create
+     * an index of that name on its own, with neither the mapping nor the read alias.
+     *
+     * @param orderDate the order date, or null for an order without one
+     * @throws IOException if the month could not be created
+     */
+    public void createPartition(LocalDateTime orderDate) throws IOException {
+        if (!checked) {
+            rollover();
+        }
+        if (partitioned && orderDate != null && !created.contains(YearMonth.from(orderDate))) {
+            createMonth(YearMonth.from(orderDate));
+        }
+    }
+
+    /**
+     * Returns the aliases of the retained months that overlap a range of order dates, inclusive. A range that
+     * lies entirely before the retained months still gets the oldest one, so the search runs and finds nothing
+     * rather than falling back to every index.
+     *
+     * @param startDate the earliest order date, or null for no lower bound
+     * @param endDate   the latest order date, or null for no upper bound
+     * @return the month aliases to search, oldest first
+     */
+    public String[] partitionsBetween(LocalDateTime startDate, LocalDateTime endDate) {
+        if (!partitioned) {
+            return new String[]{readAlias};
+        }
+        YearMonth now = YearMonth.now(clock);
+        YearMonth oldest = now.minusMonths(retentionMonths - 1L);
+        YearMonth from = startDate == null || YearMonth.from(startDate).isBefore(oldest) ? oldest : YearMonth.from(startDate);
+        YearMonth to = endDate == null || YearMonth.from(endDate).isAfter(now.plusMonths(1)) ? now.plusMonths(1) : YearMonth.from(endDate);
+        List<String> partitions = new ArrayList<>();
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            partitions.add(monthAlias(month));
+        }
+        if (partitions.isEmpty()) {
+            partitions.add(monthAlias(oldest));
+        }
+        return partitions.toArray(String[]::new);
+    }
+
+    /**
+     * Creates the current and the next month, points the write alias at the current month and deletes the
+     * months past retention. Does nothing while {@code order} is still a single index rather than an alias.
+     */
+    @Scheduled(fixedDelayString = "${sr.elastic.partitions.rollover-interval-ms:3600000}")
+    public synchronized void rollover() {
+        try {
+            partitioned = !isUnpartitioned();
+            checked = true;
+            if (!partitioned) {
+                logger.warn("{} is an index, not an alias; reindex it to partition orders by month", readAlias);
+                return;
+            }
+            YearMonth now = YearMonth.now(clock);
+            createMonth(now);
+            createMonth(now.plusMonths(1));
+            moveWriteAlias(now);
+            deleteExpired();
+        } catch (IOException | ElasticsearchStatusException e) {
+            logger.warn("Could not roll over order partitions: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Starts a new generation of monthly indices next to the live ones.
+     *
+     * @return the generation, such as {@code 000002}
+     * @throws IOException if the live indices could not be listed
+     */
+    public synchronized String beginReindex() throws IOException {
+        if (reindexGeneration != null) {
+            throw new IllegalStateException("A reindex of " + readAlias + " is already running");
+        }
+        reindexed.clear();
+        reindexGeneration = nextGeneration(indicesBehind(readAlias));
+        return reindexGeneration;
+    }
+
+    /**
+     * Returns the index of the running reindex an order placed at the given time belongs in, creating it
+     * unless it exists.
+     *
+     * @param orderDate the order date, or null for an order without one
+     * @return the index of the new generation, or null if no reindex is running
+     * @throws IOException if the index could not be created
+     */
+    public String reindexTargetFor(LocalDateTime orderDate) throws IOException {
+        String generation = reindexGeneration;
+        if (generation == null) {
+            return null;
+        }
+        YearMonth month = orderDate != null ? YearMonth.from(orderDate) : YearMonth.now(clock);
+        String index = monthAlias(month) + "-" + generation;
+        if (!reindexed.contains(month)) {
+            create(new CreateIndexRequest(index)
+                    .mapping(elasticsearchTemplate.indexOps(OrderDocument.class).createMapping())
+                    .settings(Settings.builder().put("index.refresh_interval", "-1")));
+            reindexed.add(month);
+        }
+        return index;
+    }
+
+    /**
+     * Makes the new generation searchable and swaps every alias over to it at once. The live generation, or
+     * the single order index, is dropped in the same request.
+     *
+     * @throws IOException if the swap failed, in which case the live generation is still in place
+     */
+    public synchronized void finishReindex() throws IOException {
+        String generation = reindexGeneration;
+        if (generation == null) {
+            return;
+        }
+        String[] indices = reindexed.stream().map(month -> monthAlias(month) + "-" + generation).toArray(String[]::new);
+        if (indices.length > 0) {
+            elasticsearchClient.indices().putSettings(new UpdateSettingsRequest(indices)
+                    .settings(Settings.builder().putNull("index.refresh_interval")), RequestOptions.DEFAULT);
+            elasticsearchClient.indices().refresh(new RefreshRequest(indices), RequestOptions.DEFAULT);
+        }
+
+        YearMonth now = YearMonth.now(clock);
+        IndicesAliasesRequest request = new IndicesAliasesRequest();
+        for (String live : isUnpartitioned() ? Set.of(readAlias) : indicesBehind(readAlias)) {
+            request.addAliasAction(IndicesAliasesRequest.AliasActions.removeIndex().index(live));
+        }
+        for (YearMonth month : reindexed) {
+            String index = monthAlias(month) + "-" + generation;
+            boolean current = month.equals(now);
+            request.addAliasAction(IndicesAliasesRequest.AliasActions.add().index(index).alias(monthAlias(month)));
+            request.addAliasAction(IndicesAliasesRequest.AliasActions.add().index(index).alias(readAlias).writeIndex(current ? true : null));
+            if (current) {
+                request.addAliasAction(IndicesAliasesRequest.AliasActions.add().index(index).alias(writeAlias).writeIndex(true));
+            }
+        }
+        elasticsearchClient.indices().updateAliases(request, RequestOptions.DEFAULT);
+        logger.info("Swapped {} over to generation {} of {} months", readAlias, generation, indices.length);
+
+        created.clear();
+        created.addAll(reindexed);
+        reindexed.clear();
+        reindexGeneration = null;
+        partitioned = true;
+        checked = true;
+        rollover();
+    }
+
+    /**
+     * Deletes the new generation of a reindex that did not finish. The live generation is left as it was.
+     *
+     * @throws IOException if the new indices could not be deleted
+     */
+    public synchronized void abortReindex() throws IOException {
+        String generation = reindexGeneration;
+        reindexGeneration = null;
+        String[] indices = reindexed.stream().map(month -> monthAlias(month) + "-" + generation).toArray(String[]::new);
+        reindexed.clear();
+        if (indices.length > 0) {
+            elasticsearchClient.indices().delete(new DeleteIndexRequest(indices), RequestOptions.DEFAULT);
+            logger.info("Deleted order indices of aborted reindex generation {}", generation);
+        }
+    }
+
+    /**
+     * Returns the generation that follows the newest of the monthly indices.
+     *
+     * @param indices the names of the indices behind the read alias
+     * @return the next generation, zero-padded to six digits
+     */
+    String nextGeneration(Collection<String> indices) {
+        int newest = 1;
+        for (String index : indices) {
+            if (monthOf(index) != null) {
+                try {
+                    newest = Math.max(newest, Integer.parseInt(index.substring(index.lastIndexOf('-') + 1)));
+                } catch (NumberFormatException e) {
+                    // not one of ours
+                }
+            }
+        }
+        return String.format("%06d", newest + 1);
+    }
+
+    /**
+     * Selects the monthly indices that are older than the retention period.
+     *
+     * @param indices the names of the indices behind the read alias
+     * @return the indices to delete
+     */
+    List<String> expired(Collection<String> indices) {
+        YearMonth oldest = YearMonth.now(clock).minusMonths(retentionMonths - 1L);
+        List<String> expired = new ArrayList<>();
+        for (String index : indices) {
+            YearMonth month = monthOf(index);
+            if (month != null && month.isBefore(oldest)) {
+                expired.add(index);
+            }
+        }
+        return expired;
+    }
+
+    String monthAlias(YearMonth month) {
+        return readAlias + "-" + MONTH.format(month);
+    }
+
+    String monthIndex(YearMonth month) {
+        return monthAlias(month) + GENERATION;
+    }
+
+    private YearMonth monthOf(String index) {
+        String prefix = readAlias + "-";
+        int end = index.lastIndexOf('-');
+        if (!index.startsWith(prefix) || end < prefix.length()) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(index.substring(prefix.length(), end), MONTH);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private boolean isUnpartitioned() throws IOException {
+        return elasticsearchClient.indices().exists(new GetIndexRequest(readAlias), RequestOptions.DEFAULT)
+                && !elasticsearchClient.indices().existsAlias(new GetAliasesRequest(readAlias), RequestOptions.DEFAULT);
+    }
+
+    private void createMonth(YearMonth month) throws IOException {
+        String alias = monthAlias(month);
+        if (elasticsearchClient.indices().exists(new GetIndexRequest(alias), RequestOptions.DEFAULT)) {
+            created.add(month);
+            return;
+        }
+        Map<String, Object> mapping = elasticsearchTemplate.indexOps(OrderDocument.class).createMapping();
+        create(new CreateIndexRequest(monthIndex(month))
+                .mapping(mapping)
+                .alias(new Alias(alias))
+                .alias(new Alias(readAlias)));
+        created.add(month);
+    }
+
+    private void create(CreateIndexRequest request) throws IOException {
+        try {
+            elasticsearchClient.indices().create(request, RequestOptions.DEFAULT);
+            logger.info("Created order index {}", request.index());
+        } catch (ElasticsearchStatusException e) {
+            // another instance or thread created it first
+            if (e.status() != RestStatus.BAD_REQUEST || !e.getMessage().contains("resource_already_exists_exception")) {
+                throw e;
+            }
+        }
+    }
+
+    private Set<String> indicesBehind(String alias) throws IOException {
+        return elasticsearchClient.indices()
+                .getAlias(new GetAliasesRequest(alias).indicesOptions(SEARCH_OPTIONS), RequestOptions.DEFAULT)
+                .getAliases().keySet();
+    }
+
+    private void moveWriteAlias(YearMonth now) throws IOException {
+        // after a reindex the month is a later generation than the one rollover creates
+        Set<String> months = indicesBehind(monthAlias(now));
+        if (months.size() != 1) {
+            return;
+        }
+        String current = months.iterator().next();
+        Set<String> writing = indicesBehind(writeAlias);
+        if (writing.size() == 1 && writing.contains(current)) {
+            return;
+        }
+        IndicesAliasesRequest request = new IndicesAliasesRequest();
+        for (String index : writing) {
+            if (!index.equals(current)) {
+                request.addAliasAction(IndicesAliasesRequest.AliasActions.remove().index(index).alias(writeAlias));
+                request.addAliasAction(IndicesAliasesRequest.AliasActions.add().index(index).alias(readAlias).writeIndex(false));
+            }
+        }
+        request.addAliasAction(IndicesAliasesRequest.AliasActions.add().index(current).alias(writeAlias).writeIndex(true));
+        request.addAliasAction(IndicesAliasesRequest.AliasActions.add().index(current).alias(readAlias).writeIndex(true));
+        elasticsearchClient.indices().updateAliases(request, RequestOptions.DEFAULT);
+        logger.info("Order write alias {} now points at {}", writeAlias, current);
+    }
+
+    private void deleteExpired() throws IOException {
+        List<String> expired = expired(indicesBehind(readAlias));
+        if (!expired.isEmpty()) {
+            elasticsearchClient.indices().delete(new DeleteIndexRequest(expired.toArray(String[]::new)), RequestOptions.DEFAULT);
+            expired.forEach(index -> created.remove(monthOf(index)));
+            logger.info("Deleted order partitions past retention: {}", expired);
+        }
+    }
+}
@@ -0,0 +1,394 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.elasticservices;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticdocuments.OrderDocument;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.enums.OrderStatus;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.events.OrderPlacedEvent;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Order;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.CustomerRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.VersionType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
+import org.springframework.data.elasticsearch.core.convert.ElasticsearchConverter;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The OrderIndexer keeps the order index in Elasticsearch up to date with the orders stored in the database.
+ * <p>
+ * Confirmed orders and status changes are queued as {@link OrderDocument}s, up to
+ * {@code sr.elastic.indexer.queue-capacity} of them, and written by a single thread with the bulk API once
+ * {@code sr.elastic.indexer.bulk-size} are waiting or {@code sr.elastic.indexer.flush-interval-ms} after the
+ * first of them arrived. Queuing never blocks: while Elasticsearch is too slow to keep up the queue fills and
+ * further documents are dropped and counted, so the order consumers are never held up by the index.
+ * <p>
+ * Each document carries the username of its customer, the email address the user searches filter on, which
+ * is looked up for the whole bulk request at once just before it is sent.
+ * <p>
+ * Documents are keyed by order track ID and versioned by the time they were queued, so only the latest
+ * document of an order is kept and a retried document never overwrites a newer one. Items a bulk request
+ * rejected with 429 or a server error, and whole requests that failed, are sent again up to
+ * {@code sr.elastic.indexer.max-retries} times with exponential backoff; other rejected items are dropped.
+ * Each document is written to the month of its order date, see {@link OrderIndexPartitions}, and while a
+ * reindex runs also to the month of the generation being built, so the new indices miss no change.
+ * <p>
+ * The metrics {@code order.index.indexed}, {@code order.index.failed}, {@code order.index.dropped} and
+ * {@code order.index.queued} count documents, and {@code order.index.lag} times each document from being
+ * queued to being acknowledged by Elasticsearch.
+ */
+@Component
+public class OrderIndexer {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderIndexer.class);
+
+    /**
+     * Writes documents with one bulk request.
+     */
+    interface BulkIndex {
+
+        /**
+         * @param documents the documents to write, with the version of each
+         * @return the HTTP status of each item, in the order of the documents
+         * @throws IOException if the request as a whole failed
+         */
+        int[] send(List<Pending> documents) throws IOException;
+    }
+
+    /**
+     * Finds the usernames of customers.
+     */
+    interface Usernames {
+
+        /**
+         * @param customerIds the IDs of the customers
+         * @return the username of each customer that has one
+         */
+        Map<Long, String> of(Collection<Long> customerIds);
+    }
+
+    /**
+     * A queued document.
+     *
+     * @param document    the document to write
+     * @param version     the time the document was queued, in milliseconds, used as its external version
+     * @param queuedNanos the {@link System#nanoTime()} the document was queued at
+     */
+    record Pending(OrderDocument document, long version, long queuedNanos) {
+    }
+
+    private final BulkIndex bulkIndex;
+    private final Usernames usernames;
+    private final boolean enabled;
+    private final BlockingQueue<Pending> queue;
+    private final int bulkSize;
+    private final long flushIntervalNanos;
+    private final int maxRetries;
+    private final long retryBackoffMs;
+    private final Counter indexed;
+    private final Counter failed;
+    private final Counter dropped;
+    private final Timer lag;
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    @Autowired
+    public OrderIndexer(RestHighLevelClient elasticsearchClient, ElasticsearchRestTemplate elasticsearchTemplate,
+                        OrderIndexPartitions partitions, CustomerRepository customerRepository,
+                        @Value("${sr.elastic.indexer.enabled:true}") boolean enabled,
+                        @Value("${sr.elastic.indexer.queue-capacity:10000}") int queueCapacity,
+                        @Value("${sr.elastic.indexer.bulk-size:500}") int bulkSize,
+                        @Value("${sr.elastic.indexer.flush-interval-ms:1000}") long flushIntervalMs,
+                        @Value("${sr.elastic.indexer.max-retries:5}") int maxRetries,
+                        @Value("${sr.elastic.indexer.retry-backoff-ms:100}") long retryBackoffMs,
+                        MeterRegistry meterRegistry) {
+        this(restBulkIndex(elasticsearchClient, elasticsearchTemplate, partitions), usernames(customerRepository),
+                enabled, queueCapacity, bulkSize, flushIntervalMs, maxRetries, retryBackoffMs, meterRegistry);
+    }
+
+    OrderIndexer(BulkIndex bulkIndex, boolean enabled, int queueCapacity, int bulkSize, long flushIntervalMs,
+                 int maxRetries, long retryBackoffMs, MeterRegistry meterRegistry) {
+        this(bulkIndex, customerIds -> Map.of(), enabled, queueCapacity, bulkSize, flushIntervalMs, maxRetries,
+                retryBackoffMs, meterRegistry);
+    }
+
+    OrderIndexer(BulkIndex bulkIndex, Usernames usernames, boolean enabled, int queueCapacity, int bulkSize,
+                 long flushIntervalMs, int maxRetries, long retryBackoffMs, MeterRegistry meterRegistry) {
+        this.bulkIndex = bulkIndex;
+        this.usernames = usernames;
+        this.enabled = enabled;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.bulkSize = Math.max(1, bulkSize);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.maxRetries = maxRetries;
+        this.retryBackoffMs = retryBackoffMs;
+        this.indexed = meterRegistry.counter("order.index.indexed");
+        this.failed = meterRegistry.counter("order.index.failed");
+        this.dropped = meterRegistry.counter("order.index.dropped");
+        this.lag = meterRegistry.timer("order.index.lag");
+        Gauge.builder("order.index.queued", queue, BlockingQueue::size).register(meterRegistry);
+        this.flusher = new Thread(this::run, "order-indexer");
+        this.flusher.setDaemon(true);
+        if (enabled) {
+            this.flusher.start();
+        }
+    }
+
+    /**
+     * Queues an order confirmed by the order consumers.
+     *
+     * @param event                 the confirmed order
+     * @param estimatedDeliveryDate the delivery date stored with the order
+     */
+    public void indexConfirmed(OrderPlacedEvent event, LocalDate estimatedDeliveryDate) {
+        if (event.getOrderTrackId() == null) {
+            return;
+        }
+        LocalDateTime orderDate = LocalDateTime.ofInstant(Instant.ofEpochMilli(event.getPlacedAt()), ZoneId.systemDefault());
+        index(new OrderDocument(event.getOrderTrackId().toString(), null, event.getCustomerId(), OrderStatus.CONFIRMED,
+                orderDate, estimatedDeliveryDate != null ? estimatedDeliveryDate.atStartOfDay() : null));
+    }
+
+    /**
+     * Queues a stored order, for example after its status changed.
+     *
+     * @param order the stored order
+     */
+    public void indexOrder(Order order) {
+        if (order == null || order.getOrderTrackId() == null) {
+            return;
+        }
+        LocalDateTime orderDate = order.getOrderDate() != null
+                ? LocalDateTime.ofInstant(order.getOrderDate().toInstant(), ZoneId.systemDefault()) : null;
+        LocalDateTime estimatedDeliveryDate = order.getEstimatedDeliveryDate() != null
+                ? order.getEstimatedDeliveryDate().atStartOfDay() : null;
+        index(new OrderDocument(order.getOrderTrackId().toString(), null,
+                order.getCustomer() != null ? order.getCustomer().getId() : null,
+                order.getStatus(), orderDate, estimatedDeliveryDate));
+    }
+
+    /**
+     * Queues a document without waiting. If the queue is full the document is dropped.
+     *
+     * @param document the document to write
+     * @return whether the document was queued
+     */
+    public boolean index(OrderDocument document) {
+        if (!enabled || !running) {
+            return false;
+        }
+        if (queue.offer(new Pending(document, System.currentTimeMillis(), System.nanoTime()))) {
+            return true;
+        }
+        dropped.increment();
+        logger.warn("Order index queue is full, dropped document {}", document.getId());
+        return false;
+    }
+
+    /**
+     * Returns the number of documents waiting to be written.
+     *
+     * @return the number of queued documents
+     */
+    public int queued() {
+        return queue.size();
+    }
+
+    /**
+     * Stops taking documents and writes the ones already queued.
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (!enabled) {
+            return;
+        }
+        try {
+            flusher.join(TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos) + 5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        Map<String, Pending> buffer = new LinkedHashMap<>();
+        List<Pending> drained = new ArrayList<>(bulkSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                buffer.put(first.document().getId(), first);
+                long deadline = first.queuedNanos() + flushIntervalNanos;
+                while (buffer.size() < bulkSize) {
+                    queue.drainTo(drained, bulkSize - buffer.size());
+                    for (Pending pending : drained) {
+                        buffer.put(pending.document().getId(), pending);
+                    }
+                    drained.clear();
+                    long remaining = deadline - System.nanoTime();
+                    if (buffer.size() >= bulkSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    buffer.put(next.document().getId(), next);
+                }
+                flush(new ArrayList<>(buffer.values()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Error occurred while indexing orders", e);
+            } finally {
+                buffer.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes a batch, sending the items that may succeed later again until they do or run out of retries.
+     */
+    void flush(List<Pending> batch) throws InterruptedException {
+        for (int attempt = 0; !batch.isEmpty(); attempt++) {
+            int[] statuses;
+            try {
+                fillUsernames(batch);
+                statuses = bulkIndex.send(batch);
+            } catch (IOException | RuntimeException e) {
+                // a document without its username would hide the order from the user searches, so retry it
+                logger.warn("Bulk request for {} orders failed: {}", batch.size(), e.getMessage());
+                statuses = new int[batch.size()];
+            }
+            List<Pending> retry = new ArrayList<>();
+            long now = System.nanoTime();
+            for (int i = 0; i < batch.size(); i++) {
+                Pending pending = batch.get(i);
+                int status = statuses[i];
+                // 409 means a newer version of the order is already indexed
+                if ((status > 0 && status < 300) || status == 409) {
+                    indexed.increment();
+                    lag.record(now - pending.queuedNanos(), TimeUnit.NANOSECONDS);
+                } else if (isRetryable(status) && attempt < maxRetries) {
+                    retry.add(pending);
+                } else {
+                    failed.increment();
+                    logger.warn("Could not index order {}, status {}", pending.document().getId(), status);
+                }
+            }
+            if (!retry.isEmpty()) {
+                Thread.sleep(retryBackoffMs << Math.min(attempt, 10));
+            }
+            batch = retry;
+        }
+    }
+
+    private void fillUsernames(List<Pending> batch) {
+        Set<Long> customerIds = new HashSet<>();
+        for (Pending pending : batch) {
+            OrderDocument document = pending.document();
+            if (document.getUsername() == null && document.getCustomerId() != null) {
+                customerIds.add(document.getCustomerId());
+            }
+        }
+        if (customerIds.isEmpty()) {
+            return;
+        }
+        Map<Long, String> found = usernames.of(customerIds);
+        for (Pending pending : batch) {
+            OrderDocument document = pending.document();
+            if (document.getUsername() == null && document.getCustomerId() != null) {
+                document.setUsername(found.get(document.getCustomerId()));
+            }
+        }
+    }
+
+    private static Usernames usernames(CustomerRepository customerRepository) {
+        return customerIds -> {
+            Map<Long, String> found = new HashMap<>();
+            for (Object[] customer : customerRepository.findEmailsByIds(customerIds)) {
+                if (customer[1] != null) {
+                    found.put((Long) customer[0], (String) customer[1]);
+                }
+            }
+            return found;
+        };
+    }
+
+    private static boolean isRetryable(int status) {
+        return status == 0 || status == 429 || status >= 500;
+    }
+
+    private static BulkIndex restBulkIndex(RestHighLevelClient client, ElasticsearchRestTemplate template,
+                                           OrderIndexPartitions partitions) {
+        ElasticsearchConverter converter = template.getElasticsearchConverter();
+        return batch -> {
+            BulkRequest request = new BulkRequest();
+            List<Integer> positions = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                Pending pending = batch.get(i);
+                LocalDateTime orderDate = pending.document().getOrderDate();
+                partitions.createPartition(orderDate);
+                String source = converter.mapObject(pending.document()).toJson();
+                request.add(indexRequest(partitions.partitionFor(orderDate), pending, source));
+                positions.add(i);
+                // while a reindex runs, its new index gets every live change as well
+                String reindexTarget = partitions.reindexTargetFor(orderDate);
+                if (reindexTarget != null) {
+                    request.add(indexRequest(reindexTarget, pending, source));
+                    positions.add(i);
+                }
+            }
+            BulkResponse response = client.bulk(request, RequestOptions.DEFAULT);
+            int[] statuses = new int[batch.size()];
+            for (BulkItemResponse item : response.getItems()) {
+                int position = positions.get(item.getItemId());
+                int status = item.status().getStatus();
+                if (statuses[position] == 0 || (status >= 300 && status != 409)) {
+                    statuses[position] = status;
+                }
+            }
+            return statuses;
+        };
+    }
+
+    private static IndexRequest indexRequest(String index, Pending pending, String source) {
+        return new IndexRequest(index)
+                .id(pending.document().getId())
+                .source(source, XContentType.JSON)
+                .version(pending.version())
+                .versionType(VersionType.EXTERNAL_GTE);
+    }
+}
@@ -0,0 +1,346 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.elasticservices;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticdocuments.OrderDocument;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.OrderScanRepository;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.VersionType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
+import org.springframework.data.elasticsearch.core.convert.ElasticsearchConverter;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.locks.LockSupport.parkNanos;
+
+/**
+ * The OrderReindexer rebuilds the order index from the orders stored in the database.
+ * <p>
+ * A reindex writes a new generation of the monthly order indices next to the live one, see
+ * {@link OrderIndexPartitions}, and swaps every alias over to it at once when all orders are written, so
+ * searches see either the old index or the complete new one. The ID range of the orders is split into
+ * {@code sr.elastic.reindex.ranges} ranges that {@code sr.elastic.reindex.threads} threads read in parallel,
+ * each a page of {@code sr.elastic.reindex.page-size} orders at a time in a read-only transaction. Rows are
+ * streamed from the result set and written in bulk requests of {@code sr.elastic.reindex.bulk-size}, so a
+ * thread never holds more than one bulk request of orders. All threads together write at most
+ * {@code sr.elastic.reindex.max-docs-per-second} documents, 0 for no limit, to leave Elasticsearch room for
+ * live traffic.
+ * <p>
+ * Documents are versioned by the time the reindex started, and the order indexer writes every live change
+ * to the new generation as well with a later version, so a row read before it changed never overwrites the
+ * change. Items rejected with 429 or a server error are retried up to {@code sr.elastic.reindex.max-retries}
+ * times; if any order could not be written the new generation is deleted and the live one kept.
+ */
+@Service
+public class OrderReindexer {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderReindexer.class);
+
+    /**
+     * Writes index requests with one bulk request.
+     */
+    interface BulkIndex {
+
+        /**
+         * @param requests the documents to write
+         * @return the HTTP status of each item, in the order of the requests
+         * @throws IOException if the request as a whole failed
+         */
+        int[] send(List<IndexRequest> requests) throws IOException;
+    }
+
+    public enum State {
+        IDLE, RUNNING, DONE, FAILED
+    }
+
+    /**
+     * The progress of the current or last reindex.
+     *
+     * @param state         whether a reindex is running and how the last one ended
+     * @param total         the number of orders in the database when it started
+     * @param indexed       the number of orders written so far
+     * @param failed        the number of orders that could not be written
+     * @param docsPerSecond the average rate orders were written at
+     * @param etaSeconds    the estimated seconds left, or null if not running or not yet known
+     * @param message       the reason a reindex failed, or null
+     */
+    public record Progress(State state, long total, long indexed, long failed, double docsPerSecond,
+                           Long etaSeconds, String message) {
+    }
+
+    private final OrderScanRepository orderScanRepository;
+    private final BulkIndex bulkIndex;
+    private final ElasticsearchConverter converter;
+    private final OrderIndexPartitions partitions;
+    private final TransactionTemplate transactionTemplate;
+    private final int threads;
+    private final int ranges;
+    private final int pageSize;
+    private final int bulkSize;
+    private final long nanosPerDocument;
+    private final int maxRetries;
+    private final long retryBackoffMs;
+    private final AtomicLong pace = new AtomicLong();
+    private final AtomicLong indexed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile State state = State.IDLE;
+    private volatile long total;
+    private volatile long startedNanos;
+    private volatile long finishedNanos;
+    private volatile String message;
+
+    @Autowired
+    public OrderReindexer(OrderScanRepository orderScanRepository, RestHighLevelClient elasticsearchClient,
+                          ElasticsearchRestTemplate elasticsearchTemplate, OrderIndexPartitions partitions,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${sr.elastic.reindex.threads:4}") int threads,
+                          @Value("${sr.elastic.reindex.ranges:32}") int ranges,
+                          @Value("${sr.elastic.reindex.page-size:10000}") int pageSize,
+                          @Value("${sr.elastic.reindex.bulk-size:1000}") int bulkSize,
+                          @Value("${sr.elastic.reindex.max-docs-per-second:20000}") int maxDocsPerSecond,
+                          @Value("${sr.elastic.reindex.max-retries:5}") int maxRetries,
+                          @Value("${sr.elastic.reindex.retry-backoff-ms:100}") long retryBackoffMs) {
+        this(orderScanRepository, restBulkIndex(elasticsearchClient), elasticsearchTemplate.getElasticsearchConverter(),
+                partitions, transactionManager, threads, ranges, pageSize, bulkSize, maxDocsPerSecond, maxRetries,
+                retryBackoffMs);
+    }
+
+    OrderReindexer(OrderScanRepository orderScanRepository, BulkIndex bulkIndex, ElasticsearchConverter converter,
+                   OrderIndexPartitions partitions, PlatformTransactionManager transactionManager, int threads,
+                   int ranges, int pageSize, int bulkSize, int maxDocsPerSecond, int maxRetries, long retryBackoffMs) {
+        this.orderScanRepository = orderScanRepository;
+        this.bulkIndex = bulkIndex;
+        this.converter = converter;
+        this.partitions = partitions;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.threads = Math.max(1, threads);
+        this.ranges = Math.max(this.threads, ranges);
+        this.pageSize = Math.max(1, pageSize);
+        this.bulkSize = Math.max(1, bulkSize);
+        this.nanosPerDocument = maxDocsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / maxDocsPerSecond : 0;
+        this.maxRetries = maxRetries;
+        this.retryBackoffMs = retryBackoffMs;
+    }
+
+    /**
+     * Starts a reindex in the background unless one is running. Only administrators may start one.
+     *
+     * @return the progress of the started or running reindex
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    public synchronized Progress start() {
+        if (state == State.RUNNING) {
+            return progress();
+        }
+        indexed.set(0);
+        failed.set(0);
+        total = 0;
+        message = null;
+        startedNanos = System.nanoTime();
+        finishedNanos = 0;
+        state = State.RUNNING;
+        Thread coordinator = new Thread(this::run, "order-reindexer");
+        coordinator.setDaemon(true);
+        coordinator.start();
+        return progress();
+    }
+
+    /**
+     * Returns the progress of the current or last reindex.
+     *
+     * @return the progress
+     */
+    public Progress progress() {
+        State current = state;
+        long written = indexed.get();
+        long lost = failed.get();
+        long end = finishedNanos != 0 ? finishedNanos : System.nanoTime();
+        double seconds = current == State.IDLE ? 0 : (end - startedNanos) / 1e9;
+        double docsPerSecond = seconds > 0 ? written / seconds : 0;
+        Long etaSeconds = current == State.RUNNING && docsPerSecond > 0
+                ? (long) Math.ceil(Math.max(0, total - written - lost) / docsPerSecond) : null;
+        return new Progress(current, total, written, lost, docsPerSecond, etaSeconds, message);
+    }
+
+    private void run() {
+        AtomicInteger count = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "order-reindex-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            String generation = partitions.beginReindex();
+            long version = System.currentTimeMillis();
+            OrderScanRepository.IdRange idRange = orderScanRepository.idRange();
+            total = idRange.count();
+            logger.info("Reindexing {} orders into generation {}", total, generation);
+
+            List<Future<?>> scans = new ArrayList<>(ranges);
+            if (idRange.count() > 0) {
+                long span = idRange.maxId() - idRange.minId() + 1;
+                for (int i = 0; i < ranges; i++) {
+                    long afterId = idRange.minId() - 1 + span * i / ranges;
+                    long toId = idRange.minId() - 1 + span * (i + 1) / ranges;
+                    if (toId > afterId) {
+                        scans.add(pool.submit(() -> scan(afterId, toId, version)));
+                    }
+                }
+            }
+            for (Future<?> scan : scans) {
+                scan.get();
+            }
+            if (failed.get() > 0) {
+                throw new IllegalStateException(failed.get() + " orders could not be indexed");
+            }
+            partitions.finishReindex();
+            finish(State.DONE, null);
+            logger.info("Reindexed {} orders into generation {}", indexed.get(), generation);
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            logger.error("Reindexing orders failed, keeping the live order index", e);
+            try {
+                partitions.abortReindex();
+            } catch (IOException | RuntimeException abortFailure) {
+                logger.error("Error occurred while deleting the indices of the failed reindex", abortFailure);
+            }
+            finish(State.FAILED, e.getMessage());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void finish(State result, String reason) {
+        finishedNanos = System.nanoTime();
+        message = reason;
+        state = result;
+    }
+
+    /**
+     * Writes the orders with IDs in {@code (afterId, toId]}, one page per read-only transaction.
+     */
+    private void scan(long afterId, long toId, long version) {
+        List<IndexRequest> bulk = new ArrayList<>(bulkSize);
+        long[] lastId = {afterId};
+        int read;
+        do {
+            read = transactionTemplate.execute(status -> orderScanRepository.scan(lastId[0], toId, pageSize, bulkSize, order -> {
+                lastId[0] = order.id();
+                bulk.add(indexRequest(order, version));
+                if (bulk.size() == bulkSize) {
+                    write(bulk);
+                }
+            }));
+        } while (read == pageSize && failed.get() == 0);
+        write(bulk);
+    }
+
+    private IndexRequest indexRequest(OrderScanRepository.ScannedOrder order, long version) {
+        OrderDocument document = new OrderDocument(
+                order.orderTrackId() != null ? order.orderTrackId().toString() : String.valueOf(order.id()),
+                order.username(), order.customerId(), order.status(), order.orderDate(),
+                order.estimatedDeliveryDate() != null ? order.estimatedDeliveryDate().atStartOfDay() : null);
+        try {
+            return new IndexRequest(partitions.reindexTargetFor(order.orderDate()))
+                    .id(document.getId())
+                    .source(converter.mapObject(document).toJson(), XContentType.JSON)
+                    .version(version)
+                    .versionType(VersionType.EXTERNAL_GTE);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not create the index for order " + order.id(), e);
+        }
+    }
+
+    /**
+     * Sends the bulk, retrying rejected items with backoff, and empties it. Items still rejected are counted
+     * as failed. A version conflict means a live change already wrote a newer document.
+     */
+    private void write(List<IndexRequest> bulk) {
+        if (bulk.isEmpty()) {
+            return;
+        }
+        throttle(bulk.size());
+        List<IndexRequest> pending = new ArrayList<>(bulk);
+        bulk.clear();
+        for (int attempt = 0; !pending.isEmpty(); attempt++) {
+            List<IndexRequest> retry = new ArrayList<>();
+            try {
+                int[] statuses = bulkIndex.send(pending);
+                for (int i = 0; i < pending.size(); i++) {
+                    int status = statuses[i];
+                    if (status < 300 || status == 409) {
+                        indexed.incrementAndGet();
+                    } else if (status == 0 || status == 429 || status >= 500) {
+                        retry.add(pending.get(i));
+                    } else {
+                        failed.incrementAndGet();
+                        logger.warn("Order document {} was rejected with status {}", pending.get(i).id(), status);
+                    }
+                }
+            } catch (IOException e) {
+                logger.warn("Bulk request of {} order documents failed", pending.size(), e);
+                retry = pending;
+            }
+            if (!retry.isEmpty() && attempt >= maxRetries) {
+                failed.addAndGet(retry.size());
+                logger.error("Gave up on {} order documents after {} retries", retry.size(), maxRetries);
+                return;
+            }
+            if (!retry.isEmpty()) {
+                parkNanos(TimeUnit.MILLISECONDS.toNanos(retryBackoffMs << attempt));
+            }
+            pending = retry;
+        }
+    }
+
+    /**
+     * Waits for the slot of the given number of documents, shared by all scan threads.
+     */
+    private void throttle(int documents) {
+        if (nanosPerDocument == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        long cost = documents * nanosPerDocument;
+        long slot = Math.max(now, pace.getAndUpdate(next -> Math.max(next, now) + cost));
+        if (slot > now) {
+            parkNanos(slot - now);
+        }
+    }
+
+    private static BulkIndex restBulkIndex(RestHighLevelClient client) {
+        return requests -> {
+            BulkRequest request = new BulkRequest();
+            requests.forEach(request::add);
+            BulkResponse response = client.bulk(request, RequestOptions.DEFAULT);
+            int[] statuses = new int[requests.size()];
+            for (BulkItemResponse item : response.getItems()) {
+                statuses[item.getItemId()] = item.status().getStatus();
+            }
+            return statuses;
+        };
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.events;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Order;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.OrderItem;
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The OrderPlacedEvent is the message published for a placed order. Unlike the {@link Order} entity
+ * it carries only IDs, quantities and prices, never customer or product details, and its wire format
+ * is versioned by {@link OrderPlacedEventCodec}.
+ */
+@Getter
+public final class OrderPlacedEvent implements Serializable {
+
+    private final UUID orderTrackId;
+    private final Long customerId;
+    private final long placedAt;
+    private final long[] productIds;
+    private final int[] quantities;
+    private final double[] totalPrices;
+
+    /**
+     * Constructs a new OrderPlacedEvent.
+     *
+     * @param orderTrackId the tracking ID of the order
+     * @param customerId   the ID of the customer, or null if the order has none
+     * @param placedAt     when the order was placed, in epoch milliseconds
+     * @param productIds   the product ID of each order line
+     * @param quantities   the quantity of each order line
+     * @param totalPrices  the total price of each order line
+     */
+    public OrderPlacedEvent(UUID orderTrackId, Long customerId, long placedAt,
+                            long[] productIds, int[] quantities, double[] totalPrices) {
+        if (productIds.length != quantities.length || productIds.length != totalPrices.length) {
+            throw new IllegalArgumentException("Order lines must have a product, quantity and price each.");
+        }
+        this.orderTrackId = orderTrackId;
+        this.customerId = customerId;
+        this.placedAt = placedAt;
+        this.productIds = productIds;
+        this.quantities = quantities;
+        this.totalPrices = totalPrices;
+    }
+
+    /**
+     * Creates the event for an order entity.
+     *
+     * @param order the order that was placed
+     * @return the event describing the order
+     * @throws IllegalArgumentException if an order item does not reference a product
+     */
+    public static OrderPlacedEvent from(Order order) {
+        List<OrderItem> items = order.getOrderItems() != null ? order.getOrderItems() : List.of();
+        long[] productIds = new long[items.size()];
+        int[] quantities = new int[items.size()];
+        double[] totalPrices = new double[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            OrderItem item = items.get(i);
+            if (item.getProduct() == null || item.getProduct().getId() == null) {
+                throw new IllegalArgumentException("Order Items must reference a product.");
+            }
+            productIds[i] = item.getProduct().getId();
+            quantities[i] = item.getQuantity();
+            totalPrices[i] = item.getTotalPrice();
+        }
+        Long customerId = order.getCustomer() != null ? order.getCustomer().getId() : null;
+        long placedAt = order.getOrderDate() != null ? order.getOrderDate().getTime() : System.currentTimeMillis();
+        return new OrderPlacedEvent(order.getOrderTrackId(), customerId, placedAt, productIds, quantities, totalPrices);
+    }
+
+    public int itemCount() {
+        return productIds.length;
+    }
+
+    /**
+     * Sums the quantities of order lines that refer to the same product.
+     *
+     * @return the total quantity per product ID, in order of first appearance
+     */
+    public Map<Long, Integer> quantitiesByProduct() {
+        Map<Long, Integer> merged = new LinkedHashMap<>();
+        for (int i = 0; i < productIds.length; i++) {
+            merged.merge(productIds[i], quantities[i], Integer::sum);
+        }
+        return merged;
+    }
+
+    @Override
+    public String toString() {
+        return "OrderPlacedEvent{" +
+                "orderTrackId = '" + orderTrackId + '\'' +
+                ", customerId = " + customerId +
+                ", items = " + productIds.length +
+                '}';
+    }
+}
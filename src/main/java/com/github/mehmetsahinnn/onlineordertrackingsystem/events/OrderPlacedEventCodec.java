@@ -0,0 +1,155 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.events;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Binary encoding of {@link OrderPlacedEvent}.
+ * <p>
+ * Version 1 layout, all multi-byte fixed-width values big-endian:
+ * <pre>
+ * magic        2 bytes  'O' 'P'
+ * version      1 byte   1
+ * flags        1 byte   bit 0: order track ID present, bit 1: customer ID present
+ * orderTrackId 16 bytes if present
+ * customerId   varint   if present
+ * placedAt     varint   epoch milliseconds
+ * itemCount    varint
+ * per item     productId varint, quantity zigzag varint, totalPrice 8-byte double
+ * </pre>
+ * Decoders reject unknown versions, so a new layout must get a new version number.
+ */
+public final class OrderPlacedEventCodec {
+
+    public static final int VERSION = 1;
+
+    private static final byte MAGIC_0 = 'O';
+    private static final byte MAGIC_1 = 'P';
+    private static final int HAS_TRACK_ID = 1;
+    private static final int HAS_CUSTOMER = 1 << 1;
+    private static final int MAX_ITEMS = 100_000;
+
+    private OrderPlacedEventCodec() {
+    }
+
+    public static byte[] encode(OrderPlacedEvent event) {
+        Writer out = new Writer(32 + event.itemCount() * 16);
+        out.put(MAGIC_0);
+        out.put(MAGIC_1);
+        out.put((byte) VERSION);
+        int flags = (event.getOrderTrackId() != null ? HAS_TRACK_ID : 0) | (event.getCustomerId() != null ? HAS_CUSTOMER : 0);
+        out.put((byte) flags);
+        if (event.getOrderTrackId() != null) {
+            out.putLong(event.getOrderTrackId().getMostSignificantBits());
+            out.putLong(event.getOrderTrackId().getLeastSignificantBits());
+        }
+        if (event.getCustomerId() != null) {
+            out.putVarLong(event.getCustomerId());
+        }
+        out.putVarLong(event.getPlacedAt());
+        out.putVarLong(event.itemCount());
+        for (int i = 0; i < event.itemCount(); i++) {
+            out.putVarLong(event.getProductIds()[i]);
+            int quantity = event.getQuantities()[i];
+            out.putVarLong(Integer.toUnsignedLong((quantity << 1) ^ (quantity >> 31)));
+            out.putLong(Double.doubleToRawLongBits(event.getTotalPrices()[i]));
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes an event.
+     *
+     * @param bytes the encoded event
+     * @return the decoded event
+     * @throws IllegalArgumentException if the bytes are not a supported OrderPlacedEvent encoding
+     */
+    public static OrderPlacedEvent decode(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        try {
+            if (in.get() != MAGIC_0 || in.get() != MAGIC_1) {
+                throw new IllegalArgumentException("Not an OrderPlacedEvent");
+            }
+            int version = in.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported OrderPlacedEvent version: " + version);
+            }
+            int flags = in.get();
+            UUID orderTrackId = (flags & HAS_TRACK_ID) != 0 ? new UUID(in.getLong(), in.getLong()) : null;
+            Long customerId = (flags & HAS_CUSTOMER) != 0 ? getVarLong(in) : null;
+            long placedAt = getVarLong(in);
+            long itemCount = getVarLong(in);
+            if (itemCount < 0 || itemCount > MAX_ITEMS) {
+                throw new IllegalArgumentException("Invalid OrderPlacedEvent item count: " + itemCount);
+            }
+            int count = (int) itemCount;
+            long[] productIds = new long[count];
+            int[] quantities = new int[count];
+            double[] totalPrices = new double[count];
+            for (int i = 0; i < count; i++) {
+                productIds[i] = getVarLong(in);
+                int zigzag = (int) getVarLong(in);
+                quantities[i] = (zigzag >>> 1) ^ -(zigzag & 1);
+                totalPrices[i] = Double.longBitsToDouble(in.getLong());
+            }
+            return new OrderPlacedEvent(orderTrackId, customerId, placedAt, productIds, quantities, totalPrices);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated OrderPlacedEvent", e);
+        }
+    }
+
+    private static long getVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in OrderPlacedEvent");
+    }
+
+    private static final class Writer {
+
+        private byte[] buffer;
+        private int size;
+
+        Writer(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        void put(byte b) {
+            ensure(1);
+            buffer[size++] = b;
+        }
+
+        void putLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        void putVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        private void ensure(int bytes) {
+            if (size + bytes > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + bytes));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+}
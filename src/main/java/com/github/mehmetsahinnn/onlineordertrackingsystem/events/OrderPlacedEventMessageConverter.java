@@ -0,0 +1,59 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.events;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Order;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+/**
+ * Writes {@link OrderPlacedEvent}s with {@link OrderPlacedEventCodec} and reads them back.
+ * Any other payload goes through the fallback converter, and {@link Order} entities still arriving
+ * from producers that predate the event are turned into events, so listeners only ever see events.
+ */
+public class OrderPlacedEventMessageConverter implements MessageConverter {
+
+    public static final String CONTENT_TYPE = "application/x-order-placed";
+    public static final String VERSION_HEADER = "x-event-version";
+
+    private final MessageConverter fallback;
+
+    public OrderPlacedEventMessageConverter(MessageConverter fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public Message toMessage(Object object, MessageProperties messageProperties) throws MessageConversionException {
+        if (!(object instanceof OrderPlacedEvent event)) {
+            return fallback.toMessage(object, messageProperties);
+        }
+        return encodedMessage(OrderPlacedEventCodec.encode(event), messageProperties);
+    }
+
+    /**
+     * Builds the message for an event that has already been encoded, such as one read from the outbox.
+     *
+     * @param body              the event encoded with {@link OrderPlacedEventCodec}
+     * @param messageProperties the properties to send the event with
+     * @return the message
+     */
+    public static Message encodedMessage(byte[] body, MessageProperties messageProperties) {
+        messageProperties.setContentType(CONTENT_TYPE);
+        messageProperties.setContentLength(body.length);
+        messageProperties.setHeader(VERSION_HEADER, OrderPlacedEventCodec.VERSION);
+        return new Message(body, messageProperties);
+    }
+
+    @Override
+    public Object fromMessage(Message message) throws MessageConversionException {
+        try {
+            if (CONTENT_TYPE.equals(message.getMessageProperties().getContentType())) {
+                return OrderPlacedEventCodec.decode(message.getBody());
+            }
+            Object converted = fallback.fromMessage(message);
+            return converted instanceof Order order ? OrderPlacedEvent.from(order) : converted;
+        } catch (IllegalArgumentException e) {
+            throw new MessageConversionException("Cannot read order message: " + e.getMessage(), e);
+        }
+    }
+}
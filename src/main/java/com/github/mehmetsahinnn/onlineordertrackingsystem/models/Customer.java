@@ -1,6 +1,7 @@
 package com.github.mehmetsahinnn.onlineordertrackingsystem.models;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.github.mehmetsahinnn.onlineordertrackingsystem.enums.AccountStatus;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
@@ -36,5 +37,9 @@ public class Customer implements Serializable {
     @Enumerated(EnumType.STRING)
     @Column(name = "isadmin")
     private AccountStatus status;
+    // set in the database by operators, never from a request
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "express", nullable = false)
+    private boolean express;
 
 }
\ No newline at end of file
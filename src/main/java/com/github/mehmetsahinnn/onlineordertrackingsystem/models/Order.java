@@ -1,6 +1,7 @@
 package com.github.mehmetsahinnn.onlineordertrackingsystem.models;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import com.github.mehmetsahinnn.onlineordertrackingsystem.enums.OrderStatus;
 import lombok.*;
@@ -23,7 +24,7 @@ public class Order implements Serializable {
     @Column(name = "id")
     private Long id;
 
-    @Column(name = "ordertrackid", columnDefinition = "uuid")
+    @Column(name = "ordertrackid", columnDefinition = "uuid", unique = true)
     private UUID orderTrackId;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -46,6 +47,14 @@ public class Order implements Serializable {
     @Column(name = "estimateddeliverydate")
     private LocalDate estimatedDeliveryDate;
 
+    /**
+     * Express orders are consumed on their own lane ahead of bulk traffic. The flag only affects routing and is not stored.
+     * It is decided by the server when the order is placed and never read from a request.
+     */
+    @Transient
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private boolean express;
+
     @Override
     public String toString() {
         return "Order{" +
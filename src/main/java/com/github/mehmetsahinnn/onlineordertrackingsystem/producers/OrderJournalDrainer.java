@@ -0,0 +1,214 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.producers;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners.OrderRetryHandler;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.events.OrderPlacedEventMessageConverter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The OrderJournalDrainer replays the events held in the {@link OrderSpillJournal} once the broker
+ * accepts them again. Events are sent in journal order, one batch per channel, and acknowledged in the
+ * journal up to the last one the broker confirmed without a gap; the rest are sent again on the next run.
+ * <p>
+ * An event the broker returns as unroutable would come back on every run and hold up everything journaled
+ * behind it, so it is moved to the dead-letter queue with its routing key, where it can be inspected and
+ * replayed like any other dead-lettered order. The same happens to the first unconfirmed event once it has
+ * been sent {@code sr.rabbit.journal.max-attempts} times without being confirmed.
+ * <p>
+ * The drainer runs on a thread of its own every {@code sr.rabbit.journal.drain-interval-ms}, so its waits
+ * for confirms do not hold up the tasks on the shared scheduler.
+ * <p>
+ * The number of events waiting in the journal, the number replayed and the number dead-lettered are recorded
+ * as the {@code order.journal.pending}, {@code order.journal.replayed} and {@code order.journal.dead-lettered} metrics.
+ */
+@Component
+public class OrderJournalDrainer {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderJournalDrainer.class);
+
+    private final OrderSpillJournal orderSpillJournal;
+    private final RabbitTemplate rabbitTemplate;
+    private final OrderRetryHandler orderRetryHandler;
+    private final String exchangeName;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long confirmTimeoutMs;
+    private final long drainIntervalMs;
+    private final ScheduledExecutorService scheduler;
+    private final Counter replayed;
+    private final Counter deadLettered;
+    private int headAttempts;
+
+    @Autowired
+    public OrderJournalDrainer(OrderSpillJournal orderSpillJournal, RabbitTemplate rabbitTemplate,
+                               OrderRetryHandler orderRetryHandler,
+                               @Value("${sr.rabbit.exchange.name}") String exchangeName,
+                               @Value("${sr.rabbit.journal.drain-batch-size:500}") int batchSize,
+                               @Value("${sr.rabbit.journal.max-attempts:10}") int maxAttempts,
+                               @Value("${sr.rabbit.publish.confirm-timeout-ms:5000}") long confirmTimeoutMs,
+                               @Value("${sr.rabbit.journal.drain-interval-ms:200}") long drainIntervalMs,
+                               MeterRegistry meterRegistry) {
+        this.orderSpillJournal = orderSpillJournal;
+        this.rabbitTemplate = rabbitTemplate;
+        this.orderRetryHandler = orderRetryHandler;
+        this.exchangeName = exchangeName;
+        this.batchSize = batchSize;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.confirmTimeoutMs = confirmTimeoutMs;
+        this.drainIntervalMs = drainIntervalMs;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "order-journal-drainer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.replayed = meterRegistry.counter("order.journal.replayed");
+        this.deadLettered = meterRegistry.counter("order.journal.dead-lettered");
+        Gauge.builder("order.journal.pending", orderSpillJournal, OrderSpillJournal::pending).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::drain, drainIntervalMs, drainIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * Replays batches until the journal is drained or a batch could not be fully confirmed.
+     */
+    public void drain() {
+        if (!orderSpillJournal.isEnabled() || !orderSpillJournal.hasBacklog()) {
+            return;
+        }
+        try {
+            int sent;
+            do {
+                sent = drainBatch();
+            } while (sent == batchSize);
+        } catch (RuntimeException e) {
+            orderSpillJournal.rewind();
+            logger.warn("Could not replay the order journal, {} events waiting: {}", orderSpillJournal.pending(), e.getMessage());
+        }
+    }
+
+    /**
+     * Sends one batch and acknowledges the events that were confirmed or dead-lettered.
+     *
+     * @return the number of events acknowledged, or -1 if some were not
+     */
+    int drainBatch() {
+        List<OrderSpillJournal.Entry> batch = orderSpillJournal.read(batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        List<CorrelationData> confirms = new ArrayList<>(batch.size());
+        rabbitTemplate.invoke(operations -> {
+            for (OrderSpillJournal.Entry entry : batch) {
+                CorrelationData correlationData = new CorrelationData("journal-" + entry.sequence());
+                operations.send(exchangeName, entry.routingKey(),
+                        OrderPlacedEventMessageConverter.encodedMessage(entry.payload(), new MessageProperties()), correlationData);
+                confirms.add(correlationData);
+            }
+            return null;
+        });
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMs);
+        int done = 0;
+        int dead = 0;
+        while (done < batch.size()) {
+            CorrelationData correlationData = confirms.get(done);
+            if (!isConfirmed(correlationData, deadline)) {
+                if (done > 0) {
+                    headAttempts = 1;
+                    break;
+                }
+                if (++headAttempts < maxAttempts
+                        || !deadLetter(batch.get(done), "Not confirmed after " + headAttempts + " attempts")) {
+                    break;
+                }
+                headAttempts = 0;
+                dead++;
+            } else if (correlationData.getReturned() != null) {
+                if (!deadLetter(batch.get(done), "Unroutable: " + correlationData.getReturned().getReplyText())) {
+                    break;
+                }
+                dead++;
+            }
+            done++;
+        }
+        if (done > 0) {
+            orderSpillJournal.acknowledge(batch.get(done - 1).sequence());
+            replayed.increment(done - dead);
+            deadLettered.increment(dead);
+        }
+        if (done < batch.size()) {
+            orderSpillJournal.rewind();
+            logger.warn("{} of {} journaled order events were not confirmed and will be sent again", batch.size() - done, batch.size());
+            return -1;
+        }
+        headAttempts = 0;
+        return done;
+    }
+
+    /**
+     * Moves an event to the dead-letter queue, so the events journaled behind it can be replayed.
+     *
+     * @return whether the broker confirmed the dead-lettered event
+     */
+    private boolean deadLetter(OrderSpillJournal.Entry entry, String reason) {
+        MessageProperties properties = new MessageProperties();
+        properties.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+        properties.setHeader(OrderRetryHandler.ORIGINAL_ROUTING_KEY_HEADER, entry.routingKey());
+        properties.setHeader(OrderRetryHandler.EXCEPTION_HEADER, reason);
+        CorrelationData correlationData = new CorrelationData("journal-dlq-" + entry.sequence());
+        try {
+            rabbitTemplate.send("", orderRetryHandler.deadLetterQueueName(),
+                    OrderPlacedEventMessageConverter.encodedMessage(entry.payload(), properties), correlationData);
+        } catch (RuntimeException e) {
+            logger.warn("Could not dead-letter journaled order event {}: {}", entry.sequence(), e.getMessage());
+            return false;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMs);
+        if (!isConfirmed(correlationData, deadline) || correlationData.getReturned() != null) {
+            logger.warn("Dead-lettered journaled order event {} was not confirmed", entry.sequence());
+            return false;
+        }
+        logger.error("Journaled order event for {} moved to the dead-letter queue: {}", entry.routingKey(), reason);
+        return true;
+    }
+
+    private static boolean isConfirmed(CorrelationData correlationData, long deadline) {
+        try {
+            CorrelationData.Confirm confirm = correlationData.getFuture().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return confirm.isAck();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
+}
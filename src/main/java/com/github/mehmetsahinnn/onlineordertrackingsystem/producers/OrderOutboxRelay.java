@@ -0,0 +1,258 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.producers;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners.OrderRetryHandler;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.events.OrderPlacedEventMessageConverter;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.OrderOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The OrderOutboxRelay publishes the order events written to the outbox in {@code OUTBOX} publish mode.
+ * <p>
+ * Each batch is locked with {@code FOR UPDATE SKIP LOCKED}, sent on one channel, and deleted in the
+ * same transaction once the broker has confirmed it, so relays on several nodes never pick up the same
+ * rows. Events that are nacked or not confirmed in time stay in the outbox and are sent again by a later
+ * run; an event is therefore published at least once, and at most once per successful commit.
+ * <p>
+ * An event the broker returns as unroutable would be sent again every run, so it is moved to the
+ * dead-letter queue with its routing key, where it can be inspected and replayed like any other
+ * dead-lettered order. So is an event that has been sent {@code sr.outbox.max-attempts} times without
+ * being confirmed. Either is deleted from the outbox only once the dead-letter queue has confirmed it.
+ * <p>
+ * The relay runs on a thread of its own every {@code sr.outbox.poll-interval-ms}. A batch can wait for its
+ * confirms for up to the confirm timeout, which on the shared scheduler would hold up the admission control
+ * samples and the listener tuning behind it.
+ * <p>
+ * Published and dead-lettered events, batch sizes and the time events spent in the outbox are recorded as the
+ * {@code order.outbox.published}, {@code order.outbox.dead-lettered}, {@code order.outbox.batch.size} and
+ * {@code order.outbox.lag} metrics.
+ */
+@Component
+@ConditionalOnProperty(name = "sr.rabbit.publish.mode", havingValue = "OUTBOX")
+public class OrderOutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderOutboxRelay.class);
+
+    private final OrderOutboxRepository orderOutboxRepository;
+    private final RabbitTemplate rabbitTemplate;
+    private final OrderRetryHandler orderRetryHandler;
+    private final String exchangeName;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long confirmTimeoutMs;
+    private final long pollIntervalMs;
+    private final ScheduledExecutorService scheduler;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter published;
+    private final Counter failed;
+    private final Counter deadLettered;
+    private final DistributionSummary batchSizes;
+    private final Timer lag;
+
+    @Autowired
+    public OrderOutboxRelay(OrderOutboxRepository orderOutboxRepository, RabbitTemplate rabbitTemplate,
+                            OrderRetryHandler orderRetryHandler,
+                            @Value("${sr.rabbit.exchange.name}") String exchangeName,
+                            @Value("${sr.outbox.batch-size:200}") int batchSize,
+                            @Value("${sr.outbox.max-attempts:10}") int maxAttempts,
+                            @Value("${sr.rabbit.publish.confirm-timeout-ms:5000}") long confirmTimeoutMs,
+                            @Value("${sr.outbox.poll-interval-ms:50}") long pollIntervalMs,
+                            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.orderOutboxRepository = orderOutboxRepository;
+        this.rabbitTemplate = rabbitTemplate;
+        this.orderRetryHandler = orderRetryHandler;
+        this.exchangeName = exchangeName;
+        this.batchSize = batchSize;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.confirmTimeoutMs = confirmTimeoutMs;
+        this.pollIntervalMs = pollIntervalMs;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "order-outbox-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.published = meterRegistry.counter("order.outbox.published");
+        this.failed = meterRegistry.counter("order.outbox.failed");
+        this.deadLettered = meterRegistry.counter("order.outbox.dead-lettered");
+        this.batchSizes = meterRegistry.summary("order.outbox.batch.size");
+        this.lag = meterRegistry.timer("order.outbox.lag");
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::relay, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * Returns the number of events still waiting in the outbox to be published.
+     *
+     * @return the outbox backlog
+     */
+    public long backlog() {
+        return orderOutboxRepository.count();
+    }
+
+    /**
+     * Publishes batches until the outbox is drained or a batch could not be fully published.
+     */
+    public void relay() {
+        try {
+            Integer sent;
+            do {
+                sent = transactionTemplate.execute(status -> relayBatch());
+            } while (sent != null && sent == batchSize);
+        } catch (RuntimeException e) {
+            logger.error("Error occurred while relaying the order outbox", e);
+        }
+    }
+
+    /**
+     * Publishes one locked batch, deletes the confirmed and dead-lettered events and counts an attempt for the rest.
+     *
+     * @return the number of events deleted, or -1 if some were not
+     */
+    int relayBatch() {
+        List<OrderOutboxRepository.Entry> batch = orderOutboxRepository.lockBatch(batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        List<CorrelationData> confirms = new ArrayList<>(batch.size());
+        rabbitTemplate.invoke(operations -> {
+            for (OrderOutboxRepository.Entry entry : batch) {
+                CorrelationData correlationData = new CorrelationData(entry.orderTrackId().toString());
+                operations.send(exchangeName, entry.routingKey(),
+                        OrderPlacedEventMessageConverter.encodedMessage(entry.payload(), new MessageProperties()), correlationData);
+                confirms.add(correlationData);
+            }
+            return null;
+        });
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMs);
+        List<Long> deleted = new ArrayList<>(batch.size());
+        List<OrderOutboxRepository.Entry> undeliverable = new ArrayList<>();
+        List<String> reasons = new ArrayList<>();
+        List<Long> unconfirmed = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < batch.size(); i++) {
+            OrderOutboxRepository.Entry entry = batch.get(i);
+            CorrelationData correlationData = confirms.get(i);
+            if (!isConfirmed(correlationData, deadline)) {
+                if (entry.attempts() + 1 >= maxAttempts) {
+                    undeliverable.add(entry);
+                    reasons.add("Not confirmed after " + (entry.attempts() + 1) + " attempts");
+                } else {
+                    unconfirmed.add(entry.id());
+                }
+            } else if (correlationData.getReturned() != null) {
+                undeliverable.add(entry);
+                reasons.add("Unroutable: " + correlationData.getReturned().getReplyText());
+            } else {
+                deleted.add(entry.id());
+                lag.record(Math.max(0, now - entry.createdAt()), TimeUnit.MILLISECONDS);
+            }
+        }
+        int confirmed = deleted.size();
+        List<Long> dead = deadLetter(undeliverable, reasons);
+        deleted.addAll(dead);
+        undeliverable.stream().map(OrderOutboxRepository.Entry::id).filter(id -> !dead.contains(id)).forEach(unconfirmed::add);
+        orderOutboxRepository.deleteAll(deleted);
+        orderOutboxRepository.countAttempts(unconfirmed);
+
+        batchSizes.record(batch.size());
+        published.increment(confirmed);
+        deadLettered.increment(dead.size());
+        if (!unconfirmed.isEmpty()) {
+            failed.increment(unconfirmed.size());
+            logger.warn("{} of {} outbox events were not confirmed and will be sent again", unconfirmed.size(), batch.size());
+            return -1;
+        }
+        return deleted.size();
+    }
+
+    /**
+     * Moves events to the dead-letter queue, so they are not sent again on every run.
+     *
+     * @return the IDs of the events the broker confirmed on the dead-letter queue
+     */
+    private List<Long> deadLetter(List<OrderOutboxRepository.Entry> entries, List<String> reasons) {
+        if (entries.isEmpty()) {
+            return List.of();
+        }
+        List<CorrelationData> confirms = new ArrayList<>(entries.size());
+        try {
+            rabbitTemplate.invoke(operations -> {
+                for (int i = 0; i < entries.size(); i++) {
+                    OrderOutboxRepository.Entry entry = entries.get(i);
+                    MessageProperties properties = new MessageProperties();
+                    properties.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+                    properties.setHeader(OrderRetryHandler.ORIGINAL_ROUTING_KEY_HEADER, entry.routingKey());
+                    properties.setHeader(OrderRetryHandler.EXCEPTION_HEADER, reasons.get(i));
+                    CorrelationData correlationData = new CorrelationData("outbox-dlq-" + entry.id());
+                    operations.send("", orderRetryHandler.deadLetterQueueName(),
+                            OrderPlacedEventMessageConverter.encodedMessage(entry.payload(), properties), correlationData);
+                    confirms.add(correlationData);
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Could not dead-letter {} outbox events: {}", entries.size(), e.getMessage());
+            return List.of();
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMs);
+        List<Long> deadLettered = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            OrderOutboxRepository.Entry entry = entries.get(i);
+            CorrelationData correlationData = confirms.get(i);
+            if (isConfirmed(correlationData, deadline) && correlationData.getReturned() == null) {
+                deadLettered.add(entry.id());
+                logger.error("Outbox event for order {} moved to the dead-letter queue: {}", entry.orderTrackId(), reasons.get(i));
+            } else {
+                logger.warn("Dead-lettered outbox event {} was not confirmed", entry.id());
+            }
+        }
+        return deadLettered;
+    }
+
+    private static boolean isConfirmed(CorrelationData correlationData, long deadline) {
+        try {
+            CorrelationData.Confirm confirm = correlationData.getFuture().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return confirm.isAck();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.producers;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Order;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.OrderItem;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The OrderPartitioner decides which order partition, and so which queue and consumer, handles an order.
+ * Orders are routed by their dominant product, the one with the largest total quantity, using a jump
+ * consistent hash: all orders dominated by the same product are consumed in order by one consumer,
+ * and changing the partition count only moves the products that have to move.
+ * <p>
+ * Express orders bypass the partitions and go to the {@value #EXPRESS_LANE} lane, which has its own
+ * consumers so they do not wait behind bulk traffic.
+ * <p>
+ * Partitioning orders the consumption of each dominant product and spreads the load over consumers. It
+ * does not make stock safe across nodes: the other products of an order, express orders and the holds
+ * taken when an order is placed are not partitioned, and stock is counted in memory by each node's
+ * {@link com.github.mehmetsahinnn.onlineordertrackingsystem.services.StockReservationEngine}, so the
+ * application has to run as a single node.
+ */
+@Component
+public class OrderPartitioner {
+
+    public static final String EXPRESS_LANE = "express";
+
+    private final String routingName;
+    private final int partitions;
+
+    /**
+     * Constructs a new OrderPartitioner.
+     *
+     * @param routingName the base routing key; partition {@code i} uses {@code routingName.i}
+     * @param partitions  the number of order partitions
+     */
+    @Autowired
+    public OrderPartitioner(@Value("${sr.rabbit.routing.name}") String routingName,
+                            @Value("${sr.rabbit.partitions:4}") int partitions) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("sr.rabbit.partitions must be at least 1");
+        }
+        this.routingName = routingName;
+        this.partitions = partitions;
+    }
+
+    public int partitions() {
+        return partitions;
+    }
+
+    /**
+     * Returns the partition of an order.
+     *
+     * @param order the order to route
+     * @return the partition index, between 0 and the partition count
+     */
+    public int partitionFor(Order order) {
+        return partitionFor(dominantProduct(order));
+    }
+
+    /**
+     * Returns the partition that owns a product.
+     *
+     * @param productId the ID of the product
+     * @return the partition index, between 0 and the partition count
+     */
+    public int partitionFor(long productId) {
+        return jumpConsistentHash(productId, partitions);
+    }
+
+    public String routingKey(Order order) {
+        return order.isExpress() ? expressRoutingKey() : routingKey(partitionFor(order));
+    }
+
+    public String expressRoutingKey() {
+        return routingName + "." + EXPRESS_LANE;
+    }
+
+    public String routingKey(int partition) {
+        return routingName + "." + partition;
+    }
+
+    /**
+     * Returns the product with the largest total quantity in an order, preferring the lowest ID on ties.
+     * Orders without items are treated as dominated by product 0.
+     */
+    static long dominantProduct(Order order) {
+        if (order.getOrderItems() == null || order.getOrderItems().isEmpty()) {
+            return 0L;
+        }
+        Map<Long, Integer> quantities = new HashMap<>();
+        long dominant = 0L;
+        int dominantQuantity = Integer.MIN_VALUE;
+        for (OrderItem item : order.getOrderItems()) {
+            if (item.getProduct() == null || item.getProduct().getId() == null) {
+                continue;
+            }
+            long productId = item.getProduct().getId();
+            int quantity = quantities.merge(productId, item.getQuantity(), Integer::sum);
+            if (quantity > dominantQuantity || (quantity == dominantQuantity && productId < dominant)) {
+                dominant = productId;
+                dominantQuantity = quantity;
+            }
+        }
+        return dominant;
+    }
+
+    /**
+     * Lamping and Veach's jump consistent hash. Growing from {@code n} to {@code n + 1} buckets
+     * moves only about {@code 1 / (n + 1)} of the keys, all of them into the new bucket.
+     */
+    static int jumpConsistentHash(long key, int buckets) {
+        long bucket = -1;
+        long next = 0;
+        while (next < buckets) {
+            bucket = next;
+            key = key * 2862933555777941757L + 1;
+            next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) bucket;
+    }
+}
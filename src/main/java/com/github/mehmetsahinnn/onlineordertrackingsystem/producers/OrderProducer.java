@@ -1,35 +1,270 @@
 package com.github.mehmetsahinnn.onlineordertrackingsystem.producers;
 
-import com.github.mehmetsahinnn.onlineordertrackingsystem.config.RabbitMQConfig;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions.OrderPublishException;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.events.OrderPlacedEvent;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.events.OrderPlacedEventCodec;
 import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Order;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.OrderOutboxRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * The OrderProducer class publishes placed orders to the order exchange as {@link OrderPlacedEvent}s.
+ * <p>
+ * Publishing is driven by {@code sr.rabbit.publish.mode}:
+ * <ul>
+ *     <li>{@code FIRE_AND_FORGET} sends on the caller's thread and returns a completed future.</li>
+ *     <li>{@code CONFIRM} sends on the caller's thread with a correlated publisher confirm.</li>
+ *     <li>{@code BATCH_CONFIRM} hands the order to a publisher thread that sends everything queued
+ *     since its last batch on one channel, so the broker can acknowledge many orders with a single confirm.</li>
+ * </ul>
+ * In both confirm modes the returned future completes only after the broker has acknowledged the
+ * message, and fails if it was nacked, returned as unroutable, or not confirmed within
+ * {@code sr.rabbit.publish.confirm-timeout-ms}.
+ * <p>
+ * Outside outbox mode, an order the broker could not take, because it is unreachable, nacked the order,
+ * did not confirm it in time or the publish queue is full, is appended to the {@link OrderSpillJournal}
+ * and reported as accepted; the {@link OrderJournalDrainer} publishes it once the broker recovers.
+ * While the journal holds events, new orders are journaled behind them so they keep their order.
+ * Unroutable orders still fail, as replaying them would not help.
+ */
 @Service
 @Component
 public class OrderProducer {
 
-    @Value("${sr.rabbit.routing.name}")
-    private String routingName;
+    private static final Logger logger = LoggerFactory.getLogger(OrderProducer.class);
 
-    @Value("${sr.rabbit.exchange.name}")
-    private String exchangeName;
+    public enum PublishMode {
+        FIRE_AND_FORGET,
+        CONFIRM,
+        BATCH_CONFIRM,
+        OUTBOX
+    }
 
     private final RabbitTemplate rabbitTemplate;
-    private final RabbitMQConfig rabbitMQConfig;
+    private final String exchangeName;
+    private final OrderPartitioner orderPartitioner;
+    private final OrderOutboxRepository orderOutboxRepository;
+    private final OrderSpillJournal orderSpillJournal;
+    private final PublishMode mode;
+    private final int batchSize;
+    private final long confirmTimeoutMs;
+    private final BlockingQueue<PendingPublish> pending;
+    private final Thread publisherThread;
+    private volatile boolean running = true;
 
-    public OrderProducer(RabbitTemplate rabbitTemplate, RabbitMQConfig rabbitMQConfig) {
+    @Autowired
+    public OrderProducer(RabbitTemplate rabbitTemplate,
+                         @Value("${sr.rabbit.exchange.name}") String exchangeName,
+                         OrderPartitioner orderPartitioner,
+                         OrderOutboxRepository orderOutboxRepository,
+                         OrderSpillJournal orderSpillJournal,
+                         @Value("${sr.rabbit.publish.mode:BATCH_CONFIRM}") PublishMode mode,
+                         @Value("${sr.rabbit.publish.batch-size:64}") int batchSize,
+                         @Value("${sr.rabbit.publish.queue-capacity:10000}") int queueCapacity,
+                         @Value("${sr.rabbit.publish.confirm-timeout-ms:5000}") long confirmTimeoutMs) {
         this.rabbitTemplate = rabbitTemplate;
-        this.rabbitMQConfig = rabbitMQConfig;
+        this.exchangeName = exchangeName;
+        this.orderPartitioner = orderPartitioner;
+        this.orderOutboxRepository = orderOutboxRepository;
+        this.orderSpillJournal = orderSpillJournal;
+        this.mode = mode;
+        this.batchSize = Math.max(1, batchSize);
+        this.confirmTimeoutMs = confirmTimeoutMs;
+        if (mode == PublishMode.BATCH_CONFIRM) {
+            this.pending = new ArrayBlockingQueue<>(queueCapacity);
+            this.publisherThread = new Thread(this::publishLoop, "order-publisher");
+            this.publisherThread.setDaemon(true);
+            this.publisherThread.start();
+        } else {
+            this.pending = null;
+            this.publisherThread = null;
+        }
+    }
+
+    /**
+     * Publishes an order to the queue of its partition.
+     *
+     * @param order the order to publish
+     * @return a future that completes once the broker has accepted the order, or in outbox mode once it is stored
+     */
+    public CompletableFuture<Void> sendToQueue(Order order) {
+        String routingKey = orderPartitioner.routingKey(order);
+        OrderPlacedEvent event = OrderPlacedEvent.from(order);
+        if (mode == PublishMode.OUTBOX) {
+            orderOutboxRepository.add(routingKey, event.getOrderTrackId(), OrderPlacedEventCodec.encode(event));
+            return CompletableFuture.completedFuture(null);
+        }
+        if (spillEnabled() && orderSpillJournal.hasBacklog()) {
+            spill(routingKey, event);
+            return CompletableFuture.completedFuture(null);
+        }
+        if (mode == PublishMode.FIRE_AND_FORGET) {
+            try {
+                rabbitTemplate.convertAndSend(exchangeName, routingKey, event);
+            } catch (AmqpException ex) {
+                spillOrThrow(routingKey, event, ex);
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CorrelationData correlationData = new CorrelationData(correlationId(order));
+        CompletableFuture<Void> confirmed = confirmed(correlationData);
+        if (mode == PublishMode.CONFIRM) {
+            try {
+                rabbitTemplate.convertAndSend(exchangeName, routingKey, event, correlationData);
+            } catch (AmqpException ex) {
+                spillOrThrow(routingKey, event, ex);
+                return CompletableFuture.completedFuture(null);
+            }
+        } else {
+            enqueue(new PendingPublish(event, routingKey, correlationData));
+        }
+        if (!spillEnabled()) {
+            return confirmed;
+        }
+        return confirmed.handle((ignored, ex) -> {
+            if (ex != null) {
+                if (correlationData.getReturned() != null) {
+                    throw ex instanceof CompletionException completion ? completion : new CompletionException(ex);
+                }
+                spill(routingKey, event);
+            }
+            return null;
+        });
+    }
+
+    private boolean spillEnabled() {
+        return orderSpillJournal != null && orderSpillJournal.isEnabled();
+    }
+
+    private void spill(String routingKey, OrderPlacedEvent event) {
+        orderSpillJournal.append(routingKey, OrderPlacedEventCodec.encode(event));
+    }
+
+    private void spillOrThrow(String routingKey, OrderPlacedEvent event, AmqpException ex) {
+        if (!spillEnabled()) {
+            throw ex;
+        }
+        logger.warn("Broker unavailable, journaling order {}: {}", event.getOrderTrackId(), ex.getMessage());
+        spill(routingKey, event);
+    }
+
+    private CompletableFuture<Void> confirmed(CorrelationData correlationData) {
+        return correlationData.getFuture().<Void>thenApply(confirm -> {
+            if (!confirm.isAck()) {
+                throw new OrderPublishException("Broker rejected order " + correlationData.getId() + ": " + confirm.getReason());
+            }
+            ReturnedMessage returned = correlationData.getReturned();
+            if (returned != null) {
+                throw new OrderPublishException("Order " + correlationData.getId() + " could not be routed: " + returned.getReplyText());
+            }
+            return null;
+        }).orTimeout(confirmTimeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void enqueue(PendingPublish publish) {
+        if (!running) {
+            publish.fail(new OrderPublishException("Order producer is shutting down"));
+            return;
+        }
+        try {
+            if (!pending.offer(publish, spillEnabled() ? 0 : confirmTimeoutMs, TimeUnit.MILLISECONDS)) {
+                publish.fail(new OrderPublishException("Publish queue is full"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            publish.fail(new OrderPublishException("Interrupted while queueing order " + publish.correlationData().getId(), e));
+        }
     }
 
-    public void sendToQueue(Order order) {
-        System.out.println("Order ID : " + order.getOrderTrackId());
-        rabbitTemplate.setMessageConverter(rabbitMQConfig.jsonMessageConverter());
-        rabbitTemplate.convertAndSend(exchangeName, routingName, order);
+    /**
+     * Sends whatever has queued up while the previous batch was in flight. There is no linger
+     * time, so a lone order is published immediately and batches only grow under load.
+     */
+    private void publishLoop() {
+        List<PendingPublish> batch = new ArrayList<>(batchSize);
+        while (running || !pending.isEmpty()) {
+            try {
+                PendingPublish first = pending.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                pending.drainTo(batch, batchSize - 1);
+                publishBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
     }
 
-}
\ No newline at end of file
+    private void publishBatch(List<PendingPublish> batch) {
+        try {
+            rabbitTemplate.invoke(operations -> {
+                for (PendingPublish publish : batch) {
+                    operations.convertAndSend(exchangeName, publish.routingKey(), publish.event(), publish.correlationData());
+                }
+                return null;
+            });
+        } catch (RuntimeException ex) {
+            logger.error("Failed to publish a batch of {} orders", batch.size(), ex);
+            for (PendingPublish publish : batch) {
+                publish.fail(new OrderPublishException("Failed to publish order " + publish.correlationData().getId(), ex));
+            }
+        }
+    }
+
+    private static String correlationId(Order order) {
+        UUID orderTrackId = order.getOrderTrackId();
+        return orderTrackId != null ? orderTrackId.toString() : UUID.randomUUID().toString();
+    }
+
+    /**
+     * Publishes the orders still queued and fails any that could not be sent before shutdown.
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (publisherThread == null) {
+            return;
+        }
+        try {
+            publisherThread.join(confirmTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        PendingPublish publish;
+        while ((publish = pending.poll()) != null) {
+            publish.fail(new OrderPublishException("Order producer shut down before publishing order " + publish.correlationData().getId()));
+        }
+    }
+
+    private record PendingPublish(OrderPlacedEvent event, String routingKey, CorrelationData correlationData) {
+
+        void fail(OrderPublishException ex) {
+            correlationData.getFuture().completeExceptionally(ex);
+        }
+    }
+}
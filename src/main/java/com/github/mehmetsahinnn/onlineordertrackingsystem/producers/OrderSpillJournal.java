@@ -0,0 +1,349 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.producers;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions.OrderPublishException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * The OrderSpillJournal holds order events that could not be handed to the broker, so that placing
+ * an order does not fail while RabbitMQ is down or pushing back. Events are appended to memory-mapped,
+ * append-only segment files and replayed in order by the {@link OrderJournalDrainer}.
+ * <p>
+ * Each segment starts with a header holding a magic number and the position up to which its events
+ * have been confirmed by the broker. Each event is stored as its length, a CRC32C checksum, its routing
+ * key and its encoded payload. On startup the segments left by the previous run are scanned; events up
+ * to the first missing or damaged record are replayed, and new events go to a fresh segment.
+ * A segment is deleted once every event in it has been confirmed and a newer segment is being written.
+ * <p>
+ * Appends are written to the page cache; with {@code sr.rabbit.journal.fsync} each append is also
+ * forced to disk, which survives a machine crash as well as a process crash at the cost of a disk write.
+ */
+@Component
+public class OrderSpillJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderSpillJournal.class);
+
+    static final int MAGIC = 0x4F524A31;
+    static final int HEADER_BYTES = 8;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final String SUFFIX = ".journal";
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentBytes;
+    private final boolean fsync;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final Deque<InFlight> inFlight = new ArrayDeque<>();
+    private Segment active;
+    private long nextSegmentId;
+    private long nextSequence;
+    private volatile long pending;
+
+    /**
+     * Constructs a new OrderSpillJournal and recovers the events left by the previous run.
+     *
+     * @param enabled      whether undeliverable events are journaled at all
+     * @param directory    the directory holding the segment files
+     * @param segmentBytes the size of each segment file
+     * @param fsync        whether each append is forced to disk
+     */
+    @Autowired
+    public OrderSpillJournal(@Value("${sr.rabbit.journal.enabled:true}") boolean enabled,
+                             @Value("${sr.rabbit.journal.dir:data/order-journal}") Path directory,
+                             @Value("${sr.rabbit.journal.segment-bytes:67108864}") int segmentBytes,
+                             @Value("${sr.rabbit.journal.fsync:false}") boolean fsync) {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+        if (enabled) {
+            try {
+                Files.createDirectories(directory);
+                recover();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not open order journal in " + directory, e);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns whether events are waiting to be confirmed by the broker. While they are, new events
+     * are journaled behind them rather than sent directly, so the order of events is kept.
+     */
+    public boolean hasBacklog() {
+        return pending > 0;
+    }
+
+    public long pending() {
+        return pending;
+    }
+
+    /**
+     * Appends an event to the journal.
+     *
+     * @param routingKey the routing key the event is to be published with
+     * @param payload    the encoded event
+     * @throws OrderPublishException if the journal is disabled or the event could not be written
+     */
+    public synchronized void append(String routingKey, byte[] payload) {
+        if (!enabled) {
+            throw new OrderPublishException("Order journal is disabled");
+        }
+        byte[] key = routingKey.getBytes(StandardCharsets.UTF_8);
+        int length = 2 + key.length + payload.length;
+        if (HEADER_BYTES + RECORD_HEADER_BYTES + length > segmentBytes) {
+            throw new OrderPublishException("Order event of " + payload.length + " bytes does not fit in a journal segment");
+        }
+        try {
+            if (active == null || active.writePosition + RECORD_HEADER_BYTES + length > segmentBytes) {
+                roll();
+            }
+        } catch (IOException e) {
+            throw new OrderPublishException("Could not create an order journal segment", e);
+        }
+
+        MappedByteBuffer buffer = active.buffer;
+        int position = active.writePosition;
+        buffer.position(position + RECORD_HEADER_BYTES);
+        buffer.putShort((short) key.length).put(key).put(payload);
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(position + RECORD_HEADER_BYTES, length));
+        buffer.putInt(position + 4, (int) crc.getValue());
+        buffer.putInt(position, length);
+        if (fsync) {
+            buffer.force(position, RECORD_HEADER_BYTES + length);
+        }
+        active.writePosition = position + RECORD_HEADER_BYTES + length;
+        pending++;
+    }
+
+    /**
+     * Reads the next events after those already handed out, in the order they were appended.
+     *
+     * @param max the maximum number of events to read
+     * @return the events, empty if none are waiting
+     */
+    public synchronized List<Entry> read(int max) {
+        List<Entry> entries = new ArrayList<>(Math.min(max, 1024));
+        for (Segment segment : segments) {
+            while (entries.size() < max && segment.readPosition < segment.writePosition) {
+                MappedByteBuffer buffer = segment.buffer;
+                int position = segment.readPosition;
+                int length = buffer.getInt(position);
+                byte[] key = new byte[buffer.getShort(position + RECORD_HEADER_BYTES)];
+                byte[] payload = new byte[length - 2 - key.length];
+                buffer.get(position + RECORD_HEADER_BYTES + 2, key);
+                buffer.get(position + RECORD_HEADER_BYTES + 2 + key.length, payload);
+                segment.readPosition = position + RECORD_HEADER_BYTES + length;
+
+                long sequence = nextSequence++;
+                inFlight.addLast(new InFlight(sequence, segment, segment.readPosition));
+                entries.add(new Entry(sequence, new String(key, StandardCharsets.UTF_8), payload));
+            }
+            if (entries.size() == max) {
+                break;
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Marks the given event, and every event read before it, as confirmed by the broker.
+     * Segments whose events are all confirmed are deleted once they are no longer written to.
+     *
+     * @param sequence the sequence number of the last confirmed event
+     */
+    public synchronized void acknowledge(long sequence) {
+        while (!inFlight.isEmpty() && inFlight.peekFirst().sequence() <= sequence) {
+            InFlight confirmed = inFlight.pollFirst();
+            confirmed.segment().ackedPosition = confirmed.endPosition();
+            confirmed.segment().buffer.putInt(4, confirmed.endPosition());
+            pending--;
+        }
+        while (!segments.isEmpty() && segments.peekFirst() != active
+                && segments.peekFirst().ackedPosition == segments.peekFirst().writePosition) {
+            delete(segments.pollFirst());
+        }
+    }
+
+    /**
+     * Forgets the events handed out but not confirmed, so the next read starts again from the
+     * first unconfirmed event.
+     */
+    public synchronized void rewind() {
+        inFlight.clear();
+        for (Segment segment : segments) {
+            segment.readPosition = segment.ackedPosition;
+        }
+    }
+
+    /**
+     * Writes the journal to disk and closes its segments. Unconfirmed events are replayed on the next start.
+     */
+    @PreDestroy
+    public synchronized void close() {
+        for (Segment segment : segments) {
+            try {
+                segment.buffer.force();
+                segment.channel.close();
+            } catch (IOException e) {
+                logger.warn("Could not close order journal segment {}: {}", segment.path, e.getMessage());
+            }
+        }
+        segments.clear();
+        inFlight.clear();
+        active = null;
+    }
+
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+        for (Path path : files) {
+            nextSegmentId = Math.max(nextSegmentId, segmentId(path) + 1);
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+                logger.error("Order journal segment {} has no valid header and is skipped", path);
+                channel.close();
+                continue;
+            }
+            Segment segment = new Segment(path, channel, buffer);
+            segment.writePosition = scan(segment);
+            segment.ackedPosition = Math.min(Math.max(HEADER_BYTES, buffer.getInt(4)), segment.writePosition);
+            segment.readPosition = segment.ackedPosition;
+            if (segment.ackedPosition == segment.writePosition) {
+                delete(segment);
+                continue;
+            }
+            segments.addLast(segment);
+            pending += count(segment);
+        }
+        if (pending > 0) {
+            logger.warn("Recovered {} unpublished order events from the order journal", pending);
+        }
+    }
+
+    /**
+     * Returns the position after the last intact record of a segment.
+     */
+    private static int scan(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        int position = HEADER_BYTES;
+        while (position + RECORD_HEADER_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length <= 2 || position + RECORD_HEADER_BYTES + length > buffer.capacity()) {
+                break;
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.slice(position + RECORD_HEADER_BYTES, length));
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                logger.error("Order journal segment {} is damaged at position {}; later events in it are lost", segment.path, position);
+                break;
+            }
+            position += RECORD_HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    private static long count(Segment segment) {
+        long count = 0;
+        for (int position = segment.ackedPosition; position < segment.writePosition; position += RECORD_HEADER_BYTES + segment.buffer.getInt(position)) {
+            count++;
+        }
+        return count;
+    }
+
+    private void roll() throws IOException {
+        Path path = directory.resolve(String.format("segment-%016d%s", nextSegmentId++, SUFFIX));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        buffer.putInt(4, HEADER_BYTES);
+        buffer.putInt(0, MAGIC);
+        Segment segment = new Segment(path, channel, buffer);
+        segment.writePosition = HEADER_BYTES;
+        segment.ackedPosition = HEADER_BYTES;
+        segment.readPosition = HEADER_BYTES;
+
+        Segment previous = active;
+        segments.addLast(segment);
+        active = segment;
+        if (previous != null) {
+            previous.buffer.force();
+            if (previous.ackedPosition == previous.writePosition && segments.peekFirst() == previous) {
+                delete(segments.pollFirst());
+            }
+        }
+    }
+
+    private void delete(Segment segment) {
+        try {
+            segment.channel.close();
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            logger.warn("Could not delete order journal segment {}: {}", segment.path, e.getMessage());
+        }
+    }
+
+    private static long segmentId(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring("segment-".length(), name.length() - SUFFIX.length()));
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * An event read from the journal.
+     *
+     * @param sequence   the position of the event in this run's read order, used to acknowledge it
+     * @param routingKey the routing key to publish the event with
+     * @param payload    the encoded event
+     */
+    public record Entry(long sequence, String routingKey, byte[] payload) {
+    }
+
+    private record InFlight(long sequence, Segment segment, int endPosition) {
+    }
+
+    private static final class Segment {
+
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+        private int ackedPosition;
+        private int readPosition;
+
+        Segment(Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -6,10 +6,21 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
     @Query("SELECT c FROM Customer c WHERE c.email = :email")
     Optional<Customer> findByEmail(@Param("email") String email);
+
+    /**
+     * Finds the email addresses, which are the usernames, of several customers at once.
+     *
+     * @param ids the IDs of the customers
+     * @return the ID and the email address of each customer found
+     */
+    @Query("SELECT c.id, c.email FROM Customer c WHERE c.id IN :ids")
+    List<Object[]> findEmailsByIds(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,123 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.repositories;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.enums.OrderStatus;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.events.OrderPlacedEvent;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * The OrderBatchWriter inserts placed orders and their items with JDBC batch statements,
+ * two round trips per batch instead of one insert per entity. It does not open a
+ * transaction of its own; callers are expected to run it inside one.
+ * <p>
+ * An order whose track ID is already stored is skipped, relying on the unique index on
+ * {@code orders.ordertrackid} from {@code db/order-pipeline.sql}, so a redelivered order is never stored twice.
+ */
+@Repository
+public class OrderBatchWriter {
+
+    static final String INSERT_ORDER_SQL =
+            "INSERT INTO orders (ordertrackid, customerid, status, orderdate, estimateddeliverydate) VALUES (?, ?, ?, ?, ?) "
+                    + "ON CONFLICT (ordertrackid) DO NOTHING";
+    static final String INSERT_ORDER_ITEM_SQL =
+            "INSERT INTO order_item (order_id, product_id, quantity, total_price) VALUES (?, ?, ?, ?)";
+    static final String FIND_STORED_SQL = "SELECT ordertrackid FROM orders WHERE ordertrackid IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderBatchWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Inserts the orders described by the given events, and their items. Orders that are already
+     * stored are left as they are.
+     *
+     * @param events                the placed orders to insert
+     * @param status                the status to store the orders with
+     * @param estimatedDeliveryDate the estimated delivery date to store the orders with
+     * @return the track IDs of the orders that were already stored and have not been inserted
+     */
+    public Set<UUID> insertAll(List<OrderPlacedEvent> events, OrderStatus status, LocalDate estimatedDeliveryDate) {
+        if (events.isEmpty()) {
+            return Set.of();
+        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_ORDER_SQL, new String[]{"id", "ordertrackid"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        OrderPlacedEvent event = events.get(i);
+                        ps.setObject(1, event.getOrderTrackId());
+                        if (event.getCustomerId() != null) {
+                            ps.setLong(2, event.getCustomerId());
+                        } else {
+                            ps.setNull(2, Types.BIGINT);
+                        }
+                        ps.setString(3, status.name());
+                        ps.setTimestamp(4, new Timestamp(event.getPlacedAt()));
+                        ps.setObject(5, estimatedDeliveryDate);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return events.size();
+                    }
+                }, keyHolder);
+
+        // skipped orders return no key, so keys are matched to events by track ID rather than position
+        Map<UUID, Long> orderIds = new HashMap<>();
+        for (Map<String, Object> key : keyHolder.getKeyList()) {
+            orderIds.put((UUID) key.get("ordertrackid"), ((Number) key.get("id")).longValue());
+        }
+        Set<UUID> duplicates = new HashSet<>();
+        List<Object[]> items = new ArrayList<>();
+        for (OrderPlacedEvent event : events) {
+            Long orderId = orderIds.remove(event.getOrderTrackId());
+            if (orderId == null) {
+                duplicates.add(event.getOrderTrackId());
+                continue;
+            }
+            for (int line = 0; line < event.itemCount(); line++) {
+                items.add(new Object[]{orderId, event.getProductIds()[line], event.getQuantities()[line], event.getTotalPrices()[line]});
+            }
+        }
+        if (!items.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ORDER_ITEM_SQL, items);
+        }
+        return duplicates;
+    }
+
+    /**
+     * Looks up which of the given orders are already stored, so a redelivered order can be
+     * acknowledged before any stock is reserved for it.
+     *
+     * @param orderTrackIds the track IDs to look up
+     * @return the track IDs among them that are already stored
+     */
+    public Set<UUID> findStored(Collection<UUID> orderTrackIds) {
+        if (orderTrackIds.isEmpty()) {
+            return Set.of();
+        }
+        String sql = String.format(FIND_STORED_SQL, String.join(", ", Collections.nCopies(orderTrackIds.size(), "?")));
+        return new HashSet<>(jdbcTemplate.queryForList(sql, UUID.class, orderTrackIds.toArray()));
+    }
+}
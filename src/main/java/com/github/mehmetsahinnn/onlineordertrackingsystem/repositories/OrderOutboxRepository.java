@@ -0,0 +1,94 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.repositories;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The OrderOutboxRepository stores encoded order events in the {@code order_outbox} table until
+ * the outbox relay has published them. The table is created by {@code db/order-pipeline.sql}.
+ */
+@Repository
+public class OrderOutboxRepository {
+
+    static final String INSERT_SQL =
+            "INSERT INTO order_outbox (routing_key, order_track_id, payload, created_at) VALUES (?, ?, ?, ?)";
+    static final String LOCK_BATCH_SQL =
+            "SELECT id, routing_key, order_track_id, payload, created_at, attempts FROM order_outbox ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+    static final String DELETE_SQL = "DELETE FROM order_outbox WHERE id = ?";
+    static final String COUNT_ATTEMPT_SQL = "UPDATE order_outbox SET attempts = attempts + 1 WHERE id = ?";
+    static final String COUNT_SQL = "SELECT count(*) FROM order_outbox";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderOutboxRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Adds an event to the outbox.
+     *
+     * @param routingKey   the routing key to publish the event with
+     * @param orderTrackId the track ID of the order the event describes
+     * @param payload      the encoded event
+     */
+    public void add(String routingKey, UUID orderTrackId, byte[] payload) {
+        jdbcTemplate.update(INSERT_SQL, routingKey, orderTrackId, payload, new Timestamp(System.currentTimeMillis()));
+    }
+
+    /**
+     * Locks the oldest unpublished events. Rows already locked by another relay are skipped, so
+     * concurrent relays work on disjoint batches. Must be called inside a transaction, which holds
+     * the locks until the events are published and deleted.
+     *
+     * @param limit the maximum number of events to lock
+     * @return the locked events, oldest first
+     */
+    public List<Entry> lockBatch(int limit) {
+        return jdbcTemplate.query(LOCK_BATCH_SQL, (rs, rowNum) -> new Entry(
+                rs.getLong("id"),
+                rs.getString("routing_key"),
+                rs.getObject("order_track_id", UUID.class),
+                rs.getBytes("payload"),
+                rs.getTimestamp("created_at").getTime(),
+                rs.getInt("attempts")), limit);
+    }
+
+    /**
+     * Deletes published events.
+     *
+     * @param ids the IDs of the events to delete
+     */
+    public void deleteAll(List<Long> ids) {
+        if (!ids.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_SQL, ids.stream().map(id -> new Object[]{id}).toList());
+        }
+    }
+
+    /**
+     * Returns the number of events waiting in the outbox.
+     *
+     * @return the number of unpublished events
+     */
+    public long count() {
+        Long count = jdbcTemplate.queryForObject(COUNT_SQL, Long.class);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Counts a failed attempt to publish events, which stay in the outbox.
+     *
+     * @param ids the IDs of the events that were not published
+     */
+    public void countAttempts(List<Long> ids) {
+        if (!ids.isEmpty()) {
+            jdbcTemplate.batchUpdate(COUNT_ATTEMPT_SQL, ids.stream().map(id -> new Object[]{id}).toList());
+        }
+    }
+
+    public record Entry(long id, String routingKey, UUID orderTrackId, byte[] payload, long createdAt, int attempts) {
+    }
+}
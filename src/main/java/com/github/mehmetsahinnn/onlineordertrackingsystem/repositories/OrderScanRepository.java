@@ -0,0 +1,88 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.repositories;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.enums.OrderStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * The OrderScanRepository reads the {@code orders} table in ID order for rebuilding the order index, without
+ * loading the entities. Each page is a keyset query over a range of IDs, read forward-only with a fetch size,
+ * so only that many rows are held at a time when it runs inside a read-only transaction. Each order comes with
+ * the email address of its customer, which is the username the order index is searched by.
+ */
+@Repository
+public class OrderScanRepository {
+
+    static final String ID_RANGE_SQL = "SELECT min(id), max(id), count(*) FROM orders";
+    static final String SCAN_SQL =
+            "SELECT o.id, o.ordertrackid, o.customerid, c.email, o.status, o.orderdate, o.estimateddeliverydate "
+                    + "FROM orders o LEFT JOIN customer c ON c.id = o.customerid "
+                    + "WHERE o.id > ? AND o.id <= ? ORDER BY o.id LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderScanRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Returns the lowest and highest order IDs and the number of orders.
+     *
+     * @return the ID range, with both bounds 0 if there are no orders
+     */
+    public IdRange idRange() {
+        return jdbcTemplate.queryForObject(ID_RANGE_SQL, (rs, rowNum) -> new IdRange(rs.getLong(1), rs.getLong(2), rs.getLong(3)));
+    }
+
+    /**
+     * Streams one page of orders to a consumer.
+     *
+     * @param afterId   the ID the page starts after
+     * @param toId      the highest ID of the range, inclusive
+     * @param limit     the maximum number of orders on the page
+     * @param fetchSize the number of rows the driver fetches at a time
+     * @param consumer  receives each order, in ID order
+     * @return the number of orders read
+     */
+    public int scan(long afterId, long toId, int limit, int fetchSize, Consumer<ScannedOrder> consumer) {
+        int[] read = new int[1];
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SCAN_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            ps.setLong(1, afterId);
+            ps.setLong(2, toId);
+            ps.setInt(3, limit);
+            return ps;
+        }, rs -> {
+            Timestamp orderDate = rs.getTimestamp("orderdate");
+            long customerId = rs.getLong("customerid");
+            Long customer = rs.wasNull() ? null : customerId;
+            String status = rs.getString("status");
+            consumer.accept(new ScannedOrder(
+                    rs.getLong("id"),
+                    rs.getObject("ordertrackid", UUID.class),
+                    customer,
+                    rs.getString("email"),
+                    status != null ? OrderStatus.valueOf(status) : null,
+                    orderDate != null ? orderDate.toLocalDateTime() : null,
+                    rs.getObject("estimateddeliverydate", LocalDate.class)));
+            read[0]++;
+        });
+        return read[0];
+    }
+
+    public record IdRange(long minId, long maxId, long count) {
+    }
+
+    public record ScannedOrder(long id, UUID orderTrackId, Long customerId, String username, OrderStatus status,
+                               LocalDateTime orderDate, LocalDate estimatedDeliveryDate) {
+    }
+}
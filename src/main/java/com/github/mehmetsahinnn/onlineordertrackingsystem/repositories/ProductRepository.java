@@ -2,7 +2,11 @@ package com.github.mehmetsahinnn.onlineordertrackingsystem.repositories;
 
 import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -15,4 +19,14 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findByPriceGreaterThan(Double minPrice);
     List<Product> findByPriceLessThan(Double maxPrice);
 
+    /**
+     * Updates everything about a product except its stock, which the stock reservation engine writes.
+     *
+     * @return the number of products updated
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Product p SET p.name = :name, p.description = :description, p.category = :category, p.price = :price WHERE p.id = :id")
+    int updateDetails(@Param("id") Long id, @Param("name") String name, @Param("description") String description,
+                      @Param("category") String category, @Param("price") Double price);
 }
@@ -0,0 +1,58 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.security;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.enums.AccountStatus;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Customer;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.CustomerRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The CustomerUserDetailsService authenticates customers by their email address and the BCrypt hash
+ * of their password stored at registration. Customers get the {@code USER} role, administrators the
+ * {@code ADMIN} role as well, and banned customers cannot sign in. Customers whose {@code express} column is
+ * set also get the {@code EXPRESS} role, which puts their orders on the express lane.
+ */
+@Service
+public class CustomerUserDetailsService implements UserDetailsService {
+
+    private final CustomerRepository customerRepository;
+
+    /**
+     * Constructs a new CustomerUserDetailsService.
+     *
+     * @param customerRepository the CustomerRepository the customers are loaded from
+     */
+    @Autowired
+    public CustomerUserDetailsService(CustomerRepository customerRepository) {
+        this.customerRepository = customerRepository;
+    }
+
+    @Override
+    public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
+        Customer customer = customerRepository.findByEmail(email)
+                .orElseThrow(() -> new UsernameNotFoundException("No customer found with email: " + email));
+        return User.withUsername(customer.getEmail())
+                .password(customer.getPassword())
+                .roles(roles(customer))
+                .disabled(customer.getStatus() == AccountStatus.BANNED_USER)
+                .build();
+    }
+
+    private static String[] roles(Customer customer) {
+        List<String> roles = new ArrayList<>(List.of("USER"));
+        if (customer.getStatus() == AccountStatus.ADMIN) {
+            roles.add("ADMIN");
+        }
+        if (customer.isExpress()) {
+            roles.add("EXPRESS");
+        }
+        return roles.toArray(String[]::new);
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.services;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stock counter backed by a single atomic value.
+ * The available amount is updated with compare-and-set so it never drops below zero.
+ */
+class AtomicStockCounter implements StockCounter {
+
+    private final long productId;
+    private final AtomicInteger available;
+    private final AtomicInteger pendingDelta = new AtomicInteger();
+    private final AtomicInteger updating = new AtomicInteger();
+    private volatile boolean retired;
+
+    AtomicStockCounter(long productId, int initialStock) {
+        this.productId = productId;
+        this.available = new AtomicInteger(initialStock);
+    }
+
+    @Override
+    public long getProductId() {
+        return productId;
+    }
+
+    @Override
+    public boolean tryTake(int quantity) {
+        for (;;) {
+            int current = available.get();
+            if (current < quantity) {
+                return false;
+            }
+            if (available.compareAndSet(current, current - quantity)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void give(int quantity) {
+        available.addAndGet(quantity);
+    }
+
+    @Override
+    public int available() {
+        return available.get();
+    }
+
+    @Override
+    public int drainDelta() {
+        return pendingDelta.getAndSet(0);
+    }
+
+    @Override
+    public void addDelta(int delta) {
+        pendingDelta.addAndGet(delta);
+    }
+
+    @Override
+    public boolean enter() {
+        updating.incrementAndGet();
+        if (retired) {
+            updating.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void exit() {
+        updating.decrementAndGet();
+    }
+
+    @Override
+    public void retire() {
+        retired = true;
+        while (updating.get() != 0) {
+            Thread.onSpinWait();
+        }
+    }
+
+    @Override
+    public void reopen() {
+        retired = false;
+    }
+}
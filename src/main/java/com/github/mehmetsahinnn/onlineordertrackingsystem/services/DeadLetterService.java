@@ -0,0 +1,99 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.services;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners.OrderRetryHandler;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.GetResponse;
+import com.rabbitmq.client.ReturnListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The DeadLetterService inspects and replays orders parked on the dead-letter queue.
+ */
+@Slf4j
+@Service
+public class DeadLetterService {
+
+    private final RabbitTemplate rabbitTemplate;
+    private final OrderRetryHandler orderRetryHandler;
+    private final String exchangeName;
+    private final String routingName;
+    private final long confirmTimeoutMs;
+
+    @Autowired
+    public DeadLetterService(RabbitTemplate rabbitTemplate, OrderRetryHandler orderRetryHandler,
+                             @Value("${sr.rabbit.exchange.name}") String exchangeName,
+                             @Value("${sr.rabbit.routing.name}") String routingName,
+                             @Value("${sr.rabbit.publish.confirm-timeout-ms:5000}") long confirmTimeoutMs) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.orderRetryHandler = orderRetryHandler;
+        this.exchangeName = exchangeName;
+        this.routingName = routingName;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+    }
+
+    /**
+     * Returns the number of orders waiting on the dead-letter queue.
+     *
+     * @return the number of dead-lettered orders
+     */
+    public long countDeadLetters() {
+        Long count = rabbitTemplate.execute(channel -> channel.messageCount(orderRetryHandler.deadLetterQueueName()));
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Republishes dead-lettered orders to their original partitions with a fresh retry budget.
+     * Each order is published as mandatory and acknowledged on the dead-letter queue only after the
+     * broker has confirmed it. An order the broker nacks or does not confirm in time fails the replay,
+     * and one it returns as unroutable is put back and ends it, so neither is lost and the remaining
+     * orders stay where they were. Only administrators may replay orders.
+     *
+     * @param max the maximum number of orders to replay
+     * @return the number of orders replayed
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    public int replayDeadLetters(int max) {
+        String deadLetterQueue = orderRetryHandler.deadLetterQueueName();
+        Integer replayed = rabbitTemplate.execute(channel -> {
+            channel.confirmSelect();
+            AtomicReference<String> returned = new AtomicReference<>();
+            ReturnListener returnListener = channel.addReturnListener(message -> returned.set(message.getReplyText()));
+            try {
+                int count = 0;
+                GetResponse response;
+                while (count < max && (response = channel.basicGet(deadLetterQueue, false)) != null) {
+                    AMQP.BasicProperties properties = response.getProps();
+                    Map<String, Object> headers = properties.getHeaders() != null ? new HashMap<>(properties.getHeaders()) : new HashMap<>();
+                    Object routingKey = headers.remove(OrderRetryHandler.ORIGINAL_ROUTING_KEY_HEADER);
+                    headers.remove(OrderRetryHandler.ATTEMPT_HEADER);
+                    headers.remove(OrderRetryHandler.EXCEPTION_HEADER);
+
+                    channel.basicPublish(exchangeName, routingKey != null ? routingKey.toString() : routingName, true,
+                            properties.builder().headers(headers).build(), response.getBody());
+                    channel.waitForConfirmsOrDie(confirmTimeoutMs);
+                    if (returned.get() != null) {
+                        channel.basicNack(response.getEnvelope().getDeliveryTag(), false, true);
+                        log.warn("Stopped replaying dead-lettered orders, order for {} could not be routed: {}", routingKey, returned.get());
+                        break;
+                    }
+                    channel.basicAck(response.getEnvelope().getDeliveryTag(), false);
+                    count++;
+                }
+                return count;
+            } finally {
+                channel.removeReturnListener(returnListener);
+            }
+        });
+        log.info("Replayed {} dead-lettered orders", replayed);
+        return replayed != null ? replayed : 0;
+    }
+}
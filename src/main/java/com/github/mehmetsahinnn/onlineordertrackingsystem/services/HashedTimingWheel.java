@@ -0,0 +1,268 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timing wheel for large numbers of short-lived timeouts.
+ * Scheduling and cancelling are O(1) and lock-free for the caller; a single worker thread
+ * advances the wheel one bucket per tick and only touches the timeouts hashed into that
+ * bucket, so the cost per tick does not grow with the number of outstanding timeouts.
+ * Expired tasks run on the worker thread and must be short.
+ */
+public class HashedTimingWheel implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(HashedTimingWheel.class);
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final long startTime;
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pending = new AtomicLong();
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    /**
+     * Constructs and starts a new HashedTimingWheel.
+     *
+     * @param tickDuration  the duration of one tick
+     * @param unit          the unit of the tick duration
+     * @param ticksPerWheel the number of buckets, rounded up to a power of two
+     * @param threadName    the name of the worker thread
+     */
+    public HashedTimingWheel(long tickDuration, TimeUnit unit, int ticksPerWheel, String threadName) {
+        if (tickDuration <= 0 || ticksPerWheel <= 0) {
+            throw new IllegalArgumentException("Tick duration and ticks per wheel must be positive.");
+        }
+        int size = Integer.highestOneBit(ticksPerWheel - 1) << 1;
+        size = Math.max(size, 1);
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.startTime = System.nanoTime();
+        this.worker = new Thread(this::run, threadName);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Schedules a task to run once after the given delay.
+     *
+     * @param task  the task to run
+     * @param delay the delay before the task runs
+     * @param unit  the unit of the delay
+     * @return a handle that can cancel the task
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (!running) {
+            throw new IllegalStateException("Timing wheel is stopped.");
+        }
+        Timeout timeout = new Timeout(this, task, System.nanoTime() + unit.toNanos(delay) - startTime);
+        pending.incrementAndGet();
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * @return the number of scheduled timeouts that have neither run nor been cancelled
+     */
+    public long pending() {
+        return pending.get();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        worker.interrupt();
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        long tick = 0;
+        while (running) {
+            if (!waitForNextTick(tick)) {
+                break;
+            }
+            removeCancelled();
+            transferPending(tick);
+            wheel[(int) (tick & mask)].expire();
+            tick++;
+        }
+    }
+
+    private boolean waitForNextTick(long tick) {
+        long deadline = tickNanos * (tick + 1);
+        for (;;) {
+            long sleepNanos = deadline - (System.nanoTime() - startTime);
+            if (sleepNanos <= 0) {
+                return true;
+            }
+            LockSupport.parkNanos(this, sleepNanos);
+            if (!running) {
+                return false;
+            }
+        }
+    }
+
+    private void transferPending(long tick) {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            Timeout timeout = pendingTimeouts.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.state.get() != Timeout.ST_INIT) {
+                continue;
+            }
+            long calculated = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (calculated - tick) / wheel.length;
+            long ticks = Math.max(calculated, tick);
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    private void removeCancelled() {
+        for (;;) {
+            Timeout timeout = cancelledTimeouts.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    /**
+     * Handle of a scheduled task.
+     */
+    public static final class Timeout {
+
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+
+        private final HashedTimingWheel timer;
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(ST_INIT);
+        private long remainingRounds;
+        private Timeout next;
+        private Timeout prev;
+        private Bucket bucket;
+
+        private Timeout(HashedTimingWheel timer, Runnable task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels the task if it has not run yet.
+         *
+         * @return true if this call cancelled the task
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            timer.pending.decrementAndGet();
+            timer.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == ST_CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == ST_EXPIRED;
+        }
+
+        private void expire() {
+            if (!state.compareAndSet(ST_INIT, ST_EXPIRED)) {
+                return;
+            }
+            timer.pending.decrementAndGet();
+            try {
+                task.run();
+            } catch (Throwable t) {
+                logger.warn("Timeout task threw an exception", t);
+            }
+        }
+    }
+
+    /**
+     * Doubly linked list of timeouts, only touched by the worker thread.
+     */
+    private static final class Bucket {
+
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void expire() {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    timeout.expire();
+                } else if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            Timeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
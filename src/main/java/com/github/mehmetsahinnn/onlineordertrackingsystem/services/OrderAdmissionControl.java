@@ -0,0 +1,226 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.services;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions.OrderOverloadException;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.producers.OrderOutboxRelay;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.producers.OrderPartitioner;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.producers.OrderSpillJournal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The OrderAdmissionControl stops new orders from being accepted while the order consumers are too far
+ * behind, so the backlog, and with it the time until an order is confirmed, stays bounded.
+ * <p>
+ * Every {@code sr.admission.sample-interval-ms} it reads the depth and consumer count of the order queues
+ * from the broker, adds the orders still waiting in the outbox and in the spill journal to be published,
+ * and estimates how fast they drain from the change in depth and the orders this node
+ * admitted since the previous sample. Admission only reads the last sample, so it costs no broker round trip.
+ * Orders are shed once the backlog reaches {@code sr.admission.high-watermark}, or once it exceeds
+ * {@code sr.admission.low-watermark} and would take longer than {@code sr.admission.max-lag-ms} to drain,
+ * which also covers queues without consumers. Shedding stops when the backlog is back below the low
+ * watermark. A shed order is rejected with an {@link OrderOverloadException} carrying the time the
+ * backlog needs to drain to the low watermark, at most {@code sr.admission.max-retry-after-s}.
+ * <p>
+ * Orders published by other nodes count as not drained, so the drain rate is never overestimated.
+ */
+@Slf4j
+@Component
+public class OrderAdmissionControl {
+
+    private static final double RATE_SMOOTHING = 0.5;
+
+    private final AmqpAdmin amqpAdmin;
+    private final List<String> queueNames;
+    private final ObjectProvider<OrderOutboxRelay> orderOutboxRelay;
+    private final OrderSpillJournal orderSpillJournal;
+    private final boolean enabled;
+    private final long highWatermark;
+    private final long lowWatermark;
+    private final long maxLagMs;
+    private final long maxRetryAfterSeconds;
+
+    private final LongAdder admittedSinceSample = new LongAdder();
+    private long lastDepth = -1;
+    private long lastSampleNanos;
+    private double drainRatePerSecond = -1;
+    private volatile long depth;
+    private volatile long lagMs;
+    private volatile long retryAfterSeconds;
+    private volatile boolean shedding;
+
+    /**
+     * Constructs a new OrderAdmissionControl.
+     *
+     * @param amqpAdmin            the admin used to read the queue depths
+     * @param orderPartitioner     the partitioner whose partition queues are sampled
+     * @param orderOutboxRelay     the outbox relay whose backlog is sampled, present in {@code OUTBOX} publish mode
+     * @param orderSpillJournal    the spill journal whose pending events are sampled
+     * @param queueName            the name of the order queue the partition queues are named after
+     * @param enabled              whether orders are ever shed
+     * @param highWatermark        the backlog at which orders are shed
+     * @param lowWatermark         the backlog below which orders are admitted again
+     * @param maxLagMs             the longest time to drain the backlog before orders are shed, in milliseconds
+     * @param maxRetryAfterSeconds the longest Retry-After given to a shed order, in seconds
+     */
+    @Autowired
+    public OrderAdmissionControl(AmqpAdmin amqpAdmin, OrderPartitioner orderPartitioner,
+                                 ObjectProvider<OrderOutboxRelay> orderOutboxRelay, OrderSpillJournal orderSpillJournal,
+                                 @Value("${sr.rabbit.queue.name}") String queueName,
+                                 @Value("${sr.admission.enabled:true}") boolean enabled,
+                                 @Value("${sr.admission.high-watermark:20000}") long highWatermark,
+                                 @Value("${sr.admission.low-watermark:5000}") long lowWatermark,
+                                 @Value("${sr.admission.max-lag-ms:10000}") long maxLagMs,
+                                 @Value("${sr.admission.max-retry-after-s:30}") long maxRetryAfterSeconds) {
+        this.amqpAdmin = amqpAdmin;
+        this.queueNames = new ArrayList<>();
+        if (orderPartitioner != null) {
+            queueNames.add(queueName);
+            for (int partition = 0; partition < orderPartitioner.partitions(); partition++) {
+                queueNames.add(queueName + "." + partition);
+            }
+            queueNames.add(queueName + "." + OrderPartitioner.EXPRESS_LANE);
+        }
+        this.orderOutboxRelay = orderOutboxRelay;
+        this.orderSpillJournal = orderSpillJournal;
+        this.enabled = enabled;
+        this.highWatermark = highWatermark;
+        this.lowWatermark = Math.min(lowWatermark, highWatermark);
+        this.maxLagMs = maxLagMs;
+        this.maxRetryAfterSeconds = Math.max(1, maxRetryAfterSeconds);
+    }
+
+    /**
+     * Creates an admission control that admits every order, for services used without a broker.
+     *
+     * @return an admission control that never sheds
+     */
+    public static OrderAdmissionControl unlimited() {
+        return new OrderAdmissionControl(null, null, null, null, null, false, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, 1);
+    }
+
+    /**
+     * Admits an order, or rejects it while orders are being shed.
+     *
+     * @throws OrderOverloadException if the order consumers are too far behind to take the order
+     */
+    public void admit() {
+        if (shedding) {
+            throw new OrderOverloadException("Too many orders are waiting to be processed, backlog " + depth,
+                    retryAfterSeconds);
+        }
+        admittedSinceSample.increment();
+    }
+
+    /**
+     * Reads the depth and consumers of the order queues from the broker, and the orders not yet published.
+     */
+    @Scheduled(fixedDelayString = "${sr.admission.sample-interval-ms:500}")
+    public void sample() {
+        if (!enabled) {
+            return;
+        }
+        long messages = 0;
+        int consumers = 0;
+        try {
+            for (String queueName : queueNames) {
+                QueueInformation info = amqpAdmin.getQueueInfo(queueName);
+                if (info != null) {
+                    messages += info.getMessageCount();
+                    consumers += info.getConsumerCount();
+                }
+            }
+            OrderOutboxRelay relay = orderOutboxRelay != null ? orderOutboxRelay.getIfAvailable() : null;
+            if (relay != null) {
+                messages += relay.backlog();
+            }
+            if (orderSpillJournal != null) {
+                messages += orderSpillJournal.pending();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not sample the order backlog, keeping the previous sample: {}", e.getMessage());
+            return;
+        }
+        update(messages, consumers, System.nanoTime());
+    }
+
+    /**
+     * Updates the drain estimate and the shedding decision with a new sample.
+     *
+     * @param queueDepth the number of orders waiting in the order queues, the outbox and the spill journal
+     * @param consumers  the number of consumers on the order queues
+     * @param nowNanos   the time of the sample, from {@link System#nanoTime()}
+     */
+    synchronized void update(long queueDepth, int consumers, long nowNanos) {
+        long admitted = admittedSinceSample.sumThenReset();
+        if (lastDepth >= 0 && nowNanos > lastSampleNanos) {
+            long drained = Math.max(0, lastDepth + admitted - queueDepth);
+            double rate = drained * (double) TimeUnit.SECONDS.toNanos(1) / (nowNanos - lastSampleNanos);
+            drainRatePerSecond = drainRatePerSecond < 0 ? rate
+                    : RATE_SMOOTHING * rate + (1 - RATE_SMOOTHING) * drainRatePerSecond;
+        }
+        lastDepth = queueDepth;
+        lastSampleNanos = nowNanos;
+
+        long lag = lagMs(queueDepth, queueDepth, consumers);
+        boolean shed = enabled && (shedding
+                ? queueDepth >= lowWatermark
+                : queueDepth >= highWatermark || (queueDepth > lowWatermark && lag > maxLagMs));
+        if (shed != shedding) {
+            log.warn("Order admission {}: backlog {}, {} consumers, draining {} orders/s, lag {} ms",
+                    shed ? "shedding" : "resumed", queueDepth, consumers, Math.round(drainRatePerSecond), lag);
+        }
+        long toLowWatermark = lagMs(queueDepth, queueDepth - lowWatermark, consumers);
+        retryAfterSeconds = Math.max(1, Math.min(maxRetryAfterSeconds,
+                toLowWatermark == Long.MAX_VALUE ? maxRetryAfterSeconds : (toLowWatermark + 999) / 1000));
+        depth = queueDepth;
+        lagMs = lag;
+        shedding = shed;
+    }
+
+    /**
+     * Estimates how long draining the given number of orders takes, or {@link Long#MAX_VALUE} if the
+     * queues are not draining. Before the drain rate is known, only queues without consumers count as stuck.
+     */
+    private long lagMs(long queueDepth, long orders, int consumers) {
+        if (orders <= 0) {
+            return 0;
+        }
+        if (consumers == 0 && queueDepth > 0) {
+            return Long.MAX_VALUE;
+        }
+        if (drainRatePerSecond < 0) {
+            return 0;
+        }
+        if (drainRatePerSecond == 0) {
+            return Long.MAX_VALUE;
+        }
+        return (long) Math.min(Long.MAX_VALUE, Math.ceil(orders * 1000 / drainRatePerSecond));
+    }
+
+    public boolean isShedding() {
+        return shedding;
+    }
+
+    public long depth() {
+        return depth;
+    }
+
+    public long lagMs() {
+        return lagMs;
+    }
+
+    public long retryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
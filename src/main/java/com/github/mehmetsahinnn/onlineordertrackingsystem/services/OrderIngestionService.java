@@ -0,0 +1,222 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.services;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions.InsufficientStockException;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions.OrderOverloadException;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions.OrderPublishException;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Order;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Product;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.producers.OrderProducer;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * The OrderIngestionService places large numbers of orders submitted together, for partner integrations.
+ * <p>
+ * Orders are read from an iterator, so the caller can parse them as they arrive, and are placed in chunks
+ * of {@code sr.order.ingest.chunk-size}: the products of a whole chunk are loaded with one query, every order
+ * of the chunk is validated and its stock held as {@link OrderService#placeOrder} does, and the chunk is
+ * published at once, so the order producer confirms it in a few batches rather than one order at a time.
+ * The results of a chunk are handed back before the next chunk is read, so memory use depends on the
+ * chunk size and not on the number of orders submitted. Confirms are awaited for at most
+ * {@code sr.rabbit.publish.confirm-timeout-ms} per chunk; an order still unconfirmed by then has its hold
+ * released and is reported as failed.
+ */
+@Slf4j
+@Service
+public class OrderIngestionService {
+
+    /**
+     * The outcome of one submitted order.
+     *
+     * @param index        the position of the order in the submission, from 0
+     * @param orderTrackId the track ID given to the order, or null if it was not placed
+     * @param status       the HTTP status the order would have been answered with on its own
+     * @param message      a description of the outcome
+     */
+    public record Result(long index, UUID orderTrackId, int status, String message) {
+    }
+
+    private final ProductRepository productRepository;
+    private final StockHoldService stockHoldService;
+    private final OrderProducer orderProducer;
+    private final OrderAdmissionControl orderAdmissionControl;
+    private final int chunkSize;
+    private final long confirmTimeoutMs;
+
+    /**
+     * Constructs a new OrderIngestionService.
+     *
+     * @param productRepository     the ProductRepository the products of each chunk are loaded from
+     * @param stockHoldService      the StockHoldService that holds stock until an order is confirmed
+     * @param orderProducer         the OrderProducer that publishes the orders
+     * @param orderAdmissionControl the OrderAdmissionControl that sheds orders while the consumers are behind
+     * @param chunkSize             the number of orders validated and published together
+     * @param confirmTimeoutMs      how long the orders of a chunk are waited for to be confirmed
+     */
+    @Autowired
+    public OrderIngestionService(ProductRepository productRepository, StockHoldService stockHoldService,
+                                 OrderProducer orderProducer, OrderAdmissionControl orderAdmissionControl,
+                                 @Value("${sr.order.ingest.chunk-size:500}") int chunkSize,
+                                 @Value("${sr.rabbit.publish.confirm-timeout-ms:5000}") long confirmTimeoutMs) {
+        this.productRepository = productRepository;
+        this.stockHoldService = stockHoldService;
+        this.orderProducer = orderProducer;
+        this.orderAdmissionControl = orderAdmissionControl;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.confirmTimeoutMs = confirmTimeoutMs;
+    }
+
+    /**
+     * Places every order the iterator yields. If reading an order fails, the orders read before it are
+     * still placed, a 400 result is reported for it, and no further orders are read.
+     *
+     * @param orders  the submitted orders, in submission order
+     * @param results receives the results of each chunk, in submission order
+     * @return the number of orders read
+     */
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public long ingest(Iterator<Order> orders, Consumer<List<Result>> results) {
+        long index = 0;
+        List<Order> chunk = new ArrayList<>(chunkSize);
+        while (true) {
+            chunk.clear();
+            RuntimeException unreadable = null;
+            try {
+                while (chunk.size() < chunkSize && orders.hasNext()) {
+                    chunk.add(orders.next());
+                }
+            } catch (RuntimeException e) {
+                unreadable = e;
+            }
+            if (chunk.isEmpty() && unreadable == null) {
+                return index;
+            }
+            List<Result> placed = placeChunk(index, chunk);
+            index += chunk.size();
+            if (unreadable != null) {
+                log.warn("Stopped reading submitted orders at {}: {}", index, unreadable.getMessage());
+                placed.add(new Result(index, null, HttpStatus.BAD_REQUEST.value(), "Unreadable order: " + unreadable.getMessage()));
+                results.accept(placed);
+                return index;
+            }
+            results.accept(placed);
+        }
+    }
+
+    private List<Result> placeChunk(long firstIndex, List<Order> chunk) {
+        Result[] results = new Result[chunk.size()];
+        List<Map<Long, Integer>> quantities = new ArrayList<>(chunk.size());
+        Set<Long> productIds = new HashSet<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            Map<Long, Integer> requested = null;
+            try {
+                requested = OrderService.requestedQuantities(chunk.get(i));
+                productIds.addAll(requested.keySet());
+            } catch (RuntimeException e) {
+                results[i] = failed(firstIndex + i, e);
+            }
+            quantities.add(requested);
+        }
+        Map<Long, Product> products = new HashMap<>();
+        if (!productIds.isEmpty()) {
+            for (Product product : productRepository.findAllById(productIds)) {
+                products.put(product.getId(), product);
+            }
+        }
+
+        List<CompletableFuture<Void>> publishes = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            publishes.add(null);
+            if (results[i] != null) {
+                continue;
+            }
+            Order order = chunk.get(i);
+            try {
+                orderAdmissionControl.admit();
+                OrderService.checkStock(quantities.get(i), products);
+                order.setOrderTrackId(UUID.randomUUID());
+                if (!stockHoldService.hold(order.getOrderTrackId(), quantities.get(i))) {
+                    throw new InsufficientStockException("Insufficient stock for order items: " + quantities.get(i).keySet());
+                }
+            } catch (RuntimeException e) {
+                results[i] = failed(firstIndex + i, e);
+                continue;
+            }
+            try {
+                publishes.set(i, orderProducer.sendToQueue(order));
+            } catch (RuntimeException e) {
+                stockHoldService.release(order.getOrderTrackId());
+                results[i] = failed(firstIndex + i, e);
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMs);
+        for (int i = 0; i < chunk.size(); i++) {
+            CompletableFuture<Void> publish = publishes.get(i);
+            if (publish == null) {
+                continue;
+            }
+            UUID orderTrackId = chunk.get(i).getOrderTrackId();
+            Throwable failure = awaitConfirm(publish, deadline);
+            if (failure == null) {
+                results[i] = new Result(firstIndex + i, orderTrackId, HttpStatus.CREATED.value(), "Order placed successfully.");
+            } else {
+                stockHoldService.release(orderTrackId);
+                results[i] = failed(firstIndex + i, failure);
+            }
+        }
+        return new ArrayList<>(List.of(results));
+    }
+
+    /**
+     * Waits until the deadline for the broker to acknowledge a published order.
+     *
+     * @return null if the order was confirmed, otherwise why it was not
+     */
+    private Throwable awaitConfirm(CompletableFuture<Void> publish, long deadline) {
+        try {
+            publish.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause() != null ? e.getCause() : e;
+        } catch (TimeoutException e) {
+            return new OrderPublishException("Order was not confirmed by the broker within " + confirmTimeoutMs + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new OrderPublishException("Interrupted while waiting for the broker to confirm the order", e);
+        }
+    }
+
+    private static Result failed(long index, Throwable failure) {
+        HttpStatus status;
+        String message = failure.getMessage();
+        if (failure instanceof InsufficientStockException) {
+            status = HttpStatus.CONFLICT;
+        } else if (failure instanceof OrderOverloadException overload) {
+            status = HttpStatus.TOO_MANY_REQUESTS;
+            message = message + ", retry after " + overload.getRetryAfterSeconds() + " s";
+        } else {
+            status = HttpStatus.BAD_REQUEST;
+        }
+        return new Result(index, null, status.value(), message);
+    }
+}
@@ -0,0 +1,149 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.services;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions.OrderOverloadException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * The OrderPlacementTracker runs orders placed asynchronously and remembers how their placement ended,
+ * so a client that was answered with 202 Accepted can ask for the outcome by the order's track ID.
+ * <p>
+ * Placements run on {@code sr.order.async.threads} threads, with up to {@code sr.order.async.queue-capacity}
+ * waiting; beyond that new placements are rejected with an {@link OrderOverloadException}. The outcomes of the
+ * last {@code sr.order.async.tracked} placements are kept, the oldest forgotten first.
+ */
+@Component
+public class OrderPlacementTracker {
+
+    /**
+     * The stages of an asynchronous placement.
+     */
+    public enum State {
+        /** The order is being validated and published. */
+        PENDING,
+        /** The broker accepted the order and it waits to be stored. */
+        ACCEPTED,
+        /** The order is stored. */
+        CONFIRMED,
+        /** The order was not placed; the message tells why. */
+        REJECTED
+    }
+
+    /**
+     * The outcome of a placement so far.
+     *
+     * @param orderTrackId the track ID of the order
+     * @param state        the stage the placement reached
+     * @param message      a description of the outcome
+     */
+    public record Placement(UUID orderTrackId, State state, String message) {
+
+        public static Placement pending(UUID orderTrackId) {
+            return new Placement(orderTrackId, State.PENDING, "Order is being placed");
+        }
+    }
+
+    private final ExecutorService executor;
+    private final Map<UUID, CompletableFuture<Placement>> placements;
+
+    /**
+     * Constructs a new OrderPlacementTracker.
+     *
+     * @param threads       the number of threads placing orders
+     * @param queueCapacity the number of placements that may wait for a thread
+     * @param tracked       the number of outcomes to remember
+     */
+    @Autowired
+    public OrderPlacementTracker(@Value("${sr.order.async.threads:16}") int threads,
+                                 @Value("${sr.order.async.queue-capacity:10000}") int queueCapacity,
+                                 @Value("${sr.order.async.tracked:100000}") int tracked) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), task -> {
+                    Thread thread = new Thread(task, "order-placement-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+        this.placements = new LinkedHashMap<>(16, 0.75f) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, CompletableFuture<Placement>> eldest) {
+                return size() > tracked;
+            }
+        };
+    }
+
+    /**
+     * Starts placing an order on a placement thread.
+     *
+     * @param orderTrackId the track ID of the order
+     * @param placement    validates, holds and publishes the order, returning the broker's confirmation
+     * @return a future yielding the outcome once the order is accepted or rejected
+     * @throws OrderOverloadException if too many placements are waiting already
+     */
+    public CompletableFuture<Placement> submit(UUID orderTrackId, Supplier<CompletableFuture<Void>> placement) {
+        CompletableFuture<Placement> outcome = new CompletableFuture<>();
+        synchronized (placements) {
+            placements.put(orderTrackId, outcome);
+        }
+        try {
+            executor.execute(() -> {
+                CompletableFuture<Void> published;
+                try {
+                    published = placement.get();
+                } catch (RuntimeException e) {
+                    published = CompletableFuture.failedFuture(e);
+                }
+                published.whenComplete((ignored, failure) -> outcome.complete(failure == null
+                        ? new Placement(orderTrackId, State.ACCEPTED, "Order accepted")
+                        : rejected(orderTrackId, failure)));
+            });
+        } catch (RejectedExecutionException e) {
+            synchronized (placements) {
+                placements.remove(orderTrackId);
+            }
+            throw new OrderOverloadException("Too many orders are waiting to be placed", 1);
+        }
+        return outcome;
+    }
+
+    /**
+     * Returns the outcome of a placement so far.
+     *
+     * @param orderTrackId the track ID of the order
+     * @return the outcome, or null if the order was not placed asynchronously or has been forgotten
+     */
+    public Placement get(UUID orderTrackId) {
+        CompletableFuture<Placement> outcome;
+        synchronized (placements) {
+            outcome = placements.get(orderTrackId);
+        }
+        return outcome != null ? outcome.getNow(Placement.pending(orderTrackId)) : null;
+    }
+
+    private static Placement rejected(UUID orderTrackId, Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        return new Placement(orderTrackId, State.REJECTED, cause.getMessage());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
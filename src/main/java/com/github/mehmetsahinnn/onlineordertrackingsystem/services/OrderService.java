@@ -1,8 +1,11 @@
 package com.github.mehmetsahinnn.onlineordertrackingsystem.services;
 
 import com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions.InsufficientStockException;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions.OrderOverloadException;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions.OrderPublishException;
 import com.github.mehmetsahinnn.onlineordertrackingsystem.config.KeycloakClient;
 import com.github.mehmetsahinnn.onlineordertrackingsystem.config.ResponseHandler;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticservices.OrderIndexer;
 import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Order;
 import com.github.mehmetsahinnn.onlineordertrackingsystem.models.OrderItem;
 import com.github.mehmetsahinnn.onlineordertrackingsystem.producers.OrderProducer;
@@ -16,9 +19,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * The OrderService class provides services for managing orders.
@@ -26,44 +34,78 @@ import java.util.*;
  */
 @Service
 public class OrderService {
+
+    /**
+     * The authority that puts a caller's orders on the express lane.
+     */
+    static final String EXPRESS_AUTHORITY = "ROLE_EXPRESS";
+
     private final OrderRepository orderRepository;
     private final ProductService productService;
     private final OrderProducer orderProducer;
     private final KeycloakClient keycloakClient;
     private final ProductRepository productRepository;
+    private final StockReservationEngine stockReservationEngine;
+    private final StockHoldService stockHoldService;
+    private final OrderAdmissionControl orderAdmissionControl;
+    private final OrderPlacementTracker orderPlacementTracker;
+    private final OrderIndexer orderIndexer;
 
 
     /**
      * Constructs a new OrderService with the specified OrderRepository and ProductService.
      *
-     * @param orderRepository the OrderRepository to be used by the OrderService
-     * @param productService  the ProductService to be used by the OrderService
+     * @param orderRepository        the OrderRepository to be used by the OrderService
+     * @param productService         the ProductService to be used by the OrderService
+     * @param stockReservationEngine the StockReservationEngine that returns stock of cancelled orders
+     * @param stockHoldService       the StockHoldService that holds stock until an order is confirmed
+     * @param orderAdmissionControl  the OrderAdmissionControl that sheds orders while the consumers are behind
+     * @param orderPlacementTracker  the OrderPlacementTracker that runs asynchronous placements
+     * @param orderIndexer           the OrderIndexer that writes status changes to the order index
      */
     @Autowired
-    public OrderService(OrderRepository orderRepository, ProductService productService, OrderProducer orderProducer, KeycloakClient keycloakClient, ProductRepository productRepository) {
+    public OrderService(OrderRepository orderRepository, ProductService productService, OrderProducer orderProducer, KeycloakClient keycloakClient, ProductRepository productRepository, StockReservationEngine stockReservationEngine, StockHoldService stockHoldService, OrderAdmissionControl orderAdmissionControl, OrderPlacementTracker orderPlacementTracker, OrderIndexer orderIndexer) {
         this.orderRepository = orderRepository;
         this.productService = productService;
         this.orderProducer = orderProducer;
         this.keycloakClient = keycloakClient;
         this.productRepository = productRepository;
+        this.stockReservationEngine = stockReservationEngine;
+        this.stockHoldService = stockHoldService;
+        this.orderAdmissionControl = orderAdmissionControl;
+        this.orderPlacementTracker = orderPlacementTracker;
+        this.orderIndexer = orderIndexer;
     }
 
     /**
      * Places a new order. If the product's stock is insufficient or not available, an exception is thrown.
-     * If the order is successfully placed, the product's stock is updated and the order's status is set to CONFIRMED.
-     * The order is then saved in the repository and returned.
+     * If the order is valid, its stock is held until the order listener confirms it, and the order is
+     * published to the order queue. The order is only reported as placed once the broker has acknowledged
+     * it, once it is stored in the outbox or, while the broker is unavailable, once it is journaled
+     * locally for later publishing; otherwise the hold is released. Holds that are not confirmed in
+     * time expire and free the stock again. While the order consumers are too far behind, orders are
+     * rejected before any of this is done.
      *
      * @param order the order to be placed
      * @return the placed order
      * @throws IllegalArgumentException if the product's stock is insufficient or not available
+     * @throws OrderOverloadException   if orders are being shed, see {@link OrderAdmissionControl}
      */
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     public ResponseEntity<Object> placeOrder(Order order) {
+        orderAdmissionControl.admit();
 
         try {
-            validateOrder(order);
+            Map<Long, Integer> quantities = validateOrder(order);
             order.setOrderTrackId(UUID.randomUUID());
-            orderProducer.sendToQueue(order);
+            order.setExpress(isExpressEligible());
+            holdStock(order, quantities);
+            try {
+                awaitConfirm(orderProducer.sendToQueue(order));
+            } catch (RuntimeException ex) {
+                stockHoldService.release(order.getOrderTrackId());
+                throw ex;
+            }
             return ResponseHandler.generateResponse("Order placed successfully.", HttpStatus.CREATED, order);
         } catch (InsufficientStockException ex) {
             return ResponseHandler.generateResponse(ex.getMessage(), HttpStatus.CONFLICT, ex);
@@ -72,21 +114,176 @@ public class OrderService {
         }
     }
 
-    private void validateOrder(Order order) {
+    /**
+     * Places a new order without holding the calling thread. The order gets its track ID right away and is
+     * then validated, its stock held and it is published on a placement thread, as {@link #placeOrder} does;
+     * the publish confirmation is awaited without blocking any thread. The outcome can be fetched with
+     * {@link #getPlacement}.
+     *
+     * @param order the order to be placed
+     * @return a future yielding the outcome once the broker accepted the order or it was rejected
+     * @throws OrderOverloadException if orders are being shed, see {@link OrderAdmissionControl}, or too many
+     *                                placements are waiting already
+     */
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public CompletableFuture<OrderPlacementTracker.Placement> placeOrderAsync(Order order) {
+        orderAdmissionControl.admit();
+        order.setOrderTrackId(UUID.randomUUID());
+        order.setExpress(isExpressEligible());
+        return orderPlacementTracker.submit(order.getOrderTrackId(), () -> {
+            holdStock(order, validateOrder(order));
+            CompletableFuture<Void> publish;
+            try {
+                publish = orderProducer.sendToQueue(order);
+            } catch (RuntimeException ex) {
+                stockHoldService.release(order.getOrderTrackId());
+                throw ex;
+            }
+            return publish.whenComplete((ignored, failure) -> {
+                if (failure != null) {
+                    stockHoldService.release(order.getOrderTrackId());
+                }
+            });
+        });
+    }
+
+    /**
+     * Retrieves the outcome of an order placed asynchronously. An order the broker accepted is reported as
+     * confirmed once the order listener has stored it.
+     *
+     * @param orderTrackId the track ID of the order
+     * @return the outcome of the placement
+     * @throws RuntimeException if no placement or order with the track ID is known
+     */
+    public OrderPlacementTracker.Placement getPlacement(UUID orderTrackId) {
+        OrderPlacementTracker.Placement placement = orderPlacementTracker.get(orderTrackId);
+        if (placement != null && placement.state() != OrderPlacementTracker.State.ACCEPTED) {
+            return placement;
+        }
+        if (orderRepository.findByOrderTrackId(orderTrackId) != null) {
+            return new OrderPlacementTracker.Placement(orderTrackId, OrderPlacementTracker.State.CONFIRMED, "Order confirmed");
+        }
+        if (placement == null) {
+            throw new RuntimeException("No order placement found with track id: " + orderTrackId);
+        }
+        return placement;
+    }
+
+    /**
+     * Decides whether the caller's order goes to the express lane. Only authenticated callers
+     * holding the {@value #EXPRESS_AUTHORITY} authority qualify, whatever the request says; it is
+     * granted to customers whose {@code express} column is set.
+     */
+    private static boolean isExpressEligible() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated()
+                && authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).anyMatch(EXPRESS_AUTHORITY::equals);
+    }
+
+    /**
+     * Holds the stock of a validated order until the order listener confirms it.
+     *
+     * @throws InsufficientStockException if the stock is already held by other orders
+     */
+    private void holdStock(Order order, Map<Long, Integer> quantities) {
+        if (!stockHoldService.hold(order.getOrderTrackId(), quantities)) {
+            throw new InsufficientStockException("Insufficient stock for order items: " + quantities.keySet());
+        }
+    }
+
+    /**
+     * Waits for the broker to acknowledge a published order.
+     *
+     * @param publish the future returned by the order producer
+     * @throws OrderPublishException if the broker rejected the order or did not confirm it in time
+     */
+    private static void awaitConfirm(CompletableFuture<Void> publish) {
+        try {
+            publish.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new OrderPublishException("Order was not confirmed by the broker", ex.getCause());
+        }
+    }
+
+    /**
+     * Validates an order against current stock using a single product query.
+     * Lines referring to the same product are merged first, so the stock check
+     * sees the total quantity requested for each product.
+     *
+     * @param order the order to validate
+     * @return the requested quantity per product id, in order of first appearance
+     * @throws InsufficientStockException if any product does not have enough stock
+     */
+    private Map<Long, Integer> validateOrder(Order order) {
+        Map<Long, Integer> quantities = requestedQuantities(order);
+
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllById(quantities.keySet())) {
+            products.put(product.getId(), product);
+        }
+        checkStock(quantities, products);
+        return quantities;
+    }
+
+    /**
+     * Merges the lines of an order that refer to the same product.
+     *
+     * @param order the order
+     * @return the requested quantity per product id, in order of first appearance
+     * @throws IllegalArgumentException if the order has no items or an item has no product
+     */
+    static Map<Long, Integer> requestedQuantities(Order order) {
         if (order == null || order.getOrderItems() == null || order.getOrderItems().isEmpty()) {
             throw new IllegalArgumentException("Order or Order Items cannot be null or empty.");
         }
-        for (OrderItem item : order.getOrderItems()) {
-            Product product = productRepository.findById(item.getProduct().getId())
-                    .orElseThrow(() -> new RuntimeException("Product not found with id: " + item.getProduct().getId()));
+        return mergeQuantities(order.getOrderItems());
+    }
 
+    /**
+     * Checks requested quantities against the stock of already loaded products.
+     *
+     * @param quantities the requested quantity per product id
+     * @param products   the products by id
+     * @throws InsufficientStockException if any product does not have enough stock
+     */
+    static void checkStock(Map<Long, Integer> quantities, Map<Long, Product> products) {
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            Product product = products.get(entry.getKey());
+            if (product == null) {
+                throw new RuntimeException("Product not found with id: " + entry.getKey());
+            }
             int currentStock = product.getNumberInStock() != null ? product.getNumberInStock() : 0;
-            if (currentStock < item.getQuantity()) {
+            if (currentStock < entry.getValue()) {
                 throw new InsufficientStockException("Insufficient stock for product id: " + product.getId());
             }
         }
     }
 
+    /**
+     * Sums the quantities of order items that refer to the same product.
+     *
+     * @param orderItems the order items to merge
+     * @return the total quantity per product id, in order of first appearance
+     * @throws IllegalArgumentException if an item references no product or its quantity is not positive
+     */
+    public static Map<Long, Integer> mergeQuantities(List<OrderItem> orderItems) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (OrderItem item : orderItems) {
+            if (item.getProduct() == null || item.getProduct().getId() == null) {
+                throw new IllegalArgumentException("Order Items must reference a product.");
+            }
+            if (item.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Order Item quantities must be positive, got " + item.getQuantity()
+                        + " for product id: " + item.getProduct().getId());
+            }
+            quantities.merge(item.getProduct().getId(), item.getQuantity(), Math::addExact);
+        }
+        return quantities;
+    }
+
 
     /**
      * Retrieves an order by its ID.
@@ -129,7 +326,7 @@ public class OrderService {
     }
 
     /**
-     * Updates an order.
+     * Updates an order. The new status is written to the order index in the background.
      *
      * @param id           the ID of the order to update
      * @param newOrderData the new order data
@@ -146,6 +343,7 @@ public class OrderService {
 
             existingOrder.setStatus(newStatus);
             Order updatedOrder = orderRepository.save(existingOrder);
+            orderIndexer.indexOrder(updatedOrder);
             return ResponseHandler.generateResponse("Order updated successfully.", HttpStatus.OK, updatedOrder);
         } catch (NoSuchElementException ex) {
             return ResponseHandler.generateResponse(ex.getMessage(), HttpStatus.NOT_FOUND, null);
@@ -182,15 +380,18 @@ public class OrderService {
 
             }
 
-            order.setStatus(OrderStatus.CANCELLED);
+            if (order.getStatus() == OrderStatus.CANCELLED) {
+                ResponseHandler.generateResponse("Order is already cancelled.", HttpStatus.CONFLICT, null);
+                return;
+            }
 
-            for (OrderItem orderItem : order.getOrderItems()) {
-                Product product = orderItem.getProduct();
-                Integer currentStock = product.getNumberInStock();
-                product.setNumberInStock(currentStock + orderItem.getQuantity());
+            order.setStatus(OrderStatus.CANCELLED);
+            orderRepository.save(order);
+            orderIndexer.indexOrder(order);
 
-                productService.updateProduct(product.getId(), product);
-            }
+            Map<Long, Integer> quantities = mergeQuantities(order.getOrderItems());
+            stockReservationEngine.releaseAll(quantities);
+            stockReservationEngine.flush(quantities.keySet());
 
             ResponseHandler.generateResponse("Order cancelled and stock increased successfully.", HttpStatus.OK, null);
         } catch (Exception e) {
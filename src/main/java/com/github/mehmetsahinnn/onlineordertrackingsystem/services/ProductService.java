@@ -9,6 +9,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
 import java.util.Optional;
@@ -21,16 +23,19 @@ import java.util.Optional;
 public class ProductService {
 
     private final ProductRepository productRepository;
+    private final StockReservationEngine stockReservationEngine;
     private static final Logger logger = LoggerFactory.getLogger(ProductService.class);
 
     /**
      * Constructs a new ProductService with the specified ProductRepository.
      *
-     * @param productRepository the ProductRepository to be used by the ProductService
+     * @param productRepository      the ProductRepository to be used by the ProductService
+     * @param stockReservationEngine the StockReservationEngine holding the in-memory stock
      */
     @Autowired
-    public ProductService(ProductRepository productRepository) {
+    public ProductService(ProductRepository productRepository, StockReservationEngine stockReservationEngine) {
         this.productRepository = productRepository;
+        this.stockReservationEngine = stockReservationEngine;
     }
 
     /**
@@ -64,6 +69,8 @@ public class ProductService {
 
     /**
      * Retrieves a product by its ID.
+     * If the stock of the product is tracked in memory, the returned stock is the in-memory
+     * value, which includes reservations that have not been written to the database yet.
      *
      * @param id the ID of the product to retrieve
      * @return the retrieved product
@@ -73,7 +80,12 @@ public class ProductService {
         if (optionalProduct.isEmpty()) {
             throw new RuntimeException("Error occurred while retrieving the product with id: " + id);
         }
-        return optionalProduct.get();
+        Product product = optionalProduct.get();
+        Integer inMemoryStock = stockReservationEngine.available(id);
+        if (inMemoryStock != null) {
+            product.setNumberInStock(inMemoryStock);
+        }
+        return product;
     }
 
     /**
@@ -162,6 +174,9 @@ public class ProductService {
 
     /**
      * Updates the product identified by the given ID with the provided updated product details.
+     * If the stock is unchanged, only the other details are written and the in-memory stock is kept.
+     * Otherwise the in-memory stock of the product is written and dropped before the save, and dropped
+     * again once the save commits, so reservations after the update start from the new stock.
      *
      * @param id             the ID of the product to be updated
      * @param updatedProduct the updated product information
@@ -177,10 +192,37 @@ public class ProductService {
         existingProduct.setName(updatedProduct.getName());
         existingProduct.setDescription(updatedProduct.getDescription());
         existingProduct.setPrice(updatedProduct.getPrice());
-        existingProduct.setNumberInStock(updatedProduct.getNumberInStock());
         existingProduct.setCategory(updatedProduct.getCategory());
 
-        return saveProduct(existingProduct);
+        Integer numberInStock = updatedProduct.getNumberInStock();
+        if (numberInStock == null || numberInStock.equals(existingProduct.getNumberInStock())) {
+            // the stored stock lags the in-memory stock by the unwritten deltas, so it must not be saved back
+            try {
+                productRepository.updateDetails(id, existingProduct.getName(), existingProduct.getDescription(),
+                        existingProduct.getCategory(), existingProduct.getPrice());
+            } catch (Exception e) {
+                logger.error("Error occurred while saving the product", e);
+                throw new RuntimeException("Error occurred while saving the product", e);
+            }
+            return existingProduct;
+        }
+
+        stockReservationEngine.evict(id);
+        existingProduct.setNumberInStock(numberInStock);
+
+        Product saved = saveProduct(existingProduct);
+        // a reservation since the first eviction may have reloaded the old stock
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    stockReservationEngine.evict(id);
+                }
+            });
+        } else {
+            stockReservationEngine.evict(id);
+        }
+        return saved;
     }
 
     public List<Product> findProductsByCategory(String category) {
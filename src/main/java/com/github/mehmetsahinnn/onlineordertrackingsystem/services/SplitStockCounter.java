@@ -0,0 +1,180 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.services;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stock counter for hot products that spreads one product's stock over several buckets.
+ * Each thread draws from its own home bucket, so concurrent orders rarely touch the same
+ * cache line. When the home bucket runs dry the counter takes the quantity from the first sibling
+ * that holds all of it. Only when no single bucket does, the quantity is gathered from every bucket
+ * under a lock; as only the lock holder ever holds units taken from a bucket without keeping them,
+ * a take fails only when the buckets together really hold too little. Units are only ever taken with
+ * compare-and-set, so the total can never go negative.
+ * Updates in progress are also counted per bucket, so retiring the counter does not make
+ * concurrent orders contend on one count.
+ */
+class SplitStockCounter implements StockCounter {
+
+    /**
+     * Ints per 64-byte cache line, so neighbouring buckets do not share a line.
+     */
+    private static final int STRIDE = 16;
+
+    private final long productId;
+    private final int buckets;
+    private final AtomicIntegerArray stock;
+    private final LongAdder pendingDelta = new LongAdder();
+    private final AtomicIntegerArray updating;
+    private final ReentrantLock gatherLock = new ReentrantLock();
+    private volatile boolean retired;
+
+    SplitStockCounter(long productId, int initialStock, int buckets) {
+        this.productId = productId;
+        this.buckets = buckets;
+        this.stock = new AtomicIntegerArray(buckets * STRIDE);
+        this.updating = new AtomicIntegerArray(buckets * STRIDE);
+        int share = initialStock / buckets;
+        int remainder = initialStock % buckets;
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            stock.set(bucket * STRIDE, share + (bucket < remainder ? 1 : 0));
+        }
+    }
+
+    @Override
+    public long getProductId() {
+        return productId;
+    }
+
+    @Override
+    public boolean tryTake(int quantity) {
+        int home = homeBucket();
+        for (int offset = 0; offset < buckets; offset++) {
+            if (takeExactly((home + offset) % buckets, quantity)) {
+                return true;
+            }
+        }
+        return gather(home, quantity);
+    }
+
+    @Override
+    public void give(int quantity) {
+        stock.addAndGet(homeBucket() * STRIDE, quantity);
+    }
+
+    @Override
+    public int available() {
+        int total = 0;
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            total += stock.get(bucket * STRIDE);
+        }
+        return total;
+    }
+
+    @Override
+    public int drainDelta() {
+        return (int) pendingDelta.sumThenReset();
+    }
+
+    @Override
+    public void addDelta(int delta) {
+        pendingDelta.add(delta);
+    }
+
+    @Override
+    public boolean enter() {
+        int index = homeBucket() * STRIDE;
+        updating.incrementAndGet(index);
+        if (retired) {
+            updating.decrementAndGet(index);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void exit() {
+        // a thread always has the same home bucket, so this undoes its own enter
+        updating.decrementAndGet(homeBucket() * STRIDE);
+    }
+
+    @Override
+    public void retire() {
+        retired = true;
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            while (updating.get(bucket * STRIDE) != 0) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    @Override
+    public void reopen() {
+        retired = false;
+    }
+
+    /**
+     * Gathers the quantity from every bucket, starting at the home bucket, for as long as the
+     * units gathered and those left in the buckets add up to the quantity; stock given back
+     * meanwhile is gathered on the next sweep. If they no longer do, the gathered units are
+     * put back into the home bucket and the take fails.
+     */
+    private boolean gather(int home, int quantity) {
+        gatherLock.lock();
+        try {
+            int gathered = 0;
+            do {
+                for (int offset = 0; offset < buckets && gathered < quantity; offset++) {
+                    gathered += takeUpTo((home + offset) % buckets, quantity - gathered);
+                }
+            } while (gathered < quantity && gathered + available() >= quantity);
+            if (gathered == quantity) {
+                return true;
+            }
+            if (gathered > 0) {
+                stock.addAndGet(home * STRIDE, gathered);
+            }
+            return false;
+        } finally {
+            gatherLock.unlock();
+        }
+    }
+
+    private boolean takeExactly(int bucket, int quantity) {
+        int index = bucket * STRIDE;
+        for (;;) {
+            int current = stock.get(index);
+            if (current < quantity) {
+                return false;
+            }
+            if (stock.compareAndSet(index, current, current - quantity)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Takes as much of the quantity as the bucket holds, all at once.
+     *
+     * @return the number of units taken, between zero and the quantity
+     */
+    private int takeUpTo(int bucket, int quantity) {
+        int index = bucket * STRIDE;
+        for (;;) {
+            int current = stock.get(index);
+            if (current <= 0) {
+                return 0;
+            }
+            int taken = Math.min(current, quantity);
+            if (stock.compareAndSet(index, current, current - taken)) {
+                return taken;
+            }
+        }
+    }
+
+    private int homeBucket() {
+        long h = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return (int) ((h >>> 32) % buckets);
+    }
+}
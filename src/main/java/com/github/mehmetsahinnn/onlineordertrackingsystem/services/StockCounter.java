@@ -0,0 +1,65 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.services;
+
+/**
+ * In-memory stock counter for a single product.
+ * Implementations never let the available stock drop below zero. Changes that must reach
+ * the database are recorded separately as a pending delta, which the write-behind flush drains;
+ * temporary holds move available stock without touching the delta.
+ */
+interface StockCounter {
+
+    long getProductId();
+
+    /**
+     * Takes the given quantity if enough stock is available.
+     *
+     * @param quantity the quantity to take
+     * @return true if the quantity was taken, false if the stock was insufficient
+     */
+    boolean tryTake(int quantity);
+
+    /**
+     * Returns the given quantity to the available stock.
+     *
+     * @param quantity the quantity to give back
+     */
+    void give(int quantity);
+
+    int available();
+
+    /**
+     * Atomically takes the delta accumulated since the last drain.
+     *
+     * @return the change to apply to the stored stock
+     */
+    int drainDelta();
+
+    /**
+     * Records a change that has to be written to the database.
+     *
+     * @param delta the change to the stored stock
+     */
+    void addDelta(int delta);
+
+    /**
+     * Starts an update of the counter. Every successful call must be followed by {@link #exit()}.
+     *
+     * @return false if the counter is retired, in which case the caller looks the counter up again
+     */
+    boolean enter();
+
+    /**
+     * Ends an update started with {@link #enter()}.
+     */
+    void exit();
+
+    /**
+     * Refuses new updates and waits for those in progress, so the delta drained afterwards is final.
+     */
+    void retire();
+
+    /**
+     * Accepts updates again after a retirement that was not completed.
+     */
+    void reopen();
+}
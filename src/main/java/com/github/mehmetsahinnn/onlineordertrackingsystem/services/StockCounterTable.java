@@ -0,0 +1,211 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.services;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Concurrent map from primitive product ids to stock counters.
+ * Keys are spread over a fixed number of stripes; each stripe is an open-addressing
+ * table guarded by its own lock, and lookups use an optimistic read so the hot path
+ * neither boxes the key nor takes a lock. The keys and values of a stripe are swapped
+ * together on resize, so an optimistic read never pairs arrays of different sizes.
+ */
+class StockCounterTable {
+
+    private static final int STRIPES = 16;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    StockCounterTable() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    StockCounter get(long productId) {
+        return stripeFor(productId).get(productId);
+    }
+
+    /**
+     * Stores the counter unless one is already present for its product.
+     *
+     * @param counter the counter to store
+     * @return the counter that is in the table after the call
+     */
+    StockCounter putIfAbsent(StockCounter counter) {
+        return stripeFor(counter.getProductId()).putIfAbsent(counter);
+    }
+
+    StockCounter remove(long productId) {
+        return stripeFor(productId).remove(productId);
+    }
+
+    void forEach(Consumer<StockCounter> action) {
+        for (Stripe stripe : stripes) {
+            stripe.forEach(action);
+        }
+    }
+
+    private Stripe stripeFor(long productId) {
+        return stripes[(int) (mix(productId) >>> 60) & (STRIPES - 1)];
+    }
+
+    private static long mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    /**
+     * The arrays of a stripe, always of the same length.
+     */
+    private static final class Table {
+
+        final long[] keys;
+        final StockCounter[] values;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new StockCounter[capacity];
+        }
+    }
+
+    private static final class Stripe {
+
+        private final StampedLock lock = new StampedLock();
+        private volatile Table table = new Table(INITIAL_CAPACITY);
+        private int size;
+
+        StockCounter get(long key) {
+            long stamp = lock.tryOptimisticRead();
+            Table current = table;
+            StockCounter found = probe(current.keys, current.values, key);
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    current = table;
+                    found = probe(current.keys, current.values, key);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return found;
+        }
+
+        StockCounter putIfAbsent(StockCounter counter) {
+            long stamp = lock.writeLock();
+            try {
+                StockCounter existing = probe(table.keys, table.values, counter.getProductId());
+                if (existing != null) {
+                    return existing;
+                }
+                if ((size + 1) * 2 > table.keys.length) {
+                    resize();
+                }
+                insert(table.keys, table.values, counter);
+                size++;
+                return counter;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        StockCounter remove(long key) {
+            long stamp = lock.writeLock();
+            try {
+                long[] keys = table.keys;
+                StockCounter[] values = table.values;
+                int mask = keys.length - 1;
+                int index = (int) mix(key) & mask;
+                for (int probes = 0; probes < keys.length; probes++) {
+                    StockCounter value = values[index];
+                    if (value == null) {
+                        return null;
+                    }
+                    if (keys[index] == key) {
+                        values[index] = null;
+                        size--;
+                        shiftBack(index);
+                        return value;
+                    }
+                    index = (index + 1) & mask;
+                }
+                return null;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void forEach(Consumer<StockCounter> action) {
+            StockCounter[] snapshot;
+            long stamp = lock.readLock();
+            try {
+                snapshot = table.values.clone();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+            for (StockCounter counter : snapshot) {
+                if (counter != null) {
+                    action.accept(counter);
+                }
+            }
+        }
+
+        private void resize() {
+            Table grown = new Table(table.keys.length * 2);
+            for (StockCounter counter : table.values) {
+                if (counter != null) {
+                    insert(grown.keys, grown.values, counter);
+                }
+            }
+            table = grown;
+        }
+
+        /**
+         * Closes the gap left by a removal so later probes still find displaced entries.
+         */
+        private void shiftBack(int gap) {
+            long[] keys = table.keys;
+            StockCounter[] values = table.values;
+            int mask = keys.length - 1;
+            int index = (gap + 1) & mask;
+            while (values[index] != null) {
+                int home = (int) mix(keys[index]) & mask;
+                boolean movable = gap <= index ? (home <= gap || home > index) : (home <= gap && home > index);
+                if (movable) {
+                    keys[gap] = keys[index];
+                    values[gap] = values[index];
+                    values[index] = null;
+                    gap = index;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        private static StockCounter probe(long[] keys, StockCounter[] values, long key) {
+            int mask = keys.length - 1;
+            int index = (int) mix(key) & mask;
+            for (int probes = 0; probes < keys.length; probes++) {
+                StockCounter value = values[index];
+                if (value == null) {
+                    return null;
+                }
+                if (keys[index] == key) {
+                    return value;
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+
+        private static void insert(long[] keys, StockCounter[] values, StockCounter counter) {
+            int mask = keys.length - 1;
+            int index = (int) mix(counter.getProductId()) & mask;
+            while (values[index] != null) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = counter.getProductId();
+            values[index] = counter;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.services;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The StockHoldService keeps stock aside for orders that have been placed but not yet confirmed.
+ * A hold is taken when an order is placed and is either confirmed by the order listener or
+ * released automatically once its time-to-live runs out. Expiry is driven by a hashed timing
+ * wheel, so outstanding holds cost nothing until their bucket comes round.
+ */
+@Service
+public class StockHoldService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockHoldService.class);
+
+    private final StockReservationEngine stockReservationEngine;
+    private final HashedTimingWheel timingWheel;
+    private final long holdTtlMillis;
+    private final Map<UUID, StockHold> holds = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new StockHoldService.
+     *
+     * @param stockReservationEngine the StockReservationEngine that holds the stock
+     * @param holdTtlMillis          how long a hold waits for confirmation
+     * @param tickMillis             the tick duration of the timing wheel
+     * @param ticksPerWheel          the number of buckets of the timing wheel
+     */
+    @Autowired
+    public StockHoldService(StockReservationEngine stockReservationEngine,
+                            @Value("${sr.stock.hold-ttl-ms:30000}") long holdTtlMillis,
+                            @Value("${sr.stock.hold-tick-ms:100}") long tickMillis,
+                            @Value("${sr.stock.hold-ticks-per-wheel:512}") int ticksPerWheel) {
+        this.stockReservationEngine = stockReservationEngine;
+        this.holdTtlMillis = holdTtlMillis;
+        this.timingWheel = new HashedTimingWheel(tickMillis, TimeUnit.MILLISECONDS, ticksPerWheel, "stock-hold-expiry");
+    }
+
+    /**
+     * Holds stock for an order. Either every quantity is held, or none is.
+     *
+     * @param orderTrackId the tracking ID of the order
+     * @param quantities   the quantity to hold per product ID
+     * @return true if the stock was held, false if any stock was insufficient
+     */
+    public boolean hold(UUID orderTrackId, Map<Long, Integer> quantities) {
+        long[] productIds = new long[quantities.size()];
+        int[] amounts = new int[quantities.size()];
+        int held = 0;
+        try {
+            for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+                if (!stockReservationEngine.hold(entry.getKey(), entry.getValue())) {
+                    break;
+                }
+                productIds[held] = entry.getKey();
+                amounts[held] = entry.getValue();
+                held++;
+            }
+        } finally {
+            if (held < productIds.length) {
+                for (int i = 0; i < held; i++) {
+                    stockReservationEngine.releaseHold(productIds[i], amounts[i]);
+                }
+            }
+        }
+        if (held < productIds.length) {
+            return false;
+        }
+
+        StockHold hold = new StockHold(productIds, amounts);
+        holds.put(orderTrackId, hold);
+        hold.timeout = timingWheel.schedule(() -> expire(orderTrackId, hold), holdTtlMillis, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    /**
+     * Confirms the hold of an order, turning the held stock into a stock reservation.
+     *
+     * @param orderTrackId the tracking ID of the order
+     * @return true if a hold was confirmed, false if there was none (for example because it expired)
+     */
+    public boolean confirm(UUID orderTrackId) {
+        StockHold hold = orderTrackId != null ? holds.remove(orderTrackId) : null;
+        if (hold == null) {
+            return false;
+        }
+        hold.cancelTimeout();
+        for (int i = 0; i < hold.productIds.length; i++) {
+            stockReservationEngine.commitHold(hold.productIds[i], hold.quantities[i]);
+        }
+        return true;
+    }
+
+    /**
+     * Releases the hold of an order right away, for example when the order could not be published.
+     *
+     * @param orderTrackId the tracking ID of the order
+     * @return true if a hold was released
+     */
+    public boolean release(UUID orderTrackId) {
+        StockHold hold = orderTrackId != null ? holds.remove(orderTrackId) : null;
+        if (hold == null) {
+            return false;
+        }
+        hold.cancelTimeout();
+        releaseStock(hold);
+        return true;
+    }
+
+    /**
+     * @return the number of holds waiting for confirmation
+     */
+    public int outstanding() {
+        return holds.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timingWheel.close();
+        holds.forEach((orderTrackId, hold) -> {
+            if (holds.remove(orderTrackId, hold)) {
+                releaseStock(hold);
+            }
+        });
+    }
+
+    private void expire(UUID orderTrackId, StockHold hold) {
+        if (holds.remove(orderTrackId, hold)) {
+            logger.info("Stock hold for order {} expired before confirmation", orderTrackId);
+            releaseStock(hold);
+        }
+    }
+
+    private void releaseStock(StockHold hold) {
+        for (int i = 0; i < hold.productIds.length; i++) {
+            stockReservationEngine.releaseHold(hold.productIds[i], hold.quantities[i]);
+        }
+    }
+
+    private static final class StockHold {
+
+        private final long[] productIds;
+        private final int[] quantities;
+        private volatile HashedTimingWheel.Timeout timeout;
+
+        private StockHold(long[] productIds, int[] quantities) {
+            this.productIds = productIds;
+            this.quantities = quantities;
+        }
+
+        private void cancelTimeout() {
+            HashedTimingWheel.Timeout scheduled = timeout;
+            if (scheduled != null) {
+                scheduled.cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,409 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.services;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Product;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * The StockReservationEngine keeps product stock in memory and writes changes behind to the database.
+ * Reservations and releases are lock-free compare-and-set updates on per-product counters; the
+ * accumulated deltas are written to the {@code product.numberinstock} column in the transaction of the
+ * order that caused them, as relative updates, so the stored stock stays exact no matter how the
+ * changes interleave.
+ * <p>
+ * Products listed in {@code sr.stock.hot-skus} get a split counter that spreads their stock
+ * over {@code sr.stock.hot-sku-buckets} buckets, which keeps flash-sale traffic on a few
+ * products from serializing on a single counter.
+ * <p>
+ * The counters are local to this node. They are loaded from the database once and not reread, so
+ * the application must run as a single node: several nodes would each sell the full stock.
+ * <p>
+ * Every update enters its counter first. Evicting a product retires the counter and waits for the
+ * updates in progress before writing its delta, and updates that find a retired counter retry on the
+ * one reloaded from the database, so no reservation is lost to an eviction. Held stock is not in the
+ * database, so the engine counts it per product and takes it off every counter it reloads.
+ */
+@Service
+public class StockReservationEngine {
+
+    static final String APPLY_DELTA_SQL = "UPDATE product SET numberinstock = numberinstock + ? WHERE id = ?";
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationEngine.class);
+
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final int flushBatchSize;
+    private final long[] hotSkus;
+    private final int hotSkuBuckets;
+    private final StockCounterTable counters = new StockCounterTable();
+    private final Map<Long, AtomicInteger> heldStock = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+
+    /**
+     * Constructs a new StockReservationEngine.
+     *
+     * @param productRepository the ProductRepository used to seed counters on first use
+     * @param jdbcTemplate      the JdbcTemplate used to write stock deltas
+     * @param flushBatchSize    the maximum number of products written per JDBC batch
+     * @param hotSkus           comma-separated IDs of products that get split counters
+     * @param hotSkuBuckets     the number of buckets a hot product's stock is split into
+     */
+    @Autowired
+    public StockReservationEngine(ProductRepository productRepository, JdbcTemplate jdbcTemplate,
+                                  @Value("${sr.stock.flush-batch-size:500}") int flushBatchSize,
+                                  @Value("${sr.stock.hot-skus:}") String hotSkus,
+                                  @Value("${sr.stock.hot-sku-buckets:8}") int hotSkuBuckets) {
+        if (hotSkuBuckets < 1) {
+            throw new IllegalArgumentException("sr.stock.hot-sku-buckets must be at least 1");
+        }
+        this.productRepository = productRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.flushBatchSize = flushBatchSize;
+        this.hotSkus = parseIds(hotSkus);
+        this.hotSkuBuckets = hotSkuBuckets;
+    }
+
+    /**
+     * Constructs a new StockReservationEngine without hot products.
+     *
+     * @param productRepository the ProductRepository used to seed counters on first use
+     * @param jdbcTemplate      the JdbcTemplate used to write stock deltas
+     * @param flushBatchSize    the maximum number of products written per JDBC batch
+     */
+    public StockReservationEngine(ProductRepository productRepository, JdbcTemplate jdbcTemplate, int flushBatchSize) {
+        this(productRepository, jdbcTemplate, flushBatchSize, "", 1);
+    }
+
+    /**
+     * Reserves stock for a single product.
+     *
+     * @param productId the ID of the product
+     * @param quantity  the quantity to reserve
+     * @return true if the stock was reserved, false if it was insufficient
+     * @throws RuntimeException if no product is found with the given ID
+     */
+    public boolean reserve(long productId, int quantity) {
+        return update(productId, counter -> {
+            if (!counter.tryTake(quantity)) {
+                return false;
+            }
+            counter.addDelta(-quantity);
+            return true;
+        });
+    }
+
+    /**
+     * Reserves stock for several products at once. Either every quantity is reserved,
+     * or none is.
+     *
+     * @param quantities the quantity to reserve per product ID
+     * @return true if all quantities were reserved, false if any stock was insufficient
+     */
+    public boolean reserveAll(Map<Long, Integer> quantities) {
+        List<Map.Entry<Long, Integer>> reserved = new ArrayList<>(quantities.size());
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            boolean taken;
+            try {
+                taken = reserve(entry.getKey(), entry.getValue());
+            } catch (RuntimeException e) {
+                reserved.forEach(done -> release(done.getKey(), done.getValue()));
+                throw e;
+            }
+            if (!taken) {
+                reserved.forEach(done -> release(done.getKey(), done.getValue()));
+                return false;
+            }
+            reserved.add(entry);
+        }
+        return true;
+    }
+
+    /**
+     * Returns previously reserved stock for a product.
+     *
+     * @param productId the ID of the product
+     * @param quantity  the quantity to release
+     */
+    public void release(long productId, int quantity) {
+        update(productId, counter -> {
+            counter.give(quantity);
+            counter.addDelta(quantity);
+            return true;
+        });
+    }
+
+    /**
+     * Returns previously reserved stock for several products.
+     *
+     * @param quantities the quantity to release per product ID
+     */
+    public void releaseAll(Map<Long, Integer> quantities) {
+        quantities.forEach(this::release);
+    }
+
+    /**
+     * Holds stock for a product in memory only. Held stock is unavailable to other orders
+     * but is not written to the database until the hold is committed, so holds lost in a
+     * crash leave the stored stock untouched.
+     *
+     * @param productId the ID of the product
+     * @param quantity  the quantity to hold
+     * @return true if the stock was held, false if it was insufficient
+     */
+    public boolean hold(long productId, int quantity) {
+        return update(productId, counter -> {
+            if (!counter.tryTake(quantity)) {
+                return false;
+            }
+            held(productId).addAndGet(quantity);
+            return true;
+        });
+    }
+
+    /**
+     * Turns held stock into a reservation that is written to the database.
+     *
+     * @param productId the ID of the product
+     * @param quantity  the held quantity
+     */
+    public void commitHold(long productId, int quantity) {
+        update(productId, counter -> {
+            counter.addDelta(-quantity);
+            held(productId).addAndGet(-quantity);
+            return true;
+        });
+    }
+
+    /**
+     * Makes held stock available again.
+     *
+     * @param productId the ID of the product
+     * @param quantity  the held quantity
+     */
+    public void releaseHold(long productId, int quantity) {
+        update(productId, counter -> {
+            counter.give(quantity);
+            held(productId).addAndGet(-quantity);
+            return true;
+        });
+    }
+
+    /**
+     * Tells whether a product uses a split counter.
+     *
+     * @param productId the ID of the product
+     * @return true if the product is configured as a hot product
+     */
+    public boolean isHot(long productId) {
+        return Arrays.binarySearch(hotSkus, productId) >= 0;
+    }
+
+    /**
+     * Returns the in-memory stock of a product, if the engine is tracking it.
+     * For hot products this is the sum over all buckets.
+     *
+     * @param productId the ID of the product
+     * @return the available stock, or null if the product has not been loaded yet
+     */
+    public Integer available(long productId) {
+        StockCounter counter = counters.get(productId);
+        return counter != null ? counter.available() : null;
+    }
+
+    /**
+     * Writes the pending deltas of a product and stops tracking it, so the next access
+     * reloads the stock from the database. Used when stock is overwritten directly; the reloaded
+     * counter starts from the stored stock less the outstanding holds. Updates of the product
+     * wait until the delta is written and then go to the reloaded counter.
+     *
+     * @param productId the ID of the product
+     */
+    public void evict(long productId) {
+        synchronized (flushLock) {
+            StockCounter counter = counters.get(productId);
+            if (counter == null) {
+                return;
+            }
+            counter.retire();
+            int delta = counter.drainDelta();
+            try {
+                if (delta != 0) {
+                    jdbcTemplate.update(APPLY_DELTA_SQL, delta, productId);
+                }
+            } catch (RuntimeException e) {
+                counter.addDelta(delta);
+                counter.reopen();
+                throw e;
+            }
+            counters.remove(productId);
+        }
+    }
+
+    /**
+     * Writes all pending stock deltas to the database in batches, on shutdown. It does not run on a
+     * timer, as that would write reservations whose orders have not committed; a redelivered order
+     * would then take its stock twice. Deltas that fail to be written are kept for the next flush.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            List<StockCounter> drained = new ArrayList<>();
+            List<Object[]> batch = new ArrayList<>();
+            counters.forEach(counter -> {
+                int delta = counter.drainDelta();
+                if (delta != 0) {
+                    drained.add(counter);
+                    batch.add(new Object[]{delta, counter.getProductId()});
+                }
+            });
+
+            // a failed JDBC batch is rolled back as a whole, so its deltas can be restored as-is
+            for (int from = 0; from < batch.size(); from += flushBatchSize) {
+                int to = Math.min(from + flushBatchSize, batch.size());
+                try {
+                    jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, batch.subList(from, to));
+                } catch (RuntimeException e) {
+                    logger.error("Error occurred while flushing stock deltas, keeping {} for retry", batch.size() - from, e);
+                    restore(drained, batch, from);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the pending deltas of the given products as part of the caller's transaction,
+     * so stock changes commit together with the orders that caused them. If the transaction
+     * rolls back, the deltas are kept and written by a later flush. Products are written in ascending
+     * ID order, so concurrent transactions lock their rows in the same order and cannot deadlock.
+     *
+     * @param productIds the IDs of the products to write
+     */
+    public void flush(Collection<Long> productIds) {
+        List<StockCounter> drained = new ArrayList<>();
+        List<Object[]> batch = new ArrayList<>();
+        for (Long productId : productIds.stream().sorted().toList()) {
+            StockCounter counter = counters.get(productId);
+            int delta = counter != null ? counter.drainDelta() : 0;
+            if (delta != 0) {
+                drained.add(counter);
+                batch.add(new Object[]{delta, productId});
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        boolean inTransaction = TransactionSynchronizationManager.isSynchronizationActive();
+        if (inTransaction) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        restore(drained, batch, 0);
+                    }
+                }
+            });
+        }
+        try {
+            jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, batch);
+        } catch (RuntimeException e) {
+            if (!inTransaction) {
+                restore(drained, batch, 0);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Puts deltas that were not written back. A counter evicted in the meantime is not written
+     * again, so its delta goes to the counter that replaced it.
+     */
+    private void restore(List<StockCounter> drained, List<Object[]> batch, int from) {
+        for (int i = from; i < batch.size(); i++) {
+            StockCounter counter = drained.get(i);
+            int delta = (Integer) batch.get(i)[0];
+            if (counter.enter()) {
+                try {
+                    counter.addDelta(delta);
+                } finally {
+                    counter.exit();
+                }
+            } else {
+                update(counter.getProductId(), replacement -> {
+                    replacement.addDelta(delta);
+                    return true;
+                });
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * Applies an update to the product's counter, retrying on a fresh counter while it is being evicted.
+     */
+    private boolean update(long productId, Predicate<StockCounter> update) {
+        for (;;) {
+            StockCounter counter = counterFor(productId);
+            if (counter.enter()) {
+                try {
+                    return update.test(counter);
+                } finally {
+                    counter.exit();
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private StockCounter counterFor(long productId) {
+        StockCounter counter = counters.get(productId);
+        if (counter != null) {
+            return counter;
+        }
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
+        // holds change the counter inside an update, so none can slip between this read and the new counter
+        int stock = (product.getNumberInStock() != null ? product.getNumberInStock() : 0) - held(productId).get();
+        StockCounter created = isHot(productId)
+                ? new SplitStockCounter(productId, stock, hotSkuBuckets)
+                : new AtomicStockCounter(productId, stock);
+        return counters.putIfAbsent(created);
+    }
+
+    private AtomicInteger held(long productId) {
+        return heldStock.computeIfAbsent(productId, id -> new AtomicInteger());
+    }
+
+    private static long[] parseIds(String ids) {
+        if (ids == null || ids.isBlank()) {
+            return new long[0];
+        }
+        return Arrays.stream(ids.split(","))
+                .map(String::trim)
+                .filter(id -> !id.isEmpty())
+                .mapToLong(Long::parseLong)
+                .sorted()
+                .toArray();
+    }
+}
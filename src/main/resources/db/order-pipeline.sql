@@ -0,0 +1,20 @@
+-- Tables used by the order pipeline next to the JPA entities. Apply once per database.
+
+-- Order events waiting to be published; rows are deleted once the broker has confirmed them.
+CREATE TABLE IF NOT EXISTS order_outbox (
+    id             BIGSERIAL    PRIMARY KEY,
+    routing_key    VARCHAR(255) NOT NULL,
+    order_track_id UUID         NOT NULL,
+    payload        BYTEA        NOT NULL,
+    created_at     TIMESTAMP    NOT NULL DEFAULT now(),
+    attempts       INTEGER      NOT NULL DEFAULT 0
+);
+-- Publish attempts of an event that were not confirmed; for tables created before the column existed.
+ALTER TABLE order_outbox ADD COLUMN IF NOT EXISTS attempts INTEGER NOT NULL DEFAULT 0;
+
+-- Consumers skip orders whose track ID is already stored, so a redelivered order is written once.
+-- Remove duplicate track IDs left by earlier redeliveries before creating the index.
+CREATE UNIQUE INDEX IF NOT EXISTS orders_ordertrackid_key ON orders (ordertrackid);
+
+-- Customers whose orders go to the express lane; set by operators, the API never changes it.
+ALTER TABLE customer ADD COLUMN IF NOT EXISTS express BOOLEAN NOT NULL DEFAULT false;
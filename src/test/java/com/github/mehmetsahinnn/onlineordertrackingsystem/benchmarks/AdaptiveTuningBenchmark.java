@@ -0,0 +1,119 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.benchmarks;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners.AdaptiveListenerTuner;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulates four partition consumers under a bursty load, with a phase where the database is slow,
+ * and compares fixed listener settings with the {@link AdaptiveListenerTuner}. A consumer takes a batch
+ * once it is full or its oldest message has waited the receive timeout, and may only write while fewer
+ * than the allowed number of consumers are writing. A commit costs a fixed part plus a part per row,
+ * and grows with the number of concurrent writers. Reports the order latency and how long the queues
+ * take to drain after the last arrival. Time is simulated, so the run is deterministic and fast.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class AdaptiveTuningBenchmark {
+
+    private static final int PARTITIONS = 4;
+    private static final int DURATION_MS = 30_000;
+    private static final long RECEIVE_TIMEOUT_MS = 200;
+    private static final double COMMIT_BASE_MS = 2;
+    private static final double COMMIT_PER_ROW_MS = 0.02;
+    private static final double CONTENTION_PER_WRITER = 0.6;
+    private static final long TUNE_INTERVAL_MS = 1000;
+
+    @Test
+    public void staticSettingsAgainstTuner() {
+        System.out.printf("%-16s %-12s %-12s %-12s %-12s%n", "settings", "p50 ms", "p99 ms", "max ms", "drain ms");
+        int[][] fixedSettings = {{10, 1}, {50, 4}, {400, 4}};
+        for (int[] settings : fixedSettings) {
+            report("batch " + settings[0] + " x" + settings[1], simulate(AdaptiveListenerTuner.fixed(settings[0], settings[1])));
+        }
+        report("adaptive", simulate(new AdaptiveListenerTuner(null, null, true, 50, 10, 400, 20, 1000, 1, PARTITIONS, 1, 20, 1000, 0, 4)));
+    }
+
+    private static void report(String name, Result result) {
+        long[] latencies = result.latencies;
+        Arrays.sort(latencies);
+        System.out.printf("%-16s %-12d %-12d %-12d %-12d%n", name, latencies[latencies.length / 2],
+                latencies[(int) Math.min(latencies.length - 1, Math.ceil(0.99 * latencies.length) - 1)],
+                latencies[latencies.length - 1], result.drainMs);
+    }
+
+    /**
+     * Orders arrive at 1500/s, with a 15000/s burst from 10s to 13s; from 18s to 25s commits are four times slower.
+     */
+    private static int arrivalsPerSecond(long now) {
+        return now >= 10_000 && now < 13_000 ? 15_000 : 1_500;
+    }
+
+    private static double slowdown(long now) {
+        return now >= 18_000 && now < 25_000 ? 4 : 1;
+    }
+
+    private static Result simulate(AdaptiveListenerTuner tuner) {
+        Random random = new Random(7);
+        @SuppressWarnings("unchecked")
+        Deque<Long>[] queues = new Deque[PARTITIONS];
+        long[] busyUntil = new long[PARTITIONS];
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            queues[partition] = new ArrayDeque<>();
+        }
+        long[] latencies = new long[DURATION_MS * 20];
+        int completed = 0;
+        long lastCompletion = 0;
+        long queued = 0;
+
+        for (long now = 0; now < DURATION_MS || queued > 0; now++) {
+            if (now < DURATION_MS) {
+                double expected = arrivalsPerSecond(now) / 1000.0;
+                int arrivals = (int) expected + (random.nextDouble() < expected - (int) expected ? 1 : 0);
+                for (int i = 0; i < arrivals; i++) {
+                    queues[random.nextInt(PARTITIONS)].addLast(now);
+                }
+                queued += arrivals;
+            }
+            if (now % TUNE_INTERVAL_MS == 0) {
+                tuner.tune(queued);
+            }
+
+            int writing = 0;
+            for (long until : busyUntil) {
+                writing += until > now ? 1 : 0;
+            }
+            for (int partition = 0; partition < PARTITIONS; partition++) {
+                Deque<Long> queue = queues[partition];
+                boolean ready = queue.size() >= tuner.batchSize()
+                        || (!queue.isEmpty() && (now - queue.peekFirst() >= RECEIVE_TIMEOUT_MS || now >= DURATION_MS));
+                if (busyUntil[partition] > now || !ready || writing >= tuner.consumers()) {
+                    continue;
+                }
+                int rows = Math.min(queue.size(), tuner.batchSize());
+                writing++;
+                double commitMs = (COMMIT_BASE_MS + COMMIT_PER_ROW_MS * rows) * slowdown(now)
+                        * (1 + CONTENTION_PER_WRITER * (writing - 1));
+                long finish = now + Math.max(1, Math.round(commitMs));
+                busyUntil[partition] = finish;
+                for (int i = 0; i < rows; i++) {
+                    latencies[completed++] = finish - queue.pollFirst();
+                }
+                queued -= rows;
+                lastCompletion = Math.max(lastCompletion, finish);
+                tuner.recordCommit(TimeUnit.MILLISECONDS.toNanos(finish - now));
+                tuner.recordProcessing(rows, TimeUnit.MILLISECONDS.toNanos(finish - now));
+            }
+        }
+        return new Result(Arrays.copyOf(latencies, completed), Math.max(0, lastCompletion - DURATION_MS));
+    }
+
+    private record Result(long[] latencies, long drainMs) {
+    }
+}
@@ -0,0 +1,131 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.benchmarks;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions.OrderOverloadException;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.producers.OrderPartitioner;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.OrderAdmissionControl;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.concurrent.locks.LockSupport.parkNanos;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measures the end-to-end latency of orders, from being admitted to being confirmed, while orders arrive
+ * twice as fast as one consumer confirms them: 4000 orders per second against batches of 20 orders that
+ * take 10 ms. Without admission control the backlog, and with it the latency, grows for as long as the
+ * overload lasts. With it the queue is sampled every 50 ms, orders are shed from a backlog of 1000 until
+ * it is back below 500, and latency stays bounded by the time to drain the high watermark.
+ * Reports the orders admitted and shed per second, confirmation latency, and the backlog and age of the
+ * oldest waiting order when the overload ends.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class AdmissionControlBenchmark {
+
+    private static final int BATCH_SIZE = 20;
+    private static final long BATCH_MS = 10;
+    private static final int ARRIVALS_PER_TICK = 40;
+    private static final long TICK_MS = 10;
+    private static final long SAMPLE_INTERVAL_MS = 50;
+    private static final long RUN_MS = 4000;
+
+    @Test
+    public void latencyUnderOverload() throws InterruptedException {
+        System.out.printf("%-20s %-12s %-10s %-10s %-10s %-10s %-10s %-14s%n",
+                "setup", "admitted/s", "shed/s", "p50 ms", "p99 ms", "max ms", "backlog", "oldest ms");
+        run("no admission", OrderAdmissionControl.unlimited(), null);
+        BlockingQueue<Long> queue = new LinkedBlockingQueue<>();
+        run("admission control", admissionControl(queue), queue);
+    }
+
+    private static OrderAdmissionControl admissionControl(BlockingQueue<Long> queue) {
+        AmqpAdmin amqpAdmin = mock(AmqpAdmin.class);
+        when(amqpAdmin.getQueueInfo(anyString())).thenAnswer(invocation -> "order-queue.0".equals(invocation.getArgument(0))
+                ? new QueueInformation("order-queue.0", queue.size(), 1) : null);
+        return new OrderAdmissionControl(amqpAdmin, new OrderPartitioner("order-routing", 1), null, null, "order-queue",
+                true, 1000, 500, 500, 30);
+    }
+
+    private static void run(String name, OrderAdmissionControl admissionControl, BlockingQueue<Long> sampledQueue)
+            throws InterruptedException {
+        BlockingQueue<Long> queue = sampledQueue != null ? sampledQueue : new LinkedBlockingQueue<>();
+        List<Long> latencies = new ArrayList<>();
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RUN_MS);
+
+        Thread consumer = start(() -> {
+            List<Long> batch = new ArrayList<>(BATCH_SIZE);
+            while (System.nanoTime() < end) {
+                batch.clear();
+                try {
+                    Long first = queue.poll(BATCH_MS, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                parkNanos(TimeUnit.MILLISECONDS.toNanos(BATCH_MS));
+                long confirmed = System.nanoTime();
+                for (long admitted : batch) {
+                    latencies.add(confirmed - admitted);
+                }
+            }
+        });
+        Thread sampler = start(() -> {
+            while (System.nanoTime() < end) {
+                admissionControl.sample();
+                parkNanos(TimeUnit.MILLISECONDS.toNanos(SAMPLE_INTERVAL_MS));
+            }
+        });
+        long admitted = 0;
+        long shed = 0;
+        long next = System.nanoTime();
+        while (next < end) {
+            for (int i = 0; i < ARRIVALS_PER_TICK; i++) {
+                try {
+                    admissionControl.admit();
+                    queue.add(System.nanoTime());
+                    admitted++;
+                } catch (OrderOverloadException e) {
+                    shed++;
+                }
+            }
+            next += TimeUnit.MILLISECONDS.toNanos(TICK_MS);
+            parkNanos(next - System.nanoTime());
+        }
+        consumer.join();
+        sampler.join();
+
+        Long oldest = queue.peek();
+        latencies.sort(null);
+        double seconds = RUN_MS / 1000.0;
+        System.out.printf("%-20s %-12.0f %-10.0f %-10.0f %-10.0f %-10.0f %-10d %-14.0f%n", name, admitted / seconds, shed / seconds,
+                percentile(latencies, 50), percentile(latencies, 99), percentile(latencies, 100), queue.size(),
+                oldest != null ? (System.nanoTime() - oldest) / 1e6 : 0.0);
+    }
+
+    private static double percentile(List<Long> sorted, int percentile) {
+        if (sorted.isEmpty()) {
+            return Double.NaN;
+        }
+        return sorted.get(Math.min(sorted.size() - 1, sorted.size() * percentile / 100)) / 1e6;
+    }
+
+    private static Thread start(Runnable task) {
+        Thread thread = new Thread(task);
+        thread.start();
+        return thread;
+    }
+}
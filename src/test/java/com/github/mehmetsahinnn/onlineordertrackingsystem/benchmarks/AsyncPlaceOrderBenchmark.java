@@ -0,0 +1,120 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.benchmarks;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.OrderPlacementTracker;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.locks.LockSupport.parkNanos;
+
+/**
+ * Measures how many orders 200 concurrent clients get placed through a pool of 20 request threads, the
+ * size of a small Tomcat pool. Placing an order reads the products for 5 ms and then waits 20 ms for the
+ * broker to confirm the publish. The synchronous endpoint holds its request thread for both; the
+ * asynchronous one hands the order to the {@link OrderPlacementTracker} and answers 202 at once, and the
+ * placement thread is only held for the read, as the confirmation completes a future instead of being waited for.
+ * Reports orders placed per second, the time from submission to outcome, and the request thread time per order.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class AsyncPlaceOrderBenchmark {
+
+    private static final int REQUEST_THREADS = 20;
+    private static final int CLIENTS = 200;
+    private static final long READ_MS = 5;
+    private static final long CONFIRM_MS = 20;
+    private static final long RUN_MS = 3000;
+
+    private static final ScheduledExecutorService BROKER = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "broker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Test
+    public void placementThroughputWithTwentyRequestThreads() throws InterruptedException {
+        System.out.printf("%-8s %-10s %-10s %-10s %-18s%n", "setup", "orders/s", "p50 ms", "p99 ms", "request thread ms");
+        run("sync", null);
+        OrderPlacementTracker tracker = new OrderPlacementTracker(16, 10_000, 100_000);
+        run("async", tracker);
+        tracker.shutdown();
+    }
+
+    private static void run(String name, OrderPlacementTracker tracker) throws InterruptedException {
+        ExecutorService requestThreads = Executors.newFixedThreadPool(REQUEST_THREADS);
+        AtomicLong requestThreadNanos = new AtomicLong();
+        List<Long> latencies = new ArrayList<>();
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RUN_MS);
+
+        List<Thread> clients = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            Thread client = new Thread(() -> {
+                while (System.nanoTime() < end) {
+                    long submitted = System.nanoTime();
+                    try {
+                        CompletableFuture<?> outcome = requestThreads.submit(() -> {
+                            long start = System.nanoTime();
+                            try {
+                                return tracker == null ? placeSynchronously() : tracker.submit(UUID.randomUUID(), AsyncPlaceOrderBenchmark::place);
+                            } finally {
+                                requestThreadNanos.addAndGet(System.nanoTime() - start);
+                            }
+                        }).get();
+                        outcome.get();
+                    } catch (Exception e) {
+                        return;
+                    }
+                    long latency = System.nanoTime() - submitted;
+                    synchronized (latencies) {
+                        latencies.add(latency);
+                    }
+                }
+            });
+            client.start();
+            clients.add(client);
+        }
+        for (Thread client : clients) {
+            client.join();
+        }
+        requestThreads.shutdown();
+
+        latencies.sort(null);
+        System.out.printf("%-8s %-10.0f %-10.1f %-10.1f %-18.3f%n", name, latencies.size() / (RUN_MS / 1000.0),
+                percentile(latencies, 50), percentile(latencies, 99), requestThreadNanos.get() / 1e6 / latencies.size());
+    }
+
+    /**
+     * What the synchronous endpoint does on its request thread.
+     */
+    private static CompletableFuture<Void> placeSynchronously() {
+        CompletableFuture<Void> confirm = place();
+        confirm.join();
+        return confirm;
+    }
+
+    /**
+     * Reads the products, then publishes and returns the broker's confirmation.
+     */
+    private static CompletableFuture<Void> place() {
+        parkNanos(TimeUnit.MILLISECONDS.toNanos(READ_MS));
+        CompletableFuture<Void> confirm = new CompletableFuture<>();
+        BROKER.schedule(() -> confirm.complete(null), CONFIRM_MS, TimeUnit.MILLISECONDS);
+        return confirm;
+    }
+
+    private static double percentile(List<Long> sorted, int percentile) {
+        if (sorted.isEmpty()) {
+            return Double.NaN;
+        }
+        return sorted.get(Math.min(sorted.size() - 1, sorted.size() * percentile / 100)) / 1e6;
+    }
+}
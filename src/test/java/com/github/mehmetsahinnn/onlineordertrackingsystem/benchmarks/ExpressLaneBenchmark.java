@@ -0,0 +1,151 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.benchmarks;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners.OrderLaneGate;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.concurrent.locks.LockSupport.parkNanos;
+
+/**
+ * Measures the confirmation latency of express and normal orders while normal orders saturate four
+ * partition consumers, each of which always has a backlog of orders waiting. Express orders arrive
+ * every 2 ms. Without a lane they are queued on the partitions behind the backlog; with a lane they
+ * have two consumers of their own that either compete for the four writers with priority, or also have
+ * one writer reserved for them. A commit takes 2 ms plus 0.05 ms per order.
+ * Reports p50 and p99 latency per lane and the number of normal orders confirmed per second.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class ExpressLaneBenchmark {
+
+    private static final int PARTITIONS = 4;
+    private static final int BULK_BATCH = 50;
+    private static final int BULK_BACKLOG = 2000;
+    private static final int EXPRESS_CONSUMERS = 2;
+    private static final int EXPRESS_BATCH = 10;
+    private static final long EXPRESS_RECEIVE_TIMEOUT_MS = 20;
+    private static final long EXPRESS_INTERVAL_US = 2000;
+    private static final long RUN_MS = 5000;
+
+    @Test
+    public void expressLatencyUnderBulkSaturation() throws InterruptedException {
+        System.out.printf("%-22s %-12s %-12s %-12s %-12s %-12s%n", "setup", "express p50", "express p99", "normal p50", "normal p99", "normal/s");
+        run("single lane", false, 0);
+        run("express lane", true, 0);
+        run("express lane + 1 rsv", true, 1);
+    }
+
+    private static void run(String name, boolean expressLane, int reservedWriters) throws InterruptedException {
+        OrderLaneGate gate = new OrderLaneGate(PARTITIONS, reservedWriters, 4);
+        List<BlockingQueue<Pending>> partitions = new ArrayList<>();
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+            for (int i = 0; i < BULK_BACKLOG; i++) {
+                queue.add(new Pending(System.nanoTime(), false));
+            }
+            partitions.add(queue);
+        }
+        BlockingQueue<Pending> expressQueue = new LinkedBlockingQueue<>();
+        Latencies express = new Latencies();
+        Latencies bulk = new Latencies();
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RUN_MS);
+
+        List<Thread> threads = new ArrayList<>();
+        for (BlockingQueue<Pending> queue : partitions) {
+            threads.add(start(() -> consume(queue, BULK_BATCH, false, gate, end, express, bulk)));
+        }
+        if (expressLane) {
+            for (int i = 0; i < EXPRESS_CONSUMERS; i++) {
+                threads.add(start(() -> consume(expressQueue, EXPRESS_BATCH, true, gate, end, express, bulk)));
+            }
+        }
+        threads.add(start(() -> {
+            while (System.nanoTime() < end) {
+                Pending order = new Pending(System.nanoTime(), true);
+                if (expressLane) {
+                    expressQueue.add(order);
+                } else {
+                    partitions.get(ThreadLocalRandom.current().nextInt(PARTITIONS)).add(order);
+                }
+                for (BlockingQueue<Pending> queue : partitions) {
+                    while (queue.size() < BULK_BACKLOG) {
+                        queue.add(new Pending(System.nanoTime(), false));
+                    }
+                }
+                parkNanos(TimeUnit.MICROSECONDS.toNanos(EXPRESS_INTERVAL_US));
+            }
+        }));
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        System.out.printf("%-22s %-12.1f %-12.1f %-12.1f %-12.1f %-12.0f%n", name, express.percentile(50), express.percentile(99),
+                bulk.percentile(50), bulk.percentile(99), bulk.count() / (RUN_MS / 1000.0));
+    }
+
+    private static Thread start(Runnable task) {
+        Thread thread = new Thread(task);
+        thread.start();
+        return thread;
+    }
+
+    private static void consume(BlockingQueue<Pending> queue, int batchSize, boolean expressLane, OrderLaneGate gate,
+                                long end, Latencies express, Latencies bulk) {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (System.nanoTime() < end) {
+            batch.clear();
+            try {
+                Pending first = queue.poll(EXPRESS_RECEIVE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+            } catch (InterruptedException e) {
+                return;
+            }
+            boolean reserved = gate.acquire(expressLane);
+            try {
+                parkNanos(TimeUnit.MICROSECONDS.toNanos(2000 + 50L * batch.size()));
+            } finally {
+                gate.release(reserved);
+            }
+            long confirmed = System.nanoTime();
+            for (Pending order : batch) {
+                (order.express() ? express : bulk).record(confirmed - order.enqueued());
+            }
+        }
+    }
+
+    private record Pending(long enqueued, boolean express) {
+    }
+
+    private static final class Latencies {
+
+        private final List<Long> nanos = new ArrayList<>();
+
+        synchronized void record(long latency) {
+            nanos.add(latency);
+        }
+
+        synchronized int count() {
+            return nanos.size();
+        }
+
+        synchronized double percentile(int percentile) {
+            if (nanos.isEmpty()) {
+                return Double.NaN;
+            }
+            List<Long> sorted = new ArrayList<>(nanos);
+            sorted.sort(null);
+            return sorted.get(Math.min(sorted.size() - 1, sorted.size() * percentile / 100)) / 1e6;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.benchmarks;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Product;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.ProductRepository;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.StockReservationEngine;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares orders/sec on a single hot product for three stock paths:
+ * the current single-row read-modify-write (modelled as a row lock held for one round trip),
+ * a single CAS counter, and a split counter with one bucket per core.
+ * Every path must sell exactly the initial stock and no more.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class HotSkuBenchmark {
+
+    private static final int THREADS = 32;
+    private static final int STOCK = 2_000_000;
+    private static final long ROW_LOCK_HOLD_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    @Test
+    public void hotSkuThroughput() throws Exception {
+        int buckets = Runtime.getRuntime().availableProcessors();
+
+        Product singleRow = new Product(1L, "Hot", "Flash sale", "Category", 10.0, 20_000);
+        double rowOps = run(() -> {
+            synchronized (singleRow) {
+                LockSupport.parkNanos(ROW_LOCK_HOLD_NANOS);
+                if (singleRow.getNumberInStock() < 1) {
+                    return false;
+                }
+                singleRow.setNumberInStock(singleRow.getNumberInStock() - 1);
+                return true;
+            }
+        }, 20_000);
+
+        StockReservationEngine atomicEngine = engine("", buckets);
+        double atomicOps = run(() -> atomicEngine.reserve(1L, 1), STOCK);
+
+        StockReservationEngine splitEngine = engine("1", buckets);
+        double splitOps = run(() -> splitEngine.reserve(1L, 1), STOCK);
+
+        System.out.printf("%-22s %,14.0f orders/sec%n", "single row (locked)", rowOps);
+        System.out.printf("%-22s %,14.0f orders/sec%n", "single CAS counter", atomicOps);
+        System.out.printf("%-22s %,14.0f orders/sec (%d buckets)%n", "split counter", splitOps, buckets);
+    }
+
+    private static StockReservationEngine engine(String hotSkus, int buckets) {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        when(productRepository.findById(1L))
+                .thenReturn(Optional.of(new Product(1L, "Hot", "Flash sale", "Category", 10.0, STOCK)));
+        return new StockReservationEngine(productRepository, mock(JdbcTemplate.class), 500, hotSkus, buckets);
+    }
+
+    /**
+     * Runs the take operation from all threads until the stock is gone.
+     *
+     * @return the number of successful takes per second
+     */
+    private static double run(Callable<Boolean> take, int expectedSold) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger sold = new AtomicInteger();
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(pool.submit(() -> {
+                start.await();
+                int misses = 0;
+                while (misses < 3) {
+                    if (take.call()) {
+                        sold.incrementAndGet();
+                        misses = 0;
+                    } else {
+                        misses++;
+                    }
+                }
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(5, TimeUnit.MINUTES);
+        }
+        long elapsed = System.nanoTime() - begin;
+        pool.shutdown();
+
+        assertEquals(expectedSold, sold.get(), "stock must be sold exactly once");
+        return sold.get() / (elapsed / 1e9);
+    }
+}
@@ -0,0 +1,226 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticdocuments.OrderDocument;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.enums.OrderStatus;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.convert.MappingElasticsearchConverter;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.data.elasticsearch.core.mapping.SimpleElasticsearchMappingContext;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static java.util.concurrent.locks.LockSupport.parkNanos;
+
+/**
+ * Compares answering the order analytics by listing the orders of a month and grouping them in memory with
+ * the size-0 aggregation searches. The month has 100,000 orders of 500 customers. A simulated Elasticsearch
+ * answers each request after a 2 ms round trip plus 5 us per order returned, or 0.2 us per order aggregated;
+ * the client parses what it receives, mapping each listed order from its JSON source as the repository does,
+ * and reading the buckets of an aggregation. The aggregations are precomputed, so a cached answer costs the
+ * same as a fresh one here; the cache only saves the time Elasticsearch spends aggregating.
+ * Reports the latency of each analytic and the size of the response it needs.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class OrderAnalyticsBenchmark {
+
+    private static final long ROUND_TRIP_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+    private static final long PER_ORDER_LISTED_NANOS = TimeUnit.MICROSECONDS.toNanos(5);
+    private static final long PER_ORDER_AGGREGATED_NANOS = 200;
+    private static final int ORDERS = 100_000;
+    private static final int CUSTOMERS = 500;
+    private static final int TOP_CUSTOMERS = 100;
+    private static final int WARMUP = 3;
+    private static final int RUNS = 10;
+    private static final LocalDateTime FIRST_ORDER = LocalDateTime.of(2024, 7, 1, 0, 0);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final MappingElasticsearchConverter converter = new MappingElasticsearchConverter(new SimpleElasticsearchMappingContext());
+    private final List<OrderDocument> orders = new ArrayList<>(ORDERS);
+    private byte[] listed;
+
+    @Test
+    public void latencyAndPayloadPerAnalytic() throws Exception {
+        converter.afterPropertiesSet();
+        Random random = new Random(42);
+        OrderStatus[] statuses = OrderStatus.values();
+        StringBuilder hits = new StringBuilder("[");
+        for (int i = 0; i < ORDERS; i++) {
+            LocalDateTime orderDate = FIRST_ORDER.plusSeconds(26L * i);
+            OrderDocument order = new OrderDocument("order-" + i, "user" + i % CUSTOMERS, 1L + random.nextInt(CUSTOMERS),
+                    statuses[random.nextInt(statuses.length)], orderDate, orderDate.plusDays(2 + random.nextInt(8)));
+            orders.add(order);
+            hits.append(i > 0 ? "," : "").append(converter.mapObject(order).toJson());
+        }
+        listed = hits.append(']').toString().getBytes(StandardCharsets.UTF_8);
+
+        byte[] perDay = objectMapper.writeValueAsBytes(perDayResponse());
+        byte[] perCustomer = objectMapper.writeValueAsBytes(perCustomerResponse());
+        byte[] delays = objectMapper.writeValueAsBytes(delaysResponse());
+
+        System.out.printf("%-15s %-18s %-10s %-12s%n", "analytic", "approach", "ms/call", "KB/response");
+        run("status per day", "list then group", listed.length, () -> byDayAndStatus(list()));
+        run("status per day", "aggregation", perDay.length, () -> readPerDay(aggregate(perDay)));
+        run("customers", "list then group", listed.length, () -> byCustomer(list()));
+        run("customers", "aggregation", perCustomer.length, () -> readPerCustomer(aggregate(perCustomer)));
+        run("delivery delays", "list then group", listed.length, () -> delays(list()));
+        run("delivery delays", "aggregation", delays.length, () -> readDelays(aggregate(delays)));
+    }
+
+    private static void run(String analytic, String approach, int responseBytes, Analytic query) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            query.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            query.run();
+        }
+        System.out.printf("%-15s %-18s %-10.1f %-12.1f%n", analytic, approach, (System.nanoTime() - start) / 1e6 / RUNS, responseBytes / 1024.0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<OrderDocument> list() throws Exception {
+        parkNanos(ROUND_TRIP_NANOS + PER_ORDER_LISTED_NANOS * ORDERS);
+        List<Map<String, Object>> sources = objectMapper.readValue(listed, List.class);
+        List<OrderDocument> found = new ArrayList<>(sources.size());
+        for (Map<String, Object> source : sources) {
+            found.add(converter.mapDocument(Document.from(source), OrderDocument.class));
+        }
+        return found;
+    }
+
+    private JsonNode aggregate(byte[] response) throws Exception {
+        parkNanos(ROUND_TRIP_NANOS + PER_ORDER_AGGREGATED_NANOS * ORDERS);
+        return objectMapper.readTree(response);
+    }
+
+    private static Map<LocalDate, Map<OrderStatus, Long>> byDayAndStatus(List<OrderDocument> orders) {
+        return orders.stream().collect(Collectors.groupingBy(order -> order.getOrderDate().toLocalDate(), TreeMap::new,
+                Collectors.groupingBy(OrderDocument::getStatus, () -> new EnumMap<>(OrderStatus.class), Collectors.counting())));
+    }
+
+    private static Map<Long, Long> byCustomer(List<OrderDocument> orders) {
+        return orders.stream().collect(Collectors.groupingBy(OrderDocument::getCustomerId, Collectors.counting()))
+                .entrySet().stream()
+                .sorted(Map.Entry.<Long, Long>comparingByValue().reversed())
+                .limit(TOP_CUSTOMERS)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    private static Map<Object, Object> delays(List<OrderDocument> orders) {
+        double[] days = orders.stream()
+                .mapToDouble(order -> Duration.between(order.getOrderDate(), order.getEstimatedDeliveryDate()).toMillis() / 86_400_000.0)
+                .sorted()
+                .toArray();
+        Map<Object, Object> delays = new LinkedHashMap<>();
+        for (double day : days) {
+            delays.merge((long) Math.floor(day), 1L, (a, b) -> (Long) a + (Long) b);
+        }
+        for (double percent : new double[]{50, 90, 95, 99}) {
+            delays.put(percent, days[(int) Math.min(days.length - 1, Math.ceil(percent / 100 * days.length) - 1)]);
+        }
+        return delays;
+    }
+
+    private static Map<LocalDate, Map<OrderStatus, Long>> readPerDay(JsonNode response) {
+        Map<LocalDate, Map<OrderStatus, Long>> ordersByDay = new LinkedHashMap<>();
+        for (JsonNode day : response.at("/aggregations/days/buckets")) {
+            Map<OrderStatus, Long> ordersByStatus = new EnumMap<>(OrderStatus.class);
+            for (JsonNode status : day.at("/statuses/buckets")) {
+                ordersByStatus.put(OrderStatus.valueOf(status.get("key").asText()), status.get("doc_count").asLong());
+            }
+            ordersByDay.put(LocalDate.parse(day.get("key_as_string").asText().substring(0, 10)), ordersByStatus);
+        }
+        return ordersByDay;
+    }
+
+    private static Map<Long, Long> readPerCustomer(JsonNode response) {
+        Map<Long, Long> ordersByCustomer = new LinkedHashMap<>();
+        for (JsonNode customer : response.at("/aggregations/customers/buckets")) {
+            ordersByCustomer.put(customer.get("key").asLong(), customer.get("doc_count").asLong());
+        }
+        return ordersByCustomer;
+    }
+
+    private static Map<Object, Object> readDelays(JsonNode response) {
+        Map<Object, Object> delays = new LinkedHashMap<>();
+        for (JsonNode delay : response.at("/aggregations/delays/buckets")) {
+            delays.put(delay.get("key").asLong(), delay.get("doc_count").asLong());
+        }
+        response.at("/aggregations/percentiles/values").fields()
+                .forEachRemaining(value -> delays.put(Double.parseDouble(value.getKey()), value.getValue().asDouble()));
+        return delays;
+    }
+
+    /**
+     * Builds the body Elasticsearch returns for the orders per day and status, as it would serialize it.
+     */
+    private ObjectNode perDayResponse() {
+        ObjectNode response = response();
+        ArrayNode days = response.putObject("aggregations").putObject("days").putArray("buckets");
+        byDayAndStatus(orders).forEach((day, statuses) -> {
+            ObjectNode bucket = days.addObject()
+                    .put("key_as_string", day.atStartOfDay() + ":00.000Z")
+                    .put("key", day.toEpochDay() * 86_400_000L)
+                    .put("doc_count", statuses.values().stream().mapToLong(Long::longValue).sum());
+            ArrayNode buckets = bucket.putObject("statuses")
+                    .put("doc_count_error_upper_bound", 0)
+                    .put("sum_other_doc_count", 0)
+                    .putArray("buckets");
+            statuses.forEach((status, count) -> buckets.addObject().put("key", status.name()).put("doc_count", count));
+        });
+        return response;
+    }
+
+    private ObjectNode perCustomerResponse() {
+        ObjectNode response = response();
+        ArrayNode customers = response.putObject("aggregations").putObject("customers").putArray("buckets");
+        byCustomer(orders).forEach((customerId, count) -> customers.addObject().put("key", customerId).put("doc_count", count));
+        return response;
+    }
+
+    private ObjectNode delaysResponse() {
+        ObjectNode response = response();
+        ObjectNode aggregations = response.putObject("aggregations");
+        ArrayNode delays = aggregations.putObject("delays").putArray("buckets");
+        ObjectNode values = aggregations.putObject("percentiles").putObject("values");
+        delays(orders).forEach((key, value) -> {
+            if (key instanceof Long day) {
+                delays.addObject().put("key", day.doubleValue()).put("doc_count", (Long) value);
+            } else {
+                values.put(String.valueOf(key), (Double) value);
+            }
+        });
+        return response;
+    }
+
+    private ObjectNode response() {
+        ObjectNode response = objectMapper.createObjectNode()
+                .put("took", 12)
+                .put("timed_out", false);
+        response.putObject("hits").putArray("hits");
+        return response;
+    }
+
+    @FunctionalInterface
+    private interface Analytic {
+        Object run() throws Exception;
+    }
+}
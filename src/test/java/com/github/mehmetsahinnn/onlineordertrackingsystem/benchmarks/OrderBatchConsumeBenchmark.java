@@ -0,0 +1,117 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.benchmarks;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners.AdaptiveListenerTuner;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners.OrderBatchListener;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners.OrderRetryHandler;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners.ProcessedOrderCache;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.config.RabbitMQConfig;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticservices.OrderIndexer;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.enums.OrderStatus;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.events.OrderPlacedEvent;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Order;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.OrderItem;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Product;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.OrderBatchWriter;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.ProductRepository;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.StockHoldService;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.StockReservationEngine;
+import com.rabbitmq.client.Channel;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Measures how many orders a single consumer persists per second for different listener batch sizes.
+ * Every database statement and the transaction commit cost one simulated round trip, so a batch pays
+ * for begin, order insert, item insert, stock update and commit once regardless of its size.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class OrderBatchConsumeBenchmark {
+
+    private static final int[] BATCH_SIZES = {1, 10, 50, 200};
+    private static final int MESSAGES = 4_000;
+    private static final long ROUND_TRIP_NANOS = TimeUnit.MICROSECONDS.toNanos(300);
+
+    @Test
+    public void consumerThroughputByBatchSize() throws Exception {
+        MessageConverter messageConverter = new RabbitMQConfig().orderEventMessageConverter();
+        List<Message> messages = new ArrayList<>(MESSAGES);
+        for (int i = 0; i < MESSAGES; i++) {
+            MessageProperties properties = new MessageProperties();
+            properties.setDeliveryTag(i + 1);
+            messages.add(messageConverter.toMessage(OrderPlacedEvent.from(order(1L + i % 20)), properties));
+        }
+
+        System.out.printf("%-10s %-14s%n", "batch", "orders/s");
+        for (int batchSize : BATCH_SIZES) {
+            OrderBatchListener listener = listener(messageConverter);
+            Channel channel = mock(Channel.class);
+            long start = System.nanoTime();
+            for (int from = 0; from < MESSAGES; from += batchSize) {
+                listener.onMessageBatch(messages.subList(from, Math.min(from + batchSize, MESSAGES)), channel);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%-10d %-14.0f%n", batchSize, MESSAGES / seconds);
+        }
+    }
+
+    private static OrderBatchListener listener(MessageConverter messageConverter) {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        when(productRepository.findById(anyLong())).thenAnswer(invocation ->
+                Optional.of(new Product(invocation.getArgument(0), "Product", "Description", "Category", 10.0, Integer.MAX_VALUE)));
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            roundTrip();
+            return new int[0];
+        });
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            roundTrip();
+            return null;
+        });
+        doAnswer(invocation -> {
+            roundTrip();
+            return null;
+        }).when(transactionManager).commit(any());
+
+        OrderBatchWriter orderBatchWriter = new OrderBatchWriter(null) {
+            @Override
+            public Set<UUID> insertAll(List<OrderPlacedEvent> events, OrderStatus status, LocalDate estimatedDeliveryDate) {
+                roundTrip();
+                roundTrip();
+                return Set.of();
+            }
+        };
+        return new OrderBatchListener(messageConverter, orderBatchWriter,
+                new StockReservationEngine(productRepository, jdbcTemplate, 500), mock(StockHoldService.class),
+                mock(OrderRetryHandler.class), AdaptiveListenerTuner.fixed(50, 1), new ProcessedOrderCache(100_000),
+                mock(OrderIndexer.class), transactionManager);
+    }
+
+    private static Order order(long productId) {
+        Order order = new Order();
+        order.setOrderTrackId(UUID.randomUUID());
+        order.setOrderItems(List.of(new OrderItem(null, order, new Product(productId, "Product", "Description", "Category", 10.0, 10), 1, 10.0)));
+        return order;
+    }
+
+    private static void roundTrip() {
+        LockSupport.parkNanos(ROUND_TRIP_NANOS);
+    }
+}
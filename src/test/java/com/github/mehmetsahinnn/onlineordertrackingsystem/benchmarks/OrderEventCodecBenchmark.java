@@ -0,0 +1,82 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.benchmarks;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.config.RabbitMQConfig;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.enums.AccountStatus;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.events.OrderPlacedEvent;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Customer;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Order;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.OrderItem;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Product;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Compares the message size and the encode and decode cost of an order published as the JSON
+ * {@link Order} entity graph with the same order published as a binary {@link OrderPlacedEvent}.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class OrderEventCodecBenchmark {
+
+    private static final int[] ITEM_COUNTS = {1, 5, 20};
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 100_000;
+
+    @Test
+    public void sizeAndCostByItemCount() {
+        RabbitMQConfig rabbitMQConfig = new RabbitMQConfig();
+        MessageConverter json = rabbitMQConfig.jsonMessageConverter();
+        MessageConverter binary = rabbitMQConfig.orderEventMessageConverter();
+
+        System.out.printf("%-8s %-8s %-10s %-14s %-14s%n", "items", "format", "bytes", "encode ns", "decode ns");
+        for (int items : ITEM_COUNTS) {
+            Order order = order(items);
+            report(items, "json", json, () -> order);
+            report(items, "binary", binary, () -> OrderPlacedEvent.from(order));
+        }
+    }
+
+    private static void report(int items, String format, MessageConverter converter, Supplier<Object> payload) {
+        Message message = converter.toMessage(payload.get(), new MessageProperties());
+
+        measure(WARMUP, () -> converter.toMessage(payload.get(), new MessageProperties()));
+        double encodeNs = measure(ITERATIONS, () -> converter.toMessage(payload.get(), new MessageProperties()));
+        measure(WARMUP, () -> converter.fromMessage(message));
+        double decodeNs = measure(ITERATIONS, () -> converter.fromMessage(message));
+
+        System.out.printf("%-8d %-8s %-10d %-14.0f %-14.0f%n", items, format, message.getBody().length, encodeNs, decodeNs);
+    }
+
+    private static double measure(int iterations, Runnable task) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            task.run();
+        }
+        return (System.nanoTime() - start) / (double) iterations;
+    }
+
+    private static Order order(int items) {
+        Order order = new Order();
+        order.setId(42L);
+        order.setOrderTrackId(UUID.randomUUID());
+        order.setOrderDate(new Date());
+        order.setCustomer(new Customer(7L, "Jane", "Doe", "1 Main Street, Springfield",
+                "$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z0mGxv1Ia0Yv4iHe0xC3s8eG", "jane.doe@example.com", AccountStatus.USER, false));
+        List<OrderItem> orderItems = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            Product product = new Product(1_000L + i, "Product " + i, "A product used to size order messages", "Category", 19.99, 500);
+            orderItems.add(new OrderItem(null, order, product, 1 + i % 3, 19.99 * (1 + i % 3)));
+        }
+        order.setOrderItems(orderItems);
+        return order;
+    }
+}
@@ -0,0 +1,150 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.benchmarks;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticdocuments.OrderDocument;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticservices.OrderIndexPartitions;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticservices.OrderIndexer;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.enums.OrderStatus;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.CustomerRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
+import org.springframework.data.elasticsearch.core.convert.MappingElasticsearchConverter;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.mapping.SimpleElasticsearchMappingContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.concurrent.locks.LockSupport.parkNanos;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Compares writing each confirmed order to Elasticsearch on its own, as {@code POST /api/orders/elastic/orders}
+ * does, with the {@link OrderIndexer}. A simulated Elasticsearch answers each request after a 2 ms round trip
+ * plus 10 us per document, and refreshes the index every second, so a document becomes searchable at the
+ * first refresh after it was acknowledged.
+ * Reports documents indexed per second with as many documents waiting as the queue holds, and, with orders
+ * confirmed at a steady 2000 per second, the lag from confirmation to acknowledgement and to search visibility.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class OrderIndexingBenchmark {
+
+    private static final long ROUND_TRIP_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+    private static final long PER_DOCUMENT_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+    private static final long REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int SINGLE_DOCUMENTS = 2_000;
+    private static final int BULK_DOCUMENTS = 50_000;
+    private static final int RATE_PER_SECOND = 2_000;
+    private static final int RATE_SECONDS = 5;
+    private static final int BULK_SIZE = 500;
+
+    private final long origin = System.nanoTime();
+    private final Map<String, Long> acknowledged = new ConcurrentHashMap<>();
+    private final BulkItemResponse[] items = new BulkItemResponse[BULK_SIZE];
+
+    @Test
+    public void throughputAndVisibilityLag() throws Exception {
+        for (int i = 0; i < BULK_SIZE; i++) {
+            BulkItemResponse item = mock(BulkItemResponse.class, withSettings().stubOnly());
+            when(item.getItemId()).thenReturn(i);
+            when(item.status()).thenReturn(RestStatus.CREATED);
+            items[i] = item;
+        }
+
+        System.out.printf("%-12s %-10s %-10s %-12s %-12s %-12s %-12s%n",
+                "writer", "documents", "docs/s", "ack p50 ms", "ack p99 ms", "seen p50 ms", "seen p99 ms");
+        long start = System.nanoTime();
+        for (int i = 0; i < SINGLE_DOCUMENTS; i++) {
+            parkNanos(ROUND_TRIP_NANOS + PER_DOCUMENT_NANOS);
+        }
+        System.out.printf("%-12s %-10d %-10.0f%n", "per-order", SINGLE_DOCUMENTS, SINGLE_DOCUMENTS / ((System.nanoTime() - start) / 1e9));
+
+        OrderIndexer indexer = indexer(BULK_DOCUMENTS);
+        start = System.nanoTime();
+        for (int i = 0; i < BULK_DOCUMENTS; i++) {
+            indexer.index(document("backlog-" + i));
+        }
+        while (acknowledged.size() < BULK_DOCUMENTS) {
+            parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        System.out.printf("%-12s %-10d %-10.0f%n", "bulk", BULK_DOCUMENTS, BULK_DOCUMENTS / ((System.nanoTime() - start) / 1e9));
+        indexer.shutdown();
+
+        indexer = indexer(10_000);
+        Map<String, Long> queued = new ConcurrentHashMap<>();
+        long interval = TimeUnit.SECONDS.toNanos(1) / RATE_PER_SECOND;
+        start = System.nanoTime();
+        int documents = RATE_PER_SECOND * RATE_SECONDS;
+        for (int i = 0; i < documents; i++) {
+            long due = start + i * interval;
+            while (System.nanoTime() < due) {
+                parkNanos(Math.max(1, due - System.nanoTime()));
+            }
+            String id = "steady-" + i;
+            queued.put(id, System.nanoTime());
+            indexer.index(document(id));
+        }
+        indexer.shutdown();
+
+        List<Long> ackLags = new ArrayList<>(documents);
+        List<Long> seenLags = new ArrayList<>(documents);
+        for (Map.Entry<String, Long> entry : queued.entrySet()) {
+            long ack = acknowledged.get(entry.getKey());
+            long seen = origin + ((ack - origin) / REFRESH_NANOS + 1) * REFRESH_NANOS;
+            ackLags.add(ack - entry.getValue());
+            seenLags.add(seen - entry.getValue());
+        }
+        ackLags.sort(null);
+        seenLags.sort(null);
+        System.out.printf("%-12s %-10d %-10s %-12.1f %-12.1f %-12.1f %-12.1f%n", "bulk steady", documents, "-",
+                percentile(ackLags, 0.5), percentile(ackLags, 0.99), percentile(seenLags, 0.5), percentile(seenLags, 0.99));
+    }
+
+    private OrderIndexer indexer(int queueCapacity) throws Exception {
+        RestHighLevelClient client = mock(RestHighLevelClient.class);
+        when(client.bulk(any(BulkRequest.class), any(RequestOptions.class))).thenAnswer(invocation -> {
+            BulkRequest request = invocation.getArgument(0);
+            parkNanos(ROUND_TRIP_NANOS + PER_DOCUMENT_NANOS * request.numberOfActions());
+            long now = System.nanoTime();
+            for (DocWriteRequest<?> document : request.requests()) {
+                acknowledged.put(document.id(), now);
+            }
+            BulkItemResponse[] response = new BulkItemResponse[request.numberOfActions()];
+            System.arraycopy(items, 0, response, 0, response.length);
+            return new BulkResponse(response, 0);
+        });
+        MappingElasticsearchConverter converter = new MappingElasticsearchConverter(new SimpleElasticsearchMappingContext());
+        converter.afterPropertiesSet();
+        ElasticsearchRestTemplate template = mock(ElasticsearchRestTemplate.class);
+        when(template.getIndexCoordinatesFor(OrderDocument.class)).thenReturn(IndexCoordinates.of("order"));
+        when(template.getElasticsearchConverter()).thenReturn(converter);
+        OrderIndexPartitions partitions = mock(OrderIndexPartitions.class);
+        when(partitions.partitionFor(any())).thenReturn("order-2024.07");
+        return new OrderIndexer(client, template, partitions, mock(CustomerRepository.class), true, queueCapacity, BULK_SIZE, 1000, 5, 100, new SimpleMeterRegistry());
+    }
+
+    private static OrderDocument document(String id) {
+        LocalDateTime now = LocalDateTime.now();
+        return new OrderDocument(id, null, 1L, OrderStatus.CONFIRMED, now, now.plusDays(5));
+    }
+
+    private static double percentile(List<Long> sorted, double p) {
+        return sorted.get((int) Math.min(sorted.size() - 1, Math.round(p * (sorted.size() - 1)))) / 1e6;
+    }
+}
@@ -0,0 +1,148 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.benchmarks;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.config.KeycloakClient;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticservices.OrderIndexer;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Order;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Product;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.producers.OrderProducer;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.OrderRepository;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.ProductRepository;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.OrderAdmissionControl;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.OrderIngestionService;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.OrderPlacementTracker;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.OrderService;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.ProductService;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.StockHoldService;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.StockReservationEngine;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Compares placing orders one request at a time with submitting them to the batch ingestion endpoint.
+ * Each order has three lines. A product query costs a simulated 500 us database round trip, and the broker
+ * confirms whatever was published every 1 ms, as the order producer's batch confirms do. A single order
+ * pays for its query and waits for its confirm; a chunk of the batch endpoint shares both. Both paths
+ * parse the orders from JSON; the batch path streams them from newline-delimited JSON generated on the fly,
+ * so the submission itself is never held in memory.
+ * Reports orders placed per second.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class OrderIngestionBenchmark {
+
+    private static final long ROUND_TRIP_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+    private static final long CONFIRM_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int PRODUCTS = 1000;
+    private static final int SINGLE_ORDERS = 2_000;
+    private static final int[] BATCH_ORDERS = {10_000, 100_000};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ConcurrentLinkedQueue<CompletableFuture<Void>> unconfirmed = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+
+    @Test
+    public void ordersPerSecondSingleVersusBatch() throws Exception {
+        ProductRepository productRepository = mock(ProductRepository.class, withSettings().stubOnly());
+        when(productRepository.findAllById(any())).thenAnswer(invocation -> {
+            LockSupport.parkNanos(ROUND_TRIP_NANOS);
+            List<Product> found = new ArrayList<>();
+            for (Long id : invocation.<Iterable<Long>>getArgument(0)) {
+                found.add(new Product(id, "Product" + id, "Description", "Category", 10.0, 1_000_000));
+            }
+            return found;
+        });
+        StockHoldService stockHoldService = mock(StockHoldService.class, withSettings().stubOnly());
+        when(stockHoldService.hold(any(), any())).thenReturn(true);
+        OrderProducer orderProducer = mock(OrderProducer.class, withSettings().stubOnly());
+        when(orderProducer.sendToQueue(any())).thenAnswer(invocation -> {
+            CompletableFuture<Void> confirm = new CompletableFuture<>();
+            unconfirmed.add(confirm);
+            return confirm;
+        });
+        Thread broker = new Thread(() -> {
+            while (running) {
+                LockSupport.parkNanos(CONFIRM_INTERVAL_NANOS);
+                CompletableFuture<Void> confirm;
+                while ((confirm = unconfirmed.poll()) != null) {
+                    confirm.complete(null);
+                }
+            }
+        });
+        broker.setDaemon(true);
+        broker.start();
+
+        OrderService orderService = new OrderService(mock(OrderRepository.class), mock(ProductService.class), orderProducer,
+                mock(KeycloakClient.class), productRepository, mock(StockReservationEngine.class), stockHoldService,
+                OrderAdmissionControl.unlimited(), mock(OrderPlacementTracker.class), mock(OrderIndexer.class));
+        OrderIngestionService ingestionService = new OrderIngestionService(productRepository, stockHoldService, orderProducer,
+                OrderAdmissionControl.unlimited(), 500, 5000);
+
+        System.out.printf("%-10s %-10s %-12s%n", "endpoint", "orders", "orders/s");
+        long start = System.nanoTime();
+        for (int i = 0; i < SINGLE_ORDERS; i++) {
+            orderService.placeOrder(objectMapper.readValue(orderJson(i), Order.class));
+        }
+        report("single", SINGLE_ORDERS, System.nanoTime() - start);
+
+        for (int orders : BATCH_ORDERS) {
+            AtomicLong placed = new AtomicLong();
+            start = System.nanoTime();
+            try (MappingIterator<Order> iterator = objectMapper.readerFor(Order.class).readValues(ndjson(orders))) {
+                ingestionService.ingest(iterator, results -> placed.addAndGet(results.size()));
+            }
+            report("batch", placed.get(), System.nanoTime() - start);
+        }
+        running = false;
+    }
+
+    private static void report(String endpoint, long orders, long nanos) {
+        System.out.printf("%-10s %-10d %-12.0f%n", endpoint, orders, orders / (nanos / 1e9));
+    }
+
+    private static byte[] orderJson(int i) {
+        StringBuilder json = new StringBuilder("{\"orderItems\":[");
+        for (int line = 0; line < 3; line++) {
+            if (line > 0) {
+                json.append(',');
+            }
+            json.append("{\"product\":{\"id\":").append(1 + (i * 3 + line) % PRODUCTS).append("},\"quantity\":1}");
+        }
+        return json.append("]}\n").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static InputStream ndjson(int orders) {
+        return new SequenceInputStream(new Enumeration<>() {
+            private int next;
+
+            @Override
+            public boolean hasMoreElements() {
+                return next < orders;
+            }
+
+            @Override
+            public InputStream nextElement() {
+                return new ByteArrayInputStream(orderJson(next++));
+            }
+        });
+    }
+}
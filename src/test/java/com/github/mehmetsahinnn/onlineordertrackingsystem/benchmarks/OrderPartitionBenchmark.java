@@ -0,0 +1,242 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.benchmarks;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticdocuments.OrderDocument;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticservices.OrderIndexPartitions;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticservices.OrderIndexer;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.enums.OrderStatus;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.CustomerRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.GetAliasesResponse;
+import org.elasticsearch.client.IndicesClient;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.GetIndexRequest;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
+import org.springframework.data.elasticsearch.core.convert.MappingElasticsearchConverter;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.mapping.SimpleElasticsearchMappingContext;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.locks.LockSupport.parkNanos;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Compares one order index of five shards with one single-shard index per month, over a year of 240,000
+ * synthetic orders ending this month.
+ * <p>
+ * Indexing replays the year in order date order through the {@link OrderIndexer}, as live orders arrive. A
+ * simulated Elasticsearch answers each bulk request after a 2 ms round trip plus 10 us per document and
+ * 200 us per shard the request is split across; the single index spreads every bulk over its five shards,
+ * while a month takes a bulk on its one shard.
+ * <p>
+ * Searching counts the orders of each status per day for the last week, month, quarter and year. Each shard
+ * the search reaches costs 200 us on top of the 2 ms round trip, and then really scans the order dates it
+ * holds in the window, so both layouts do the same work per matching order and differ in how many shards
+ * they reach. Merges, caches and the smaller indices the months keep are not simulated.
+ * Reports documents indexed per second and the latency of each search.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class OrderPartitionBenchmark {
+
+    private static final long ROUND_TRIP_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+    private static final long PER_DOCUMENT_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+    private static final long PER_SHARD_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+    private static final int ORDERS = 240_000;
+    private static final int SHARDS = 5;
+    private static final int BULK_SIZE = 500;
+    private static final int RUNS = 20;
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyy.MM");
+
+    private final LocalDateTime end = YearMonth.now().plusMonths(1).atDay(1).atStartOfDay();
+    private final LocalDateTime start = end.minusYears(1);
+    private final OrderDocument[] orders = new OrderDocument[ORDERS];
+    private final AtomicLong acknowledged = new AtomicLong();
+
+    @Test
+    public void indexingThroughputAndSearchLatency() throws Exception {
+        long step = (end.toEpochSecond(ZoneOffset.UTC) - start.toEpochSecond(ZoneOffset.UTC)) / ORDERS;
+        OrderStatus[] statuses = OrderStatus.values();
+        for (int i = 0; i < ORDERS; i++) {
+            LocalDateTime orderDate = start.plusSeconds(step * i);
+            orders[i] = new OrderDocument("order-" + i, null, 1L + i % 500, statuses[i % statuses.length], orderDate, orderDate.plusDays(5));
+        }
+
+        System.out.printf("%-12s %-10s %-12s%n", "layout", "documents", "docs/s");
+        index("single", singleIndex());
+        index("monthly", monthly());
+
+        Map<String, List<List<Long>>> single = new HashMap<>();
+        Map<String, List<List<Long>>> monthly = new HashMap<>();
+        for (int i = 0; i < ORDERS; i++) {
+            long key = orders[i].getOrderDate().toEpochSecond(ZoneOffset.UTC) * ORDERS + i;
+            shard(single, "order", SHARDS, i % SHARDS).add(key);
+            shard(monthly, "order-" + MONTH.format(orders[i].getOrderDate()), 1, 0).add(key);
+        }
+        Map<String, long[][]> singleShards = sorted(single);
+        Map<String, long[][]> monthlyShards = sorted(monthly);
+        OrderIndexPartitions partitions = monthly();
+        System.out.printf("%n%-12s %-10s %-8s %-10s %-10s%n", "layout", "window", "shards", "orders", "ms/search");
+        for (int days : new int[]{7, 30, 91, 365}) {
+            LocalDateTime from = end.minusDays(days);
+            search("single", days, singleShards, new String[]{"order"}, from);
+            search("monthly", days, monthlyShards, partitions.partitionsBetween(from, end.minusSeconds(1)), from);
+        }
+    }
+
+    private void index(String layout, OrderIndexPartitions partitions) throws Exception {
+        acknowledged.set(0);
+        OrderIndexer indexer = new OrderIndexer(client(), template(), partitions, mock(CustomerRepository.class), true, ORDERS, BULK_SIZE, 1000, 5, 100,
+                new SimpleMeterRegistry());
+        long started = System.nanoTime();
+        for (OrderDocument order : orders) {
+            while (!indexer.index(order)) {
+                parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+        }
+        while (acknowledged.get() < ORDERS) {
+            parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        System.out.printf("%-12s %-10d %-12.0f%n", layout, ORDERS, ORDERS / ((System.nanoTime() - started) / 1e9));
+        indexer.shutdown();
+    }
+
+    /**
+     * Searches like Elasticsearch would: every shard of the named indices finds the orders in the window by
+     * their sorted order dates and counts them by day and status.
+     */
+    private void search(String layout, int days, Map<String, long[][]> shards, String[] indices, LocalDateTime from) {
+        long fromSecond = from.toEpochSecond(ZoneOffset.UTC);
+        long toSecond = end.toEpochSecond(ZoneOffset.UTC);
+        int reached = 0;
+        long matched = 0;
+        long started = System.nanoTime();
+        for (int run = 0; run < RUNS; run++) {
+            reached = 0;
+            matched = 0;
+            Map<Long, long[]> counts = new HashMap<>();
+            for (String index : indices) {
+                long[][] indexShards = shards.get(index);
+                if (indexShards == null) {
+                    continue;
+                }
+                for (long[] shard : indexShards) {
+                    reached++;
+                    int first = firstAtOrAfter(shard, fromSecond * ORDERS);
+                    for (int i = first; i < shard.length && shard[i] < toSecond * ORDERS; i++) {
+                        OrderDocument order = orders[(int) (shard[i] % ORDERS)];
+                        counts.computeIfAbsent(shard[i] / ORDERS / 86_400, day -> new long[OrderStatus.values().length])[order.getStatus().ordinal()]++;
+                        matched++;
+                    }
+                }
+            }
+            parkNanos(ROUND_TRIP_NANOS + PER_SHARD_NANOS * reached);
+        }
+        System.out.printf("%-12s %-10s %-8d %-10d %-10.2f%n", layout, days + "d", reached, matched, (System.nanoTime() - started) / 1e6 / RUNS);
+    }
+
+    /**
+     * Returns the orders of a shard, each keyed by its order date and then its position, so a shard sorts by
+     * order date.
+     */
+    private static List<Long> shard(Map<String, List<List<Long>>> shards, String index, int shardCount, int shard) {
+        return shards.computeIfAbsent(index, name -> {
+            List<List<Long>> indexShards = new ArrayList<>(shardCount);
+            for (int i = 0; i < shardCount; i++) {
+                indexShards.add(new ArrayList<>());
+            }
+            return indexShards;
+        }).get(shard);
+    }
+
+    private static Map<String, long[][]> sorted(Map<String, List<List<Long>>> shards) {
+        Map<String, long[][]> sorted = new HashMap<>();
+        shards.forEach((index, indexShards) -> sorted.put(index, indexShards.stream()
+                .map(keys -> keys.stream().mapToLong(Long::longValue).sorted().toArray())
+                .toArray(long[][]::new)));
+        return sorted;
+    }
+
+    private static int firstAtOrAfter(long[] sorted, long key) {
+        int found = Arrays.binarySearch(sorted, key);
+        return found >= 0 ? found : -found - 1;
+    }
+
+    private RestHighLevelClient client() throws Exception {
+        BulkItemResponse[] created = new BulkItemResponse[BULK_SIZE];
+        for (int i = 0; i < BULK_SIZE; i++) {
+            created[i] = mock(BulkItemResponse.class, withSettings().stubOnly());
+            when(created[i].getItemId()).thenReturn(i);
+            when(created[i].status()).thenReturn(RestStatus.CREATED);
+        }
+        RestHighLevelClient client = mock(RestHighLevelClient.class);
+        when(client.bulk(any(BulkRequest.class), any(RequestOptions.class))).thenAnswer(invocation -> {
+            BulkRequest request = invocation.getArgument(0);
+            Set<String> indices = new HashSet<>();
+            for (DocWriteRequest<?> document : request.requests()) {
+                indices.add(document.index());
+            }
+            int shards = indices.stream().mapToInt(index -> index.equals("order") ? SHARDS : 1).sum();
+            parkNanos(ROUND_TRIP_NANOS + PER_DOCUMENT_NANOS * request.numberOfActions() + PER_SHARD_NANOS * shards);
+            BulkItemResponse[] items = Arrays.copyOf(created, request.numberOfActions());
+            acknowledged.addAndGet(items.length);
+            return new BulkResponse(items, 0);
+        });
+        return client;
+    }
+
+    private static ElasticsearchRestTemplate template() {
+        MappingElasticsearchConverter converter = new MappingElasticsearchConverter(new SimpleElasticsearchMappingContext());
+        converter.afterPropertiesSet();
+        ElasticsearchRestTemplate template = mock(ElasticsearchRestTemplate.class);
+        when(template.getIndexCoordinatesFor(OrderDocument.class)).thenReturn(IndexCoordinates.of("order"));
+        when(template.getElasticsearchConverter()).thenReturn(converter);
+        return template;
+    }
+
+    private static OrderIndexPartitions singleIndex() {
+        OrderIndexPartitions partitions = mock(OrderIndexPartitions.class);
+        when(partitions.partitionFor(any())).thenReturn("order");
+        return partitions;
+    }
+
+    /**
+     * Builds partitions whose months all exist already and whose write alias is on the current month, so
+     * indexing never waits on creating one.
+     */
+    private static OrderIndexPartitions monthly() throws Exception {
+        IndicesClient indices = mock(IndicesClient.class);
+        when(indices.exists(any(GetIndexRequest.class), any(RequestOptions.class))).thenReturn(true);
+        when(indices.existsAlias(any(GetAliasesRequest.class), any(RequestOptions.class))).thenReturn(true);
+        GetAliasesResponse aliases = mock(GetAliasesResponse.class);
+        when(aliases.getAliases()).thenReturn(Map.of("order-" + MONTH.format(YearMonth.now()) + "-000001", Set.of()));
+        when(indices.getAlias(any(GetAliasesRequest.class), any(RequestOptions.class))).thenReturn(aliases);
+        RestHighLevelClient client = mock(RestHighLevelClient.class);
+        when(client.indices()).thenReturn(indices);
+        return new OrderIndexPartitions(client, template(), 24);
+    }
+}
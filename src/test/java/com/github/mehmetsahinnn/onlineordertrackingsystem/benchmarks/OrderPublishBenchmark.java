@@ -0,0 +1,154 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.benchmarks;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Order;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.producers.OrderPartitioner;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.producers.OrderProducer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.github.mehmetsahinnn.onlineordertrackingsystem.producers.OrderProducer.PublishMode.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the throughput of the OrderProducer broker publish modes against a simulated broker.
+ * Every publish outside a batch pays a channel write on the shared connection, messages inside
+ * a batch only pay for their frames, and the broker acknowledges everything it received once per
+ * simulated fsync. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class OrderPublishBenchmark {
+
+    private static final int CALLERS = 200;
+    private static final int ORDERS_PER_CALLER = 250;
+    private static final long CHANNEL_WRITE_NANOS = TimeUnit.MICROSECONDS.toNanos(30);
+    private static final long FRAME_WRITE_NANOS = TimeUnit.MICROSECONDS.toNanos(3);
+    private static final long FSYNC_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void compareModes() throws Exception {
+        System.out.printf("%-16s %-14s%n", "mode", "orders/s");
+        for (OrderProducer.PublishMode mode : EnumSet.of(FIRE_AND_FORGET, CONFIRM, BATCH_CONFIRM)) {
+            System.out.printf("%-16s %-14.0f%n", mode, run(mode));
+        }
+    }
+
+    private double run(OrderProducer.PublishMode mode) throws Exception {
+        SimulatedBroker broker = new SimulatedBroker();
+        OrderProducer producer = new OrderProducer(broker, "order-exchange", new OrderPartitioner("order-routing", 4), null, null, mode, 64, 10_000, 5000);
+        ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                tasks.add(() -> {
+                    for (int j = 0; j < ORDERS_PER_CALLER; j++) {
+                        Order order = new Order();
+                        order.setOrderTrackId(UUID.randomUUID());
+                        producer.sendToQueue(order).join();
+                    }
+                    return null;
+                });
+            }
+            long start = System.nanoTime();
+            for (Future<Void> future : callers.invokeAll(tasks)) {
+                future.get();
+            }
+            long elapsed = System.nanoTime() - start;
+
+            assertEquals(CALLERS * ORDERS_PER_CALLER, broker.received());
+            return CALLERS * ORDERS_PER_CALLER / (elapsed / 1e9);
+        } finally {
+            callers.shutdown();
+            producer.shutdown();
+            broker.close();
+        }
+    }
+
+    private static void spin(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        while (System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * A template that charges simulated socket costs instead of talking to a broker, and
+     * confirms correlated publishes in groups on a background "fsync" thread.
+     */
+    private static final class SimulatedBroker extends RabbitTemplate implements AutoCloseable {
+
+        private final ReentrantLock socket = new ReentrantLock();
+        private final ThreadLocal<Boolean> inBatch = ThreadLocal.withInitial(() -> false);
+        private final ConcurrentLinkedQueue<CorrelationData> unconfirmed = new ConcurrentLinkedQueue<>();
+        private final LongAdder received = new LongAdder();
+        private final Thread fsync;
+        private volatile boolean running = true;
+
+        SimulatedBroker() {
+            fsync = new Thread(() -> {
+                while (running) {
+                    LockSupport.parkNanos(FSYNC_NANOS);
+                    CorrelationData correlationData;
+                    while ((correlationData = unconfirmed.poll()) != null) {
+                        correlationData.getFuture().complete(new CorrelationData.Confirm(true, null));
+                    }
+                }
+            }, "simulated-fsync");
+            fsync.setDaemon(true);
+            fsync.start();
+        }
+
+        @Override
+        public void convertAndSend(String exchange, String routingKey, Object object) {
+            write(CHANNEL_WRITE_NANOS);
+            received.increment();
+        }
+
+        @Override
+        public void convertAndSend(String exchange, String routingKey, Object object, CorrelationData correlationData) {
+            write(inBatch.get() ? FRAME_WRITE_NANOS : CHANNEL_WRITE_NANOS);
+            received.increment();
+            unconfirmed.add(correlationData);
+        }
+
+        @Override
+        public <T> T invoke(OperationsCallback<T> action) {
+            write(CHANNEL_WRITE_NANOS);
+            inBatch.set(true);
+            try {
+                return action.doInRabbit(this);
+            } finally {
+                inBatch.set(false);
+            }
+        }
+
+        private void write(long nanos) {
+            socket.lock();
+            try {
+                spin(nanos);
+            } finally {
+                socket.unlock();
+            }
+        }
+
+        long received() {
+            return received.sum();
+        }
+
+        @Override
+        public void close() throws InterruptedException {
+            running = false;
+            fsync.join();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.benchmarks;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticservices.OrderIndexPartitions;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticservices.OrderReindexer;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.enums.OrderStatus;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.OrderScanRepository;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
+import org.springframework.data.elasticsearch.core.convert.MappingElasticsearchConverter;
+import org.springframework.data.elasticsearch.core.mapping.SimpleElasticsearchMappingContext;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static java.util.concurrent.locks.LockSupport.parkNanos;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Measures how fast the {@link OrderReindexer} rebuilds the order index of 200,000 orders with 1, 4 and 8
+ * threads, and with 4 threads held to 20,000 documents per second. A simulated database answers each page
+ * after 1 ms plus 2 us per row it streams, and a simulated Elasticsearch takes each bulk request after a 2 ms
+ * round trip plus 10 us per document, at most 4 bulk requests at a time as its write thread pool would.
+ * Reports documents per second, the time taken and the most documents held in memory at once, which stays
+ * at one bulk request per thread however many orders there are.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class OrderReindexBenchmark {
+
+    private static final long PAGE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long PER_ROW_NANOS = TimeUnit.MICROSECONDS.toNanos(2);
+    private static final long ROUND_TRIP_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+    private static final long PER_DOCUMENT_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+    private static final int ORDERS = 200_000;
+    private static final int PAGE_SIZE = 10_000;
+    private static final int BULK_SIZE = 1000;
+    private static final int ELASTICSEARCH_WRITERS = 4;
+
+    private final OrderScanRepository.ScannedOrder[] orders = new OrderScanRepository.ScannedOrder[ORDERS];
+    private final Semaphore writers = new Semaphore(ELASTICSEARCH_WRITERS);
+    private final AtomicInteger held = new AtomicInteger();
+    private final AtomicInteger peakHeld = new AtomicInteger();
+
+    @Test
+    public void reindexThroughput() throws Exception {
+        OrderStatus[] statuses = OrderStatus.values();
+        LocalDateTime first = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < ORDERS; i++) {
+            LocalDateTime orderDate = first.plusMinutes(i);
+            orders[i] = new OrderScanRepository.ScannedOrder(i + 1, new UUID(0, i + 1), 1L + i % 500,
+                    "user" + i % 500 + "@example.com", statuses[i % statuses.length], orderDate, orderDate.toLocalDate().plusDays(5));
+        }
+
+        System.out.printf("%-8s %-12s %-12s %-10s %-12s%n", "threads", "limit/s", "docs/s", "seconds", "peak held");
+        for (int threads : new int[]{1, 4, 8}) {
+            run(threads, 0);
+        }
+        run(4, 20_000);
+    }
+
+    private void run(int threads, int maxDocsPerSecond) throws Exception {
+        held.set(0);
+        peakHeld.set(0);
+        OrderReindexer reindexer = new OrderReindexer(repository(), client(), template(), partitions(),
+                mock(PlatformTransactionManager.class), threads, 32, PAGE_SIZE, BULK_SIZE, maxDocsPerSecond, 5, 100);
+        long started = System.nanoTime();
+        reindexer.start();
+        OrderReindexer.Progress progress = reindexer.progress();
+        while (progress.state() == OrderReindexer.State.RUNNING) {
+            parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+            progress = reindexer.progress();
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        System.out.printf("%-8d %-12s %-12.0f %-10.2f %-12d%n", threads,
+                maxDocsPerSecond > 0 ? maxDocsPerSecond : "none", progress.indexed() / seconds, seconds, peakHeld.get());
+    }
+
+    /**
+     * Streams the orders of a page after the simulated query time; each row counts as held until the bulk
+     * request it is in was acknowledged.
+     */
+    private OrderScanRepository repository() {
+        OrderScanRepository repository = mock(OrderScanRepository.class);
+        when(repository.idRange()).thenReturn(new OrderScanRepository.IdRange(1, ORDERS, ORDERS));
+        when(repository.scan(anyLong(), anyLong(), anyInt(), anyInt(), any())).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            long toId = invocation.getArgument(1);
+            int limit = invocation.getArgument(2);
+            Consumer<OrderScanRepository.ScannedOrder> consumer = invocation.getArgument(4);
+            parkNanos(PAGE_NANOS);
+            int read = 0;
+            for (long id = afterId + 1; id <= toId && read < limit; id++) {
+                parkNanos(PER_ROW_NANOS);
+                peakHeld.accumulateAndGet(held.incrementAndGet(), Math::max);
+                consumer.accept(orders[(int) id - 1]);
+                read++;
+            }
+            return read;
+        });
+        return repository;
+    }
+
+    private RestHighLevelClient client() throws Exception {
+        BulkItemResponse[] created = new BulkItemResponse[BULK_SIZE];
+        for (int i = 0; i < BULK_SIZE; i++) {
+            created[i] = mock(BulkItemResponse.class, withSettings().stubOnly());
+            when(created[i].getItemId()).thenReturn(i);
+            when(created[i].status()).thenReturn(RestStatus.CREATED);
+        }
+        RestHighLevelClient client = mock(RestHighLevelClient.class);
+        when(client.bulk(any(BulkRequest.class), any(RequestOptions.class))).thenAnswer(invocation -> {
+            BulkRequest request = invocation.getArgument(0);
+            writers.acquire();
+            try {
+                parkNanos(ROUND_TRIP_NANOS + PER_DOCUMENT_NANOS * request.numberOfActions());
+            } finally {
+                writers.release();
+            }
+            held.addAndGet(-request.numberOfActions());
+            return new BulkResponse(Arrays.copyOf(created, request.numberOfActions()), 0);
+        });
+        return client;
+    }
+
+    private static ElasticsearchRestTemplate template() {
+        MappingElasticsearchConverter converter = new MappingElasticsearchConverter(new SimpleElasticsearchMappingContext());
+        converter.afterPropertiesSet();
+        ElasticsearchRestTemplate template = mock(ElasticsearchRestTemplate.class);
+        when(template.getElasticsearchConverter()).thenReturn(converter);
+        return template;
+    }
+
+    private static OrderIndexPartitions partitions() throws Exception {
+        OrderIndexPartitions partitions = mock(OrderIndexPartitions.class);
+        when(partitions.beginReindex()).thenReturn("000002");
+        when(partitions.reindexTargetFor(any())).thenAnswer(invocation -> {
+            LocalDateTime orderDate = invocation.getArgument(0);
+            return String.format("order-%d.%02d-000002", orderDate.getYear(), orderDate.getMonthValue());
+        });
+        return partitions;
+    }
+}
@@ -0,0 +1,166 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.benchmarks;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners.OrderRetryHandler;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Order;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.producers.OrderOutboxRelay;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.producers.OrderPartitioner;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.producers.OrderProducer;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.OrderOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Measures how request latency follows broker latency when orders are published with confirms from
+ * the request thread, and when they are written to the outbox instead; then how many events per
+ * second the relay drains for different batch sizes. Database statements cost one simulated round
+ * trip and the broker confirms each publish after the simulated broker latency.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class OutboxRelayBenchmark {
+
+    private static final long[] BROKER_LATENCIES_MS = {1, 10, 50};
+    private static final int[] BATCH_SIZES = {1, 10, 100, 500};
+    private static final int REQUESTS = 200;
+    private static final int OUTBOX_EVENTS = 2_000;
+    private static final long DB_ROUND_TRIP_NANOS = TimeUnit.MICROSECONDS.toNanos(300);
+
+    @Test
+    public void requestLatencyAndRelayThroughput() {
+        ScheduledExecutorService confirms = Executors.newSingleThreadScheduledExecutor();
+        try {
+            System.out.printf("%-12s %-10s %-12s %-12s%n", "broker ms", "mode", "p50 ms", "p99 ms");
+            for (long brokerLatencyMs : BROKER_LATENCIES_MS) {
+                SimulatedBroker broker = new SimulatedBroker(confirms, brokerLatencyMs);
+                for (OrderProducer.PublishMode mode : List.of(OrderProducer.PublishMode.CONFIRM, OrderProducer.PublishMode.OUTBOX)) {
+                    long[] latencies = requestLatencies(broker, mode);
+                    System.out.printf("%-12d %-10s %-12.2f %-12.2f%n", brokerLatencyMs, mode,
+                            latencies[latencies.length / 2] / 1e6, latencies[latencies.length * 99 / 100] / 1e6);
+                }
+            }
+
+            System.out.printf("%n%-10s %-14s%n", "batch", "relayed/s");
+            SimulatedBroker broker = new SimulatedBroker(confirms, 2);
+            for (int batchSize : BATCH_SIZES) {
+                SimulatedOutbox outbox = new SimulatedOutbox(OUTBOX_EVENTS);
+                OrderOutboxRelay relay = new OrderOutboxRelay(outbox, broker,
+                        new OrderRetryHandler(broker, "order-queue", "order-retry", 4, 1000, 5, 1000), "order-exchange", batchSize, 10, 5000, 50,
+                        mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+                long start = System.nanoTime();
+                relay.relay();
+                System.out.printf("%-10d %-14.0f%n", batchSize, OUTBOX_EVENTS / ((System.nanoTime() - start) / 1e9));
+            }
+        } finally {
+            confirms.shutdownNow();
+        }
+    }
+
+    private static long[] requestLatencies(SimulatedBroker broker, OrderProducer.PublishMode mode) {
+        OrderProducer producer = new OrderProducer(broker, "order-exchange", new OrderPartitioner("order-routing", 4),
+                new SimulatedOutbox(0), null, mode, 64, 10_000, 5000);
+        long[] latencies = new long[REQUESTS];
+        try {
+            for (int i = 0; i < REQUESTS; i++) {
+                Order order = new Order();
+                order.setOrderTrackId(UUID.randomUUID());
+                long start = System.nanoTime();
+                producer.sendToQueue(order).join();
+                latencies[i] = System.nanoTime() - start;
+            }
+        } finally {
+            producer.shutdown();
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static void roundTrip() {
+        LockSupport.parkNanos(DB_ROUND_TRIP_NANOS);
+    }
+
+    /**
+     * An outbox that charges one round trip per statement and hands out its events in id order.
+     */
+    private static final class SimulatedOutbox extends OrderOutboxRepository {
+
+        private final AtomicLong next = new AtomicLong();
+        private final long size;
+
+        SimulatedOutbox(long size) {
+            super(null);
+            this.size = size;
+        }
+
+        @Override
+        public void add(String routingKey, UUID orderTrackId, byte[] payload) {
+            roundTrip();
+        }
+
+        @Override
+        public List<Entry> lockBatch(int limit) {
+            roundTrip();
+            List<Entry> batch = new ArrayList<>(limit);
+            long now = System.currentTimeMillis();
+            while (batch.size() < limit && next.get() < size) {
+                long id = next.incrementAndGet();
+                batch.add(new Entry(id, "order-routing." + id % 4, UUID.randomUUID(), new byte[32], now, 0));
+            }
+            return batch;
+        }
+
+        @Override
+        public void deleteAll(List<Long> ids) {
+            roundTrip();
+        }
+    }
+
+    /**
+     * A template that confirms every correlated publish after a fixed broker latency.
+     */
+    private static final class SimulatedBroker extends RabbitTemplate {
+
+        private final ScheduledExecutorService confirms;
+        private final long latencyMs;
+
+        SimulatedBroker(ScheduledExecutorService confirms, long latencyMs) {
+            this.confirms = confirms;
+            this.latencyMs = latencyMs;
+        }
+
+        @Override
+        public void convertAndSend(String exchange, String routingKey, Object object, CorrelationData correlationData) {
+            confirmLater(correlationData);
+        }
+
+        @Override
+        public void send(String exchange, String routingKey, Message message, CorrelationData correlationData) {
+            confirmLater(correlationData);
+        }
+
+        @Override
+        public <T> T invoke(OperationsCallback<T> action) {
+            return action.doInRabbit(this);
+        }
+
+        private void confirmLater(CorrelationData correlationData) {
+            confirms.schedule(() -> correlationData.getFuture().complete(new CorrelationData.Confirm(true, null)), latencyMs, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.benchmarks;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Order;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.OrderItem;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Product;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.producers.OrderPartitioner;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Compares consuming orders from product partitions, one ordered consumer each, with the same number
+ * of competing consumers on a single queue. Each order locks its product row for one simulated
+ * round trip, like the stock update in the listener transaction. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class PartitionScalingBenchmark {
+
+    private static final int[] CONSUMERS = {1, 2, 4, 8};
+    private static final int ORDERS = 8_000;
+    private static final int PRODUCTS = 256;
+    private static final long ROUND_TRIP_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    @Test
+    public void throughputByPartitionCount() throws Exception {
+        List<Order> orders = orders();
+        System.out.printf("%-10s %-18s %-10s %-18s %-14s%n", "consumers", "partitioned/s", "speedup", "competing/s", "lock waits");
+        double single = 0;
+        for (int consumers : CONSUMERS) {
+            double partitioned = partitioned(orders, consumers);
+            if (consumers == 1) {
+                single = partitioned;
+            }
+            LongAdder lockWaits = new LongAdder();
+            double competing = competing(orders, consumers, lockWaits);
+            System.out.printf("%-10d %-18.0f %-10.2f %-18.0f %-14d%n", consumers, partitioned, partitioned / single, competing, lockWaits.sum());
+        }
+    }
+
+    private static double partitioned(List<Order> orders, int partitions) throws Exception {
+        OrderPartitioner orderPartitioner = new OrderPartitioner("order-routing", partitions);
+        List<List<Order>> queues = new ArrayList<>();
+        for (int i = 0; i < partitions; i++) {
+            queues.add(new ArrayList<>());
+        }
+        orders.forEach(order -> queues.get(orderPartitioner.partitionFor(order)).add(order));
+
+        ReentrantLock[] rows = rows();
+        LongAdder lockWaits = new LongAdder();
+        ExecutorService consumers = Executors.newFixedThreadPool(partitions);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> running = new ArrayList<>();
+            for (List<Order> queue : queues) {
+                running.add(consumers.submit(() -> queue.forEach(order -> consume(order, rows, lockWaits))));
+            }
+            for (Future<?> future : running) {
+                future.get();
+            }
+            return orders.size() / ((System.nanoTime() - start) / 1e9);
+        } finally {
+            consumers.shutdown();
+        }
+    }
+
+    private static double competing(List<Order> orders, int consumerCount, LongAdder lockWaits) throws Exception {
+        BlockingQueue<Order> queue = new LinkedBlockingQueue<>(orders);
+        ReentrantLock[] rows = rows();
+        ExecutorService consumers = Executors.newFixedThreadPool(consumerCount);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> running = new ArrayList<>();
+            for (int i = 0; i < consumerCount; i++) {
+                running.add(consumers.submit(() -> {
+                    Order order;
+                    while ((order = queue.poll()) != null) {
+                        consume(order, rows, lockWaits);
+                    }
+                }));
+            }
+            for (Future<?> future : running) {
+                future.get();
+            }
+            return orders.size() / ((System.nanoTime() - start) / 1e9);
+        } finally {
+            consumers.shutdown();
+        }
+    }
+
+    private static void consume(Order order, ReentrantLock[] rows, LongAdder lockWaits) {
+        ReentrantLock row = rows[order.getOrderItems().get(0).getProduct().getId().intValue()];
+        if (!row.tryLock()) {
+            lockWaits.increment();
+            row.lock();
+        }
+        try {
+            LockSupport.parkNanos(ROUND_TRIP_NANOS);
+        } finally {
+            row.unlock();
+        }
+    }
+
+    private static ReentrantLock[] rows() {
+        ReentrantLock[] rows = new ReentrantLock[PRODUCTS];
+        for (int i = 0; i < PRODUCTS; i++) {
+            rows[i] = new ReentrantLock();
+        }
+        return rows;
+    }
+
+    private static List<Order> orders() {
+        Random random = new Random(7);
+        List<Order> orders = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++) {
+            long productId = random.nextInt(PRODUCTS);
+            Order order = new Order();
+            order.setOrderItems(List.of(new OrderItem(null, order, new Product(productId, "Product", "Description", "Category", 10.0, 10), 1, 10.0)));
+            orders.add(order);
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.benchmarks;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.config.KeycloakClient;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticservices.OrderIndexer;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Order;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.OrderItem;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Product;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.producers.OrderProducer;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.OrderRepository;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.ProductRepository;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.OrderService;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.OrderPlacementTracker;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.OrderAdmissionControl;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.ProductService;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.StockHoldService;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.StockReservationEngine;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measures placeOrder latency as the number of order lines grows.
+ * Every repository call is charged a simulated database round trip, so the numbers
+ * show the cost of the per-item lookups compared with the single batch query.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class PlaceOrderBenchmark {
+
+    private static final long ROUND_TRIP_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+    private static final int[] ITEM_COUNTS = {1, 5, 10, 20, 40, 80};
+    private static final int ITERATIONS = 50;
+
+    @Test
+    public void placeOrderLatencyByItemCount() {
+        Map<Long, Product> catalog = new HashMap<>();
+        for (long id = 1; id <= 80; id++) {
+            catalog.put(id, new Product(id, "Product" + id, "Description", "Category", 10.0, 1_000_000));
+        }
+
+        ProductRepository productRepository = mock(ProductRepository.class);
+        when(productRepository.findById(anyLong())).thenAnswer(invocation -> {
+            roundTrip();
+            return Optional.ofNullable(catalog.get(invocation.<Long>getArgument(0)));
+        });
+        when(productRepository.findAllById(any())).thenAnswer(invocation -> {
+            roundTrip();
+            List<Product> found = new ArrayList<>();
+            for (Long id : invocation.<Iterable<Long>>getArgument(0)) {
+                Product product = catalog.get(id);
+                if (product != null) {
+                    found.add(product);
+                }
+            }
+            return found;
+        });
+
+        StockHoldService stockHoldService = mock(StockHoldService.class);
+        when(stockHoldService.hold(any(), any())).thenReturn(true);
+        OrderProducer orderProducer = mock(OrderProducer.class);
+        when(orderProducer.sendToQueue(any())).thenReturn(CompletableFuture.completedFuture(null));
+        OrderService orderService = new OrderService(mock(OrderRepository.class), mock(ProductService.class),
+                orderProducer, mock(KeycloakClient.class), productRepository, mock(StockReservationEngine.class), stockHoldService,
+                OrderAdmissionControl.unlimited(), mock(OrderPlacementTracker.class), mock(OrderIndexer.class));
+
+        System.out.printf("%-8s %-18s %-18s%n", "items", "per-item (us/op)", "batch (us/op)");
+        for (int itemCount : ITEM_COUNTS) {
+            Order order = orderWithItems(itemCount);
+
+            long perItem = measure(() -> {
+                for (OrderItem item : order.getOrderItems()) {
+                    productRepository.findById(item.getProduct().getId());
+                }
+            });
+            long batch = measure(() -> orderService.placeOrder(order));
+
+            System.out.printf("%-8d %-18d %-18d%n", itemCount, perItem, batch);
+            if (itemCount >= 10) {
+                assertTrue(batch < perItem, "batch validation should beat per-item lookups at " + itemCount + " items");
+            }
+        }
+    }
+
+    private static Order orderWithItems(int itemCount) {
+        Order order = new Order();
+        List<OrderItem> items = new ArrayList<>();
+        for (long id = 1; id <= itemCount; id++) {
+            Product product = new Product();
+            product.setId(id);
+            items.add(new OrderItem(null, order, product, 1, 10.0));
+        }
+        order.setOrderItems(items);
+        return order;
+    }
+
+    private static long measure(Runnable action) {
+        for (int i = 0; i < 5; i++) {
+            action.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            action.run();
+        }
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) / ITERATIONS;
+    }
+
+    private static void roundTrip() {
+        LockSupport.parkNanos(ROUND_TRIP_NANOS);
+    }
+}
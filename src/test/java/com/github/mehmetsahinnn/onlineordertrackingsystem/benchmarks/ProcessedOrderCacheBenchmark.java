@@ -0,0 +1,71 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.benchmarks;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners.ProcessedOrderCache;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures what the duplicate check costs a new order: one lookup in the {@link ProcessedOrderCache}
+ * that misses, and remembering the order once it is stored. Runs with one and with eight consumer
+ * threads on a full cache, so every addition also evicts the oldest ID, and reports the wall-clock
+ * time per order over all threads.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class ProcessedOrderCacheBenchmark {
+
+    private static final int CAPACITY = 100_000;
+    private static final int ORDERS_PER_THREAD = 500_000;
+    private static final int[] THREADS = {1, 8};
+
+    @Test
+    public void checkCostPerOrder() throws Exception {
+        run(1);
+        System.out.printf("%-10s %-14s%n", "threads", "ns/order");
+        for (int threads : THREADS) {
+            System.out.printf("%-10d %-14.0f%n", threads, run(threads));
+        }
+    }
+
+    /**
+     * Returns the wall-clock time per order over all threads.
+     */
+    private static double run(int threads) throws Exception {
+        ProcessedOrderCache cache = new ProcessedOrderCache(CAPACITY);
+        for (int i = 0; i < CAPACITY; i++) {
+            cache.add(UUID.randomUUID());
+        }
+        UUID[][] orders = new UUID[threads][ORDERS_PER_THREAD];
+        for (UUID[] ids : orders) {
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = UUID.randomUUID();
+            }
+        }
+
+        ExecutorService consumers = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        List<Future<?>> results = new ArrayList<>();
+        for (UUID[] ids : orders) {
+            results.add(consumers.submit(() -> {
+                for (UUID id : ids) {
+                    if (!cache.contains(id)) {
+                        cache.add(id);
+                    }
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        consumers.shutdown();
+        return (double) elapsed / ((long) threads * ORDERS_PER_THREAD);
+    }
+}
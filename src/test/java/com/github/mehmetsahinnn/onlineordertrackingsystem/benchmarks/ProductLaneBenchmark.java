@@ -0,0 +1,135 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.benchmarks;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners.ProductLaneExecutor;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import static java.util.concurrent.locks.LockSupport.parkNanos;
+
+/**
+ * Compares eight order consumers updating stock rows directly with the same consumers running
+ * their orders on the {@link ProductLaneExecutor}. Orders have one to three products drawn from
+ * 1000 products with Zipf-distributed popularity. Updating a row locks it until the order commits
+ * 300 us later; without lanes, rows are locked in the order the products appear in the order, or in
+ * ascending product order, and a consumer that waits more than 20 ms for a row is treated as
+ * deadlocked, rolls back and retries. Reports orders per second and rollbacks for several Zipf exponents.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class ProductLaneBenchmark {
+
+    private static final int PRODUCTS = 1000;
+    private static final int CONSUMERS = 8;
+    private static final int LANES = 64;
+    private static final int ORDERS = 20_000;
+    private static final long COMMIT_US = 300;
+    private static final long LOCK_TIMEOUT_MS = 20;
+    private static final double[] EXPONENTS = {0.0, 0.8, 1.2};
+
+    @Test
+    public void rowLocksAgainstProductLanes() throws Exception {
+        System.out.printf("%-10s %-14s %-12s %-12s%n", "zipf s", "path", "orders/s", "rollbacks");
+        for (double exponent : EXPONENTS) {
+            List<Set<Long>> orders = orders(exponent);
+            ReentrantLock[] rows = new ReentrantLock[PRODUCTS];
+            for (int i = 0; i < PRODUCTS; i++) {
+                rows[i] = new ReentrantLock();
+            }
+            AtomicLong rollbacks = new AtomicLong();
+            report(exponent, "row locks", run(orders, products -> lockRows(rows, products, rollbacks)), rollbacks.get());
+            AtomicLong sortedRollbacks = new AtomicLong();
+            report(exponent, "sorted locks", run(orders, products -> lockRows(rows, new TreeSet<>(products), sortedRollbacks)),
+                    sortedRollbacks.get());
+
+            ProductLaneExecutor lanes = new ProductLaneExecutor(true, LANES);
+            report(exponent, "lanes", run(orders, products -> lanes.run(products, ProductLaneBenchmark::commit)), 0);
+            lanes.shutdown();
+        }
+    }
+
+    private static void report(double exponent, String path, double seconds, long rollbacks) {
+        System.out.printf("%-10.1f %-14s %-12.0f %-12d%n", exponent, path, ORDERS / seconds, rollbacks);
+    }
+
+    private static double run(List<Set<Long>> orders, Consumer<Set<Long>> consumer) throws Exception {
+        ExecutorService consumers = Executors.newFixedThreadPool(CONSUMERS);
+        long start = System.nanoTime();
+        List<Future<?>> calls = new ArrayList<>(orders.size());
+        for (Set<Long> order : orders) {
+            calls.add(consumers.submit(() -> consumer.accept(order)));
+        }
+        for (Future<?> call : calls) {
+            call.get();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        consumers.shutdown();
+        return seconds;
+    }
+
+    private static void lockRows(ReentrantLock[] rows, Set<Long> products, AtomicLong rollbacks) {
+        while (true) {
+            List<ReentrantLock> held = new ArrayList<>();
+            boolean locked = true;
+            try {
+                for (long productId : products) {
+                    ReentrantLock row = rows[(int) productId];
+                    if (!row.tryLock(LOCK_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                        locked = false;
+                        break;
+                    }
+                    held.add(row);
+                }
+                if (locked) {
+                    commit();
+                    return;
+                }
+                rollbacks.incrementAndGet();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                held.forEach(ReentrantLock::unlock);
+            }
+        }
+    }
+
+    private static void commit() {
+        parkNanos(TimeUnit.MICROSECONDS.toNanos(COMMIT_US));
+    }
+
+    private static List<Set<Long>> orders(double exponent) {
+        double[] cumulative = new double[PRODUCTS];
+        double total = 0;
+        for (int rank = 0; rank < PRODUCTS; rank++) {
+            total += 1 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = total;
+        }
+        Random random = new Random(11);
+        List<Set<Long>> orders = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++) {
+            Set<Long> products = new LinkedHashSet<>();
+            int size = 1 + random.nextInt(3);
+            while (products.size() < size) {
+                int rank = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+                products.add((long) (rank >= 0 ? rank : -rank - 1));
+            }
+            orders.add(products);
+        }
+        return orders;
+    }
+}
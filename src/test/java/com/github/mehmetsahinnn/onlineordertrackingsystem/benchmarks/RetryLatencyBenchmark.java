@@ -0,0 +1,114 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.benchmarks;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulates one partition consumer with a fraction of orders that always fail, and reports the queue
+ * latency of the healthy orders. With immediate requeueing a failed order goes back to the head of the
+ * queue and is redelivered until it has failed {@value #REQUEUE_LIMIT} times, standing in for a consumer
+ * spinning on it; with the retry queues it leaves the queue and comes back after 1s, 5s, 25s and 125s
+ * before being dead-lettered. Time is simulated, so the run is deterministic and fast.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class RetryLatencyBenchmark {
+
+    private static final double[] FAILING_FRACTIONS = {0, 0.001, 0.005, 0.02};
+    private static final int ORDERS = 200_000;
+    private static final long ARRIVAL_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long SERVICE_NANOS = TimeUnit.MICROSECONDS.toNanos(60);
+    private static final int REQUEUE_LIMIT = 200;
+    private static final long[] RETRY_DELAYS_NANOS = {
+            TimeUnit.SECONDS.toNanos(1), TimeUnit.SECONDS.toNanos(5), TimeUnit.SECONDS.toNanos(25), TimeUnit.SECONDS.toNanos(125)};
+
+    @Test
+    public void healthyOrderLatencyWithFailingOrders() {
+        System.out.printf("%-10s %-10s %-12s %-12s %-12s %-12s%n", "failing", "mode", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (double fraction : FAILING_FRACTIONS) {
+            report(fraction, "requeue", simulate(fraction, false));
+            report(fraction, "retry", simulate(fraction, true));
+        }
+    }
+
+    private static void report(double fraction, String mode, long[] latencies) {
+        Arrays.sort(latencies);
+        System.out.printf("%-10s %-10s %-12.2f %-12.2f %-12.2f %-12.2f%n", fraction * 100 + "%", mode,
+                percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999), latencies[latencies.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)] / 1e6;
+    }
+
+    private static long[] simulate(double failingFraction, boolean retryQueues) {
+        Random random = new Random(11);
+        Delivery[] arrivals = new Delivery[ORDERS];
+        int healthy = 0;
+        for (int i = 0; i < ORDERS; i++) {
+            boolean failing = random.nextDouble() < failingFraction;
+            arrivals[i] = new Delivery(i * ARRIVAL_NANOS, failing);
+            healthy += failing ? 0 : 1;
+        }
+
+        long[] latencies = new long[healthy];
+        int completed = 0;
+        int next = 0;
+        long clock = 0;
+        Deque<Delivery> queue = new ArrayDeque<>();
+        PriorityQueue<Delivery> delayed = new PriorityQueue<>(Comparator.comparingLong(delivery -> delivery.readyAt));
+        while (completed < healthy) {
+            while (next < ORDERS && arrivals[next].readyAt <= clock) {
+                queue.addLast(arrivals[next++]);
+            }
+            while (!delayed.isEmpty() && delayed.peek().readyAt <= clock) {
+                queue.addLast(delayed.poll());
+            }
+            if (queue.isEmpty()) {
+                long nextArrival = next < ORDERS ? arrivals[next].readyAt : Long.MAX_VALUE;
+                long nextRetry = delayed.isEmpty() ? Long.MAX_VALUE : delayed.peek().readyAt;
+                clock = Math.min(nextArrival, nextRetry);
+                continue;
+            }
+
+            Delivery delivery = queue.pollFirst();
+            clock += SERVICE_NANOS;
+            if (!delivery.failing) {
+                latencies[completed++] = clock - delivery.arrivedAt;
+                continue;
+            }
+            delivery.attempts++;
+            if (!retryQueues) {
+                if (delivery.attempts < REQUEUE_LIMIT) {
+                    queue.addFirst(delivery);
+                }
+            } else if (delivery.attempts <= RETRY_DELAYS_NANOS.length) {
+                delivery.readyAt = clock + RETRY_DELAYS_NANOS[delivery.attempts - 1];
+                delayed.add(delivery);
+            }
+        }
+        return latencies;
+    }
+
+    private static final class Delivery {
+
+        private final long arrivedAt;
+        private final boolean failing;
+        private long readyAt;
+        private int attempts;
+
+        Delivery(long arrivedAt, boolean failing) {
+            this.arrivedAt = arrivedAt;
+            this.failing = failing;
+            this.readyAt = arrivedAt;
+        }
+    }
+}
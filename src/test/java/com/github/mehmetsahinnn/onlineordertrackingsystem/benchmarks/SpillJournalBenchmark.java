@@ -0,0 +1,124 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.benchmarks;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners.OrderRetryHandler;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.events.OrderPlacedEvent;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.events.OrderPlacedEventCodec;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Order;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.OrderItem;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Product;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.producers.OrderJournalDrainer;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.producers.OrderSpillJournal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of appending an order event to the spill journal, with and without forcing
+ * each append to disk, and how many journaled events per second the drainer replays for different
+ * batch sizes against a broker that confirms each publish after 2 ms.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class SpillJournalBenchmark {
+
+    private static final int APPENDS = 100_000;
+    private static final int FSYNC_APPENDS = 2_000;
+    private static final int DRAIN_EVENTS = 50_000;
+    private static final int[] BATCH_SIZES = {1, 50, 500, 2000};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void appendLatencyAndDrainThroughput() {
+        byte[] payload = OrderPlacedEventCodec.encode(OrderPlacedEvent.from(order()));
+        System.out.printf("event of %d bytes%n", payload.length);
+        System.out.printf("%-10s %-12s %-12s %-12s %-12s%n", "fsync", "appends/s", "p50 us", "p99 us", "p99.9 us");
+        appendLatency(false, APPENDS, payload);
+        appendLatency(true, FSYNC_APPENDS, payload);
+
+        ScheduledExecutorService confirms = Executors.newSingleThreadScheduledExecutor();
+        try {
+            System.out.printf("%n%-10s %-14s%n", "batch", "replayed/s");
+            for (int batchSize : BATCH_SIZES) {
+                OrderSpillJournal journal = new OrderSpillJournal(true, directory.resolve("drain-" + batchSize), 64 << 20, false);
+                for (int i = 0; i < DRAIN_EVENTS; i++) {
+                    journal.append("order-routing." + i % 4, payload);
+                }
+                SimulatedBroker broker = new SimulatedBroker(confirms, 2);
+                OrderJournalDrainer drainer = new OrderJournalDrainer(journal, broker,
+                        new OrderRetryHandler(broker, "order-queue", "order-retry", 4, 1000, 5, 1000),
+                        "order-exchange", batchSize, 10, 5000, 200, new SimpleMeterRegistry());
+                long start = System.nanoTime();
+                while (journal.hasBacklog()) {
+                    drainer.drain();
+                }
+                System.out.printf("%-10d %-14.0f%n", batchSize, DRAIN_EVENTS / ((System.nanoTime() - start) / 1e9));
+                journal.close();
+            }
+        } finally {
+            confirms.shutdownNow();
+        }
+    }
+
+    private void appendLatency(boolean fsync, int appends, byte[] payload) {
+        OrderSpillJournal journal = new OrderSpillJournal(true, directory.resolve("append-" + fsync), 64 << 20, fsync);
+        long[] latencies = new long[appends];
+        long start = System.nanoTime();
+        for (int i = 0; i < appends; i++) {
+            long before = System.nanoTime();
+            journal.append("order-routing." + i % 4, payload);
+            latencies[i] = System.nanoTime() - before;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        journal.close();
+        Arrays.sort(latencies);
+        System.out.printf("%-10s %-12.0f %-12.2f %-12.2f %-12.2f%n", fsync, appends / seconds,
+                latencies[appends / 2] / 1e3, latencies[appends * 99 / 100] / 1e3, latencies[appends * 999 / 1000] / 1e3);
+    }
+
+    private static Order order() {
+        Order order = new Order();
+        order.setOrderTrackId(UUID.randomUUID());
+        order.setOrderItems(List.of(
+                new OrderItem(null, order, new Product(1L, "Product", "Description", "Category", 10.0, 10), 2, 20.0),
+                new OrderItem(null, order, new Product(2L, "Product", "Description", "Category", 5.0, 10), 1, 5.0)));
+        return order;
+    }
+
+    /**
+     * A template that confirms every correlated publish after a fixed broker latency.
+     */
+    private static final class SimulatedBroker extends RabbitTemplate {
+
+        private final ScheduledExecutorService confirms;
+        private final long latencyMs;
+
+        SimulatedBroker(ScheduledExecutorService confirms, long latencyMs) {
+            this.confirms = confirms;
+            this.latencyMs = latencyMs;
+        }
+
+        @Override
+        public void send(String exchange, String routingKey, Message message, CorrelationData correlationData) {
+            confirms.schedule(() -> correlationData.getFuture().complete(new CorrelationData.Confirm(true, null)), latencyMs, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public <T> T invoke(OperationsCallback<T> action) {
+            return action.doInRabbit(this);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.benchmarks;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Product;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.ProductRepository;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.HashedTimingWheel;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.StockHoldService;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.StockReservationEngine;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measures the memory cost of an outstanding stock hold and how late holds expire
+ * relative to their deadline. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class StockHoldExpiryBenchmark {
+
+    private static final int HOLDS = 1_000_000;
+
+    @Test
+    public void memoryPerHold() throws InterruptedException {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        when(productRepository.findById(anyLong())).thenAnswer(invocation ->
+                Optional.of(new Product(invocation.getArgument(0), "Product", "Description", "Category", 10.0, Integer.MAX_VALUE)));
+        StockReservationEngine engine = new StockReservationEngine(productRepository, mock(JdbcTemplate.class), 500);
+        StockHoldService stockHoldService = new StockHoldService(engine, TimeUnit.MINUTES.toMillis(10), 100, 512);
+        try {
+            for (long id = 1; id <= 100; id++) {
+                engine.hold(id, 0);
+            }
+            long before = usedMemory();
+            for (int i = 0; i < HOLDS; i++) {
+                stockHoldService.hold(UUID.randomUUID(), Map.of(1L + (i % 100), 1));
+            }
+            long after = usedMemory();
+
+            assertEquals(HOLDS, stockHoldService.outstanding());
+            System.out.printf("outstanding holds: %,d, memory per hold: %d bytes%n", HOLDS, (after - before) / HOLDS);
+        } finally {
+            stockHoldService.shutdown();
+        }
+    }
+
+    @Test
+    public void expiryLatency() throws InterruptedException {
+        int timeouts = 200_000;
+        long[] lateness = new long[timeouts];
+        AtomicInteger index = new AtomicInteger();
+        CountDownLatch fired = new CountDownLatch(timeouts);
+        try (HashedTimingWheel wheel = new HashedTimingWheel(10, TimeUnit.MILLISECONDS, 512, "benchmark-wheel")) {
+            for (int i = 0; i < timeouts; i++) {
+                long delayNanos = TimeUnit.MILLISECONDS.toNanos(500 + (i % 1000));
+                long deadline = System.nanoTime() + delayNanos;
+                wheel.schedule(() -> {
+                    lateness[index.getAndIncrement()] = System.nanoTime() - deadline;
+                    fired.countDown();
+                }, delayNanos, TimeUnit.NANOSECONDS);
+            }
+            assertTrue(fired.await(1, TimeUnit.MINUTES));
+        }
+
+        Arrays.sort(lateness);
+        System.out.printf("expiry lateness p50: %.2f ms, p99: %.2f ms, max: %.2f ms (tick 10 ms)%n",
+                lateness[timeouts / 2] / 1e6, lateness[timeouts * 99 / 100] / 1e6, lateness[timeouts - 1] / 1e6);
+    }
+
+    private static long usedMemory() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
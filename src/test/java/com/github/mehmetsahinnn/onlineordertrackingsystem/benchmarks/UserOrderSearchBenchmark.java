@@ -0,0 +1,154 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticdocuments.OrderDocument;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticrepos.OrderDocumentRepository;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticrepos.OrderDocumentSearch;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticservices.ElasticOrderService;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.enums.OrderStatus;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.convert.MappingElasticsearchConverter;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.data.elasticsearch.core.mapping.SimpleElasticsearchMappingContext;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static java.util.concurrent.locks.LockSupport.parkNanos;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares the old way of finding a user's orders between two dates, loading every order of the user and
+ * filtering and grouping them in memory, with the search that leaves filtering, paging and counting to
+ * Elasticsearch. The user has 100,000 orders, one every ten minutes for about two years, and asks for one
+ * month of them. A simulated Elasticsearch answers each request after a 2 ms round trip plus 5 us per order
+ * returned; the client parses and maps each order it receives from its JSON source, as the repository does.
+ * Reports the latency and the heap allocated per call.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class UserOrderSearchBenchmark {
+
+    private static final long ROUND_TRIP_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+    private static final long PER_ORDER_NANOS = TimeUnit.MICROSECONDS.toNanos(5);
+    private static final int ORDERS = 100_000;
+    private static final int WARMUP = 5;
+    private static final int RUNS = 20;
+    private static final String USERNAME = "heavy";
+    private static final LocalDateTime FIRST_ORDER = LocalDateTime.of(2023, 1, 1, 0, 0);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final MappingElasticsearchConverter converter = new MappingElasticsearchConverter(new SimpleElasticsearchMappingContext());
+    private final String[] sources = new String[ORDERS];
+    private final long[] orderDates = new long[ORDERS];
+    private final long[] customerIds = new long[ORDERS];
+
+    @Test
+    public void latencyAndAllocationPerCall() throws Exception {
+        converter.afterPropertiesSet();
+        for (int i = 0; i < ORDERS; i++) {
+            LocalDateTime orderDate = FIRST_ORDER.plusMinutes(10L * i);
+            OrderDocument order = new OrderDocument("order-" + i, USERNAME, 1L + i % 2, OrderStatus.DELIVERED, orderDate, orderDate.plusDays(5));
+            sources[i] = converter.mapObject(order).toJson();
+            orderDates[i] = orderDate.toInstant(ZoneOffset.UTC).toEpochMilli();
+            customerIds[i] = order.getCustomerId();
+        }
+        LocalDateTime startDate = LocalDateTime.of(2024, 3, 1, 0, 0);
+        LocalDateTime endDate = LocalDateTime.of(2024, 3, 31, 23, 59, 59);
+
+        OrderDocumentRepository repository = mock(OrderDocumentRepository.class);
+        when(repository.findUserByUsername(anyString())).thenAnswer(invocation -> transfer(0, ORDERS));
+        when(repository.searchByUsername(anyString(), any(), any(), anyInt(), any())).thenAnswer(invocation ->
+                search(invocation.getArgument(1), invocation.getArgument(2), invocation.getArgument(3), invocation.getArgument(4)));
+        ElasticOrderService elasticOrderService = new ElasticOrderService(repository, null, null);
+
+        System.out.printf("%-16s %-8s %-10s %-12s%n", "query", "orders", "ms/call", "MB/call");
+        run("load and filter", () -> loadAndFilter(repository, startDate, endDate));
+        run("search_after", () -> elasticOrderService.filterOrderByUser(USERNAME, startDate, endDate));
+    }
+
+    private static void run(String name, Supplier<Map<Long, List<OrderDocument>>> query) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < WARMUP; i++) {
+            query.get();
+        }
+        long threadId = Thread.currentThread().getId();
+        long allocated = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        int orders = 0;
+        for (int i = 0; i < RUNS; i++) {
+            orders = query.get().values().stream().mapToInt(List::size).sum();
+        }
+        long nanos = System.nanoTime() - start;
+        allocated = threads.getThreadAllocatedBytes(threadId) - allocated;
+        System.out.printf("%-16s %-8d %-10.1f %-12.1f%n", name, orders, nanos / 1e6 / RUNS, allocated / 1e6 / RUNS);
+    }
+
+    /**
+     * The implementation this search replaced.
+     */
+    private static Map<Long, List<OrderDocument>> loadAndFilter(OrderDocumentRepository repository, LocalDateTime startDate, LocalDateTime endDate) {
+        return repository.findUserByUsername(USERNAME).stream()
+                .filter(order -> !order.getOrderDate().isBefore(startDate) && !order.getOrderDate().isAfter(endDate))
+                .collect(Collectors.groupingBy(OrderDocument::getCustomerId));
+    }
+
+    /**
+     * Answers like Elasticsearch would: the orders are already sorted by date and ID, so the page starts
+     * after the last order of the previous one, and the first page counts the orders of each customer.
+     */
+    private OrderDocumentSearch.Page search(LocalDateTime startDate, LocalDateTime endDate, int size, List<Object> searchAfter) throws Exception {
+        int from = searchAfter == null
+                ? firstAtOrAfter(startDate.toInstant(ZoneOffset.UTC).toEpochMilli())
+                : Integer.parseInt(((String) searchAfter.get(1)).substring("order-".length())) + 1;
+        int end = firstAtOrAfter(endDate.toInstant(ZoneOffset.UTC).toEpochMilli() + 1);
+        int to = Math.min(end, from + size);
+        Map<Long, Long> ordersByCustomer = new LinkedHashMap<>();
+        if (searchAfter == null) {
+            for (int i = from; i < end; i++) {
+                ordersByCustomer.merge(customerIds[i], 1L, Long::sum);
+            }
+        }
+        List<OrderDocument> orders = transfer(from, to);
+        List<Object> last = orders.isEmpty() ? null : List.of(orderDates[to - 1], "order-" + (to - 1));
+        return new OrderDocumentSearch.Page(orders, last, ordersByCustomer);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<OrderDocument> transfer(int from, int to) throws Exception {
+        parkNanos(ROUND_TRIP_NANOS + PER_ORDER_NANOS * (to - from));
+        List<OrderDocument> orders = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            Document document = Document.from(objectMapper.readValue(sources[i], Map.class));
+            orders.add(converter.mapDocument(document, OrderDocument.class));
+        }
+        return orders;
+    }
+
+    private int firstAtOrAfter(long epochMilli) {
+        int low = 0;
+        int high = ORDERS;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (orderDates[middle] < epochMilli) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,94 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.benchmarks;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.config.Bulkhead;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Compares a fixed pool of platform threads, one per consumer as today, with virtual threads at ten
+ * times the current concurrency. Each task blocks on a simulated Keycloak call and then on a simulated
+ * database write, each behind its own {@link Bulkhead}; the database bulkhead is sized like the
+ * connection pool. Reports throughput, the peak number of live platform threads and the heap in use.
+ * Virtual threads need a Java 21 runtime; on older runtimes the test is skipped.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class VirtualThreadBenchmark {
+
+    private static final int CURRENT_CONCURRENCY = 40;
+    private static final int TASKS = 20_000;
+    private static final int DATABASE_POOL_SIZE = 10;
+    private static final int KEYCLOAK_PERMITS = 200;
+    private static final long KEYCLOAK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long DATABASE_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+
+    @Test
+    public void platformThreadsAgainstVirtualThreads() throws Exception {
+        ExecutorService virtualThreads = virtualThreadExecutor();
+        assumeTrue(virtualThreads != null, "virtual threads need Java 21");
+        virtualThreads.shutdown();
+
+        System.out.printf("%-22s %-12s %-14s %-14s %-12s%n", "executor", "in flight", "tasks/s", "peak threads", "heap MB");
+        run("platform", CURRENT_CONCURRENCY, Executors.newFixedThreadPool(CURRENT_CONCURRENCY));
+        run("platform", 10 * CURRENT_CONCURRENCY, Executors.newFixedThreadPool(10 * CURRENT_CONCURRENCY));
+        run("virtual", 10 * CURRENT_CONCURRENCY, virtualThreadExecutor());
+        run("virtual", 100 * CURRENT_CONCURRENCY, virtualThreadExecutor());
+    }
+
+    private static void run(String name, int inFlight, ExecutorService executor) throws InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        Bulkhead database = new Bulkhead("Database", DATABASE_POOL_SIZE, 60_000);
+        Bulkhead keycloak = new Bulkhead("Keycloak", KEYCLOAK_PERMITS, 60_000);
+        Semaphore admitted = new Semaphore(inFlight);
+        CountDownLatch done = new CountDownLatch(TASKS);
+        System.gc();
+        threads.resetPeakThreadCount();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+        long peakHeap = heapBefore;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < TASKS; i++) {
+            admitted.acquire();
+            executor.execute(() -> {
+                try {
+                    keycloak.run(() -> LockSupport.parkNanos(KEYCLOAK_NANOS));
+                    database.run(() -> LockSupport.parkNanos(DATABASE_NANOS));
+                } finally {
+                    admitted.release();
+                    done.countDown();
+                }
+            });
+            if (i % 1000 == 0) {
+                peakHeap = Math.max(peakHeap, memory.getHeapMemoryUsage().getUsed());
+            }
+        }
+        done.await();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        System.out.printf("%-22s %-12d %-14.0f %-14d %-12.1f%n", name, inFlight, TASKS / seconds,
+                threads.getPeakThreadCount(), (peakHeap - heapBefore) / 1e6);
+    }
+
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.config;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions.BulkheadFullException;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class BulkheadTest {
+
+    @Test
+    public void test_call_beyond_the_limit_is_rejected_after_the_timeout() {
+        Bulkhead bulkhead = new Bulkhead("Keycloak", 1, 10);
+        bulkhead.acquire();
+
+        assertThrows(BulkheadFullException.class, () -> bulkhead.call(() -> "token"));
+
+        bulkhead.release();
+        assertEquals("token", bulkhead.call(() -> "token"));
+    }
+
+    @Test
+    public void test_permit_is_returned_when_the_call_fails() {
+        Bulkhead bulkhead = new Bulkhead("Keycloak", 1, 10);
+
+        assertThrows(IllegalStateException.class, () -> bulkhead.run(() -> {
+            throw new IllegalStateException("Keycloak down");
+        }));
+
+        assertEquals(1, bulkhead.availablePermits());
+    }
+
+    @Test
+    public void test_connection_holds_a_permit_until_closed_once() throws SQLException {
+        DataSource target = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        when(target.getConnection()).thenReturn(connection);
+        Bulkhead bulkhead = new Bulkhead("Database", 2, 10);
+        BulkheadDataSource dataSource = new BulkheadDataSource(target, bulkhead);
+
+        Connection first = dataSource.getConnection();
+        Connection second = dataSource.getConnection();
+        assertEquals(0, bulkhead.availablePermits());
+        assertThrows(BulkheadFullException.class, dataSource::getConnection);
+
+        first.close();
+        first.close();
+        assertEquals(1, bulkhead.availablePermits());
+        second.close();
+        assertEquals(2, bulkhead.availablePermits());
+        verify(connection, times(3)).close();
+    }
+
+    @Test
+    public void test_permit_is_returned_when_the_pool_fails() throws SQLException {
+        DataSource target = mock(DataSource.class);
+        when(target.getConnection()).thenThrow(new SQLException("Connection refused"));
+        Bulkhead bulkhead = new Bulkhead("Database", 1, 10);
+
+        assertThrows(SQLException.class, () -> new BulkheadDataSource(target, bulkhead).getConnection());
+
+        assertEquals(1, bulkhead.availablePermits());
+    }
+}
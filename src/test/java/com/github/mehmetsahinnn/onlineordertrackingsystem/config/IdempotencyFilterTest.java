@@ -0,0 +1,210 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdempotencyFilterTest {
+
+    private final AtomicInteger placed = new AtomicInteger();
+    private final IdempotencyFilter filter = new IdempotencyFilter(new InMemoryIdempotencyStore(100, 60_000), 5_000);
+
+    private static MockHttpServletRequest request(String user, String idempotencyKey, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/orders");
+        if (user != null) {
+            request.setUserPrincipal(new TestingAuthenticationToken(user, null));
+        }
+        if (idempotencyKey != null) {
+            request.addHeader(IdempotencyFilter.HEADER, idempotencyKey);
+        }
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    private FilterChain placeOrder(int status) {
+        return (request, response) -> {
+            int order = placed.incrementAndGet();
+            ((HttpServletResponse) response).setStatus(status);
+            response.setContentType("application/json");
+            response.getOutputStream().write(("{\"order\":" + order + "}").getBytes(StandardCharsets.UTF_8));
+        };
+    }
+
+    private MockHttpServletResponse send(String idempotencyKey, FilterChain chain) throws Exception {
+        return send("alice", idempotencyKey, "{}", chain);
+    }
+
+    private MockHttpServletResponse send(String user, String idempotencyKey, String body, FilterChain chain) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(user, idempotencyKey, body), response, chain);
+        return response;
+    }
+
+    @Test
+    public void test_retry_gets_the_first_response_without_placing_again() throws Exception {
+        MockHttpServletResponse first = send("key-1", placeOrder(201));
+        MockHttpServletResponse retry = send("key-1", placeOrder(201));
+
+        assertEquals(1, placed.get());
+        assertEquals(201, retry.getStatus());
+        assertEquals(first.getContentAsString(), retry.getContentAsString());
+        assertEquals("application/json", retry.getContentType());
+        assertEquals("true", retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertNull(first.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    public void test_requests_without_a_key_or_with_other_keys_all_run() throws Exception {
+        send(null, placeOrder(201));
+        send(null, placeOrder(201));
+        send("key-1", placeOrder(201));
+        send("key-2", placeOrder(201));
+
+        assertEquals(4, placed.get());
+    }
+
+    @Test
+    public void test_server_error_is_not_replayed() throws Exception {
+        send("key-1", placeOrder(503));
+        MockHttpServletResponse retry = send("key-1", placeOrder(201));
+
+        assertEquals(2, placed.get());
+        assertEquals(201, retry.getStatus());
+    }
+
+    @Test
+    public void test_shed_request_is_not_replayed() throws Exception {
+        send("key-1", placeOrder(429));
+        MockHttpServletResponse retry = send("key-1", placeOrder(201));
+
+        assertEquals(2, placed.get());
+        assertEquals(201, retry.getStatus());
+    }
+
+    @Test
+    public void test_concurrent_retry_waits_for_the_request_in_flight() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        FilterChain slow = (request, response) -> {
+            entered.countDown();
+            try {
+                proceed.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            placeOrder(201).doFilter(request, response);
+        };
+        ExecutorService clients = Executors.newFixedThreadPool(2);
+        try {
+            Future<MockHttpServletResponse> first = clients.submit(() -> send("key-1", slow));
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            Future<MockHttpServletResponse> retry = clients.submit(() -> send("key-1", placeOrder(201)));
+
+            assertThrows(TimeoutException.class, () -> retry.get(100, TimeUnit.MILLISECONDS));
+            proceed.countDown();
+
+            assertEquals(first.get(5, TimeUnit.SECONDS).getContentAsString(), retry.get(5, TimeUnit.SECONDS).getContentAsString());
+            assertEquals(1, placed.get());
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_other_endpoints_are_not_affected() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/products");
+        request.addHeader(IdempotencyFilter.HEADER, "key-1");
+
+        filter.doFilter(request, new MockHttpServletResponse(), placeOrder(201));
+        filter.doFilter(request, new MockHttpServletResponse(), placeOrder(201));
+
+        assertEquals(2, placed.get());
+    }
+
+    @Test
+    public void test_key_reused_with_a_different_body_is_rejected() throws Exception {
+        send("alice", "key-1", "{\"product\":1}", placeOrder(201));
+        MockHttpServletResponse reused = send("alice", "key-1", "{\"product\":2}", placeOrder(201));
+
+        assertEquals(1, placed.get());
+        assertEquals(422, reused.getStatus());
+        assertNull(reused.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    public void test_same_key_of_different_callers_runs_for_each() throws Exception {
+        send("alice", "key-1", "{}", placeOrder(201));
+        MockHttpServletResponse other = send("bob", "key-1", "{}", placeOrder(201));
+
+        assertEquals(2, placed.get());
+        assertNull(other.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    public void test_key_of_an_anonymous_caller_is_rejected() throws Exception {
+        MockHttpServletResponse first = send(null, "key-1", "{}", placeOrder(201));
+        MockHttpServletResponse retry = send(null, "key-1", "{}", placeOrder(201));
+
+        assertEquals(0, placed.get());
+        assertEquals(401, first.getStatus());
+        assertEquals(401, retry.getStatus());
+    }
+
+    @Test
+    public void test_controller_still_reads_the_body() throws Exception {
+        FilterChain echo = (request, response) -> response.getOutputStream().write(request.getInputStream().readAllBytes());
+
+        MockHttpServletResponse response = send("alice", "key-1", "{\"product\":1}", echo);
+
+        assertEquals("{\"product\":1}", response.getContentAsString());
+    }
+
+    @Test
+    public void test_controller_can_read_the_body_without_blocking() throws Exception {
+        FilterChain nonBlocking = (request, response) -> {
+            ServletInputStream input = request.getInputStream();
+            ByteArrayOutputStream read = new ByteArrayOutputStream();
+            input.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    byte[] buffer = new byte[4];
+                    while (input.isReady() && !input.isFinished()) {
+                        read.write(buffer, 0, input.read(buffer));
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() throws IOException {
+                    response.getOutputStream().write(read.toByteArray());
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    fail(t);
+                }
+            });
+        };
+
+        MockHttpServletResponse response = send("alice", "key-1", "{\"product\":1}", nonBlocking);
+
+        assertEquals("{\"product\":1}", response.getContentAsString());
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryIdempotencyStoreTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+
+    private static IdempotencyStore.StoredResponse response(String body) {
+        return new IdempotencyStore.StoredResponse("hash", 201, "application/json", body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void test_second_claim_waits_for_the_first_response() throws Exception {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(10, 60_000, now::get);
+
+        assertNull(store.claim("key"));
+        CompletableFuture<IdempotencyStore.StoredResponse> waiting = store.claim("key");
+        assertFalse(waiting.isDone());
+
+        store.complete("key", response("order"));
+
+        assertEquals("order", new String(waiting.get().body(), StandardCharsets.UTF_8));
+        assertSame(waiting.get(), store.claim("key").get());
+    }
+
+    @Test
+    public void test_abandoned_key_can_be_claimed_again() throws Exception {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(10, 60_000, now::get);
+        assertNull(store.claim("key"));
+        CompletableFuture<IdempotencyStore.StoredResponse> waiting = store.claim("key");
+
+        store.abandon("key");
+
+        assertNull(waiting.get());
+        assertNull(store.claim("key"));
+    }
+
+    @Test
+    public void test_response_expires_after_the_ttl() {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(10, 60_000, now::get);
+        store.claim("key");
+        store.complete("key", response("order"));
+
+        now.addAndGet(59_999);
+        assertNotNull(store.claim("key"));
+        now.addAndGet(1);
+
+        assertNull(store.claim("key"));
+    }
+
+    @Test
+    public void test_oldest_response_is_forgotten_before_keys_in_flight() {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(2, 60_000, now::get);
+        store.claim("in-flight");
+        store.claim("done");
+        store.complete("done", response("order"));
+
+        assertNull(store.claim("new"));
+
+        assertEquals(2, store.size());
+        assertFalse(store.claim("in-flight").isDone());
+        assertNull(store.claim("done"));
+    }
+}
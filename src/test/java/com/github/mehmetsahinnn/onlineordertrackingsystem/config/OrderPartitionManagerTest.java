@@ -0,0 +1,39 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class OrderPartitionManagerTest {
+
+    @Test
+    public void test_every_partition_is_consumed_by_this_node() {
+        Map<Integer, SimpleMessageListenerContainer> created = new HashMap<>();
+        OrderPartitionManager manager = new OrderPartitionManager(8,
+                partition -> created.computeIfAbsent(partition, p -> mock(SimpleMessageListenerContainer.class)));
+
+        manager.start();
+
+        assertEquals(Set.of(0, 1, 2, 3, 4, 5, 6, 7), manager.ownedPartitions());
+        created.values().forEach(container -> verify(container).start());
+        manager.stop();
+    }
+
+    @Test
+    public void test_stop_destroys_every_container() {
+        Map<Integer, SimpleMessageListenerContainer> created = new HashMap<>();
+        OrderPartitionManager manager = new OrderPartitionManager(4,
+                partition -> created.computeIfAbsent(partition, p -> mock(SimpleMessageListenerContainer.class)));
+        manager.start();
+
+        manager.stop();
+
+        assertFalse(manager.isRunning());
+        assertTrue(manager.ownedPartitions().isEmpty());
+        created.values().forEach(container -> verify(container).destroy());
+    }
+}
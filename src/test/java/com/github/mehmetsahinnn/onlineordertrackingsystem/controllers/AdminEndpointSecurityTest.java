@@ -0,0 +1,150 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.controllers;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticservices.OrderReindexer;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.enums.AccountStatus;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Customer;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.CustomerRepository;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.security.CustomerUserDetailsService;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.security.PCrypt;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.security.SecurityConfig;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.DeadLetterService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests that the admin endpoints are only served to authenticated administrators.
+ */
+@SpringJUnitWebConfig(AdminEndpointSecurityTest.Config.class)
+public class AdminEndpointSecurityTest {
+
+    private static final String PASSWORD = "secret";
+
+    @Configuration
+    @EnableWebMvc
+    @Import({SecurityConfig.class, PCrypt.class, CustomerUserDetailsService.class})
+    static class Config {
+
+        // the beans are wrapped in method security proxies, so the tests stub and verify the mocks themselves
+        static final CustomerRepository CUSTOMER_REPOSITORY = mock(CustomerRepository.class);
+        static final DeadLetterService DEAD_LETTER_SERVICE = mock(DeadLetterService.class);
+        static final OrderReindexer ORDER_REINDEXER = mock(OrderReindexer.class);
+
+        @Bean
+        CustomerRepository customerRepository() {
+            return CUSTOMER_REPOSITORY;
+        }
+
+        @Bean
+        DeadLetterService deadLetterService() {
+            return DEAD_LETTER_SERVICE;
+        }
+
+        @Bean
+        DeadLetterController deadLetterController(DeadLetterService deadLetterService) {
+            return new DeadLetterController(deadLetterService);
+        }
+
+        @Bean
+        OrderReindexer orderReindexer() {
+            return ORDER_REINDEXER;
+        }
+
+        @Bean
+        OrderReindexController orderReindexController(OrderReindexer orderReindexer) {
+            return new OrderReindexController(orderReindexer);
+        }
+    }
+
+    @Autowired
+    private WebApplicationContext context;
+
+    private final CustomerRepository customerRepository = Config.CUSTOMER_REPOSITORY;
+    private final DeadLetterService deadLetterService = Config.DEAD_LETTER_SERVICE;
+    private final OrderReindexer orderReindexer = Config.ORDER_REINDEXER;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).apply(springSecurity()).build();
+        String hash = new BCryptPasswordEncoder().encode(PASSWORD);
+        reset(customerRepository, deadLetterService, orderReindexer);
+        when(customerRepository.findByEmail(anyString())).thenReturn(Optional.empty());
+        when(customerRepository.findByEmail("admin@example.com"))
+                .thenReturn(Optional.of(customer("admin@example.com", hash, AccountStatus.ADMIN)));
+        when(customerRepository.findByEmail("alice@example.com"))
+                .thenReturn(Optional.of(customer("alice@example.com", hash, AccountStatus.USER)));
+        when(deadLetterService.replayDeadLetters(anyInt())).thenReturn(3);
+    }
+
+    private static Customer customer(String email, String passwordHash, AccountStatus status) {
+        return new Customer(1L, "Name", "Surname", "Address", passwordHash, email, status, false);
+    }
+
+    @Test
+    public void test_anonymous_dead_letter_replay_is_rejected() throws Exception {
+        mockMvc.perform(post("/api/admin/orders/dead-letters/replay"))
+                .andExpect(status().isUnauthorized());
+
+        verify(deadLetterService, never()).replayDeadLetters(anyInt());
+    }
+
+    @Test
+    public void test_dead_letter_replay_by_a_customer_is_forbidden() throws Exception {
+        mockMvc.perform(post("/api/admin/orders/dead-letters/replay").with(httpBasic("alice@example.com", PASSWORD)))
+                .andExpect(status().isForbidden());
+
+        verify(deadLetterService, never()).replayDeadLetters(anyInt());
+    }
+
+    @Test
+    public void test_dead_letter_replay_by_an_administrator_runs() throws Exception {
+        mockMvc.perform(post("/api/admin/orders/dead-letters/replay").with(httpBasic("admin@example.com", PASSWORD)))
+                .andExpect(status().isOk());
+
+        verify(deadLetterService).replayDeadLetters(1000);
+    }
+
+    @Test
+    public void test_anonymous_reindex_is_rejected() throws Exception {
+        mockMvc.perform(post("/api/admin/orders/reindex"))
+                .andExpect(status().isUnauthorized());
+
+        verify(orderReindexer, never()).start();
+    }
+
+    @Test
+    public void test_reindex_by_a_customer_is_forbidden() throws Exception {
+        mockMvc.perform(post("/api/admin/orders/reindex").with(httpBasic("alice@example.com", PASSWORD)))
+                .andExpect(status().isForbidden());
+
+        verify(orderReindexer, never()).start();
+    }
+
+    @Test
+    public void test_reindex_by_an_administrator_starts() throws Exception {
+        mockMvc.perform(post("/api/admin/orders/reindex").with(httpBasic("admin@example.com", PASSWORD)))
+                .andExpect(status().isAccepted());
+
+        verify(orderReindexer).start();
+    }
+}
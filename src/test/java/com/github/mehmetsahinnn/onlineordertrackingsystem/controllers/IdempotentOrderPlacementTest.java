@@ -0,0 +1,146 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.controllers;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.config.IdempotencyFilter;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.config.InMemoryIdempotencyStore;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticservices.ElasticOrderService;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.enums.AccountStatus;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Customer;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Order;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.CustomerRepository;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.security.CustomerUserDetailsService;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.security.PCrypt;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.security.SecurityConfig;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.OrderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests that retried order placements of signed-in customers are answered from the first response.
+ */
+@SpringJUnitWebConfig(IdempotentOrderPlacementTest.Config.class)
+public class IdempotentOrderPlacementTest {
+
+    private static final String PASSWORD = "secret";
+
+    @Configuration
+    @EnableWebMvc
+    @Import({SecurityConfig.class, PCrypt.class, CustomerUserDetailsService.class})
+    static class Config {
+
+        // the order service is wrapped in a method security proxy, so the tests stub and verify the mocks themselves
+        static final CustomerRepository CUSTOMER_REPOSITORY = mock(CustomerRepository.class);
+        static final OrderService ORDER_SERVICE = mock(OrderService.class);
+
+        @Bean
+        CustomerRepository customerRepository() {
+            return CUSTOMER_REPOSITORY;
+        }
+
+        @Bean
+        OrderService orderService() {
+            return ORDER_SERVICE;
+        }
+
+        @Bean
+        OrderController orderController(OrderService orderService) {
+            return new OrderController(orderService, mock(ElasticOrderService.class));
+        }
+    }
+
+    @Autowired
+    private WebApplicationContext context;
+
+    private final CustomerRepository customerRepository = Config.CUSTOMER_REPOSITORY;
+    private final OrderService orderService = Config.ORDER_SERVICE;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context)
+                .apply(springSecurity())
+                .addFilters(new IdempotencyFilter(new InMemoryIdempotencyStore(100, 60_000), 5_000))
+                .build();
+        String hash = new BCryptPasswordEncoder().encode(PASSWORD);
+        reset(customerRepository, orderService);
+        when(customerRepository.findByEmail(anyString())).thenReturn(Optional.empty());
+        when(customerRepository.findByEmail("alice@example.com"))
+                .thenReturn(Optional.of(new Customer(1L, "Alice", "Surname", "Address", hash, "alice@example.com", AccountStatus.USER, false)));
+        when(customerRepository.findByEmail("bob@example.com"))
+                .thenReturn(Optional.of(new Customer(2L, "Bob", "Surname", "Address", hash, "bob@example.com", AccountStatus.USER, false)));
+        when(orderService.placeOrder(any(Order.class))).thenReturn(new ResponseEntity<>(Map.of("placed", true), HttpStatus.CREATED));
+    }
+
+    private static MockHttpServletRequestBuilder placeOrder(String body) {
+        return post("/api/orders")
+                .header(IdempotencyFilter.HEADER, "key-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body);
+    }
+
+    @Test
+    public void test_retry_of_a_signed_in_customer_is_replayed() throws Exception {
+        mockMvc.perform(placeOrder("{}").with(httpBasic("alice@example.com", PASSWORD)))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED_HEADER));
+        mockMvc.perform(placeOrder("{}").with(httpBasic("alice@example.com", PASSWORD)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(IdempotencyFilter.REPLAYED_HEADER, "true"));
+
+        verify(orderService, times(1)).placeOrder(any(Order.class));
+    }
+
+    @Test
+    public void test_same_key_of_another_customer_places_again() throws Exception {
+        mockMvc.perform(placeOrder("{}").with(httpBasic("alice@example.com", PASSWORD)))
+                .andExpect(status().isOk());
+        mockMvc.perform(placeOrder("{}").with(httpBasic("bob@example.com", PASSWORD)))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(IdempotencyFilter.REPLAYED_HEADER));
+
+        verify(orderService, times(2)).placeOrder(any(Order.class));
+    }
+
+    @Test
+    public void test_key_reused_with_another_order_is_rejected() throws Exception {
+        mockMvc.perform(placeOrder("{}").with(httpBasic("alice@example.com", PASSWORD)))
+                .andExpect(status().isOk());
+        mockMvc.perform(placeOrder("{\"orderItems\":[]}").with(httpBasic("alice@example.com", PASSWORD)))
+                .andExpect(status().isUnprocessableEntity());
+
+        verify(orderService, times(1)).placeOrder(any(Order.class));
+    }
+
+    @Test
+    public void test_key_without_credentials_is_rejected() throws Exception {
+        mockMvc.perform(placeOrder("{}"))
+                .andExpect(status().isUnauthorized());
+
+        verify(orderService, never()).placeOrder(any(Order.class));
+    }
+}
@@ -1,6 +1,9 @@
 package com.github.mehmetsahinnn.onlineordertrackingsystem.controllers;
 
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions.OrderOverloadException;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticservices.ElasticOrderService;
 import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Order;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.OrderPlacementTracker;
 import com.github.mehmetsahinnn.onlineordertrackingsystem.services.OrderService;
 import com.github.mehmetsahinnn.onlineordertrackingsystem.enums.OrderStatus;
 import org.junit.jupiter.api.BeforeEach;
@@ -8,12 +11,17 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -32,6 +40,9 @@ public class OrderControllerTest {
     @Mock
     OrderService orderService;
 
+    @Mock
+    ElasticOrderService elasticOrderService;
+
 
     /**
      * Initializes Mockito annotations before each test method.
@@ -73,6 +84,34 @@ public class OrderControllerTest {
 //        assertEquals(HttpStatus.CREATED, response.getBody());
     }
 
+    /**
+     * Tests the placeOrder method of OrderController while orders are being shed.
+     * Verifies that the response status is TOO_MANY_REQUESTS and carries a Retry-After header.
+     */
+    @Test
+    public void test_shed_order_gets_too_many_requests_with_retry_after() {
+        when(orderService.placeOrder(any(Order.class))).thenThrow(new OrderOverloadException("backlog", 7));
+
+        ResponseEntity<Object> response = orderController.placeOrder(new Order());
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+        assertEquals("7", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
+
+    /**
+     * Tests the placeOrderAsync method of OrderController.
+     * Verifies that the response status is ACCEPTED before the placement has finished.
+     */
+    @Test
+    public void test_async_order_is_accepted_before_it_is_placed() {
+        when(orderService.placeOrderAsync(any(Order.class))).thenReturn(new CompletableFuture<>());
+
+        ResponseEntity<OrderPlacementTracker.Placement> response = orderController.placeOrderAsync(new Order());
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals(OrderPlacementTracker.State.PENDING, response.getBody().state());
+    }
+
     /**
      * Tests the getAllOrders method of OrderController.
      * Verifies that the response status is OK and the returned list of orders matches the expected list.
@@ -172,4 +211,23 @@ public class OrderControllerTest {
         assertEquals(order.getEstimatedDeliveryDate(), responseEntity.getBody());
     }
 
+    /**
+     * Tests the getOrdersPerDayAndStatus method of OrderController.
+     * Verifies that the counts are returned as aggregated, and that the request cache is only used when asked for.
+     */
+    @Test
+    void testGetOrdersPerDayAndStatus() {
+        LocalDateTime startDate = LocalDateTime.of(2024, 7, 1, 0, 0);
+        LocalDateTime endDate = LocalDateTime.of(2024, 7, 31, 23, 59, 59);
+        Map<OrderStatus, Long> statuses = new EnumMap<>(Map.of(OrderStatus.CONFIRMED, 3L, OrderStatus.CANCELLED, 1L));
+        Map<LocalDate, Map<OrderStatus, Long>> counts = Map.of(LocalDate.of(2024, 7, 1), statuses);
+        when(elasticOrderService.countOrdersByDayAndStatus(startDate, endDate, true)).thenReturn(counts);
+
+        ResponseEntity<Map<LocalDate, Map<OrderStatus, Long>>> response = orderController.getOrdersPerDayAndStatus(startDate, endDate, true);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(counts, response.getBody());
+        verify(elasticOrderService, never()).countOrdersByDayAndStatus(startDate, endDate, false);
+    }
+
 }
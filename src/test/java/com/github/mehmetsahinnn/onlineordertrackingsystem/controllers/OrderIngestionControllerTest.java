@@ -0,0 +1,87 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Order;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.OrderIngestionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the OrderIngestionController class.
+ */
+public class OrderIngestionControllerTest {
+
+    private final OrderIngestionService orderIngestionService = mock(OrderIngestionService.class);
+    private final OrderIngestionController controller = new OrderIngestionController(orderIngestionService, new ObjectMapper());
+
+    /**
+     * Answers every order read with a placed result carrying the order's items count as its message.
+     */
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void init() {
+        when(orderIngestionService.ingest(any(), any())).thenAnswer(invocation -> {
+            Iterator<Order> orders = invocation.getArgument(0);
+            Consumer<List<OrderIngestionService.Result>> results = invocation.getArgument(1);
+            List<OrderIngestionService.Result> chunk = new ArrayList<>();
+            long index = 0;
+            while (orders.hasNext()) {
+                Order order = orders.next();
+                chunk.add(new OrderIngestionService.Result(index++, UUID.randomUUID(), 201, "items " + order.getOrderItems().size()));
+            }
+            results.accept(chunk);
+            return index;
+        });
+    }
+
+    private static MockHttpServletRequest request(String contentType, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/orders/batch");
+        request.setContentType(contentType);
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    private List<String> send(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.placeOrders(request, response);
+        assertEquals(OrderIngestionController.NDJSON, response.getContentType());
+        return List.of(response.getContentAsString().split("\n"));
+    }
+
+    @Test
+    public void test_json_array_is_read_order_by_order() throws Exception {
+        String body = "[{\"orderItems\":[{\"product\":{\"id\":1},\"quantity\":1}]},"
+                + "{\"orderItems\":[{\"product\":{\"id\":1},\"quantity\":1},{\"product\":{\"id\":2},\"quantity\":1}]}]";
+
+        List<String> lines = send(request("application/json", body));
+
+        assertEquals(2, lines.size());
+        assertEquals("items 2", new ObjectMapper().readTree(lines.get(1)).get("message").asText());
+    }
+
+    @Test
+    public void test_ndjson_gets_one_result_line_per_order() throws Exception {
+        String body = "{\"orderItems\":[{\"product\":{\"id\":1},\"quantity\":1}]}\n"
+                + "{\"orderItems\":[{\"product\":{\"id\":2},\"quantity\":3}]}\n"
+                + "{\"orderItems\":[{\"product\":{\"id\":3},\"quantity\":1}]}\n";
+
+        List<String> lines = send(request(OrderIngestionController.NDJSON, body));
+
+        assertEquals(3, lines.size());
+        assertEquals(2, new ObjectMapper().readTree(lines.get(2)).get("index").asInt());
+        assertEquals(201, new ObjectMapper().readTree(lines.get(0)).get("status").asInt());
+    }
+}
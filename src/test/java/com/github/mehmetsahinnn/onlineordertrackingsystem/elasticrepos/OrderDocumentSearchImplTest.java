@@ -0,0 +1,87 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.elasticrepos;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderDocumentSearchImplTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LocalDateTime startDate = LocalDateTime.of(2024, 7, 1, 0, 0);
+    private final LocalDateTime endDate = LocalDateTime.of(2024, 7, 31, 23, 59, 59);
+
+    private JsonNode search(List<Object> searchAfter) throws Exception {
+        return objectMapper.readTree(OrderDocumentSearchImpl.byUsername("mehmet", startDate, endDate, 100, searchAfter).toString());
+    }
+
+    @Test
+    public void test_username_and_dates_are_filters_of_one_bool_query() throws Exception {
+        JsonNode filters = search(null).at("/query/bool/filter");
+
+        assertEquals(2, filters.size());
+        assertEquals("mehmet", filters.get(0).at("/term/username.keyword/value").asText());
+        assertEquals("2024-07-01T00:00", filters.get(1).at("/range/orderDate/from").asText());
+        assertEquals("2024-07-31T23:59:59", filters.get(1).at("/range/orderDate/to").asText());
+        assertTrue(filters.get(1).at("/range/orderDate/include_upper").asBoolean());
+    }
+
+    @Test
+    public void test_first_page_is_sorted_and_counts_orders_by_customer() throws Exception {
+        JsonNode search = search(null);
+
+        assertEquals(100, search.get("size").asInt());
+        assertEquals("asc", search.at("/sort/0/orderDate/order").asText());
+        assertEquals("asc", search.at("/sort/1/id/order").asText());
+        assertEquals("customerId", search.at("/aggregations/" + OrderDocumentSearchImpl.CUSTOMERS + "/terms/field").asText());
+        assertFalse(search.has("search_after"));
+    }
+
+    @Test
+    public void test_next_page_searches_after_the_last_order_without_counting_again() throws Exception {
+        JsonNode search = search(List.of(1719828000000L, "order-7"));
+
+        assertEquals(1719828000000L, search.at("/search_after/0").asLong());
+        assertEquals("order-7", search.at("/search_after/1").asText());
+        assertFalse(search.has("aggregations"));
+    }
+
+    @Test
+    public void test_orders_per_day_and_status_are_aggregated_without_hits() throws Exception {
+        JsonNode search = objectMapper.readTree(OrderDocumentSearchImpl.byDayAndStatus(startDate, endDate).toString());
+        JsonNode days = search.at("/aggregations/" + OrderDocumentSearchImpl.DAYS);
+
+        assertEquals(0, search.get("size").asInt());
+        assertEquals("2024-07-01T00:00", search.at("/query/bool/filter/0/range/orderDate/from").asText());
+        assertEquals("orderDate", days.at("/date_histogram/field").asText());
+        assertEquals("1d", days.at("/date_histogram/calendar_interval").asText());
+        assertEquals("status.okay", days.at("/aggregations/" + OrderDocumentSearchImpl.STATUSES + "/terms/field").asText());
+    }
+
+    @Test
+    public void test_orders_per_customer_are_aggregated_most_orders_first() throws Exception {
+        JsonNode search = objectMapper.readTree(OrderDocumentSearchImpl.byCustomer(startDate, endDate, 10).toString());
+        JsonNode customers = search.at("/aggregations/" + OrderDocumentSearchImpl.CUSTOMERS + "/terms");
+
+        assertEquals(0, search.get("size").asInt());
+        assertEquals("customerId", customers.get("field").asText());
+        assertEquals(10, customers.get("size").asInt());
+        assertEquals("desc", customers.at("/order/0/_count").asText());
+    }
+
+    @Test
+    public void test_delivery_delays_are_a_histogram_and_percentiles_of_orders_with_both_dates() throws Exception {
+        JsonNode search = objectMapper.readTree(OrderDocumentSearchImpl.byDeliveryDelay(startDate, endDate).toString());
+
+        assertEquals(0, search.get("size").asInt());
+        assertEquals("estimatedDeliveryDate", search.at("/query/bool/filter/1/exists/field").asText());
+        assertEquals(1, search.at("/aggregations/" + OrderDocumentSearchImpl.DELAYS + "/histogram/interval").asDouble());
+        JsonNode percents = search.at("/aggregations/" + OrderDocumentSearchImpl.PERCENTILES + "/percentiles/percents");
+        assertEquals(4, percents.size());
+        assertEquals(99, percents.get(3).asDouble());
+    }
+}
@@ -0,0 +1,78 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.elasticservices;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticdocuments.OrderDocument;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticrepos.OrderDocumentRepository;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticrepos.OrderDocumentSearch;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.enums.OrderStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ElasticOrderServiceTest {
+
+    private final OrderDocumentRepository orderDocumentRepository = mock(OrderDocumentRepository.class);
+    private final ElasticsearchRestTemplate elasticsearchTemplate = mock(ElasticsearchRestTemplate.class);
+    private final OrderIndexPartitions partitions = mock(OrderIndexPartitions.class);
+    private final ElasticOrderService elasticOrderService = new ElasticOrderService(orderDocumentRepository, elasticsearchTemplate, partitions);
+    private final LocalDateTime startDate = LocalDateTime.of(2024, 7, 1, 0, 0);
+    private final LocalDateTime endDate = LocalDateTime.of(2024, 7, 31, 23, 59, 59);
+
+    private static OrderDocument order(String id, long customerId, int day) {
+        LocalDateTime orderDate = LocalDateTime.of(2024, 7, day, 10, 0);
+        return new OrderDocument(id, "mehmet", customerId, OrderStatus.CONFIRMED, orderDate, orderDate.plusDays(5));
+    }
+
+    private static OrderDocumentSearch.Page page(Map<Long, Long> ordersByCustomer, OrderDocument... orders) {
+        OrderDocument last = orders[orders.length - 1];
+        return new OrderDocumentSearch.Page(List.of(orders), List.of(last.getOrderDate().getDayOfMonth(), last.getId()), ordersByCustomer);
+    }
+
+    @Test
+    public void test_pages_are_followed_with_the_sort_values_of_the_last_order() {
+        OrderDocumentSearch.Page first = page(Map.of(1L, 3L, 2L, 2L), order("1", 1L, 1), order("2", 2L, 2));
+        OrderDocumentSearch.Page second = page(Map.of(), order("3", 1L, 3), order("4", 1L, 4));
+        OrderDocumentSearch.Page third = page(Map.of(), order("5", 2L, 5));
+        when(orderDocumentRepository.searchByUsername("mehmet", startDate, endDate, 2, null)).thenReturn(first);
+        when(orderDocumentRepository.searchByUsername("mehmet", startDate, endDate, 2, first.searchAfter())).thenReturn(second);
+        when(orderDocumentRepository.searchByUsername("mehmet", startDate, endDate, 2, second.searchAfter())).thenReturn(third);
+
+        Map<Long, List<OrderDocument>> result = elasticOrderService.filterOrderByUser("mehmet", startDate, endDate, 2);
+
+        assertEquals(List.of("1", "3", "4"), result.get(1L).stream().map(OrderDocument::getId).toList());
+        assertEquals(List.of("2", "5"), result.get(2L).stream().map(OrderDocument::getId).toList());
+        verify(orderDocumentRepository, times(3)).searchByUsername(eq("mehmet"), eq(startDate), eq(endDate), eq(2), any());
+        verify(orderDocumentRepository, never()).findUserByUsername(any());
+    }
+
+    @Test
+    public void test_full_last_page_is_followed_by_an_empty_one() {
+        OrderDocumentSearch.Page first = page(Map.of(1L, 2L), order("1", 1L, 1), order("2", 1L, 2));
+        when(orderDocumentRepository.searchByUsername("mehmet", startDate, endDate, 2, null)).thenReturn(first);
+        when(orderDocumentRepository.searchByUsername("mehmet", startDate, endDate, 2, first.searchAfter()))
+                .thenReturn(new OrderDocumentSearch.Page(List.of(), null, Map.of()));
+
+        Map<Long, List<OrderDocument>> result = elasticOrderService.filterOrderByUser("mehmet", startDate, endDate, 2);
+
+        assertEquals(1, result.size());
+        assertEquals(2, result.get(1L).size());
+    }
+
+    @Test
+    public void test_saved_document_is_written_to_the_month_of_its_order_date() throws Exception {
+        OrderDocument order = order("order-1", 1, 15);
+        when(partitions.partitionFor(order.getOrderDate())).thenReturn("order-2024.07");
+        when(elasticsearchTemplate.save(eq(order), any(IndexCoordinates.class))).thenReturn(order);
+
+        assertSame(order, elasticOrderService.saveOrderDocument(order));
+        verify(partitions).createPartition(order.getOrderDate());
+        verify(elasticsearchTemplate).save(eq(order), argThat((IndexCoordinates index) -> index.getIndexName().equals("order-2024.07")));
+        verifyNoInteractions(orderDocumentRepository);
+    }
+}
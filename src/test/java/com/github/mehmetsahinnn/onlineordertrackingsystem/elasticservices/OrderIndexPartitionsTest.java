@@ -0,0 +1,89 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.elasticservices;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticdocuments.OrderDocument;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
+import org.elasticsearch.client.IndicesClient;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.CreateIndexRequest;
+import org.elasticsearch.client.indices.GetIndexRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.ElasticsearchRestTemplate;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class OrderIndexPartitionsTest {
+
+    private final RestHighLevelClient elasticsearchClient = mock(RestHighLevelClient.class);
+    private final OrderIndexPartitions partitions = partitions(3);
+
+    private OrderIndexPartitions partitions(int retentionMonths) {
+        ElasticsearchRestTemplate elasticsearchTemplate = mock(ElasticsearchRestTemplate.class);
+        when(elasticsearchTemplate.getIndexCoordinatesFor(OrderDocument.class)).thenReturn(IndexCoordinates.of("order"));
+        Clock clock = Clock.fixed(Instant.parse("2024-07-15T10:00:00Z"), ZoneOffset.UTC);
+        return new OrderIndexPartitions(elasticsearchClient, elasticsearchTemplate, retentionMonths, clock);
+    }
+
+    @Test
+    public void test_orders_are_written_to_the_month_of_their_order_date() {
+        assertEquals("order-2024.03", partitions.partitionFor(LocalDateTime.of(2024, 3, 31, 23, 59)));
+        assertEquals("order-2024.04", partitions.partitionFor(LocalDateTime.of(2024, 4, 1, 0, 0)));
+        assertEquals("order-write", partitions.partitionFor(null));
+    }
+
+    @Test
+    public void test_range_searches_only_the_months_it_overlaps() {
+        assertArrayEquals(new String[]{"order-2024.06", "order-2024.07"},
+                partitions.partitionsBetween(LocalDateTime.of(2024, 6, 20, 0, 0), LocalDateTime.of(2024, 7, 2, 0, 0)));
+    }
+
+    @Test
+    public void test_range_is_limited_to_the_retained_months() {
+        assertArrayEquals(new String[]{"order-2024.05", "order-2024.06", "order-2024.07", "order-2024.08"},
+                partitions.partitionsBetween(null, null));
+        assertArrayEquals(new String[]{"order-2024.05", "order-2024.06"},
+                partitions.partitionsBetween(LocalDateTime.of(2023, 1, 1, 0, 0), LocalDateTime.of(2024, 6, 1, 0, 0)));
+    }
+
+    @Test
+    public void test_range_before_retention_still_names_an_index() {
+        assertArrayEquals(new String[]{"order-2024.05"},
+                partitions.partitionsBetween(LocalDateTime.of(2023, 1, 1, 0, 0), LocalDateTime.of(2023, 2, 1, 0, 0)));
+    }
+
+    @Test
+    public void test_months_past_retention_are_expired() {
+        List<String> expired = partitions.expired(List.of("order-2024.03-000001", "order-2024.04-000002",
+                "order-2024.05-000001", "order-2024.07-000001", "order", "orders-2020.01-000001"));
+
+        assertEquals(List.of("order-2024.03-000001", "order-2024.04-000002"), expired);
+    }
+
+    @Test
+    public void test_reindex_writes_the_generation_after_the_newest() {
+        assertEquals("000003", partitions.nextGeneration(List.of("order-2024.06-000001", "order-2024.07-000002")));
+        assertEquals("000002", partitions.nextGeneration(List.of("order")));
+    }
+
+    @Test
+    public void test_single_order_index_is_left_alone_until_reindexed() throws Exception {
+        IndicesClient indices = mock(IndicesClient.class);
+        when(elasticsearchClient.indices()).thenReturn(indices);
+        when(indices.exists(any(GetIndexRequest.class), any(RequestOptions.class))).thenReturn(true);
+        when(indices.existsAlias(any(GetAliasesRequest.class), any(RequestOptions.class))).thenReturn(false);
+
+        partitions.rollover();
+
+        assertEquals("order", partitions.partitionFor(LocalDateTime.of(2024, 7, 1, 0, 0)));
+        assertArrayEquals(new String[]{"order"}, partitions.partitionsBetween(null, null));
+        verify(indices, never()).create(any(CreateIndexRequest.class), any(RequestOptions.class));
+    }
+}
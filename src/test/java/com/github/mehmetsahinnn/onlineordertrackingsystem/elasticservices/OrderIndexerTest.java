@@ -0,0 +1,184 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.elasticservices;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticdocuments.OrderDocument;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.enums.OrderStatus;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Customer;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Order;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderIndexerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<List<OrderIndexer.Pending>> sent = new CopyOnWriteArrayList<>();
+    private OrderIndexer indexer;
+
+    @AfterEach
+    public void tearDown() {
+        if (indexer != null) {
+            indexer.shutdown();
+        }
+    }
+
+    private static OrderDocument document(String id, OrderStatus status) {
+        return new OrderDocument(id, null, 1L, status, LocalDateTime.now(), LocalDateTime.now().plusDays(5));
+    }
+
+    private static OrderIndexer.Pending pending(String id) {
+        return new OrderIndexer.Pending(document(id, OrderStatus.CONFIRMED), System.currentTimeMillis(), System.nanoTime());
+    }
+
+    private static int[] created(int items) {
+        int[] statuses = new int[items];
+        Arrays.fill(statuses, 201);
+        return statuses;
+    }
+
+    private OrderIndexer.BulkIndex accepting() {
+        return batch -> {
+            sent.add(new ArrayList<>(batch));
+            return created(batch.size());
+        };
+    }
+
+    private double count(String name) {
+        return meterRegistry.counter(name).count();
+    }
+
+    @Test
+    public void test_full_bulk_is_sent_without_waiting_for_the_interval() throws Exception {
+        LinkedBlockingQueue<Integer> sizes = new LinkedBlockingQueue<>();
+        indexer = new OrderIndexer(batch -> {
+            sizes.add(batch.size());
+            return created(batch.size());
+        }, true, 100, 3, 60_000, 0, 1, meterRegistry);
+
+        for (int i = 0; i < 3; i++) {
+            indexer.index(document("order-" + i, OrderStatus.CONFIRMED));
+        }
+
+        assertEquals(3, sizes.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void test_partial_bulk_is_sent_after_the_interval() throws Exception {
+        LinkedBlockingQueue<Integer> sizes = new LinkedBlockingQueue<>();
+        indexer = new OrderIndexer(batch -> {
+            sizes.add(batch.size());
+            return created(batch.size());
+        }, true, 100, 500, 50, 0, 1, meterRegistry);
+
+        indexer.index(document("order-1", OrderStatus.CONFIRMED));
+
+        assertEquals(1, sizes.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void test_only_the_latest_document_of_an_order_is_sent() throws Exception {
+        indexer = new OrderIndexer(accepting(), true, 100, 500, 200, 0, 1, meterRegistry);
+
+        indexer.index(document("order-1", OrderStatus.CONFIRMED));
+        indexer.index(document("order-1", OrderStatus.CANCELLED));
+        indexer.shutdown();
+
+        assertEquals(1, sent.size());
+        assertEquals(1, sent.get(0).size());
+        assertEquals(OrderStatus.CANCELLED, sent.get(0).get(0).document().getStatus());
+    }
+
+    @Test
+    public void test_indexed_order_is_found_by_the_username_of_its_customer() throws Exception {
+        indexer = new OrderIndexer(accepting(), customerIds -> Map.of(1L, "alice@example.com"), true, 100, 500, 200, 0, 1,
+                meterRegistry);
+        Customer customer = new Customer();
+        customer.setId(1L);
+        Order order = new Order();
+        order.setOrderTrackId(UUID.randomUUID());
+        order.setCustomer(customer);
+        order.setStatus(OrderStatus.SHIPPED);
+        order.setOrderDate(new Date());
+
+        indexer.indexOrder(order);
+        indexer.shutdown();
+
+        // the user search filters on the exact username
+        List<String> found = sent.stream()
+                .flatMap(List::stream)
+                .map(OrderIndexer.Pending::document)
+                .filter(document -> "alice@example.com".equals(document.getUsername()))
+                .map(OrderDocument::getId)
+                .toList();
+        assertEquals(List.of(order.getOrderTrackId().toString()), found);
+    }
+
+    @Test
+    public void test_only_retryable_items_are_sent_again() throws Exception {
+        int[][] responses = {{201, 429, 400, 503}, {200, 409}};
+        indexer = new OrderIndexer(batch -> {
+            sent.add(new ArrayList<>(batch));
+            return responses[sent.size() - 1];
+        }, false, 100, 500, 1000, 3, 1, meterRegistry);
+
+        indexer.flush(List.of(pending("a"), pending("b"), pending("c"), pending("d")));
+
+        assertEquals(2, sent.size());
+        assertEquals(List.of("b", "d"), sent.get(1).stream().map(pending -> pending.document().getId()).toList());
+        assertEquals(3, count("order.index.indexed"));
+        assertEquals(1, count("order.index.failed"));
+        assertEquals(3, meterRegistry.timer("order.index.lag").count());
+    }
+
+    @Test
+    public void test_failed_request_is_retried_until_retries_run_out() throws Exception {
+        indexer = new OrderIndexer(batch -> {
+            sent.add(batch);
+            throw new IOException("Connection refused");
+        }, false, 100, 500, 1000, 2, 1, meterRegistry);
+
+        indexer.flush(List.of(pending("a"), pending("b")));
+
+        assertEquals(3, sent.size());
+        assertEquals(2, count("order.index.failed"));
+        assertEquals(0, count("order.index.indexed"));
+    }
+
+    @Test
+    public void test_full_queue_drops_documents_instead_of_blocking() throws Exception {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        indexer = new OrderIndexer(batch -> {
+            sending.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return created(batch.size());
+        }, true, 2, 1, 1000, 0, 1, meterRegistry);
+
+        assertTrue(indexer.index(document("order-1", OrderStatus.CONFIRMED)));
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+        assertTrue(indexer.index(document("order-2", OrderStatus.CONFIRMED)));
+        assertTrue(indexer.index(document("order-3", OrderStatus.CONFIRMED)));
+        assertFalse(indexer.index(document("order-4", OrderStatus.CONFIRMED)));
+        release.countDown();
+
+        assertEquals(1, count("order.index.dropped"));
+    }
+}
@@ -0,0 +1,139 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.elasticservices;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.enums.OrderStatus;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.OrderScanRepository;
+import org.elasticsearch.action.index.IndexRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.convert.MappingElasticsearchConverter;
+import org.springframework.data.elasticsearch.core.mapping.SimpleElasticsearchMappingContext;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class OrderReindexerTest {
+
+    private static final int ORDERS = 25;
+
+    private final OrderScanRepository orderScanRepository = mock(OrderScanRepository.class);
+    private final OrderIndexPartitions partitions = mock(OrderIndexPartitions.class);
+    private final MappingElasticsearchConverter converter = new MappingElasticsearchConverter(new SimpleElasticsearchMappingContext());
+    private final List<String> written = new CopyOnWriteArrayList<>();
+    private final List<String> sources = new CopyOnWriteArrayList<>();
+    private final List<OrderScanRepository.ScannedOrder> orders = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        converter.afterPropertiesSet();
+        for (long id = 1; id <= ORDERS; id++) {
+            orders.add(new OrderScanRepository.ScannedOrder(id, new UUID(0, id), 1L, "alice@example.com",
+                    OrderStatus.CONFIRMED, LocalDateTime.of(2024, 7, 1, 0, 0), LocalDate.of(2024, 7, 6)));
+        }
+        when(orderScanRepository.idRange()).thenReturn(new OrderScanRepository.IdRange(1, ORDERS, ORDERS));
+        when(orderScanRepository.scan(anyLong(), anyLong(), anyInt(), anyInt(), any())).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            long toId = invocation.getArgument(1);
+            int limit = invocation.getArgument(2);
+            Consumer<OrderScanRepository.ScannedOrder> consumer = invocation.getArgument(4);
+            int read = 0;
+            for (OrderScanRepository.ScannedOrder order : orders) {
+                if (order.id() > afterId && order.id() <= toId && read < limit) {
+                    consumer.accept(order);
+                    read++;
+                }
+            }
+            return read;
+        });
+        when(partitions.beginReindex()).thenReturn("000002");
+        when(partitions.reindexTargetFor(any())).thenReturn("order-2024.07-000002");
+    }
+
+    private OrderReindexer reindexer(OrderReindexer.BulkIndex bulkIndex) {
+        return new OrderReindexer(orderScanRepository, bulkIndex, converter, partitions,
+                mock(PlatformTransactionManager.class), 2, 4, 3, 2, 0, 2, 1);
+    }
+
+    private static int[] statuses(List<IndexRequest> requests, int status) {
+        int[] statuses = new int[requests.size()];
+        Arrays.fill(statuses, status);
+        return statuses;
+    }
+
+    private static OrderReindexer.Progress awaitFinished(OrderReindexer reindexer) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (reindexer.progress().state() == OrderReindexer.State.RUNNING && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        return reindexer.progress();
+    }
+
+    @Test
+    public void test_every_order_is_written_once_and_the_aliases_are_swapped() throws Exception {
+        OrderReindexer reindexer = reindexer(requests -> {
+            requests.forEach(request -> {
+                written.add(request.id());
+                sources.add(request.source().utf8ToString());
+            });
+            return statuses(requests, 201);
+        });
+
+        reindexer.start();
+        OrderReindexer.Progress progress = awaitFinished(reindexer);
+
+        assertEquals(OrderReindexer.State.DONE, progress.state());
+        assertEquals(ORDERS, progress.total());
+        assertEquals(ORDERS, progress.indexed());
+        assertEquals(ORDERS, written.size());
+        assertEquals(ORDERS, written.stream().distinct().count());
+        assertTrue(sources.stream().allMatch(source -> source.contains("\"username\":\"alice@example.com\"")));
+        verify(partitions).finishReindex();
+        verify(partitions, never()).abortReindex();
+    }
+
+    @Test
+    public void test_rejected_items_are_retried() throws Exception {
+        AtomicBoolean rejected = new AtomicBoolean();
+        OrderReindexer reindexer = reindexer(requests -> {
+            if (rejected.compareAndSet(false, true)) {
+                return statuses(requests, 429);
+            }
+            requests.forEach(request -> written.add(request.id()));
+            return statuses(requests, 201);
+        });
+
+        reindexer.start();
+        OrderReindexer.Progress progress = awaitFinished(reindexer);
+
+        assertEquals(OrderReindexer.State.DONE, progress.state());
+        assertEquals(ORDERS, written.stream().distinct().count());
+    }
+
+    @Test
+    public void test_failed_order_keeps_the_live_index() throws Exception {
+        String failing = new UUID(0, 7).toString();
+        OrderReindexer reindexer = reindexer(requests -> requests.stream()
+                .mapToInt(request -> request.id().equals(failing) ? 400 : 201)
+                .toArray());
+
+        reindexer.start();
+        OrderReindexer.Progress progress = awaitFinished(reindexer);
+
+        assertEquals(OrderReindexer.State.FAILED, progress.state());
+        assertEquals(1, progress.failed());
+        verify(partitions).abortReindex();
+        verify(partitions, never()).finishReindex();
+    }
+}
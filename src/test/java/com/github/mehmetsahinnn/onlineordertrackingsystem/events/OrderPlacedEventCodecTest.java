@@ -0,0 +1,97 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.events;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.config.RabbitMQConfig;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Order;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.OrderItem;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderPlacedEventCodecTest {
+
+    private final RabbitMQConfig rabbitMQConfig = new RabbitMQConfig();
+    private final MessageConverter messageConverter = rabbitMQConfig.orderEventMessageConverter();
+
+    private static Order order() {
+        Order order = new Order();
+        order.setOrderTrackId(UUID.randomUUID());
+        order.setOrderDate(new Date(1_700_000_000_000L));
+        order.setOrderItems(List.of(
+                new OrderItem(null, order, new Product(3L, "Product3", "Description", "Category", 12.5, 10), 2, 25.0),
+                new OrderItem(null, order, new Product(70_000L, "Product4", "Description", "Category", 1.0, 10), 1, 1.0),
+                new OrderItem(null, order, new Product(3L, "Product3", "Description", "Category", 12.5, 10), 1, 12.5)));
+        return order;
+    }
+
+    @Test
+    public void test_event_round_trips_through_the_codec() {
+        OrderPlacedEvent event = OrderPlacedEvent.from(order());
+
+        OrderPlacedEvent decoded = OrderPlacedEventCodec.decode(OrderPlacedEventCodec.encode(event));
+
+        assertEquals(event.getOrderTrackId(), decoded.getOrderTrackId());
+        assertNull(decoded.getCustomerId());
+        assertEquals(1_700_000_000_000L, decoded.getPlacedAt());
+        assertArrayEquals(new long[]{3L, 70_000L, 3L}, decoded.getProductIds());
+        assertArrayEquals(new int[]{2, 1, 1}, decoded.getQuantities());
+        assertArrayEquals(new double[]{25.0, 1.0, 12.5}, decoded.getTotalPrices());
+        assertEquals(Map.of(3L, 3, 70_000L, 1), decoded.quantitiesByProduct());
+    }
+
+    @Test
+    public void test_unknown_version_is_rejected() {
+        byte[] bytes = OrderPlacedEventCodec.encode(OrderPlacedEvent.from(order()));
+        bytes[2] = (byte) (OrderPlacedEventCodec.VERSION + 1);
+
+        assertThrows(IllegalArgumentException.class, () -> OrderPlacedEventCodec.decode(bytes));
+    }
+
+    @Test
+    public void test_truncated_event_is_rejected() {
+        byte[] bytes = OrderPlacedEventCodec.encode(OrderPlacedEvent.from(order()));
+
+        assertThrows(IllegalArgumentException.class, () -> OrderPlacedEventCodec.decode(Arrays.copyOf(bytes, bytes.length - 3)));
+    }
+
+    @Test
+    public void test_converter_writes_events_in_binary() {
+        OrderPlacedEvent event = OrderPlacedEvent.from(order());
+
+        Message message = messageConverter.toMessage(event, new MessageProperties());
+
+        assertEquals(OrderPlacedEventMessageConverter.CONTENT_TYPE, message.getMessageProperties().getContentType());
+        assertEquals(OrderPlacedEventCodec.VERSION, (Integer) message.getMessageProperties().getHeader(OrderPlacedEventMessageConverter.VERSION_HEADER));
+        OrderPlacedEvent read = assertInstanceOf(OrderPlacedEvent.class, messageConverter.fromMessage(message));
+        assertEquals(event.getOrderTrackId(), read.getOrderTrackId());
+    }
+
+    @Test
+    public void test_converter_turns_json_orders_into_events() {
+        Order order = order();
+        Message legacy = rabbitMQConfig.jsonMessageConverter().toMessage(order, new MessageProperties());
+
+        OrderPlacedEvent read = assertInstanceOf(OrderPlacedEvent.class, messageConverter.fromMessage(legacy));
+
+        assertEquals(order.getOrderTrackId(), read.getOrderTrackId());
+        assertArrayEquals(new int[]{2, 1, 1}, read.getQuantities());
+    }
+
+    @Test
+    public void test_converter_rejects_corrupt_events() {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(OrderPlacedEventMessageConverter.CONTENT_TYPE);
+
+        assertThrows(MessageConversionException.class, () -> messageConverter.fromMessage(new Message(new byte[]{'O', 'P'}, properties)));
+    }
+}
@@ -0,0 +1,140 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.listeners;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners.AdaptiveListenerTuner;
+import com.rabbitmq.client.Channel;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.concurrent.locks.LockSupport.parkNanos;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class AdaptiveListenerTunerTest {
+
+    private static AdaptiveListenerTuner tuner(long commitLatencyTargetMs) {
+        return new AdaptiveListenerTuner(null, null, true, 50, 10, 400, 20, 1000, 1, 4, 1, commitLatencyTargetMs, 1000, 0, 4);
+    }
+
+    @Test
+    public void test_slow_commits_reduce_writers_and_shrink_batches() {
+        AdaptiveListenerTuner tuner = tuner(0);
+        tuner.write(() -> parkNanos(TimeUnit.MILLISECONDS.toNanos(1)));
+
+        tuner.tune(0);
+
+        assertEquals(3, tuner.consumers());
+        assertEquals(25, tuner.batchSize());
+        assertEquals(50, tuner.prefetch());
+    }
+
+    @Test
+    public void test_slow_commits_never_grow_batches_even_with_a_growing_backlog() {
+        AdaptiveListenerTuner tuner = tuner(5);
+
+        for (int i = 1; i <= 5; i++) {
+            tuner.write(() -> parkNanos(TimeUnit.MILLISECONDS.toNanos(20)));
+            tuner.recordProcessing(10, TimeUnit.MILLISECONDS.toNanos(10));
+            tuner.tune(100_000L * i);
+            assertTrue(tuner.batchSize() <= 50);
+        }
+
+        assertEquals(10, tuner.batchSize());
+        assertEquals(1, tuner.consumers());
+    }
+
+    @Test
+    public void test_steady_backlog_holds_the_batch_size() {
+        AdaptiveListenerTuner tuner = tuner(10_000);
+        tuner.recordProcessing(10, TimeUnit.MILLISECONDS.toNanos(10));
+        tuner.tune(100_000);
+        assertEquals(100, tuner.batchSize());
+
+        for (int i = 0; i < 3; i++) {
+            tuner.recordProcessing(10, TimeUnit.MILLISECONDS.toNanos(10));
+            tuner.tune(100_000);
+        }
+
+        assertEquals(100, tuner.batchSize());
+        assertEquals(4, tuner.consumers());
+    }
+
+    @Test
+    public void test_backlog_adds_writers_up_to_the_ceiling() {
+        AdaptiveListenerTuner tuner = tuner(5);
+        tuner.write(() -> parkNanos(TimeUnit.MILLISECONDS.toNanos(20)));
+        tuner.tune(0);
+        assertEquals(3, tuner.consumers());
+
+        for (int i = 1; i <= 5; i++) {
+            tuner.recordProcessing(10, TimeUnit.MILLISECONDS.toNanos(10));
+            tuner.tune(100_000L * i);
+        }
+
+        assertEquals(4, tuner.consumers());
+        assertEquals(400, tuner.batchSize());
+        assertEquals(800, tuner.prefetch());
+    }
+
+    @Test
+    public void test_empty_queues_shrink_batches_to_the_floor() {
+        AdaptiveListenerTuner tuner = tuner(10_000);
+
+        for (int i = 0; i < 5; i++) {
+            tuner.tune(0);
+        }
+
+        assertEquals(10, tuner.batchSize());
+        assertEquals(20, tuner.prefetch());
+        assertEquals(4, tuner.consumers());
+    }
+
+    @Test
+    public void test_prefetch_is_applied_only_when_it_changes() throws Exception {
+        AdaptiveListenerTuner tuner = tuner(10_000);
+        Channel channel = mock(Channel.class);
+
+        tuner.applyPrefetch(channel);
+        tuner.applyPrefetch(channel);
+        tuner.tune(0);
+        tuner.applyPrefetch(channel);
+
+        verify(channel).basicQos(100, true);
+        verify(channel).basicQos(50, true);
+        verifyNoMoreInteractions(channel);
+    }
+
+    @Test
+    public void test_writers_beyond_the_limit_wait_for_a_permit() throws Exception {
+        AdaptiveListenerTuner tuner = AdaptiveListenerTuner.fixed(50, 1);
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        AtomicBoolean secondRan = new AtomicBoolean();
+
+        Thread first = new Thread(() -> tuner.write(() -> {
+            firstStarted.countDown();
+            awaitQuietly(releaseFirst);
+        }));
+        first.start();
+        assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+        Thread second = new Thread(() -> tuner.write(() -> secondRan.set(true)));
+        second.start();
+
+        second.join(200);
+        assertFalse(secondRan.get());
+        releaseFirst.countDown();
+        second.join(5000);
+        first.join(5000);
+        assertTrue(secondRan.get());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.listeners;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions.InsufficientStockException;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners.AdaptiveListenerTuner;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners.OrderBatchListener;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners.OrderRetryHandler;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners.ProcessedOrderCache;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.config.RabbitMQConfig;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticservices.OrderIndexer;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.enums.OrderStatus;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.events.OrderPlacedEvent;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Order;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.OrderItem;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Product;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.OrderBatchWriter;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.ProductRepository;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.StockHoldService;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.StockReservationEngine;
+import com.rabbitmq.client.Channel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.net.ConnectException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class OrderBatchListenerTest {
+
+    private final MessageConverter messageConverter = new RabbitMQConfig().orderEventMessageConverter();
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private OrderBatchWriter orderBatchWriter;
+
+    @Mock
+    private StockHoldService stockHoldService;
+
+    @Mock
+    private OrderRetryHandler orderRetryHandler;
+
+    @Mock
+    private OrderIndexer orderIndexer;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private Channel channel;
+
+    private StockReservationEngine stockReservationEngine;
+    private OrderBatchListener orderBatchListener;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(new Product(1L, "Product1", "Description", "Category", 10.0, 10)));
+        stockReservationEngine = new StockReservationEngine(productRepository, jdbcTemplate, 500);
+        orderBatchListener = new OrderBatchListener(messageConverter, orderBatchWriter, stockReservationEngine, stockHoldService, orderRetryHandler,
+                AdaptiveListenerTuner.fixed(50, 1), new ProcessedOrderCache(1000), orderIndexer, transactionManager);
+    }
+
+    /**
+     * Makes the writer behave like the unique index on the track ID, reporting orders it stored before as duplicates.
+     */
+    private void storeOrdersOnce() {
+        Set<UUID> stored = new HashSet<>();
+        when(orderBatchWriter.insertAll(anyList(), any(), any())).thenAnswer(invocation -> {
+            List<OrderPlacedEvent> events = invocation.getArgument(0);
+            Set<UUID> duplicates = new HashSet<>();
+            for (OrderPlacedEvent event : events) {
+                if (!stored.add(event.getOrderTrackId())) {
+                    duplicates.add(event.getOrderTrackId());
+                }
+            }
+            return duplicates;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private int writtenStockDelta() {
+        ArgumentCaptor<List<Object[]>> deltas = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, atLeast(0)).batchUpdate(anyString(), deltas.capture());
+        return deltas.getAllValues().stream().flatMap(List::stream).mapToInt(delta -> (Integer) delta[0]).sum();
+    }
+
+    private Message message(long deliveryTag, Order order) {
+        MessageProperties properties = new MessageProperties();
+        properties.setDeliveryTag(deliveryTag);
+        return messageConverter.toMessage(OrderPlacedEvent.from(order), properties);
+    }
+
+    private static Order order(int quantity) {
+        Order order = new Order();
+        order.setOrderTrackId(UUID.randomUUID());
+        order.setOrderItems(List.of(new OrderItem(null, order, new Product(1L, "Product1", "Description", "Category", 10.0, 10), quantity, 10.0 * quantity)));
+        return order;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test_batch_is_written_in_one_transaction_and_acked_together() throws Exception {
+        orderBatchListener.onMessageBatch(List.of(message(1, order(2)), message(2, order(2)), message(3, order(2))), channel);
+
+        ArgumentCaptor<List<OrderPlacedEvent>> events = ArgumentCaptor.forClass(List.class);
+        verify(orderBatchWriter, times(1)).insertAll(events.capture(), eq(OrderStatus.CONFIRMED), eq(LocalDate.now().plusDays(5)));
+        assertEquals(3, events.getValue().size());
+
+        ArgumentCaptor<List<Object[]>> deltas = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), deltas.capture());
+        assertArrayEquals(new Object[]{-6, 1L}, deltas.getValue().get(0));
+        verify(transactionManager, times(1)).commit(any());
+        verify(channel).basicAck(3, true);
+        assertEquals(4, stockReservationEngine.available(1L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test_poison_message_is_rejected_without_losing_the_batch() throws Exception {
+        MessageProperties properties = new MessageProperties();
+        properties.setDeliveryTag(2);
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        Message poison = new Message("{not json".getBytes(StandardCharsets.UTF_8), properties);
+
+        orderBatchListener.onMessageBatch(List.of(message(1, order(1)), poison, message(3, order(1))), channel);
+
+        verify(orderRetryHandler).handleFailure(eq(poison), any(MessageConversionException.class));
+        verify(channel).basicAck(2, false);
+        ArgumentCaptor<List<OrderPlacedEvent>> events = ArgumentCaptor.forClass(List.class);
+        verify(orderBatchWriter).insertAll(events.capture(), any(), any());
+        assertEquals(2, events.getValue().size());
+        verify(channel).basicAck(3, true);
+    }
+
+    @Test
+    public void test_message_is_requeued_when_the_retry_exchange_is_unreachable() throws Exception {
+        Message message = message(1, order(20));
+        doThrow(new AmqpConnectException(new ConnectException("Connection refused")))
+                .when(orderRetryHandler).handleFailure(any(), any());
+
+        orderBatchListener.onMessageBatch(List.of(message), channel);
+
+        verify(channel).basicNack(1, false, true);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test_json_order_from_an_older_producer_is_still_consumed() throws Exception {
+        Order order = order(3);
+        MessageProperties properties = new MessageProperties();
+        properties.setDeliveryTag(1);
+        Message legacy = new RabbitMQConfig().jsonMessageConverter().toMessage(order, properties);
+
+        orderBatchListener.onMessageBatch(List.of(legacy), channel);
+
+        ArgumentCaptor<List<OrderPlacedEvent>> events = ArgumentCaptor.forClass(List.class);
+        verify(orderBatchWriter).insertAll(events.capture(), any(), any());
+        assertEquals(order.getOrderTrackId(), events.getValue().get(0).getOrderTrackId());
+        verify(channel).basicAck(1, true);
+        assertEquals(7, stockReservationEngine.available(1L));
+    }
+
+    @Test
+    public void test_order_without_stock_is_rejected() throws Exception {
+        Message message = message(1, order(20));
+
+        orderBatchListener.onMessageBatch(List.of(message), channel);
+
+        verify(orderRetryHandler).handleFailure(eq(message), any(InsufficientStockException.class));
+        verify(channel).basicAck(1, false);
+        verify(orderBatchWriter, never()).insertAll(anyList(), any(), any());
+        assertEquals(10, stockReservationEngine.available(1L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test_failed_batch_is_retried_one_order_at_a_time() throws Exception {
+        Order bad = order(2);
+        doAnswer(invocation -> {
+            List<OrderPlacedEvent> events = invocation.getArgument(0);
+            if (events.stream().anyMatch(event -> bad.getOrderTrackId().equals(event.getOrderTrackId()))) {
+                throw new RuntimeException("Database error");
+            }
+            return Set.of();
+        }).when(orderBatchWriter).insertAll(anyList(), any(), any());
+
+        Message badMessage = message(2, bad);
+
+        orderBatchListener.onMessageBatch(List.of(message(1, order(2)), badMessage, message(3, order(2))), channel);
+
+        verify(orderBatchWriter, times(4)).insertAll(anyList(), any(), any());
+        verify(channel).basicAck(1, false);
+        verify(orderRetryHandler).handleFailure(eq(badMessage), any(RuntimeException.class));
+        verify(channel).basicAck(2, false);
+        verify(channel).basicAck(3, false);
+        verify(channel, never()).basicAck(anyLong(), eq(true));
+        assertEquals(6, stockReservationEngine.available(1L));
+    }
+
+    @Test
+    public void test_known_order_is_acked_without_being_written() throws Exception {
+        Order order = order(2);
+        orderBatchListener.onMessageBatch(List.of(message(1, order)), channel);
+
+        orderBatchListener.onMessageBatch(List.of(message(2, order)), channel);
+
+        verify(channel).basicAck(2, false);
+        verify(orderBatchWriter, times(1)).insertAll(anyList(), any(), any());
+        verify(transactionManager, times(1)).getTransaction(any());
+        assertEquals(8, stockReservationEngine.available(1L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test_order_stored_before_a_restart_is_acked_without_reserving_stock() throws Exception {
+        Order stored = order(20);
+        Order fresh = order(2);
+        when(orderBatchWriter.findStored(anyCollection())).thenReturn(Set.of(stored.getOrderTrackId()));
+
+        orderBatchListener.onMessageBatch(List.of(message(1, stored), message(2, fresh)), channel);
+
+        verify(channel).basicAck(1, false);
+        verify(channel).basicAck(2, true);
+        verify(stockHoldService).release(stored.getOrderTrackId());
+        verify(stockHoldService, never()).confirm(stored.getOrderTrackId());
+        verify(orderRetryHandler, never()).handleFailure(any(), any());
+        ArgumentCaptor<List<OrderPlacedEvent>> events = ArgumentCaptor.forClass(List.class);
+        verify(orderBatchWriter).insertAll(events.capture(), any(), any());
+        assertEquals(List.of(fresh.getOrderTrackId()), events.getValue().stream().map(OrderPlacedEvent::getOrderTrackId).toList());
+        assertEquals(8, stockReservationEngine.available(1L));
+    }
+
+    @Test
+    public void test_failed_lookup_of_stored_orders_falls_back_to_the_insert() throws Exception {
+        storeOrdersOnce();
+        Order order = order(2);
+        orderBatchListener.onMessageBatch(List.of(message(1, order)), channel);
+        OrderBatchListener restarted = new OrderBatchListener(messageConverter, orderBatchWriter, stockReservationEngine,
+                stockHoldService, orderRetryHandler, AdaptiveListenerTuner.fixed(50, 1), new ProcessedOrderCache(0), orderIndexer,
+                transactionManager);
+        when(orderBatchWriter.findStored(anyCollection())).thenThrow(new IllegalStateException("database unavailable"));
+
+        restarted.onMessageBatch(List.of(message(2, order)), channel);
+
+        verify(channel).basicAck(2, true);
+        assertEquals(8, stockReservationEngine.available(1L));
+    }
+
+    @Test
+    public void test_only_newly_stored_orders_are_indexed() throws Exception {
+        storeOrdersOnce();
+        Order stored = order(2);
+        orderBatchListener.onMessageBatch(List.of(message(1, stored)), channel);
+        OrderBatchListener restarted = new OrderBatchListener(messageConverter, orderBatchWriter, stockReservationEngine,
+                stockHoldService, orderRetryHandler, AdaptiveListenerTuner.fixed(50, 1), new ProcessedOrderCache(0), orderIndexer,
+                transactionManager);
+        Order fresh = order(1);
+
+        restarted.onMessageBatch(List.of(message(2, stored), message(3, fresh)), channel);
+
+        ArgumentCaptor<OrderPlacedEvent> indexed = ArgumentCaptor.forClass(OrderPlacedEvent.class);
+        verify(orderIndexer, times(2)).indexConfirmed(indexed.capture(), eq(LocalDate.now().plusDays(5)));
+        assertEquals(List.of(stored.getOrderTrackId(), fresh.getOrderTrackId()),
+                indexed.getAllValues().stream().map(OrderPlacedEvent::getOrderTrackId).toList());
+    }
+
+    @Test
+    public void test_redelivery_storm_changes_stock_exactly_once() throws Exception {
+        storeOrdersOnce();
+        Order order = order(2);
+        List<Message> deliveries = new ArrayList<>();
+        for (int tag = 1; tag <= 50; tag++) {
+            deliveries.add(message(tag, tag % 10 == 0 ? order(1) : order));
+        }
+        OrderBatchListener restarted = new OrderBatchListener(messageConverter, orderBatchWriter, stockReservationEngine,
+                stockHoldService, orderRetryHandler, AdaptiveListenerTuner.fixed(50, 1), new ProcessedOrderCache(0), orderIndexer,
+                transactionManager);
+
+        for (int from = 0; from < deliveries.size(); from += 10) {
+            orderBatchListener.onMessageBatch(deliveries.subList(from, from + 10), channel);
+            restarted.onMessageBatch(deliveries.subList(from, from + 10), channel);
+        }
+        stockReservationEngine.flush();
+
+        assertEquals(-7, writtenStockDelta());
+        assertEquals(3, stockReservationEngine.available(1L));
+        verify(orderRetryHandler, never()).handleFailure(any(), any());
+    }
+}
@@ -0,0 +1,100 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.listeners;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners.OrderLaneGate;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.concurrent.locks.LockSupport.parkNanos;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderLaneGateTest {
+
+    /**
+     * Starts a writer that records its lane once it gets a slot and gives the slot straight back,
+     * and returns once it is waiting for the slot.
+     */
+    private static Thread waitingWriter(OrderLaneGate gate, boolean express, Queue<String> grants) {
+        Thread writer = new Thread(() -> {
+            boolean reserved = gate.acquire(express);
+            grants.add(express ? "express" : "bulk");
+            gate.release(reserved);
+        });
+        writer.start();
+        while (writer.getState() != Thread.State.WAITING) {
+            parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        return writer;
+    }
+
+    private static void joinAll(List<Thread> writers) throws InterruptedException {
+        for (Thread writer : writers) {
+            writer.join(5000);
+            assertFalse(writer.isAlive());
+        }
+    }
+
+    @Test
+    public void test_express_writer_uses_a_reserved_slot_while_shared_slots_are_busy() {
+        OrderLaneGate gate = new OrderLaneGate(1, 1, 4);
+        assertFalse(gate.acquire(false));
+
+        assertTrue(gate.acquire(true));
+
+        gate.release(true);
+        gate.release(false);
+    }
+
+    @Test
+    public void test_waiting_express_writer_gets_the_next_shared_slot() throws InterruptedException {
+        OrderLaneGate gate = new OrderLaneGate(1, 0, 4);
+        Queue<String> grants = new ConcurrentLinkedQueue<>();
+        boolean reserved = gate.acquire(false);
+        List<Thread> writers = new ArrayList<>();
+        writers.add(waitingWriter(gate, false, grants));
+        writers.add(waitingWriter(gate, true, grants));
+
+        gate.release(reserved);
+        joinAll(writers);
+
+        assertEquals(List.of("express", "bulk"), new ArrayList<>(grants));
+    }
+
+    @Test
+    public void test_bulk_writer_goes_next_after_a_streak_of_express_writers() throws InterruptedException {
+        OrderLaneGate gate = new OrderLaneGate(1, 0, 2);
+        Queue<String> grants = new ConcurrentLinkedQueue<>();
+        boolean reserved = gate.acquire(false);
+        List<Thread> writers = new ArrayList<>();
+        writers.add(waitingWriter(gate, false, grants));
+        for (int i = 0; i < 3; i++) {
+            writers.add(waitingWriter(gate, true, grants));
+        }
+
+        gate.release(reserved);
+        joinAll(writers);
+
+        assertEquals(List.of("express", "express", "bulk", "express"), new ArrayList<>(grants));
+    }
+
+    @Test
+    public void test_shrinking_keeps_writers_out_until_enough_slots_are_released() {
+        OrderLaneGate gate = new OrderLaneGate(2, 0, 4);
+        boolean first = gate.acquire(false);
+        boolean second = gate.acquire(false);
+        gate.resize(1);
+        gate.release(first);
+        Queue<String> grants = new ConcurrentLinkedQueue<>();
+
+        Thread writer = waitingWriter(gate, false, grants);
+        assertTrue(grants.isEmpty());
+
+        gate.release(second);
+        assertDoesNotThrow(() -> joinAll(List.of(writer)));
+        assertEquals(List.of("bulk"), new ArrayList<>(grants));
+    }
+}
@@ -1,24 +1,33 @@
 package com.github.mehmetsahinnn.onlineordertrackingsystem.listeners;
 
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions.InsufficientStockException;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners.AdaptiveListenerTuner;
 import com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners.OrderListener;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners.ProcessedOrderCache;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners.ProductLaneExecutor;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticservices.OrderIndexer;
 import com.github.mehmetsahinnn.onlineordertrackingsystem.enums.OrderStatus;
-import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Order;
-import com.github.mehmetsahinnn.onlineordertrackingsystem.models.OrderItem;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.events.OrderPlacedEvent;
 import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Product;
-import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.OrderRepository;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.OrderBatchWriter;
 import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.ProductRepository;
-import com.github.mehmetsahinnn.onlineordertrackingsystem.services.OrderService;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.StockHoldService;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.services.StockReservationEngine;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.LocalDate;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -26,184 +35,209 @@ import static org.mockito.Mockito.*;
 
 public class OrderListenerTest {
 
-    @InjectMocks
     private OrderListener orderListener;
 
     @Mock
-    private OrderService orderService;
+    private OrderBatchWriter orderBatchWriter;
 
     @Mock
-    private OrderRepository orderRepository;
+    private ProductRepository productRepository;
 
     @Mock
-    private ProductRepository productRepository;
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private StockHoldService stockHoldService;
+
+    @Mock
+    private OrderIndexer orderIndexer;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private StockReservationEngine stockReservationEngine;
 
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
+        stockReservationEngine = new StockReservationEngine(productRepository, jdbcTemplate, 500);
+        orderListener = new OrderListener(orderBatchWriter, stockReservationEngine, stockHoldService,
+                AdaptiveListenerTuner.fixed(1, 1), ProductLaneExecutor.direct(), new ProcessedOrderCache(1000), orderIndexer, transactionManager);
+    }
+
+    private static OrderPlacedEvent event(UUID orderTrackId, long[] productIds, int[] quantities) {
+        double[] totalPrices = new double[quantities.length];
+        for (int i = 0; i < quantities.length; i++) {
+            totalPrices[i] = quantities[i] * 10.0;
+        }
+        return new OrderPlacedEvent(orderTrackId, 1L, System.currentTimeMillis(), productIds, quantities, totalPrices);
+    }
+
+    private static OrderPlacedEvent event(int quantity) {
+        return event(UUID.randomUUID(), new long[]{1L}, new int[]{quantity});
     }
 
     @Test
     public void handleMessage_success() {
         // Arrange
         Product product = new Product(1L, "Product1", "Description", "Category", 10.0, 10);
-        OrderItem orderItem = new OrderItem(1L, null, product, 5, 50.0);
-        Order order = new Order();
-        order.setOrderItems(List.of(orderItem));
+        OrderPlacedEvent event = event(5);
 
         when(productRepository.findById(1L)).thenReturn(Optional.of(product));
 
         // Act
-        orderListener.handleMessage(order);
+        orderListener.handleMessage(event);
 
         // Assert
-        assertEquals(OrderStatus.CONFIRMED, order.getStatus());
-        assertEquals(LocalDate.now().plusDays(5), order.getEstimatedDeliveryDate());
-
-        ArgumentCaptor<Product> productCaptor = ArgumentCaptor.forClass(Product.class);
-        verify(productRepository).save(productCaptor.capture());
-
-        Product savedProduct = productCaptor.getValue();
-        assertEquals(5, savedProduct.getNumberInStock());
-
-        verify(orderRepository).save(order);
+        assertEquals(5, stockReservationEngine.available(1L));
+        verify(orderBatchWriter).insertAll(List.of(event), OrderStatus.CONFIRMED, LocalDate.now().plusDays(5));
     }
 
     @Test
     public void test_order_status_set_to_confirmed() {
         // Arrange
         Product product = new Product(1L, "Product1", "Description", "Category", 10.0, 10);
-        OrderItem orderItem = new OrderItem(1L, null, product, 5, 50.0);
-        Order order = new Order();
-        order.setOrderItems(List.of(orderItem));
 
         when(productRepository.findById(1L)).thenReturn(Optional.of(product));
 
         // Act
-        orderListener.handleMessage(order);
+        orderListener.handleMessage(event(5));
 
         // Assert
-        assertEquals(OrderStatus.CONFIRMED, order.getStatus());
+        verify(orderBatchWriter).insertAll(anyList(), eq(OrderStatus.CONFIRMED), any(LocalDate.class));
     }
 
     @Test
     public void testEstimatedDeliveryDate5daysFromNow() {
         // Arrange
         Product product = new Product(1L, "Product1", "Description", "Category", 10.0, 10);
-        OrderItem orderItem = new OrderItem(1L, null, product, 5, 50.0);
-        Order order = new Order();
-        order.setOrderItems(List.of(orderItem));
 
         when(productRepository.findById(1L)).thenReturn(Optional.of(product));
 
         // Act
-        orderListener.handleMessage(order);
+        orderListener.handleMessage(event(5));
 
         // Assert
-        assertEquals(LocalDate.now().plusDays(5), order.getEstimatedDeliveryDate());
+        verify(orderBatchWriter).insertAll(anyList(), any(OrderStatus.class), eq(LocalDate.now().plusDays(5)));
     }
 
     @Test
-    public void testOrderInRepository() {
+    public void testOrderWrittenInOneTransaction() {
         // Arrange
         Product product = new Product(1L, "Product1", "Description", "Category", 10.0, 10);
-        OrderItem orderItem = new OrderItem(1L, null, product, 5, 50.0);
-        Order order = new Order();
-        order.setOrderItems(List.of(orderItem));
 
         when(productRepository.findById(1L)).thenReturn(Optional.of(product));
 
         // Act
-        orderListener.handleMessage(order);
+        orderListener.handleMessage(event(5));
 
         // Assert
-        verify(orderRepository).save(order);
+        verify(transactionManager).getTransaction(any());
+        verify(transactionManager).commit(any());
     }
 
     @Test
     public void testStockUpdateForEachOrderItem() {
+        // Arrange
+        Product first = new Product(1L, "Product1", "Description", "Category", 10.0, 10);
+        Product second = new Product(2L, "Product2", "Description", "Category", 10.0, 10);
+
+        when(productRepository.findById(1L)).thenReturn(Optional.of(first));
+        when(productRepository.findById(2L)).thenReturn(Optional.of(second));
+
+        // Act
+        orderListener.handleMessage(event(UUID.randomUUID(), new long[]{1L, 2L, 1L}, new int[]{2, 4, 3}));
+
+        // Assert
+        assertEquals(5, stockReservationEngine.available(1L));
+        assertEquals(6, stockReservationEngine.available(2L));
+    }
+
+    @Test
+    public void testProductRepositoryCalledSaveUpdatedProductStock() {
         // Arrange
         Product product = new Product(1L, "Product1", "Description", "Category", 10.0, 10);
-        OrderItem orderItem = new OrderItem(1L, null, product, 5, 50.0);
-        Order order = new Order();
-        order.setOrderItems(List.of(orderItem));
 
         when(productRepository.findById(1L)).thenReturn(Optional.of(product));
 
         // Act
-        orderListener.handleMessage(order);
+        orderListener.handleMessage(event(5));
+
+        stockReservationEngine.flush();
 
         // Assert
-        ArgumentCaptor<Product> productCaptor = ArgumentCaptor.forClass(Product.class);
-        verify(productRepository).save(productCaptor.capture());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> batchCaptor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), batchCaptor.capture());
+        assertEquals(1, batchCaptor.getValue().size());
+        assertArrayEquals(new Object[]{-5, 1L}, batchCaptor.getValue().get(0));
+        verify(productRepository, never()).save(any(Product.class));
+    }
+
+    @Test
+    public void testInsufficientStockLeavesStockUntouched() {
+        // Arrange
+        Product product = new Product(1L, "Product1", "Description", "Category", 10.0, 3);
+
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
 
-        Product savedProduct = productCaptor.getValue();
-        assertEquals(5, savedProduct.getNumberInStock());
+        // Act & Assert
+        assertThrows(InsufficientStockException.class, () -> orderListener.handleMessage(event(5)));
+        assertEquals(3, stockReservationEngine.available(1L));
+        verify(orderBatchWriter, never()).insertAll(anyList(), any(), any());
     }
 
     @Test
-    public void testProductRepositoryCalledSaveUpdatedProductStock() {
+    public void testStockReleasedWhenOrderSaveFails() {
         // Arrange
         Product product = new Product(1L, "Product1", "Description", "Category", 10.0, 10);
-        OrderItem orderItem = new OrderItem(1L, null, product, 5, 50.0);
-        Order order = new Order();
-        order.setOrderItems(List.of(orderItem));
 
         when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        doThrow(new RuntimeException("Database error")).when(orderBatchWriter).insertAll(anyList(), any(), any());
 
         // Act
-        orderListener.handleMessage(order);
+        assertThrows(RuntimeException.class, () -> orderListener.handleMessage(event(5)));
 
         // Assert
-        verify(productRepository).save(any(Product.class));
+        assertEquals(10, stockReservationEngine.available(1L));
+        verify(transactionManager).rollback(any());
     }
 
     @Test
     public void testOrderWithNoOrderItems() {
         // Arrange
-        Order order = new Order();
-        order.setOrderItems(Collections.emptyList());
+        OrderPlacedEvent event = event(UUID.randomUUID(), new long[0], new int[0]);
 
         // Act & Assert
         assertDoesNotThrow(() -> {
-            orderListener.handleMessage(order);
+            orderListener.handleMessage(event);
         });
 
-        verify(orderRepository).save(order);
+        verify(orderBatchWriter).insertAll(eq(List.of(event)), any(), any());
     }
 
     @Test
-    public void testOrderWithNullOrderItemsList() {
-        // Arrange
-        Order order = new Order();
-        order.setOrderItems(null); // Bu kısımda orderItems null olarak ayarlanıyor
-
+    public void testNullEvent() {
         // Act & Assert
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
-            orderListener.handleMessage(order);
+            orderListener.handleMessage(null);
         });
 
-        // Exception mesajı kontrolü (opsiyonel)
         assertEquals("Order or Order Items cannot be null or empty.", exception.getMessage());
 
-        // orderRepository'nin save metodunun çağrılmadığını doğrula
-        verify(orderRepository, never()).save(any(Order.class));
+        verify(orderBatchWriter, never()).insertAll(anyList(), any(), any());
     }
 
     @Test
     public void testExceptionThrownDuringOrderSave() {
         // Arrange
         Product product = new Product(1L, "Product1", "Description", "Category", 10.0, 10);
-        OrderItem orderItem = new OrderItem(1L, null, product, 5, 50.0);
-        Order order = new Order();
-        order.setOrderItems(List.of(orderItem));
 
         when(productRepository.findById(1L)).thenReturn(Optional.of(product));
-        doThrow(new RuntimeException("Database error")).when(orderRepository).save(any(Order.class));
+        doThrow(new RuntimeException("Database error")).when(orderBatchWriter).insertAll(anyList(), any(), any());
 
         // Act & Assert
         RuntimeException exception = assertThrows(RuntimeException.class, () -> {
-            orderListener.handleMessage(order);
+            orderListener.handleMessage(event(5));
         });
 
         assertEquals("Database error", exception.getMessage());
@@ -212,21 +246,130 @@ public class OrderListenerTest {
     @Test
     public void productNotFoundException() {
         // Arrange
-        Product product = new Product(1L, "Product1", "Description", "Category", 10.0, 10);
-        OrderItem orderItem = new OrderItem(1L, null, product, 5, 50.0);
-        Order order = new Order();
-        order.setOrderItems(List.of(orderItem));
-
         when(productRepository.findById(1L)).thenReturn(Optional.empty());
 
         // Act & Assert
         RuntimeException exception = assertThrows(RuntimeException.class, () -> {
-            orderListener.handleMessage(order);
+            orderListener.handleMessage(event(5));
         });
 
         assertEquals("Product not found with id: 1", exception.getMessage());
 
-        verify(orderRepository, never()).save(any(Order.class));
+        verify(orderBatchWriter, never()).insertAll(anyList(), any(), any());
+    }
+
+    @Test
+    public void testConfirmedHoldIsNotReservedAgain() {
+        // Arrange
+        OrderPlacedEvent event = event(5);
+
+        when(stockHoldService.confirm(event.getOrderTrackId())).thenReturn(true);
+
+        // Act
+        orderListener.handleMessage(event);
+
+        // Assert
+        verify(productRepository, never()).findById(anyLong());
+        assertNull(stockReservationEngine.available(1L));
+        verify(orderBatchWriter).insertAll(eq(List.of(event)), any(), any());
+    }
+
+    @Test
+    public void testOrderIsWrittenOnTheLaneOfItsProduct() {
+        // Arrange
+        Product product = new Product(1L, "Product1", "Description", "Category", 10.0, 10);
+        ProductLaneExecutor lanes = new ProductLaneExecutor(true, 4);
+        orderListener = new OrderListener(orderBatchWriter, stockReservationEngine, stockHoldService,
+                AdaptiveListenerTuner.fixed(1, 1), lanes, new ProcessedOrderCache(1000), orderIndexer, transactionManager);
+        List<String> writers = new ArrayList<>();
+
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        doAnswer(invocation -> {
+            writers.add(Thread.currentThread().getName());
+            return Set.of();
+        }).when(orderBatchWriter).insertAll(anyList(), any(), any());
+
+        // Act
+        orderListener.handleMessage(event(5));
+        lanes.shutdown();
+
+        // Assert
+        assertEquals(List.of("product-lane-" + lanes.laneFor(1L)), writers);
+        assertEquals(5, stockReservationEngine.available(1L));
+    }
+
+    @Test
+    public void testRedeliveredOrderIsNotWrittenAgain() {
+        // Arrange
+        Product product = new Product(1L, "Product1", "Description", "Category", 10.0, 10);
+        OrderPlacedEvent event = event(5);
+
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+
+        // Act
+        orderListener.handleMessage(event);
+        orderListener.handleMessage(event);
+
+        // Assert
+        verify(orderBatchWriter, times(1)).insertAll(anyList(), any(), any());
+        verify(transactionManager, times(1)).getTransaction(any());
+        assertEquals(5, stockReservationEngine.available(1L));
+    }
+
+    @Test
+    public void testAlreadyStoredOrderGivesBackItsStock() {
+        // Arrange
+        Product product = new Product(1L, "Product1", "Description", "Category", 10.0, 10);
+        OrderPlacedEvent event = event(5);
+
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(orderBatchWriter.insertAll(anyList(), any(), any())).thenReturn(Set.of(event.getOrderTrackId()));
+
+        // Act
+        orderListener.handleMessage(event);
+
+        // Assert
+        assertEquals(10, stockReservationEngine.available(1L));
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        verify(transactionManager).commit(any());
+        verify(orderIndexer, never()).indexConfirmed(any(), any());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testOrderStoredBeforeARestartIsAcknowledgedWithoutReservingStock() {
+        // Arrange
+        Product product = new Product(1L, "Product1", "Description", "Category", 10.0, 2);
+        OrderPlacedEvent event = event(5);
+
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(orderBatchWriter.findStored(List.of(event.getOrderTrackId()))).thenReturn(Set.of(event.getOrderTrackId()));
+
+        // Act
+        orderListener.handleMessage(event);
+        orderListener.handleMessage(event);
+
+        // Assert
+        verify(orderBatchWriter, times(1)).findStored(anyCollection());
+        verify(orderBatchWriter, never()).insertAll(anyList(), any(), any());
+        verify(stockHoldService, never()).confirm(any());
+        verify(stockHoldService, times(2)).release(event.getOrderTrackId());
+        assertEquals(2, stockReservationEngine.available(1L));
+    }
+
+    @Test
+    public void testStoredOrderIsIndexedAfterCommit() {
+        // Arrange
+        Product product = new Product(1L, "Product1", "Description", "Category", 10.0, 10);
+        OrderPlacedEvent event = event(5);
+
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+
+        // Act
+        orderListener.handleMessage(event);
+
+        // Assert
+        InOrder inOrder = inOrder(transactionManager, orderIndexer);
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(orderIndexer).indexConfirmed(event, LocalDate.now().plusDays(5));
+    }
+}
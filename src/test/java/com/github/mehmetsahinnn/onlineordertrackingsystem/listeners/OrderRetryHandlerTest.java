@@ -0,0 +1,138 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.listeners;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions.InsufficientStockException;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners.OrderRetryHandler;
+import com.rabbitmq.client.Channel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.adapter.ListenerExecutionFailedException;
+import org.springframework.amqp.rabbit.listener.api.ChannelAwareMessageListener;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class OrderRetryHandlerTest {
+
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final OrderRetryHandler orderRetryHandler = new OrderRetryHandler(rabbitTemplate, "order-queue", "order-retry", 3, 1000, 5, 1000);
+
+    @BeforeEach
+    public void setUp() {
+        confirmWith(true);
+    }
+
+    /**
+     * Makes the broker confirm every correlated send at once, with an ack or a nack.
+     */
+    private void confirmWith(boolean ack) {
+        doAnswer(invocation -> {
+            CorrelationData correlationData = invocation.getArgument(3);
+            correlationData.getFuture().complete(new CorrelationData.Confirm(ack, ack ? null : "reject-publish"));
+            return null;
+        }).when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+    }
+
+    private static Message message(Integer attempt) {
+        MessageProperties properties = new MessageProperties();
+        properties.setReceivedRoutingKey("order-routing.2");
+        if (attempt != null) {
+            properties.setHeader(OrderRetryHandler.ATTEMPT_HEADER, attempt);
+        }
+        return new Message(new byte[]{1, 2, 3}, properties);
+    }
+
+    @Test
+    public void test_first_failure_goes_to_the_first_retry_queue() {
+        Message message = message(null);
+
+        orderRetryHandler.handleFailure(message, new RuntimeException("Database error"));
+
+        verify(rabbitTemplate).send(eq("order-retry"), eq("order-routing.2"), eq(message), any(CorrelationData.class));
+        assertEquals(1, (Integer) message.getMessageProperties().getHeader(OrderRetryHandler.ATTEMPT_HEADER));
+    }
+
+    @Test
+    public void test_retry_delays_grow_exponentially() {
+        assertEquals(1000, orderRetryHandler.retryDelayMs(1));
+        assertEquals(5000, orderRetryHandler.retryDelayMs(2));
+        assertEquals(25000, orderRetryHandler.retryDelayMs(3));
+        assertEquals("order-queue.retry.2", orderRetryHandler.retryQueueName(2));
+    }
+
+    @Test
+    public void test_order_is_dead_lettered_after_the_last_attempt() {
+        Message message = message(3);
+
+        orderRetryHandler.handleFailure(message, new RuntimeException("Database error"));
+
+        verify(rabbitTemplate).send(eq(""), eq("order-queue.dlq"), eq(message), any(CorrelationData.class));
+        assertEquals("order-routing.2", message.getMessageProperties().getHeader(OrderRetryHandler.ORIGINAL_ROUTING_KEY_HEADER));
+        assertEquals("Database error", message.getMessageProperties().getHeader(OrderRetryHandler.EXCEPTION_HEADER));
+    }
+
+    @Test
+    public void test_order_that_cannot_succeed_is_dead_lettered_at_once() {
+        Message message = message(null);
+
+        orderRetryHandler.handleFailure(message, new ListenerExecutionFailedException("Listener threw exception",
+                new InsufficientStockException("Insufficient stock for order items: [1]")));
+
+        verify(rabbitTemplate).send(eq(""), eq("order-queue.dlq"), eq(message), any(CorrelationData.class));
+        verify(rabbitTemplate, never()).send(eq("order-retry"), anyString(), any(Message.class), any(CorrelationData.class));
+    }
+
+    @Test
+    public void test_wrapped_listener_hands_failures_over_instead_of_throwing() throws Exception {
+        ChannelAwareMessageListener failing = (message, channel) -> {
+            throw new IllegalStateException("Database error");
+        };
+        Message message = message(null);
+
+        assertDoesNotThrow(() -> orderRetryHandler.withRetries(failing).onMessage(message, mock(Channel.class)));
+
+        verify(rabbitTemplate).send(eq("order-retry"), eq("order-routing.2"), eq(message), any(CorrelationData.class));
+    }
+
+    @Test
+    public void test_nacked_retry_is_not_handed_over() {
+        confirmWith(false);
+
+        assertThrows(AmqpException.class, () -> orderRetryHandler.handleFailure(message(null), new RuntimeException("Database error")));
+    }
+
+    @Test
+    public void test_unconfirmed_dead_letter_is_not_handed_over() {
+        doNothing().when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+
+        assertThrows(AmqpException.class, () -> orderRetryHandler.handleFailure(message(3), new RuntimeException("Database error")));
+    }
+
+    @Test
+    public void test_returned_retry_is_not_handed_over() {
+        doAnswer(invocation -> {
+            Message message = invocation.getArgument(2);
+            CorrelationData correlationData = invocation.getArgument(3);
+            correlationData.setReturned(new ReturnedMessage(message, 312, "NO_ROUTE", "order-retry", "order-routing.2"));
+            correlationData.getFuture().complete(new CorrelationData.Confirm(true, null));
+            return null;
+        }).when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+
+        assertThrows(AmqpException.class, () -> orderRetryHandler.handleFailure(message(null), new RuntimeException("Database error")));
+    }
+
+    @Test
+    public void test_wrapped_listener_rethrows_when_the_failure_cannot_be_handed_over() {
+        confirmWith(false);
+        ChannelAwareMessageListener failing = (message, channel) -> {
+            throw new IllegalStateException("Database error");
+        };
+
+        assertThrows(AmqpException.class, () -> orderRetryHandler.withRetries(failing).onMessage(message(null), mock(Channel.class)));
+    }
+}
@@ -0,0 +1,115 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.listeners;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners.ProductLaneExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.locks.LockSupport.parkNanos;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductLaneExecutorTest {
+
+    private final ProductLaneExecutor executor = new ProductLaneExecutor(true, 8);
+    private final ExecutorService callers = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    public void tearDown() {
+        callers.shutdownNow();
+        executor.shutdown();
+    }
+
+    private long productOnOtherLane(long productId) {
+        long other = productId + 1;
+        while (executor.laneFor(other) == executor.laneFor(productId)) {
+            other++;
+        }
+        return other;
+    }
+
+    @Test
+    public void test_work_on_the_same_product_never_overlaps() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Future<?>> calls = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            calls.add(callers.submit(() -> executor.run(Set.of(7L), () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+                running.decrementAndGet();
+            })));
+        }
+        for (Future<?> call : calls) {
+            call.get(10, TimeUnit.SECONDS);
+        }
+
+        assertEquals(1, maxRunning.get());
+    }
+
+    @Test
+    public void test_products_on_different_lanes_run_in_parallel() throws Exception {
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        Runnable meet = () -> {
+            bothRunning.countDown();
+            try {
+                assertTrue(bothRunning.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+
+        Future<?> first = callers.submit(() -> executor.run(Set.of(1L), meet));
+        Future<?> second = callers.submit(() -> executor.run(Set.of(productOnOtherLane(1L)), meet));
+
+        first.get(10, TimeUnit.SECONDS);
+        second.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void test_orders_over_several_lanes_do_not_deadlock() throws Exception {
+        AtomicInteger completed = new AtomicInteger();
+        List<Future<?>> calls = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            calls.add(callers.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                Set<Long> products = Set.of((long) random.nextInt(10), 10L + random.nextInt(10), 20L + random.nextInt(10));
+                executor.run(products, completed::incrementAndGet);
+            }));
+        }
+        for (Future<?> call : calls) {
+            call.get(30, TimeUnit.SECONDS);
+        }
+
+        assertEquals(2000, completed.get());
+    }
+
+    @Test
+    public void test_exception_is_rethrown_and_lanes_are_freed() {
+        Set<Long> products = Set.of(1L, productOnOtherLane(1L));
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> executor.run(products, () -> {
+                    throw new IllegalStateException("Database error");
+                }));
+
+        assertEquals("Database error", exception.getMessage());
+        assertEquals("done", executor.execute(products, () -> "done"));
+    }
+
+    @Test
+    public void test_direct_executor_runs_on_the_calling_thread() {
+        ProductLaneExecutor direct = ProductLaneExecutor.direct();
+
+        assertEquals(Thread.currentThread().getName(), direct.execute(Set.of(1L), () -> Thread.currentThread().getName()));
+    }
+}
@@ -0,0 +1,113 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.producers;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners.OrderRetryHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderJournalDrainerTest {
+
+    private static final String DEAD_LETTER_QUEUE = "order-queue.dlq";
+
+    @TempDir
+    Path directory;
+
+    private OrderSpillJournal journal;
+
+    @AfterEach
+    public void tearDown() {
+        journal.close();
+    }
+
+    private OrderJournalDrainer drainer(Broker broker) {
+        journal = new OrderSpillJournal(true, directory, 1 << 16, false);
+        return new OrderJournalDrainer(journal, broker, new OrderRetryHandler(broker, "order-queue", "order-retry", 4, 1000, 5, 1000),
+                "order-exchange", 10, 3, 100, 200, new SimpleMeterRegistry());
+    }
+
+    @Test
+    public void test_unroutable_event_is_dead_lettered_and_the_events_behind_it_are_replayed() {
+        Broker broker = new Broker();
+        broker.unroutable = "order-routing.1";
+        OrderJournalDrainer drainer = drainer(broker);
+        for (int i = 0; i < 3; i++) {
+            journal.append("order-routing." + i, new byte[]{(byte) i});
+        }
+
+        drainer.drain();
+
+        assertFalse(journal.hasBacklog());
+        assertEquals(List.of("order-routing.0", "order-routing.1", "order-routing.2", DEAD_LETTER_QUEUE), broker.routingKeys);
+        Message deadLettered = broker.messages.get(3);
+        assertEquals("order-routing.1", deadLettered.getMessageProperties().getHeader(OrderRetryHandler.ORIGINAL_ROUTING_KEY_HEADER));
+        assertArrayEquals(new byte[]{1}, deadLettered.getBody());
+    }
+
+    @Test
+    public void test_event_that_is_never_confirmed_is_dead_lettered_after_the_attempt_limit() {
+        Broker broker = new Broker();
+        broker.nacked = "order-routing.0";
+        OrderJournalDrainer drainer = drainer(broker);
+        journal.append("order-routing.0", new byte[]{0});
+        journal.append("order-routing.1", new byte[]{1});
+
+        drainer.drain();
+        drainer.drain();
+        assertEquals(2, journal.pending());
+        drainer.drain();
+
+        assertEquals(0, journal.pending());
+        assertEquals(1, broker.routingKeys.stream().filter(DEAD_LETTER_QUEUE::equals).count());
+        assertArrayEquals(new byte[]{0}, broker.messages.get(broker.routingKeys.indexOf(DEAD_LETTER_QUEUE)).getBody());
+    }
+
+    @Test
+    public void test_event_stays_journaled_while_it_cannot_be_dead_lettered() {
+        Broker broker = new Broker();
+        broker.unroutable = "order-routing.0";
+        broker.nacked = DEAD_LETTER_QUEUE;
+        OrderJournalDrainer drainer = drainer(broker);
+        journal.append("order-routing.0", new byte[]{0});
+
+        drainer.drain();
+
+        assertEquals(1, journal.pending());
+    }
+
+    /**
+     * A template that confirms each correlated publish at once, returning or nacking those sent with the given routing keys.
+     */
+    private static final class Broker extends RabbitTemplate {
+
+        private final List<String> routingKeys = new ArrayList<>();
+        private final List<Message> messages = new ArrayList<>();
+        private String unroutable;
+        private String nacked;
+
+        @Override
+        public void send(String exchange, String routingKey, Message message, CorrelationData correlationData) {
+            routingKeys.add(routingKey);
+            messages.add(message);
+            if (routingKey.equals(unroutable)) {
+                correlationData.setReturned(new ReturnedMessage(message, 312, "NO_ROUTE", exchange, routingKey));
+            }
+            correlationData.getFuture().complete(new CorrelationData.Confirm(!routingKey.equals(nacked), null));
+        }
+
+        @Override
+        public <T> T invoke(OperationsCallback<T> action) {
+            return action.doInRabbit(this);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.producers;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners.OrderRetryHandler;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.events.OrderPlacedEventMessageConverter;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.OrderOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class OrderOutboxRelayTest {
+
+    private final OrderOutboxRepository orderOutboxRepository = mock(OrderOutboxRepository.class);
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private OrderOutboxRelay relay;
+
+    @BeforeEach
+    public void setUp() {
+        doAnswer(invocation -> invocation.<RabbitOperations.OperationsCallback<?>>getArgument(0).doInRabbit(rabbitTemplate))
+                .when(rabbitTemplate).invoke(any());
+        relay = new OrderOutboxRelay(orderOutboxRepository, rabbitTemplate,
+                new OrderRetryHandler(rabbitTemplate, "order-queue", "order-retry", 4, 1000, 5, 1000),
+                "order-exchange", 2, 3, 1000, 50, mock(PlatformTransactionManager.class), meterRegistry);
+    }
+
+    private static OrderOutboxRepository.Entry entry(long id) {
+        return entry(id, 0);
+    }
+
+    private static OrderOutboxRepository.Entry entry(long id, int attempts) {
+        return new OrderOutboxRepository.Entry(id, "order-routing." + id % 2, UUID.randomUUID(), new byte[]{'O', 'P'},
+                System.currentTimeMillis(), attempts);
+    }
+
+    private void brokerConfirms(boolean ack) {
+        doAnswer(invocation -> {
+            invocation.<CorrelationData>getArgument(3).getFuture().complete(new CorrelationData.Confirm(ack, ack ? null : "queue full"));
+            return null;
+        }).when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+    }
+
+    @Test
+    public void test_confirmed_events_are_deleted_and_the_outbox_is_drained() {
+        brokerConfirms(true);
+        when(orderOutboxRepository.lockBatch(2)).thenReturn(List.of(entry(1), entry(2)), List.of(entry(3)));
+
+        relay.relay();
+
+        ArgumentCaptor<Message> sent = ArgumentCaptor.forClass(Message.class);
+        verify(rabbitTemplate, times(3)).send(eq("order-exchange"), anyString(), sent.capture(), any(CorrelationData.class));
+        assertEquals(OrderPlacedEventMessageConverter.CONTENT_TYPE, sent.getValue().getMessageProperties().getContentType());
+        verify(orderOutboxRepository).deleteAll(List.of(1L, 2L));
+        verify(orderOutboxRepository).deleteAll(List.of(3L));
+        assertEquals(3, meterRegistry.counter("order.outbox.published").count());
+        assertEquals(2, meterRegistry.summary("order.outbox.batch.size").count());
+    }
+
+    @Test
+    public void test_nacked_events_stay_in_the_outbox() {
+        brokerConfirms(false);
+        when(orderOutboxRepository.lockBatch(2)).thenReturn(List.of(entry(1), entry(2)));
+
+        relay.relay();
+
+        verify(orderOutboxRepository, times(1)).lockBatch(2);
+        verify(orderOutboxRepository).deleteAll(List.of());
+        verify(orderOutboxRepository).countAttempts(List.of(1L, 2L));
+        assertEquals(2, meterRegistry.counter("order.outbox.failed").count());
+    }
+
+    @Test
+    public void test_unroutable_event_is_dead_lettered_and_deleted() {
+        doAnswer(invocation -> {
+            CorrelationData correlationData = invocation.getArgument(3);
+            if ("order-routing.1".equals(invocation.getArgument(1))) {
+                correlationData.setReturned(new ReturnedMessage(invocation.getArgument(2), 312, "NO_ROUTE", "order-exchange", "order-routing.1"));
+            }
+            correlationData.getFuture().complete(new CorrelationData.Confirm(true, null));
+            return null;
+        }).when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+        when(orderOutboxRepository.lockBatch(2)).thenReturn(List.of(entry(1), entry(2)), List.of());
+
+        relay.relay();
+
+        ArgumentCaptor<Message> deadLettered = ArgumentCaptor.forClass(Message.class);
+        verify(rabbitTemplate).send(eq(""), eq("order-queue.dlq"), deadLettered.capture(), any(CorrelationData.class));
+        assertEquals("order-routing.1", deadLettered.getValue().getMessageProperties().getHeader(OrderRetryHandler.ORIGINAL_ROUTING_KEY_HEADER));
+        verify(orderOutboxRepository).deleteAll(List.of(2L, 1L));
+        verify(orderOutboxRepository).countAttempts(List.of());
+        assertEquals(1, meterRegistry.counter("order.outbox.published").count());
+        assertEquals(1, meterRegistry.counter("order.outbox.dead-lettered").count());
+    }
+
+    @Test
+    public void test_event_that_is_never_confirmed_is_dead_lettered_after_the_attempt_limit() {
+        // the order exchange nacks everything, the dead-letter queue takes it
+        doAnswer(invocation -> {
+            boolean ack = "".equals(invocation.getArgument(0));
+            invocation.<CorrelationData>getArgument(3).getFuture().complete(new CorrelationData.Confirm(ack, ack ? null : "queue full"));
+            return null;
+        }).when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+        when(orderOutboxRepository.lockBatch(2)).thenReturn(List.of(entry(1, 2), entry(2, 1)));
+
+        relay.relay();
+
+        verify(rabbitTemplate, times(1)).send(eq(""), eq("order-queue.dlq"), any(Message.class), any(CorrelationData.class));
+        verify(orderOutboxRepository).deleteAll(List.of(1L));
+        verify(orderOutboxRepository).countAttempts(List.of(2L));
+        assertEquals(1, meterRegistry.counter("order.outbox.dead-lettered").count());
+        assertEquals(1, meterRegistry.counter("order.outbox.failed").count());
+    }
+
+    @Test
+    public void test_empty_outbox_publishes_nothing() {
+        when(orderOutboxRepository.lockBatch(2)).thenReturn(List.of());
+
+        relay.relay();
+
+        verify(rabbitTemplate, never()).invoke(any());
+        verify(orderOutboxRepository, never()).deleteAll(any());
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.producers;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Order;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.OrderItem;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderPartitionerTest {
+
+    private static OrderItem item(Order order, long productId, int quantity) {
+        return new OrderItem(null, order, new Product(productId, "Product" + productId, "Description", "Category", 10.0, 10), quantity, 10.0 * quantity);
+    }
+
+    @Test
+    public void test_dominant_product_is_the_one_with_the_largest_total_quantity() {
+        Order order = new Order();
+        order.setOrderItems(List.of(item(order, 7L, 3), item(order, 2L, 2), item(order, 2L, 2), item(order, 9L, 4)));
+
+        assertEquals(2L, OrderPartitioner.dominantProduct(order));
+    }
+
+    @Test
+    public void test_ties_go_to_the_lowest_product_id() {
+        Order order = new Order();
+        order.setOrderItems(List.of(item(order, 7L, 3), item(order, 4L, 3)));
+
+        assertEquals(4L, OrderPartitioner.dominantProduct(order));
+    }
+
+    @Test
+    public void test_orders_of_the_same_product_share_a_routing_key() {
+        OrderPartitioner orderPartitioner = new OrderPartitioner("order-routing", 8);
+        Order first = new Order();
+        first.setOrderItems(List.of(item(first, 42L, 1)));
+        Order second = new Order();
+        second.setOrderItems(List.of(item(second, 42L, 5), item(second, 3L, 1)));
+
+        assertEquals(orderPartitioner.routingKey(first), orderPartitioner.routingKey(second));
+        assertEquals("order-routing." + orderPartitioner.partitionFor(42L), orderPartitioner.routingKey(first));
+    }
+
+    @Test
+    public void test_express_orders_go_to_the_express_lane() {
+        OrderPartitioner orderPartitioner = new OrderPartitioner("order-routing", 8);
+        Order order = new Order();
+        order.setOrderItems(List.of(item(order, 42L, 1)));
+        order.setExpress(true);
+
+        assertEquals("order-routing.express", orderPartitioner.routingKey(order));
+    }
+
+    @Test
+    public void test_adding_a_partition_only_moves_products_into_it() {
+        int moved = 0;
+        for (long productId = 1; productId <= 10_000; productId++) {
+            int before = OrderPartitioner.jumpConsistentHash(productId, 8);
+            int after = OrderPartitioner.jumpConsistentHash(productId, 9);
+            assertTrue(before >= 0 && before < 8);
+            if (before != after) {
+                assertEquals(8, after);
+                moved++;
+            }
+        }
+        // about 1/9 of the products should move
+        assertTrue(moved > 900 && moved < 1400, "moved " + moved);
+    }
+}
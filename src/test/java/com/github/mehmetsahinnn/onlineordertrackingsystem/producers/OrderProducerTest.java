@@ -0,0 +1,215 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.producers;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions.OrderPublishException;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.events.OrderPlacedEvent;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.events.OrderPlacedEventCodec;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Order;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.OrderOutboxRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.net.ConnectException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class OrderProducerTest {
+
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+    private final OrderOutboxRepository orderOutboxRepository = mock(OrderOutboxRepository.class);
+
+    @TempDir
+    Path journalDir;
+
+    private OrderProducer orderProducer;
+    private OrderSpillJournal orderSpillJournal;
+
+    @AfterEach
+    public void tearDown() {
+        if (orderProducer != null) {
+            orderProducer.shutdown();
+        }
+        if (orderSpillJournal != null) {
+            orderSpillJournal.close();
+        }
+    }
+
+    private OrderProducer producer(OrderProducer.PublishMode mode) {
+        return producer(mode, null);
+    }
+
+    private OrderProducer producer(OrderProducer.PublishMode mode, OrderSpillJournal journal) {
+        orderProducer = new OrderProducer(rabbitTemplate, "order-exchange", new OrderPartitioner("order-routing", 1), orderOutboxRepository,
+                journal, mode, 64, 100, 5000);
+        return orderProducer;
+    }
+
+    private OrderSpillJournal journal() {
+        orderSpillJournal = new OrderSpillJournal(true, journalDir, 1 << 16, false);
+        return orderSpillJournal;
+    }
+
+    private static Order order() {
+        Order order = new Order();
+        order.setOrderTrackId(UUID.randomUUID());
+        return order;
+    }
+
+    private CorrelationData sentCorrelationData() {
+        ArgumentCaptor<CorrelationData> captor = ArgumentCaptor.forClass(CorrelationData.class);
+        verify(rabbitTemplate, timeout(1000)).convertAndSend(eq("order-exchange"), eq("order-routing.0"), any(Object.class), captor.capture());
+        return captor.getValue();
+    }
+
+    @Test
+    public void test_fire_and_forget_completes_immediately() {
+        Order order = order();
+
+        CompletableFuture<Void> published = producer(OrderProducer.PublishMode.FIRE_AND_FORGET).sendToQueue(order);
+
+        assertTrue(published.isDone());
+        ArgumentCaptor<Object> sent = ArgumentCaptor.forClass(Object.class);
+        verify(rabbitTemplate).convertAndSend(eq("order-exchange"), eq("order-routing.0"), sent.capture());
+        OrderPlacedEvent event = assertInstanceOf(OrderPlacedEvent.class, sent.getValue());
+        assertEquals(order.getOrderTrackId(), event.getOrderTrackId());
+        verify(rabbitTemplate, never()).setMessageConverter(any());
+    }
+
+    @Test
+    public void test_outbox_stores_the_encoded_event_without_touching_the_broker() {
+        Order order = order();
+
+        CompletableFuture<Void> published = producer(OrderProducer.PublishMode.OUTBOX).sendToQueue(order);
+
+        assertTrue(published.isDone());
+        ArgumentCaptor<byte[]> payload = ArgumentCaptor.forClass(byte[].class);
+        verify(orderOutboxRepository).add(eq("order-routing.0"), eq(order.getOrderTrackId()), payload.capture());
+        assertEquals(order.getOrderTrackId(), OrderPlacedEventCodec.decode(payload.getValue()).getOrderTrackId());
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    @Test
+    public void test_confirm_completes_only_after_broker_ack() {
+        Order order = order();
+
+        CompletableFuture<Void> published = producer(OrderProducer.PublishMode.CONFIRM).sendToQueue(order);
+        CorrelationData correlationData = sentCorrelationData();
+
+        assertFalse(published.isDone());
+        assertEquals(order.getOrderTrackId().toString(), correlationData.getId());
+        correlationData.getFuture().complete(new CorrelationData.Confirm(true, null));
+        assertDoesNotThrow(published::join);
+    }
+
+    @Test
+    public void test_nack_fails_the_publish() {
+        CompletableFuture<Void> published = producer(OrderProducer.PublishMode.CONFIRM).sendToQueue(order());
+
+        sentCorrelationData().getFuture().complete(new CorrelationData.Confirm(false, "queue full"));
+
+        CompletionException ex = assertThrows(CompletionException.class, published::join);
+        assertInstanceOf(OrderPublishException.class, ex.getCause());
+    }
+
+    @Test
+    public void test_unroutable_order_fails_the_publish() {
+        CompletableFuture<Void> published = producer(OrderProducer.PublishMode.CONFIRM).sendToQueue(order());
+
+        CorrelationData correlationData = sentCorrelationData();
+        correlationData.setReturned(new ReturnedMessage(new Message(new byte[0], new MessageProperties()), 312, "NO_ROUTE", "order-exchange", "order-routing.0"));
+        correlationData.getFuture().complete(new CorrelationData.Confirm(true, null));
+
+        CompletionException ex = assertThrows(CompletionException.class, published::join);
+        assertInstanceOf(OrderPublishException.class, ex.getCause());
+    }
+
+    @Test
+    public void test_batch_confirm_publishes_queued_orders_on_one_channel() {
+        doAnswer(invocation -> invocation.<RabbitOperations.OperationsCallback<?>>getArgument(0).doInRabbit(rabbitTemplate))
+                .when(rabbitTemplate).invoke(any());
+        OrderProducer producer = producer(OrderProducer.PublishMode.BATCH_CONFIRM);
+
+        CompletableFuture<Void> first = producer.sendToQueue(order());
+        CompletableFuture<Void> second = producer.sendToQueue(order());
+
+        ArgumentCaptor<CorrelationData> captor = ArgumentCaptor.forClass(CorrelationData.class);
+        verify(rabbitTemplate, timeout(1000).times(2)).convertAndSend(eq("order-exchange"), eq("order-routing.0"), any(Object.class), captor.capture());
+        verify(rabbitTemplate, atLeastOnce()).invoke(any());
+        captor.getAllValues().forEach(correlationData -> correlationData.getFuture().complete(new CorrelationData.Confirm(true, null)));
+
+        assertDoesNotThrow(() -> CompletableFuture.allOf(first, second).join());
+    }
+
+    @Test
+    public void test_batch_confirm_fails_orders_when_the_channel_fails() {
+        doThrow(new RuntimeException("Connection refused")).when(rabbitTemplate).invoke(any());
+
+        CompletableFuture<Void> published = producer(OrderProducer.PublishMode.BATCH_CONFIRM).sendToQueue(order());
+
+        CompletionException ex = assertThrows(CompletionException.class, published::join);
+        assertInstanceOf(OrderPublishException.class, ex.getCause());
+    }
+
+    @Test
+    public void test_order_is_journaled_when_the_broker_is_down() {
+        doThrow(new AmqpConnectException(new ConnectException("Connection refused")))
+                .when(rabbitTemplate).convertAndSend(anyString(), anyString(), any(Object.class), any(CorrelationData.class));
+        OrderSpillJournal journal = journal();
+        Order order = order();
+
+        CompletableFuture<Void> published = producer(OrderProducer.PublishMode.CONFIRM, journal).sendToQueue(order);
+
+        assertDoesNotThrow(published::join);
+        List<OrderSpillJournal.Entry> journaled = journal.read(10);
+        assertEquals(1, journaled.size());
+        assertEquals("order-routing.0", journaled.get(0).routingKey());
+        assertEquals(order.getOrderTrackId(), OrderPlacedEventCodec.decode(journaled.get(0).payload()).getOrderTrackId());
+    }
+
+    @Test
+    public void test_nacked_order_is_journaled_and_later_orders_queue_behind_it() {
+        OrderSpillJournal journal = journal();
+        OrderProducer producer = producer(OrderProducer.PublishMode.CONFIRM, journal);
+
+        CompletableFuture<Void> nacked = producer.sendToQueue(order());
+        sentCorrelationData().getFuture().complete(new CorrelationData.Confirm(false, "resource alarm"));
+        assertDoesNotThrow(nacked::join);
+
+        CompletableFuture<Void> next = producer.sendToQueue(order());
+
+        assertTrue(next.isDone());
+        verify(rabbitTemplate, times(1)).convertAndSend(anyString(), anyString(), any(Object.class), any(CorrelationData.class));
+        assertEquals(2, journal.pending());
+    }
+
+    @Test
+    public void test_unroutable_order_is_not_journaled() {
+        OrderSpillJournal journal = journal();
+        CompletableFuture<Void> published = producer(OrderProducer.PublishMode.CONFIRM, journal).sendToQueue(order());
+
+        CorrelationData correlationData = sentCorrelationData();
+        correlationData.setReturned(new ReturnedMessage(new Message(new byte[0], new MessageProperties()), 312, "NO_ROUTE", "order-exchange", "order-routing.0"));
+        correlationData.getFuture().complete(new CorrelationData.Confirm(true, null));
+
+        CompletionException ex = assertThrows(CompletionException.class, published::join);
+        assertInstanceOf(OrderPublishException.class, ex.getCause());
+        assertFalse(journal.hasBacklog());
+    }
+}
@@ -0,0 +1,142 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.producers;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderSpillJournalTest {
+
+    private static final int SEGMENT_BYTES = 256;
+
+    @TempDir
+    Path directory;
+
+    private OrderSpillJournal journal;
+
+    @AfterEach
+    public void tearDown() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    private OrderSpillJournal open() {
+        if (journal != null) {
+            journal.close();
+        }
+        journal = new OrderSpillJournal(true, directory, SEGMENT_BYTES, false);
+        return journal;
+    }
+
+    private static byte[] payload(int value) {
+        return new byte[]{(byte) value, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    public void test_events_are_read_in_append_order_across_segments() {
+        OrderSpillJournal journal = open();
+        for (int i = 0; i < 30; i++) {
+            journal.append("order-routing." + i % 4, payload(i));
+        }
+
+        List<OrderSpillJournal.Entry> entries = journal.read(100);
+
+        assertEquals(30, entries.size());
+        for (int i = 0; i < 30; i++) {
+            assertEquals("order-routing." + i % 4, entries.get(i).routingKey());
+            assertArrayEquals(payload(i), entries.get(i).payload());
+        }
+        assertEquals(30, journal.pending());
+    }
+
+    @Test
+    public void test_confirmed_segments_are_deleted() throws IOException {
+        OrderSpillJournal journal = open();
+        for (int i = 0; i < 30; i++) {
+            journal.append("order-routing.0", payload(i));
+        }
+        long segments = segmentCount();
+        assertTrue(segments > 2);
+
+        List<OrderSpillJournal.Entry> entries = journal.read(100);
+        journal.acknowledge(entries.get(entries.size() - 1).sequence());
+
+        assertFalse(journal.hasBacklog());
+        assertEquals(1, segmentCount(), "only the segment being written is kept");
+    }
+
+    @Test
+    public void test_rewind_reads_unconfirmed_events_again() {
+        OrderSpillJournal journal = open();
+        for (int i = 0; i < 5; i++) {
+            journal.append("order-routing.0", payload(i));
+        }
+
+        List<OrderSpillJournal.Entry> first = journal.read(5);
+        journal.acknowledge(first.get(1).sequence());
+        journal.rewind();
+        List<OrderSpillJournal.Entry> second = journal.read(5);
+
+        assertEquals(3, second.size());
+        assertArrayEquals(payload(2), second.get(0).payload());
+        assertEquals(3, journal.pending());
+    }
+
+    @Test
+    public void test_unconfirmed_events_are_recovered_after_restart() {
+        OrderSpillJournal journal = open();
+        for (int i = 0; i < 20; i++) {
+            journal.append("order-routing.1", payload(i));
+        }
+        List<OrderSpillJournal.Entry> entries = journal.read(8);
+        journal.acknowledge(entries.get(7).sequence());
+
+        OrderSpillJournal recovered = open();
+        recovered.append("order-routing.2", payload(99));
+        List<OrderSpillJournal.Entry> replayed = recovered.read(100);
+
+        assertEquals(13, replayed.size());
+        assertArrayEquals(payload(8), replayed.get(0).payload());
+        assertArrayEquals(payload(99), replayed.get(12).payload());
+        assertEquals("order-routing.2", replayed.get(12).routingKey());
+    }
+
+    @Test
+    public void test_damaged_record_ends_recovery_of_its_segment() throws IOException {
+        OrderSpillJournal journal = open();
+        for (int i = 0; i < 3; i++) {
+            journal.append("order-routing.0", payload(i));
+        }
+        journal.close();
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            int recordBytes = 8 + 2 + "order-routing.0".length() + payload(0).length;
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), OrderSpillJournal.HEADER_BYTES + recordBytes + 12);
+        }
+
+        List<OrderSpillJournal.Entry> replayed = open().read(100);
+
+        assertEquals(1, replayed.size());
+        assertArrayEquals(payload(0), replayed.get(0).payload());
+    }
+}
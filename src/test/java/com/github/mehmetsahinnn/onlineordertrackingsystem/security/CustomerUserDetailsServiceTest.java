@@ -0,0 +1,62 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.security;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.enums.AccountStatus;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Customer;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.CustomerRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the CustomerUserDetailsService class.
+ */
+public class CustomerUserDetailsServiceTest {
+
+    private final CustomerRepository customerRepository = mock(CustomerRepository.class);
+    private final CustomerUserDetailsService userDetailsService = new CustomerUserDetailsService(customerRepository);
+
+    private UserDetails load(AccountStatus status, boolean express) {
+        when(customerRepository.findByEmail("jane@example.com"))
+                .thenReturn(Optional.of(new Customer(1L, "Jane", "Doe", "Address", "hash", "jane@example.com", status, express)));
+        return userDetailsService.loadUserByUsername("jane@example.com");
+    }
+
+    private static Set<String> authorities(UserDetails user) {
+        return user.getAuthorities().stream().map(GrantedAuthority::getAuthority).collect(Collectors.toSet());
+    }
+
+    @Test
+    public void test_customer_gets_the_user_role() {
+        UserDetails user = load(AccountStatus.USER, false);
+
+        assertEquals(Set.of("ROLE_USER"), authorities(user));
+        assertTrue(user.isEnabled());
+    }
+
+    @Test
+    public void test_express_customer_gets_the_express_role() {
+        assertEquals(Set.of("ROLE_USER", "ROLE_EXPRESS"), authorities(load(AccountStatus.USER, true)));
+        assertEquals(Set.of("ROLE_USER", "ROLE_ADMIN", "ROLE_EXPRESS"), authorities(load(AccountStatus.ADMIN, true)));
+    }
+
+    @Test
+    public void test_banned_customer_is_disabled() {
+        assertFalse(load(AccountStatus.BANNED_USER, false).isEnabled());
+    }
+
+    @Test
+    public void test_unknown_email_is_rejected() {
+        when(customerRepository.findByEmail(anyString())).thenReturn(Optional.empty());
+
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername("nobody@example.com"));
+    }
+}
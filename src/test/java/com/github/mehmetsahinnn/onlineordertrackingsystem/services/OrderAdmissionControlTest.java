@@ -0,0 +1,121 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.services;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions.OrderOverloadException;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.producers.OrderOutboxRelay;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.producers.OrderPartitioner;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.producers.OrderSpillJournal;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class OrderAdmissionControlTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private static OrderAdmissionControl admissionControl() {
+        return new OrderAdmissionControl(null, null, null, null, null, true, 10_000, 500, 5_000, 30);
+    }
+
+    @Test
+    public void test_orders_are_shed_from_the_high_watermark_until_below_the_low_watermark() {
+        OrderAdmissionControl admissionControl = admissionControl();
+
+        admissionControl.update(9_999, 4, 0);
+        assertDoesNotThrow(admissionControl::admit);
+
+        admissionControl.update(10_000, 4, SECOND);
+        assertThrows(OrderOverloadException.class, admissionControl::admit);
+
+        admissionControl.update(600, 4, 2 * SECOND);
+        assertTrue(admissionControl.isShedding());
+
+        admissionControl.update(499, 4, 3 * SECOND);
+        assertDoesNotThrow(admissionControl::admit);
+    }
+
+    @Test
+    public void test_orders_are_shed_when_the_backlog_drains_too_slowly() {
+        OrderAdmissionControl admissionControl = admissionControl();
+        admissionControl.update(1_000, 4, 0);
+        for (int i = 0; i < 100; i++) {
+            admissionControl.admit();
+        }
+
+        admissionControl.update(1_000, 4, SECOND);
+
+        assertEquals(10_000, admissionControl.lagMs());
+        OrderOverloadException shed = assertThrows(OrderOverloadException.class, admissionControl::admit);
+        assertEquals(5, shed.getRetryAfterSeconds());
+    }
+
+    @Test
+    public void test_small_backlog_is_admitted_however_slowly_it_drains() {
+        OrderAdmissionControl admissionControl = admissionControl();
+        admissionControl.update(400, 4, 0);
+        admissionControl.update(400, 4, SECOND);
+
+        assertDoesNotThrow(admissionControl::admit);
+    }
+
+    @Test
+    public void test_backlog_without_consumers_is_shed_with_the_longest_retry_after() {
+        OrderAdmissionControl admissionControl = admissionControl();
+
+        admissionControl.update(501, 0, 0);
+
+        OrderOverloadException shed = assertThrows(OrderOverloadException.class, admissionControl::admit);
+        assertEquals(30, shed.getRetryAfterSeconds());
+    }
+
+    @Test
+    public void test_sample_adds_up_every_order_queue() {
+        AmqpAdmin amqpAdmin = mock(AmqpAdmin.class);
+        when(amqpAdmin.getQueueInfo("order-queue")).thenReturn(new QueueInformation("order-queue", 1, 0));
+        when(amqpAdmin.getQueueInfo("order-queue.0")).thenReturn(new QueueInformation("order-queue.0", 10, 1));
+        when(amqpAdmin.getQueueInfo("order-queue.1")).thenReturn(new QueueInformation("order-queue.1", 100, 1));
+        when(amqpAdmin.getQueueInfo("order-queue.express")).thenReturn(new QueueInformation("order-queue.express", 1_000, 2));
+        OrderAdmissionControl admissionControl = new OrderAdmissionControl(amqpAdmin, new OrderPartitioner("order-routing", 2),
+                null, null, "order-queue", true, 10_000, 500, 5_000, 30);
+
+        admissionControl.sample();
+
+        assertEquals(1_111, admissionControl.depth());
+        assertFalse(admissionControl.isShedding());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test_sample_counts_orders_not_yet_published() {
+        AmqpAdmin amqpAdmin = mock(AmqpAdmin.class);
+        when(amqpAdmin.getQueueInfo("order-queue.0")).thenReturn(new QueueInformation("order-queue.0", 100, 1));
+        OrderOutboxRelay relay = mock(OrderOutboxRelay.class);
+        when(relay.backlog()).thenReturn(9_000L);
+        ObjectProvider<OrderOutboxRelay> relayProvider = mock(ObjectProvider.class);
+        when(relayProvider.getIfAvailable()).thenReturn(relay);
+        OrderSpillJournal journal = mock(OrderSpillJournal.class);
+        when(journal.pending()).thenReturn(900L);
+        OrderAdmissionControl admissionControl = new OrderAdmissionControl(amqpAdmin, new OrderPartitioner("order-routing", 1),
+                relayProvider, journal, "order-queue", true, 10_000, 500, 5_000, 30);
+
+        admissionControl.sample();
+
+        assertEquals(10_000, admissionControl.depth());
+        assertTrue(admissionControl.isShedding());
+    }
+
+    @Test
+    public void test_unlimited_admission_never_sheds() {
+        OrderAdmissionControl admissionControl = OrderAdmissionControl.unlimited();
+
+        admissionControl.sample();
+        admissionControl.update(Long.MAX_VALUE / 2, 0, 0);
+
+        assertDoesNotThrow(admissionControl::admit);
+    }
+}
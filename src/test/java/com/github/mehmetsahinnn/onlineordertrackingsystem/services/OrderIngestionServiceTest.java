@@ -0,0 +1,132 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.services;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Order;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.OrderItem;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Product;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.producers.OrderProducer;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.*;
+
+public class OrderIngestionServiceTest {
+
+    private final Product inStock = new Product(1L, "Product1", "Description", "Category", 10.0, 10);
+    private final Product lowStock = new Product(2L, "Product2", "Description", "Category", 10.0, 1);
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final StockHoldService stockHoldService = mock(StockHoldService.class);
+    private final OrderProducer orderProducer = mock(OrderProducer.class);
+    private final List<List<OrderIngestionService.Result>> chunks = new ArrayList<>();
+
+    @BeforeEach
+    public void init() {
+        when(productRepository.findAllById(anyIterable())).thenReturn(List.of(inStock, lowStock));
+        when(stockHoldService.hold(any(), any())).thenReturn(true);
+        when(orderProducer.sendToQueue(any(Order.class))).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    private OrderIngestionService service(int chunkSize) {
+        return new OrderIngestionService(productRepository, stockHoldService, orderProducer,
+                OrderAdmissionControl.unlimited(), chunkSize, 100);
+    }
+
+    private static Order order(Product product, int quantity) {
+        Order order = new Order();
+        order.setOrderItems(List.of(new OrderItem(null, order, product, quantity, 10.0)));
+        return order;
+    }
+
+    private List<Integer> statuses() {
+        return chunks.stream().flatMap(List::stream).map(OrderIngestionService.Result::status).collect(Collectors.toList());
+    }
+
+    @Test
+    public void test_each_chunk_loads_its_products_with_one_query() {
+        List<Order> orders = List.of(order(inStock, 1), order(inStock, 2), order(lowStock, 1), order(inStock, 3), order(lowStock, 1));
+
+        long count = service(2).ingest(orders.iterator(), chunks::add);
+
+        assertEquals(5, count);
+        assertEquals(List.of(2, 2, 1), chunks.stream().map(List::size).toList());
+        assertEquals(List.of(201, 201, 201, 201, 201), statuses());
+        verify(productRepository, times(3)).findAllById(anyIterable());
+        verify(orderProducer, times(5)).sendToQueue(any(Order.class));
+        assertNotNull(chunks.get(2).get(0).orderTrackId());
+        assertEquals(4, chunks.get(2).get(0).index());
+    }
+
+    @Test
+    public void test_invalid_orders_are_reported_without_stopping_the_others() {
+        List<Order> orders = List.of(order(inStock, 1), new Order(), order(lowStock, 5), order(inStock, 1));
+
+        service(10).ingest(orders.iterator(), chunks::add);
+
+        assertEquals(List.of(201, 400, 409, 201), statuses());
+        assertNull(chunks.get(0).get(1).orderTrackId());
+        verify(stockHoldService, times(2)).hold(any(), any());
+    }
+
+    @Test
+    public void test_hold_is_released_when_broker_rejects_the_order() {
+        when(orderProducer.sendToQueue(any(Order.class))).thenReturn(CompletableFuture.failedFuture(new RuntimeException("Broker rejected order")));
+        Order order = order(inStock, 1);
+
+        service(10).ingest(List.of(order).iterator(), chunks::add);
+
+        assertEquals(List.of(400), statuses());
+        verify(stockHoldService).release(order.getOrderTrackId());
+    }
+
+    @Test
+    public void test_hold_is_released_when_the_order_is_not_confirmed_in_time() {
+        Order confirmed = order(inStock, 1);
+        Order unconfirmed = order(inStock, 1);
+        when(orderProducer.sendToQueue(any(Order.class)))
+                .thenReturn(CompletableFuture.completedFuture(null))
+                .thenReturn(new CompletableFuture<>());
+
+        service(10).ingest(List.of(confirmed, unconfirmed).iterator(), chunks::add);
+
+        assertEquals(List.of(201, 400), statuses());
+        assertNull(chunks.get(0).get(1).orderTrackId());
+        verify(stockHoldService).release(unconfirmed.getOrderTrackId());
+        verify(stockHoldService, never()).release(confirmed.getOrderTrackId());
+    }
+
+    @Test
+    public void test_orders_before_an_unreadable_one_are_still_placed() {
+        Iterator<Order> orders = new Iterator<>() {
+            private int read;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Order next() {
+                if (read++ < 3) {
+                    return order(inStock, 1);
+                }
+                throw new NoSuchElementException("Unexpected end-of-input");
+            }
+        };
+
+        long count = service(2).ingest(orders, chunks::add);
+
+        assertEquals(3, count);
+        assertEquals(List.of(201, 201, 201, 400), statuses());
+        assertEquals(3, chunks.get(1).get(1).index());
+    }
+}
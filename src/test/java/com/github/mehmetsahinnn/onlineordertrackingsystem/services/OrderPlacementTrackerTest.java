@@ -0,0 +1,78 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.services;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions.InsufficientStockException;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions.OrderOverloadException;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderPlacementTrackerTest {
+
+    @Test
+    public void test_placement_is_pending_until_the_broker_confirms() throws Exception {
+        OrderPlacementTracker tracker = new OrderPlacementTracker(1, 10, 10);
+        UUID orderTrackId = UUID.randomUUID();
+        CompletableFuture<Void> confirm = new CompletableFuture<>();
+
+        CompletableFuture<OrderPlacementTracker.Placement> outcome = tracker.submit(orderTrackId, () -> confirm);
+
+        assertEquals(OrderPlacementTracker.State.PENDING, tracker.get(orderTrackId).state());
+        confirm.complete(null);
+        assertEquals(OrderPlacementTracker.State.ACCEPTED, outcome.get(5, TimeUnit.SECONDS).state());
+        assertEquals(OrderPlacementTracker.State.ACCEPTED, tracker.get(orderTrackId).state());
+    }
+
+    @Test
+    public void test_failed_placement_is_rejected_with_its_reason() throws Exception {
+        OrderPlacementTracker tracker = new OrderPlacementTracker(1, 10, 10);
+        UUID orderTrackId = UUID.randomUUID();
+
+        OrderPlacementTracker.Placement outcome = tracker.submit(orderTrackId, () -> {
+            throw new InsufficientStockException("Insufficient stock for product id: 1");
+        }).get(5, TimeUnit.SECONDS);
+
+        assertEquals(OrderPlacementTracker.State.REJECTED, outcome.state());
+        assertEquals("Insufficient stock for product id: 1", outcome.message());
+    }
+
+    @Test
+    public void test_placements_beyond_the_queue_are_rejected() throws Exception {
+        OrderPlacementTracker tracker = new OrderPlacementTracker(1, 1, 10);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        tracker.submit(UUID.randomUUID(), () -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return CompletableFuture.completedFuture(null);
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        tracker.submit(UUID.randomUUID(), () -> CompletableFuture.completedFuture(null));
+
+        UUID shed = UUID.randomUUID();
+        assertThrows(OrderOverloadException.class, () -> tracker.submit(shed, () -> CompletableFuture.completedFuture(null)));
+        assertNull(tracker.get(shed));
+        release.countDown();
+    }
+
+    @Test
+    public void test_oldest_outcome_is_forgotten() throws Exception {
+        OrderPlacementTracker tracker = new OrderPlacementTracker(1, 10, 2);
+        UUID first = UUID.randomUUID();
+        tracker.submit(first, () -> CompletableFuture.completedFuture(null)).get(5, TimeUnit.SECONDS);
+        tracker.submit(UUID.randomUUID(), () -> CompletableFuture.completedFuture(null)).get(5, TimeUnit.SECONDS);
+        UUID last = UUID.randomUUID();
+        tracker.submit(last, () -> CompletableFuture.completedFuture(null)).get(5, TimeUnit.SECONDS);
+
+        assertNull(tracker.get(first));
+        assertNotNull(tracker.get(last));
+    }
+}
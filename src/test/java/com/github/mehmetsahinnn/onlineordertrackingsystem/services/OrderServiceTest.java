@@ -1,11 +1,15 @@
 package com.github.mehmetsahinnn.onlineordertrackingsystem.services;
 
 import com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions.InsufficientStockException;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions.OrderOverloadException;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.Exceptions.OrderPublishException;
 import com.github.mehmetsahinnn.onlineordertrackingsystem.Listeners.OrderListener;
 import com.github.mehmetsahinnn.onlineordertrackingsystem.config.KeycloakClient;
 import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticdocuments.OrderDocument;
 import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticrepos.OrderDocumentRepository;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticrepos.OrderDocumentSearch;
 import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticservices.ElasticOrderService;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.elasticservices.OrderIndexer;
 import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Order;
 import com.github.mehmetsahinnn.onlineordertrackingsystem.models.OrderItem;
 import com.github.mehmetsahinnn.onlineordertrackingsystem.producers.OrderProducer;
@@ -13,6 +17,7 @@ import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.OrderRepo
 import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Product;
 import com.github.mehmetsahinnn.onlineordertrackingsystem.enums.OrderStatus;
 import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -21,9 +26,13 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -46,6 +55,16 @@ public class OrderServiceTest {
     private ProductRepository productRepository;
     @Mock
     private OrderListener orderListener;
+    @Mock
+    private StockReservationEngine stockReservationEngine;
+    @Mock
+    private StockHoldService stockHoldService;
+    @Mock
+    private OrderAdmissionControl orderAdmissionControl;
+    @Mock
+    private OrderPlacementTracker orderPlacementTracker;
+    @Mock
+    private OrderIndexer orderIndexer;
 
 
     /**
@@ -57,12 +76,35 @@ public class OrderServiceTest {
         System.out.println(" ");
     }
 
+    @AfterEach
+    public void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+
+    /**
+     * Returns a StockHoldService mock that grants every hold.
+     */
+    private static StockHoldService holdingStockHoldService() {
+        StockHoldService stockHoldService = mock(StockHoldService.class);
+        lenient().when(stockHoldService.hold(any(), any())).thenReturn(true);
+        return stockHoldService;
+    }
+
+    /**
+     * Returns an OrderProducer mock whose publishes are all acknowledged by the broker.
+     */
+    private static OrderProducer publishingOrderProducer() {
+        OrderProducer orderProducer = mock(OrderProducer.class);
+        lenient().when(orderProducer.sendToQueue(any(Order.class))).thenReturn(CompletableFuture.completedFuture(null));
+        return orderProducer;
+    }
 
     @Test
     public void placeOrder() {
         Order order = new Order();
         order.setOrderItems(Collections.singletonList(new OrderItem(null, order, new Product(1L, "Product", "Description", "Category", 10.0, 10), 1, 10.0)));
-        OrderService orderService = new OrderService(mock(OrderRepository.class), mock(ProductService.class), mock(OrderProducer.class) ,mock(KeycloakClient.class), mock(ProductRepository.class));
+        OrderService orderService = new OrderService(mock(OrderRepository.class), mock(ProductService.class), publishingOrderProducer() ,mock(KeycloakClient.class), mock(ProductRepository.class), mock(StockReservationEngine.class), holdingStockHoldService(), OrderAdmissionControl.unlimited(), mock(OrderPlacementTracker.class), mock(OrderIndexer.class));
         ResponseEntity<Object> response = orderService.placeOrder(order);
         assertEquals(HttpStatus.CREATED, response.getStatusCode());
     }
@@ -95,7 +137,7 @@ public class OrderServiceTest {
         OrderRepository mockOrderRepository = mock(OrderRepository.class);
         when(mockOrderRepository.findById(1L)).thenReturn(Optional.of(existingOrder));
 
-        OrderService orderService = new OrderService(mockOrderRepository, mock(ProductService.class), mock(OrderProducer.class), mock(KeycloakClient.class), mock(ProductRepository.class));
+        OrderService orderService = new OrderService(mockOrderRepository, mock(ProductService.class), publishingOrderProducer(), mock(KeycloakClient.class), mock(ProductRepository.class), mock(StockReservationEngine.class), holdingStockHoldService(), OrderAdmissionControl.unlimited(), mock(OrderPlacementTracker.class), mock(OrderIndexer.class));
         Order result = orderService.getOrderById(1L);
 
         assertNotNull(result);
@@ -119,7 +161,7 @@ public class OrderServiceTest {
 
         KeycloakClient keycloakClientMock = mock(KeycloakClient.class);
 
-        OrderService orderService = new OrderService(orderRepositoryMock, productServiceMock, mock(OrderProducer.class), keycloakClientMock, mock(ProductRepository.class));
+        OrderService orderService = new OrderService(orderRepositoryMock, productServiceMock, publishingOrderProducer(), keycloakClientMock, mock(ProductRepository.class), mock(StockReservationEngine.class), holdingStockHoldService(), OrderAdmissionControl.unlimited(), mock(OrderPlacementTracker.class), mock(OrderIndexer.class));
 
         ResponseEntity<Object> response = orderService.placeOrder(order);
 
@@ -144,18 +186,42 @@ public class OrderServiceTest {
         OrderRepository mockOrderRepository = mock(OrderRepository.class);
         ProductService mockProductService = mock(ProductService.class);
         KeycloakClient mockKeycloakClient = mock(KeycloakClient.class);
+        StockReservationEngine mockStockReservationEngine = mock(StockReservationEngine.class);
+
+        OrderIndexer mockOrderIndexer = mock(OrderIndexer.class);
 
         when(mockOrderRepository.findById(orderId)).thenReturn(Optional.of(mockOrder));
-        when(mockProductService.updateProduct(anyLong(), any(Product.class))).thenReturn(mockProduct);
 
-        OrderService orderService = new OrderService(mockOrderRepository, mockProductService, mock(OrderProducer.class), mockKeycloakClient, mock(ProductRepository.class));
+        OrderService orderService = new OrderService(mockOrderRepository, mockProductService, publishingOrderProducer(), mockKeycloakClient, mock(ProductRepository.class), mockStockReservationEngine, holdingStockHoldService(), OrderAdmissionControl.unlimited(), mock(OrderPlacementTracker.class), mockOrderIndexer);
 
         // Act
         orderService.cancelOrderAndIncreaseStock(orderId);
 
         // Assert
         assertEquals(OrderStatus.CANCELLED, mockOrder.getStatus());
-        assertEquals(15, mockProduct.getNumberInStock().intValue());
+        verify(mockStockReservationEngine).releaseAll(Map.of(1L, 5));
+        verify(mockStockReservationEngine).flush(Set.of(1L));
+        verify(mockOrderRepository).save(mockOrder);
+        verify(mockOrderIndexer).indexOrder(mockOrder);
+    }
+
+    @Test
+    public void test_cancelling_twice_releases_stock_once() {
+        Order mockOrder = new Order();
+        mockOrder.setId(1L);
+        mockOrder.setStatus(OrderStatus.CANCELLED);
+        Product mockProduct = new Product();
+        mockProduct.setId(1L);
+        mockOrder.setOrderItems(List.of(new OrderItem(null, mockOrder, mockProduct, 5, 50.0)));
+
+        OrderRepository mockOrderRepository = mock(OrderRepository.class);
+        StockReservationEngine mockStockReservationEngine = mock(StockReservationEngine.class);
+        when(mockOrderRepository.findById(1L)).thenReturn(Optional.of(mockOrder));
+
+        OrderService orderService = new OrderService(mockOrderRepository, mock(ProductService.class), publishingOrderProducer(), mock(KeycloakClient.class), mock(ProductRepository.class), mockStockReservationEngine, holdingStockHoldService(), OrderAdmissionControl.unlimited(), mock(OrderPlacementTracker.class), mock(OrderIndexer.class));
+        orderService.cancelOrderAndIncreaseStock(1L);
+
+        verify(mockStockReservationEngine, never()).releaseAll(any());
     }
 
     /**
@@ -166,7 +232,7 @@ public class OrderServiceTest {
     public void delete_existing_order_by_id() {
         OrderRepository mockOrderRepository = mock(OrderRepository.class);
         doNothing().when(mockOrderRepository).deleteById(1L);
-        OrderService orderService = new OrderService(mockOrderRepository, mock(ProductService.class), mock(OrderProducer.class), mock(KeycloakClient.class), mock(ProductRepository.class));
+        OrderService orderService = new OrderService(mockOrderRepository, mock(ProductService.class), publishingOrderProducer(), mock(KeycloakClient.class), mock(ProductRepository.class), mock(StockReservationEngine.class), holdingStockHoldService(), OrderAdmissionControl.unlimited(), mock(OrderPlacementTracker.class), mock(OrderIndexer.class));
         assertDoesNotThrow(() -> orderService.deleteOrder(1L));
     }
 
@@ -191,9 +257,6 @@ public class OrderServiceTest {
     @Test
     public void testHandleMultipleBySameUser() {
         List<OrderDocument> orders = List.of(
-                new OrderDocument("1", "mehmet", 1L, OrderStatus.CONFIRMED, LocalDateTime.of(2024, 6, 1, 10, 0), LocalDateTime.of(2024, 6, 1, 10, 0)),
-                new OrderDocument("2", "mehmet", 1L, OrderStatus.CONFIRMED, LocalDateTime.of(2024, 8, 5, 10, 0), LocalDateTime.of(2024, 8, 5, 10, 0)),
-                new OrderDocument("3", "mehmet", 1L, OrderStatus.CONFIRMED, LocalDateTime.of(2024, 4, 9, 10, 0), LocalDateTime.of(2024, 4, 9, 10, 0)),
                 new OrderDocument("4", "mehmet", 1L, OrderStatus.CONFIRMED, LocalDateTime.of(2024, 7, 12, 10, 0), LocalDateTime.of(2024, 7, 12, 10, 0))
         );
 
@@ -201,7 +264,8 @@ public class OrderServiceTest {
         LocalDateTime endDate = LocalDateTime.of(2024, 7, 20, 23, 59, 59);
         String username = "mehmet";
 
-        when(orderDocumentRepository.findUserByUsername(username)).thenReturn(orders);
+        when(orderDocumentRepository.searchByUsername(username, startDate, endDate, 1000, null))
+                .thenReturn(new OrderDocumentSearch.Page(orders, List.of(1720778400000L, "4"), Map.of(1L, 1L)));
 
         Map<Long, List<OrderDocument>> result = elasticOrderService.filterOrderByUser(username, startDate, endDate);
 
@@ -242,7 +306,8 @@ public class OrderServiceTest {
         LocalDateTime endDate = LocalDateTime.of(2024, 7, 1, 23, 59, 59);
         String username = "mehmet";
 
-        when(orderDocumentRepository.findUserByUsername(username)).thenReturn(orders);
+        when(orderDocumentRepository.searchByUsername(username, startDate, endDate, 1000, null))
+                .thenReturn(new OrderDocumentSearch.Page(orders, List.of(1719828000000L, "2"), Map.of(1L, 2L)));
 
         Map<Long, List<OrderDocument>> result = elasticOrderService.filterOrderByUser(username, startDate, endDate);
 
@@ -260,7 +325,7 @@ public class OrderServiceTest {
         Order order = new Order();
         order.setOrderItems(List.of(orderItem));
 
-        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(productRepository.findAllById(any())).thenReturn(List.of(product));
         doThrow(new InsufficientStockException("Insufficient stock for product id: 1")).when(orderRepository).save(any(Order.class));
 
         // Act & Assert
@@ -274,7 +339,244 @@ public class OrderServiceTest {
         verify(productRepository, never()).save(any(Product.class));
     }
 
+    @Test
+    public void test_duplicate_product_lines_are_merged_before_stock_check() {
+        Product product = new Product(1L, "Product1", "Description", "Category", 10.0, 8);
+        Order order = new Order();
+        order.setOrderItems(List.of(
+                new OrderItem(null, order, product, 5, 50.0),
+                new OrderItem(null, order, product, 5, 50.0)
+        ));
+
+        ProductRepository mockProductRepository = mock(ProductRepository.class);
+        when(mockProductRepository.findAllById(any())).thenReturn(List.of(product));
+        OrderProducer mockOrderProducer = publishingOrderProducer();
+
+        OrderService orderService = new OrderService(mock(OrderRepository.class), mock(ProductService.class), mockOrderProducer, mock(KeycloakClient.class), mockProductRepository, mock(StockReservationEngine.class), holdingStockHoldService(), OrderAdmissionControl.unlimited(), mock(OrderPlacementTracker.class), mock(OrderIndexer.class));
+        ResponseEntity<Object> response = orderService.placeOrder(order);
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        verify(mockProductRepository, times(1)).findAllById(any());
+        verify(mockProductRepository, never()).findById(anyLong());
+        verify(mockOrderProducer, never()).sendToQueue(any(Order.class));
+    }
+
+    @Test
+    public void test_non_positive_quantities_are_rejected_before_stock_is_held() {
+        Product product = new Product(1L, "Product1", "Description", "Category", 10.0, 8);
+        Order order = new Order();
+        order.setOrderItems(List.of(
+                new OrderItem(null, order, product, 5, 50.0),
+                new OrderItem(null, order, product, -5, -50.0)
+        ));
+        ProductRepository mockProductRepository = mock(ProductRepository.class);
+        StockHoldService mockStockHoldService = holdingStockHoldService();
+        OrderProducer mockOrderProducer = publishingOrderProducer();
+
+        OrderService orderService = new OrderService(mock(OrderRepository.class), mock(ProductService.class), mockOrderProducer, mock(KeycloakClient.class), mockProductRepository, mock(StockReservationEngine.class), mockStockHoldService, OrderAdmissionControl.unlimited(), mock(OrderPlacementTracker.class), mock(OrderIndexer.class));
+        ResponseEntity<Object> response = orderService.placeOrder(order);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verify(mockStockHoldService, never()).hold(any(), any());
+        verify(mockOrderProducer, never()).sendToQueue(any(Order.class));
+        Order zeroQuantity = new Order();
+        zeroQuantity.setOrderItems(List.of(new OrderItem(null, zeroQuantity, product, 0, 0.0)));
+        assertThrows(IllegalArgumentException.class, () -> OrderService.mergeQuantities(zeroQuantity.getOrderItems()));
+    }
+
+    @Test
+    public void test_products_are_loaded_with_a_single_query() {
+        Order order = new Order();
+        List<OrderItem> items = new ArrayList<>();
+        List<Product> products = new ArrayList<>();
+        for (long id = 1; id <= 40; id++) {
+            Product product = new Product(id, "Product" + id, "Description", "Category", 10.0, 10);
+            products.add(product);
+            items.add(new OrderItem(null, order, product, 1, 10.0));
+        }
+        order.setOrderItems(items);
+
+        ProductRepository mockProductRepository = mock(ProductRepository.class);
+        when(mockProductRepository.findAllById(any())).thenReturn(products);
+
+        OrderService orderService = new OrderService(mock(OrderRepository.class), mock(ProductService.class), publishingOrderProducer(), mock(KeycloakClient.class), mockProductRepository, mock(StockReservationEngine.class), holdingStockHoldService(), OrderAdmissionControl.unlimited(), mock(OrderPlacementTracker.class), mock(OrderIndexer.class));
+        ResponseEntity<Object> response = orderService.placeOrder(order);
+
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        verify(mockProductRepository, times(1)).findAllById(any());
+        verify(mockProductRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    public void test_missing_product_is_reported() {
+        Product product = new Product(7L, "Product7", "Description", "Category", 10.0, 10);
+        Order order = new Order();
+        order.setOrderItems(List.of(new OrderItem(null, order, product, 1, 10.0)));
 
+        ProductRepository mockProductRepository = mock(ProductRepository.class);
+        when(mockProductRepository.findAllById(any())).thenReturn(Collections.emptyList());
 
+        OrderService orderService = new OrderService(mock(OrderRepository.class), mock(ProductService.class), publishingOrderProducer(), mock(KeycloakClient.class), mockProductRepository, mock(StockReservationEngine.class), holdingStockHoldService(), OrderAdmissionControl.unlimited(), mock(OrderPlacementTracker.class), mock(OrderIndexer.class));
+        ResponseEntity<Object> response = orderService.placeOrder(order);
 
-}
\ No newline at end of file
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    public void test_hold_is_released_when_publishing_fails() {
+        Product product = new Product(1L, "Product1", "Description", "Category", 10.0, 10);
+        Order order = new Order();
+        order.setOrderItems(List.of(new OrderItem(null, order, product, 2, 20.0)));
+
+        ProductRepository mockProductRepository = mock(ProductRepository.class);
+        when(mockProductRepository.findAllById(any())).thenReturn(List.of(product));
+        OrderProducer mockOrderProducer = publishingOrderProducer();
+        doThrow(new RuntimeException("Broker unavailable")).when(mockOrderProducer).sendToQueue(any(Order.class));
+        StockHoldService mockStockHoldService = holdingStockHoldService();
+
+        OrderService orderService = new OrderService(mock(OrderRepository.class), mock(ProductService.class), mockOrderProducer, mock(KeycloakClient.class), mockProductRepository, mock(StockReservationEngine.class), mockStockHoldService, OrderAdmissionControl.unlimited(), mock(OrderPlacementTracker.class), mock(OrderIndexer.class));
+        ResponseEntity<Object> response = orderService.placeOrder(order);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verify(mockStockHoldService).hold(any(UUID.class), eq(Map.of(1L, 2)));
+        verify(mockStockHoldService).release(order.getOrderTrackId());
+    }
+
+    @Test
+    public void test_hold_is_released_when_broker_rejects_the_order() {
+        Product product = new Product(1L, "Product1", "Description", "Category", 10.0, 10);
+        Order order = new Order();
+        order.setOrderItems(List.of(new OrderItem(null, order, product, 2, 20.0)));
+
+        ProductRepository mockProductRepository = mock(ProductRepository.class);
+        when(mockProductRepository.findAllById(any())).thenReturn(List.of(product));
+        OrderProducer mockOrderProducer = mock(OrderProducer.class);
+        when(mockOrderProducer.sendToQueue(any(Order.class)))
+                .thenReturn(CompletableFuture.failedFuture(new OrderPublishException("Broker rejected order")));
+        StockHoldService mockStockHoldService = holdingStockHoldService();
+
+        OrderService orderService = new OrderService(mock(OrderRepository.class), mock(ProductService.class), mockOrderProducer, mock(KeycloakClient.class), mockProductRepository, mock(StockReservationEngine.class), mockStockHoldService, OrderAdmissionControl.unlimited(), mock(OrderPlacementTracker.class), mock(OrderIndexer.class));
+        ResponseEntity<Object> response = orderService.placeOrder(order);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verify(mockStockHoldService).release(order.getOrderTrackId());
+    }
+
+    @Test
+    public void test_order_is_shed_without_holding_stock_while_consumers_are_behind() {
+        Product product = new Product(1L, "Product1", "Description", "Category", 10.0, 10);
+        Order order = new Order();
+        order.setOrderItems(List.of(new OrderItem(null, order, product, 2, 20.0)));
+
+        OrderProducer mockOrderProducer = publishingOrderProducer();
+        StockHoldService mockStockHoldService = holdingStockHoldService();
+        OrderAdmissionControl admissionControl = new OrderAdmissionControl(null, null, null, null, null, true, 100, 50, 10_000, 30);
+        admissionControl.update(100, 1, 0);
+
+        OrderService orderService = new OrderService(mock(OrderRepository.class), mock(ProductService.class), mockOrderProducer, mock(KeycloakClient.class), mock(ProductRepository.class), mock(StockReservationEngine.class), mockStockHoldService, admissionControl, mock(OrderPlacementTracker.class), mock(OrderIndexer.class));
+
+        assertThrows(OrderOverloadException.class, () -> orderService.placeOrder(order));
+        verifyNoInteractions(mockStockHoldService, mockOrderProducer);
+    }
+
+    /**
+     * Returns an OrderService placing orders of the given products asynchronously.
+     */
+    private static OrderService asyncOrderService(OrderRepository orderRepository, OrderProducer orderProducer,
+                                                  StockHoldService stockHoldService, Product... products) {
+        ProductRepository mockProductRepository = mock(ProductRepository.class);
+        when(mockProductRepository.findAllById(any())).thenReturn(List.of(products));
+        return new OrderService(orderRepository, mock(ProductService.class), orderProducer, mock(KeycloakClient.class), mockProductRepository, mock(StockReservationEngine.class), stockHoldService, OrderAdmissionControl.unlimited(), new OrderPlacementTracker(2, 10, 100), mock(OrderIndexer.class));
+    }
+
+    @Test
+    public void test_async_order_is_accepted_and_then_confirmed_once_stored() throws Exception {
+        Product product = new Product(1L, "Product1", "Description", "Category", 10.0, 10);
+        Order order = new Order();
+        order.setOrderItems(List.of(new OrderItem(null, order, product, 2, 20.0)));
+        OrderRepository mockOrderRepository = mock(OrderRepository.class);
+        OrderService orderService = asyncOrderService(mockOrderRepository, publishingOrderProducer(), holdingStockHoldService(), product);
+
+        OrderPlacementTracker.Placement outcome = orderService.placeOrderAsync(order).get(5, TimeUnit.SECONDS);
+
+        assertEquals(OrderPlacementTracker.State.ACCEPTED, outcome.state());
+        assertEquals(order.getOrderTrackId(), outcome.orderTrackId());
+        assertEquals(OrderPlacementTracker.State.ACCEPTED, orderService.getPlacement(order.getOrderTrackId()).state());
+
+        when(mockOrderRepository.findByOrderTrackId(order.getOrderTrackId())).thenReturn(order);
+        assertEquals(OrderPlacementTracker.State.CONFIRMED, orderService.getPlacement(order.getOrderTrackId()).state());
+    }
+
+    @Test
+    public void test_async_order_with_insufficient_stock_is_rejected_without_a_hold() throws Exception {
+        Product product = new Product(1L, "Product1", "Description", "Category", 10.0, 1);
+        Order order = new Order();
+        order.setOrderItems(List.of(new OrderItem(null, order, product, 2, 20.0)));
+        StockHoldService mockStockHoldService = holdingStockHoldService();
+        OrderService orderService = asyncOrderService(mock(OrderRepository.class), publishingOrderProducer(), mockStockHoldService, product);
+
+        OrderPlacementTracker.Placement outcome = orderService.placeOrderAsync(order).get(5, TimeUnit.SECONDS);
+
+        assertEquals(OrderPlacementTracker.State.REJECTED, outcome.state());
+        assertEquals("Insufficient stock for product id: 1", outcome.message());
+        verify(mockStockHoldService, never()).hold(any(), any());
+    }
+
+    @Test
+    public void test_async_hold_is_released_when_broker_rejects_the_order() throws Exception {
+        Product product = new Product(1L, "Product1", "Description", "Category", 10.0, 10);
+        Order order = new Order();
+        order.setOrderItems(List.of(new OrderItem(null, order, product, 2, 20.0)));
+        OrderProducer mockOrderProducer = mock(OrderProducer.class);
+        when(mockOrderProducer.sendToQueue(any(Order.class)))
+                .thenReturn(CompletableFuture.failedFuture(new OrderPublishException("Broker rejected order")));
+        StockHoldService mockStockHoldService = holdingStockHoldService();
+        OrderService orderService = asyncOrderService(mock(OrderRepository.class), mockOrderProducer, mockStockHoldService, product);
+
+        OrderPlacementTracker.Placement outcome = orderService.placeOrderAsync(order).get(5, TimeUnit.SECONDS);
+
+        assertEquals(OrderPlacementTracker.State.REJECTED, outcome.state());
+        assertEquals("Broker rejected order", outcome.message());
+        verify(mockStockHoldService).release(order.getOrderTrackId());
+    }
+
+    @Test
+    public void test_unknown_placement_is_not_found() {
+        OrderService orderService = new OrderService(mock(OrderRepository.class), mock(ProductService.class), publishingOrderProducer(), mock(KeycloakClient.class), mock(ProductRepository.class), mock(StockReservationEngine.class), holdingStockHoldService(), OrderAdmissionControl.unlimited(), new OrderPlacementTracker(1, 1, 1), mock(OrderIndexer.class));
+
+        assertThrows(RuntimeException.class, () -> orderService.getPlacement(UUID.randomUUID()));
+    }
+
+    @Test
+    public void test_express_requested_by_the_client_is_ignored() {
+        Product product = new Product(1L, "Product1", "Description", "Category", 10.0, 10);
+        Order order = new Order();
+        order.setExpress(true);
+        order.setOrderItems(List.of(new OrderItem(null, order, product, 1, 10.0)));
+        ProductRepository mockProductRepository = mock(ProductRepository.class);
+        when(mockProductRepository.findAllById(any())).thenReturn(List.of(product));
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("alice", null, "ROLE_USER"));
+
+        OrderService orderService = new OrderService(mock(OrderRepository.class), mock(ProductService.class), publishingOrderProducer(), mock(KeycloakClient.class), mockProductRepository, mock(StockReservationEngine.class), holdingStockHoldService(), OrderAdmissionControl.unlimited(), mock(OrderPlacementTracker.class), mock(OrderIndexer.class));
+        ResponseEntity<Object> response = orderService.placeOrder(order);
+
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertFalse(order.isExpress());
+    }
+
+    @Test
+    public void test_order_of_an_express_customer_is_sent_express() {
+        Product product = new Product(1L, "Product1", "Description", "Category", 10.0, 10);
+        Order order = new Order();
+        order.setOrderItems(List.of(new OrderItem(null, order, product, 1, 10.0)));
+        ProductRepository mockProductRepository = mock(ProductRepository.class);
+        when(mockProductRepository.findAllById(any())).thenReturn(List.of(product));
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("alice", null, "ROLE_USER", OrderService.EXPRESS_AUTHORITY));
+
+        OrderService orderService = new OrderService(mock(OrderRepository.class), mock(ProductService.class), publishingOrderProducer(), mock(KeycloakClient.class), mockProductRepository, mock(StockReservationEngine.class), holdingStockHoldService(), OrderAdmissionControl.unlimited(), mock(OrderPlacementTracker.class), mock(OrderIndexer.class));
+        ResponseEntity<Object> response = orderService.placeOrder(order);
+
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertTrue(order.isExpress());
+    }
+}
@@ -8,6 +8,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 import java.util.Arrays;
 import java.util.List;
@@ -15,6 +16,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 /**
@@ -33,7 +35,7 @@ public class ProductServiceTest {
      */
     @BeforeEach
     public void init() {
-        productService = new ProductService(productRepository);
+        productService = new ProductService(productRepository, mock(StockReservationEngine.class));
     }
     /**
      * Tests the saveProduct method of ProductService.
@@ -42,7 +44,7 @@ public class ProductServiceTest {
     public void test_save_product_success() {
         // Arrange
         ProductRepository mockRepository = Mockito.mock(ProductRepository.class);
-        ProductService productService = new ProductService(mockRepository);
+        ProductService productService = new ProductService(mockRepository, mock(StockReservationEngine.class));
         Product product = new Product(1L, "Laptop", "High-end gaming laptop", "Electronics", 1500.00, 10);
         when(mockRepository.save(Mockito.any(Product.class))).thenReturn(product);
 
@@ -59,7 +61,7 @@ public class ProductServiceTest {
     public void test_save_product_exception() {
         // Arrange
         ProductRepository mockRepository = Mockito.mock(ProductRepository.class);
-        ProductService productService = new ProductService(mockRepository);
+        ProductService productService = new ProductService(mockRepository, mock(StockReservationEngine.class));
         Product product = new Product(1L, "Laptop", "High-end gaming laptop", "Electronics", 1500.00, 10);
         Mockito.when(mockRepository.save(Mockito.any(Product.class))).thenThrow(new RuntimeException("Database error"));
 
@@ -190,4 +192,51 @@ public class ProductServiceTest {
         assertEquals(product1.getId(), retrievedProducts.get(0).getId());
         assertEquals(product2.getId(), retrievedProducts.get(1).getId());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void test_get_product_by_id_returns_summed_in_memory_stock() {
+        ProductRepository mockRepository = Mockito.mock(ProductRepository.class);
+        Product product = new Product(1L, "Laptop", "High-end gaming laptop", "Electronics", 1500.00, 100);
+        when(mockRepository.findById(1L)).thenAnswer(invocation ->
+                Optional.of(new Product(1L, "Laptop", "High-end gaming laptop", "Electronics", 1500.00, 100)));
+
+        StockReservationEngine engine = new StockReservationEngine(mockRepository, Mockito.mock(JdbcTemplate.class), 500, "1", 4);
+        engine.reserve(1L, 30);
+        ProductService productService = new ProductService(mockRepository, engine);
+
+        Product retrieved = productService.getProductById(product.getId());
+
+        assertEquals(70, retrieved.getNumberInStock());
+    }
+
+    @Test
+    public void test_update_without_a_stock_change_keeps_the_in_memory_stock() {
+        ProductRepository mockRepository = Mockito.mock(ProductRepository.class);
+        StockReservationEngine engine = mock(StockReservationEngine.class);
+        when(mockRepository.findById(1L)).thenReturn(Optional.of(new Product(1L, "Laptop", "Old", "Electronics", 1500.00, 100)));
+        when(engine.available(1L)).thenReturn(70);
+        ProductService productService = new ProductService(mockRepository, engine);
+
+        Product updated = productService.updateProduct(1L, new Product(null, "Laptop", "New", "Electronics", 1400.00, 70));
+
+        assertEquals(1400.00, updated.getPrice());
+        verify(mockRepository).updateDetails(1L, "Laptop", "New", "Electronics", 1400.00);
+        verify(mockRepository, never()).save(any());
+        verify(engine, never()).evict(anyLong());
+    }
+
+    @Test
+    public void test_update_with_a_stock_change_reloads_the_in_memory_stock() {
+        ProductRepository mockRepository = Mockito.mock(ProductRepository.class);
+        StockReservationEngine engine = mock(StockReservationEngine.class);
+        when(mockRepository.findById(1L)).thenReturn(Optional.of(new Product(1L, "Laptop", "Old", "Electronics", 1500.00, 100)));
+        when(mockRepository.save(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(engine.available(1L)).thenReturn(70);
+        ProductService productService = new ProductService(mockRepository, engine);
+
+        Product updated = productService.updateProduct(1L, new Product(null, "Laptop", "Old", "Electronics", 1500.00, 200));
+
+        assertEquals(200, updated.getNumberInStock());
+        verify(engine, times(2)).evict(1L);
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit and concurrency stress tests for the SplitStockCounter class.
+ */
+public class SplitStockCounterTest {
+
+    private static final int BUCKETS = 8;
+
+    @Test
+    public void test_quantity_above_a_bucket_share_is_gathered_from_every_bucket() {
+        SplitStockCounter counter = new SplitStockCounter(1, 100, BUCKETS);
+
+        assertTrue(counter.tryTake(60));
+        assertTrue(counter.tryTake(40));
+        assertFalse(counter.tryTake(1));
+        assertEquals(0, counter.available());
+    }
+
+    @Test
+    public void test_concurrent_large_takes_fail_only_when_stock_is_short() throws Exception {
+        // three takers of 30 never hold more than 90 of the 100 units, so no take may fail
+        int takers = 3;
+        int quantity = 30;
+        int rounds = 50_000;
+        SplitStockCounter counter = new SplitStockCounter(1, 100, BUCKETS);
+        ExecutorService pool = Executors.newFixedThreadPool(takers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < takers; t++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    int failed = 0;
+                    for (int i = 0; i < rounds; i++) {
+                        if (counter.tryTake(quantity)) {
+                            counter.give(quantity);
+                        } else {
+                            failed++;
+                        }
+                    }
+                    return failed;
+                }));
+            }
+
+            start.countDown();
+            for (Future<Integer> result : results) {
+                assertEquals(0, result.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(100, counter.available());
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Concurrency stress tests for the StockCounterTable class.
+ */
+public class StockCounterTableTest {
+
+    private static final int PRODUCTS = 200_000;
+    private static final int READERS = 4;
+
+    @Test
+    public void test_lookups_while_the_table_grows_find_every_stored_counter() throws Exception {
+        StockCounterTable table = new StockCounterTable();
+        table.putIfAbsent(new AtomicStockCounter(0, 1));
+        AtomicBoolean growing = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(READERS + 1);
+        try {
+            Future<?>[] readers = new Future<?>[READERS];
+            for (int r = 0; r < READERS; r++) {
+                long offset = r * 7919L;
+                readers[r] = pool.submit(() -> {
+                    start.await();
+                    long lookups = 0;
+                    while (growing.get()) {
+                        // the first counter is always present, the others may not be yet
+                        assertNotNull(table.get(0));
+                        long productId = (offset + lookups++) % PRODUCTS;
+                        StockCounter counter = table.get(productId);
+                        if (counter != null) {
+                            assertEquals(productId, counter.getProductId());
+                        }
+                    }
+                    return null;
+                });
+            }
+            Future<?> writer = pool.submit(() -> {
+                start.await();
+                for (long productId = 1; productId < PRODUCTS; productId++) {
+                    table.putIfAbsent(new AtomicStockCounter(productId, 1));
+                }
+                growing.set(false);
+                return null;
+            });
+
+            start.countDown();
+            writer.get(30, TimeUnit.SECONDS);
+            for (Future<?> reader : readers) {
+                reader.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            growing.set(false);
+            pool.shutdownNow();
+        }
+
+        for (long productId = 0; productId < PRODUCTS; productId++) {
+            assertEquals(productId, table.get(productId).getProductId());
+        }
+    }
+}
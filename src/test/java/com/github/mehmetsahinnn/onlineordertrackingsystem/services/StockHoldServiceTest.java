@@ -0,0 +1,109 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.services;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Product;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the StockHoldService and HashedTimingWheel classes.
+ */
+public class StockHoldServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private StockReservationEngine engine;
+    private StockHoldService stockHoldService;
+
+    @BeforeEach
+    public void init() {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(new Product(1L, "Product1", "Description", "Category", 10.0, 10)));
+        when(productRepository.findById(2L)).thenReturn(Optional.of(new Product(2L, "Product2", "Description", "Category", 10.0, 1)));
+        jdbcTemplate = mock(JdbcTemplate.class);
+        engine = new StockReservationEngine(productRepository, jdbcTemplate, 500);
+        stockHoldService = new StockHoldService(engine, 200, 10, 64);
+    }
+
+    @AfterEach
+    public void close() {
+        stockHoldService.shutdown();
+    }
+
+    @Test
+    public void test_hold_makes_stock_unavailable_without_writing_it() {
+        assertTrue(stockHoldService.hold(UUID.randomUUID(), Map.of(1L, 4)));
+
+        assertEquals(6, engine.available(1L));
+        engine.flush();
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    public void test_hold_is_all_or_nothing() {
+        assertFalse(stockHoldService.hold(UUID.randomUUID(), Map.of(1L, 4, 2L, 2)));
+
+        assertEquals(10, engine.available(1L));
+        assertEquals(0, stockHoldService.outstanding());
+    }
+
+    @Test
+    public void test_unconfirmed_hold_expires_and_frees_stock() throws InterruptedException {
+        UUID orderTrackId = UUID.randomUUID();
+        stockHoldService.hold(orderTrackId, Map.of(1L, 4));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (stockHoldService.outstanding() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(0, stockHoldService.outstanding());
+        assertEquals(10, engine.available(1L));
+        assertFalse(stockHoldService.confirm(orderTrackId));
+    }
+
+    @Test
+    public void test_confirmed_hold_is_written_and_never_expires() throws InterruptedException {
+        UUID orderTrackId = UUID.randomUUID();
+        stockHoldService.hold(orderTrackId, Map.of(1L, 4));
+
+        assertTrue(stockHoldService.confirm(orderTrackId));
+        Thread.sleep(400);
+
+        assertEquals(6, engine.available(1L));
+        engine.flush();
+        verify(jdbcTemplate).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    public void test_timing_wheel_runs_tasks_after_their_delay_and_skips_cancelled_ones() throws InterruptedException {
+        try (HashedTimingWheel wheel = new HashedTimingWheel(5, TimeUnit.MILLISECONDS, 8, "test-wheel")) {
+            CountDownLatch fired = new CountDownLatch(100);
+            long start = System.nanoTime();
+            for (int i = 0; i < 100; i++) {
+                // spans several revolutions of the 8-bucket wheel
+                wheel.schedule(fired::countDown, 20 + i, TimeUnit.MILLISECONDS);
+            }
+            HashedTimingWheel.Timeout cancelled = wheel.schedule(() -> fail("cancelled task ran"), 30, TimeUnit.MILLISECONDS);
+            assertTrue(cancelled.cancel());
+
+            assertTrue(fired.await(5, TimeUnit.SECONDS));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(119));
+            Thread.sleep(50);
+            assertTrue(cancelled.isCancelled());
+            assertEquals(0, wheel.pending());
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.github.mehmetsahinnn.onlineordertrackingsystem.services;
+
+import com.github.mehmetsahinnn.onlineordertrackingsystem.models.Product;
+import com.github.mehmetsahinnn.onlineordertrackingsystem.repositories.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit and concurrency stress tests for the StockReservationEngine class.
+ */
+public class StockReservationEngineTest {
+
+    private static final int INITIAL_STOCK = 10_000;
+    private static final long PRODUCT_COUNT = 8;
+
+    private ProductRepository productRepository;
+    private JdbcTemplate jdbcTemplate;
+    private StockReservationEngine engine;
+    private final Map<Long, AtomicLong> storedStock = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    public void init() {
+        productRepository = mock(ProductRepository.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        for (long id = 1; id <= PRODUCT_COUNT; id++) {
+            storedStock.put(id, new AtomicLong(INITIAL_STOCK));
+            when(productRepository.findById(id))
+                    .thenReturn(Optional.of(new Product(id, "Product" + id, "Description", "Category", 10.0, INITIAL_STOCK)));
+        }
+        when(jdbcTemplate.batchUpdate(eq(StockReservationEngine.APPLY_DELTA_SQL), anyList())).thenAnswer(invocation -> {
+            List<Object[]> batch = invocation.getArgument(1);
+            for (Object[] args : batch) {
+                storedStock.get((Long) args[1]).addAndGet((Integer) args[0]);
+            }
+            return new int[batch.size()];
+        });
+        engine = new StockReservationEngine(productRepository, jdbcTemplate, 3);
+    }
+
+    @Test
+    public void test_reserve_fails_when_stock_is_insufficient() {
+        assertTrue(engine.reserve(1L, INITIAL_STOCK));
+        assertFalse(engine.reserve(1L, 1));
+        assertEquals(0, engine.available(1L));
+    }
+
+    @Test
+    public void test_reserve_all_is_all_or_nothing() {
+        assertTrue(engine.reserve(2L, INITIAL_STOCK - 1));
+
+        assertFalse(engine.reserveAll(Map.of(1L, 5, 2L, 5)));
+
+        assertEquals(INITIAL_STOCK, engine.available(1L));
+        assertEquals(1, engine.available(2L));
+    }
+
+    @Test
+    public void test_failed_flush_keeps_deltas_for_retry() {
+        engine.reserve(1L, 7);
+        doThrow(new RuntimeException("Database error"))
+                .when(jdbcTemplate).batchUpdate(eq(StockReservationEngine.APPLY_DELTA_SQL), anyList());
+
+        engine.flush();
+
+        reset(jdbcTemplate);
+        when(jdbcTemplate.batchUpdate(eq(StockReservationEngine.APPLY_DELTA_SQL), anyList())).thenAnswer(invocation -> {
+            List<Object[]> batch = invocation.getArgument(1);
+            batch.forEach(args -> storedStock.get((Long) args[1]).addAndGet((Integer) args[0]));
+            return new int[batch.size()];
+        });
+        engine.flush();
+
+        assertEquals(INITIAL_STOCK - 7, storedStock.get(1L).get());
+    }
+
+    @Test
+    public void test_concurrent_reservations_releases_and_flushes_stay_exact() throws Exception {
+        int threads = 16;
+        int operationsPerThread = 20_000;
+        AtomicInteger[] reserved = new AtomicInteger[(int) PRODUCT_COUNT + 1];
+        AtomicInteger[] released = new AtomicInteger[(int) PRODUCT_COUNT + 1];
+        for (int i = 0; i <= PRODUCT_COUNT; i++) {
+            reserved[i] = new AtomicInteger();
+            released[i] = new AtomicInteger();
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        Future<?> flusher = pool.submit(() -> {
+            start.await();
+            while (running.get()) {
+                engine.flush();
+            }
+            return null;
+        });
+
+        List<Future<?>> workers = new CopyOnWriteArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < operationsPerThread; i++) {
+                    int productId = 1 + random.nextInt((int) PRODUCT_COUNT);
+                    int quantity = 1 + random.nextInt(3);
+                    if (engine.reserve(productId, quantity)) {
+                        reserved[productId].addAndGet(quantity);
+                        if (random.nextInt(4) == 0) {
+                            engine.release(productId, quantity);
+                            released[productId].addAndGet(quantity);
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(60, TimeUnit.SECONDS);
+        }
+        running.set(false);
+        flusher.get(60, TimeUnit.SECONDS);
+        pool.shutdown();
+        engine.flush();
+
+        for (long id = 1; id <= PRODUCT_COUNT; id++) {
+            int net = reserved[(int) id].get() - released[(int) id].get();
+            assertTrue(net <= INITIAL_STOCK, "oversold product " + id);
+            assertEquals(INITIAL_STOCK - net, engine.available(id));
+            assertEquals(INITIAL_STOCK - net, storedStock.get(id).get());
+        }
+    }
+
+    @Test
+    public void test_evictions_during_reservations_lose_no_delta() throws Exception {
+        // reloads read whatever has been written so far, like the database would
+        when(productRepository.findById(1L)).thenAnswer(invocation ->
+                Optional.of(new Product(1L, "Product1", "Description", "Category", 10.0, (int) storedStock.get(1L).get())));
+        when(jdbcTemplate.update(eq(StockReservationEngine.APPLY_DELTA_SQL), anyInt(), anyLong())).thenAnswer(invocation -> {
+            storedStock.get((Long) invocation.getArgument(2)).addAndGet((Integer) invocation.getArgument(1));
+            return 1;
+        });
+        int threads = 8;
+        AtomicInteger reserved = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        Future<?> evictor = pool.submit(() -> {
+            start.await();
+            while (running.get()) {
+                engine.evict(1L);
+            }
+            return null;
+        });
+        List<Future<?>> workers = new CopyOnWriteArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 2_000; i++) {
+                    if (engine.reserve(1L, 1)) {
+                        reserved.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(60, TimeUnit.SECONDS);
+        }
+        running.set(false);
+        evictor.get(60, TimeUnit.SECONDS);
+        pool.shutdown();
+        engine.flush();
+
+        assertTrue(reserved.get() <= INITIAL_STOCK);
+        assertEquals(INITIAL_STOCK - reserved.get(), storedStock.get(1L).get());
+    }
+
+    @Test
+    public void test_reloaded_counter_leaves_out_outstanding_holds() {
+        when(productRepository.findById(1L)).thenAnswer(invocation ->
+                Optional.of(new Product(1L, "Product1", "Description", "Category", 10.0, (int) storedStock.get(1L).get())));
+        assertTrue(engine.hold(1L, 4));
+        assertTrue(engine.hold(1L, 3));
+
+        // the stock is overwritten while both holds are outstanding
+        engine.evict(1L);
+        storedStock.get(1L).set(100);
+        assertEquals(93, engine.available(1L));
+
+        engine.commitHold(1L, 4);
+        engine.releaseHold(1L, 3);
+        engine.flush();
+
+        assertEquals(96, engine.available(1L));
+        assertEquals(96, storedStock.get(1L).get());
+    }
+
+    @Test
+    public void test_hot_sku_steals_from_sibling_buckets() {
+        StockReservationEngine hotEngine = new StockReservationEngine(productRepository, jdbcTemplate, 500, "1", 8);
+        assertTrue(hotEngine.isHot(1L));
+        assertFalse(hotEngine.isHot(2L));
+
+        // a single thread only has one home bucket, so draining everything needs stealing
+        assertTrue(hotEngine.reserve(1L, INITIAL_STOCK - 1));
+        assertEquals(1, hotEngine.available(1L));
+        assertFalse(hotEngine.reserve(1L, 2));
+        assertEquals(1, hotEngine.available(1L));
+        assertTrue(hotEngine.reserve(1L, 1));
+        assertEquals(0, hotEngine.available(1L));
+    }
+
+    @Test
+    public void test_hot_sku_never_oversells_under_contention() throws Exception {
+        StockReservationEngine hotEngine = new StockReservationEngine(productRepository, jdbcTemplate, 500, "1", 8);
+        int threads = 16;
+        AtomicInteger reserved = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new CopyOnWriteArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 5_000; i++) {
+                    int quantity = 1 + random.nextInt(5);
+                    if (hotEngine.reserve(1L, quantity)) {
+                        reserved.addAndGet(quantity);
+                    }
+                    if (i % 7 == 0 && hotEngine.reserve(1L, 1)) {
+                        hotEngine.release(1L, 1);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        hotEngine.flush();
+
+        assertTrue(reserved.get() <= INITIAL_STOCK);
+        assertEquals(INITIAL_STOCK - reserved.get(), hotEngine.available(1L));
+        assertEquals(INITIAL_STOCK - reserved.get(), storedStock.get(1L).get());
+    }
+}